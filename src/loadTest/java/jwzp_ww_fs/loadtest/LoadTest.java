@@ -0,0 +1,208 @@
+package jwzp_ww_fs.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Drives a fixed mix of requests against a running instance seeded with gym.seed.enabled and reports throughput
+// and latency percentiles per operation. Every worker draws its requests from its own generator seeded from
+// loadtest.seed, so two runs against the same seeded network send the same requests in the same order.
+// Mutations are rate limited per client, so the instance under test runs with gym.limits.enabled=false.
+//
+//   ./gradlew loadTest -Dloadtest.url=http://localhost:8080 -Dloadtest.clubs=1000 -Dloadtest.schedules=40000
+public class LoadTest {
+    private static final Pattern EVENT = Pattern.compile(
+            "\"id\":(\\d+),\"title\":\"[^\"]*\",\"date\":\"([^\"]+)\",\"time\":\"([^\"]+)\"");
+    private static final Pattern CAPACITY = Pattern.compile("\"capacity\":\\d+");
+    private static final int REMEMBERED_EVENTS = 200;
+
+    enum Operation {
+        BROWSE_EVENTS(70), SIGN_UP(15), PATCH_EVENT(10), EDIT_SCHEDULE(5);
+
+        final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+
+        static Operation draw(Random random) {
+            int ticket = random.nextInt(100);
+            for (Operation operation : values()) {
+                if (ticket < operation.weight) return operation;
+                ticket -= operation.weight;
+            }
+            return BROWSE_EVENTS;
+        }
+    }
+
+    private record Event(long id, String date, String time) {}
+
+    private static class Results {
+        final Map<Operation, long[]> latencies = new EnumMap<>(Operation.class);
+        final Map<Operation, Integer> counts = new EnumMap<>(Operation.class);
+        final Map<Operation, Integer> errors = new EnumMap<>(Operation.class);
+
+        Results(int capacity) {
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new long[capacity]);
+                counts.put(operation, 0);
+                errors.put(operation, 0);
+            }
+        }
+
+        void add(Operation operation, long nanos, boolean failed) {
+            int count = counts.get(operation);
+            latencies.get(operation)[count] = nanos;
+            counts.put(operation, count + 1);
+            if (failed) errors.merge(operation, 1, Integer::sum);
+        }
+    }
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String url;
+    private final int clubs;
+    private final int schedules;
+    private final LocalDate today = LocalDate.now();
+
+    LoadTest(String url, int clubs, int schedules) {
+        this.url = url;
+        this.clubs = clubs;
+        this.schedules = schedules;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("loadtest.url", "http://localhost:8080");
+        int clubs = Integer.getInteger("loadtest.clubs", 1000);
+        int schedules = Integer.getInteger("loadtest.schedules", 40_000);
+        int workers = Integer.getInteger("loadtest.workers", 16);
+        int requests = Integer.getInteger("loadtest.requests", 2000);
+        int warmup = Integer.getInteger("loadtest.warmup", 200);
+        long seed = Long.getLong("loadtest.seed", 42L);
+
+        var test = new LoadTest(url, clubs, schedules);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        var futures = new ArrayList<Future<Results>>();
+        long start = System.nanoTime();
+        for (int worker = 0; worker < workers; worker++) {
+            var random = new Random(seed + worker);
+            futures.add(executor.submit(() -> test.run(random, warmup, requests)));
+        }
+
+        var results = new ArrayList<Results>();
+        for (var future : futures)
+            results.add(future.get());
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        report(results, elapsed, workers, requests, warmup, seed);
+    }
+
+    Results run(Random random, int warmup, int requests) {
+        var results = new Results(requests);
+        var seen = new ArrayList<Event>();
+        for (int i = 0; i < warmup + requests; i++) {
+            Operation operation = Operation.draw(random);
+            // sign-ups and patches need an event the worker has already browsed
+            if (seen.isEmpty() && operation != Operation.EDIT_SCHEDULE) operation = Operation.BROWSE_EVENTS;
+
+            long start = System.nanoTime();
+            boolean failed;
+            try {
+                failed = !execute(operation, random, seen);
+            } catch (Exception ex) {
+                failed = true;
+            }
+            if (i >= warmup) results.add(operation, System.nanoTime() - start, failed);
+        }
+        return results;
+    }
+
+    private boolean execute(Operation operation, Random random, List<Event> seen) throws Exception {
+        switch (operation) {
+            case BROWSE_EVENTS -> {
+                LocalDate from = today.plusDays(random.nextInt(7));
+                var response = send(HttpRequest.newBuilder(URI.create(url + "/api/v1/events/available?from=" + from
+                        + "&to=" + from.plusDays(7) + "&clubId=" + (1 + random.nextInt(clubs)) + "&limit=20")).GET());
+                Matcher matcher = EVENT.matcher(response.body());
+                while (matcher.find() && seen.size() < REMEMBERED_EVENTS)
+                    seen.add(new Event(Long.parseLong(matcher.group(1)), matcher.group(2), matcher.group(3)));
+                return response.statusCode() == 200;
+            }
+            case SIGN_UP -> {
+                Event event = seen.get(random.nextInt(seen.size()));
+                var response = send(HttpRequest.newBuilder(URI.create(url + "/api/v1/events/" + event.id()))
+                        .POST(HttpRequest.BodyPublishers.noBody()));
+                // a full event is a regular answer, not a failure
+                return response.statusCode() == 200 || response.statusCode() == 400;
+            }
+            case PATCH_EVENT -> {
+                Event event = seen.get(random.nextInt(seen.size()));
+                String body = "{\"capacity\":" + (30 + random.nextInt(10)) + ",\"date\":\"" + event.date()
+                        + "\",\"time\":\"" + event.time() + "\"}";
+                var response = send(HttpRequest.newBuilder(URI.create(url + "/api/v1/events/" + event.id()))
+                        .header("Content-Type", "application/json")
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString(body)));
+                return response.statusCode() == 200;
+            }
+            case EDIT_SCHEDULE -> {
+                int id = 1 + random.nextInt(schedules);
+                var current = send(HttpRequest.newBuilder(URI.create(url + "/api/v1/schedule/" + id)).GET());
+                if (current.statusCode() != 200 || current.body().isBlank()) return false;
+                String body = CAPACITY.matcher(current.body()).replaceFirst("\"capacity\":" + (8 + random.nextInt(23)));
+                var response = send(HttpRequest.newBuilder(URI.create(url + "/api/v1/schedule/" + id))
+                        .header("Content-Type", "application/json")
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString(body)));
+                return response.statusCode() == 200;
+            }
+        }
+        return false;
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void report(List<Results> results, long elapsedNanos, int workers, int requests, int warmup, long seed) {
+        System.out.printf("%d workers x %d requests (+%d warm-up), seed %d, %.1f s%n", workers, requests, warmup, seed,
+                elapsedNanos / 1e9);
+        System.out.printf("%-14s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        for (Operation operation : Operation.values()) {
+            int count = results.stream().mapToInt(r -> r.counts.get(operation)).sum();
+            int errors = results.stream().mapToInt(r -> r.errors.get(operation)).sum();
+            long[] all = new long[count];
+            int offset = 0;
+            for (var result : results) {
+                int n = result.counts.get(operation);
+                System.arraycopy(result.latencies.get(operation), 0, all, offset, n);
+                offset += n;
+            }
+            Arrays.sort(all);
+            System.out.printf("%-14s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", operation, count, errors,
+                    count / (elapsedNanos / 1e9), percentile(all, 0.5), percentile(all, 0.9), percentile(all, 0.99),
+                    percentile(all, 0.999), percentile(all, 1.0));
+        }
+    }
+
+    // nearest rank, in milliseconds
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+}
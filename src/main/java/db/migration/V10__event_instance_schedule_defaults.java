@@ -0,0 +1,31 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Statement;
+
+// Occurrences store their title and duration only where they differ from their schedule. Java migration, because
+// only the home database holds the schedules: the other shards, migrated with the shard placeholder, keep their
+// copies and get no foreign key.
+public class V10__event_instance_schedule_defaults extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        boolean home = !context.getConfiguration().getPlaceholders().containsKey("shard");
+        if (!home) return;
+
+        try (Statement statement = context.getConnection().createStatement()) {
+            // occurrences of removed schedules keep what they have
+            statement.execute("UPDATE event_instance SET schedule_id = NULL WHERE schedule_id IS NOT NULL "
+                    + "AND NOT EXISTS (SELECT 1 FROM schedules s WHERE s.id = event_instance.schedule_id)");
+            statement.execute("UPDATE event_instance SET title = NULL WHERE schedule_id IS NOT NULL "
+                    + "AND title = (SELECT s.title FROM schedules s WHERE s.id = event_instance.schedule_id)");
+            statement.execute("UPDATE event_instance SET duration = NULL WHERE schedule_id IS NOT NULL "
+                    + "AND duration = (SELECT s.duration FROM schedules s WHERE s.id = event_instance.schedule_id)");
+            // the occurrences a removed schedule leaves are pinned to its title and duration before it goes
+            statement.execute("ALTER TABLE event_instance ADD CONSTRAINT fk_event_instance_schedule "
+                    + "FOREIGN KEY (schedule_id) REFERENCES schedules (id) ON DELETE SET NULL");
+        }
+    }
+}
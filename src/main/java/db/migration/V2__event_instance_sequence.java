@@ -0,0 +1,29 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+// Java migration, because the start of the sequence depends on already existing rows
+// and neither H2 nor PostgreSQL accept a subquery in CREATE SEQUENCE
+public class V2__event_instance_sequence extends BaseJavaMigration {
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        long maxId;
+        try (Statement statement = context.getConnection().createStatement();
+             ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM event_instance")) {
+            result.next();
+            maxId = result.getLong(1);
+        }
+
+        // pooled optimizer hands out (value - ALLOCATION_SIZE, value], so the first block starts right after maxId
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("CREATE SEQUENCE event_instance_seq START WITH " + (maxId + ALLOCATION_SIZE)
+                    + " INCREMENT BY " + ALLOCATION_SIZE);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Statement;
+
+// Java migration, because H2 does not support partial indexes
+public class V3__event_instance_availability_index extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        var connection = context.getConnection();
+        boolean postgres = connection.getMetaData().getDatabaseProductName().equals("PostgreSQL");
+
+        try (Statement statement = connection.createStatement()) {
+            if (postgres) {
+                statement.execute("CREATE INDEX ix_event_instance_available ON event_instance (date, time, id) "
+                        + "WHERE participants < capacity");
+            } else {
+                statement.execute("CREATE INDEX ix_event_instance_available ON event_instance (date, time, id)");
+            }
+            statement.execute("CREATE INDEX ix_event_instance_club_date ON event_instance (club_id, date)");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package jwzp_ww_fs.app.controllers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.services.ChangesService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping({ "/api/v1/changes", "/api/changes" })
+@Tag(name = "Changes", description = "stream of changes made to clubs, coaches, schedules and events")
+public class ChangesController {
+    private static final int MAX_WAIT_SECONDS = 60;
+
+    private final ChangesService service;
+
+    Logger logger = LoggerFactory.getLogger(ChangesController.class);
+
+    @Autowired
+    public ChangesController(ChangesService service) {
+        this.service = service;
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ChangeRecord.class)))
+            }, responseCode = "200", description = "Changes after given sequence number, empty when none arrived before the wait ended")
+    })
+    @GetMapping("")
+    public DeferredResult<List<ChangeRecord>> getChanges(
+            @Parameter(description = "Sequence number of the last change already seen, 0 for the oldest retained change") @RequestParam(defaultValue = "0") long since,
+            @Parameter(description = "Maximal number of returned changes") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(description = "Seconds to wait for new changes") @RequestParam(defaultValue = "30") int wait) {
+        logger.info("Polled changes after {}", since);
+        return service.poll(since, limit, Duration.ofSeconds(Math.max(1, Math.min(wait, MAX_WAIT_SECONDS))));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "text/event-stream")
+            }, responseCode = "200", description = "Stream of batched changes, the id of every event is the last sequence number in it")
+    })
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @Parameter(description = "Sequence number to resume after") @RequestHeader(value = "Last-Event-ID", required = false) Optional<Long> lastEventId) {
+        logger.info("Subscribed to changes after {}", lastEventId.map(String::valueOf).orElse("now"));
+        return service.subscribe(lastEventId);
+    }
+}
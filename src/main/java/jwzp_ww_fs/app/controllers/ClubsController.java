@@ -1,10 +1,12 @@
 package jwzp_ww_fs.app.controllers;
 
+import jwzp_ww_fs.app.dto.BulkDeleteSummary;
 import jwzp_ww_fs.app.dto.ClubRepresentation;
 import jwzp_ww_fs.app.exceptions.club.ClubException;
 import jwzp_ww_fs.app.models.Club;
 import jwzp_ww_fs.app.util.DefaultValues;
 import jwzp_ww_fs.app.models.ExceptionInfo;
+import jwzp_ww_fs.app.services.BulkMaintenanceService;
 import jwzp_ww_fs.app.services.ClubsService;
 
 import org.slf4j.Logger;
@@ -38,12 +40,14 @@ public class ClubsController {
 
     private final DefaultValues defaultValues;
     private final ClubsService service;
+    private final BulkMaintenanceService bulkService;
 
     Logger logger = LoggerFactory.getLogger(ClubsController.class);
 
     @Autowired
-    public ClubsController(ClubsService service, DefaultValues defaultValues) {
+    public ClubsController(ClubsService service, BulkMaintenanceService bulkService, DefaultValues defaultValues) {
         this.service = service;
+        this.bulkService = bulkService;
         this.defaultValues = defaultValues;
     }
 
@@ -114,8 +118,8 @@ public class ClubsController {
 
     @ApiResponses(value = {
             @ApiResponse(content = {
-                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = Club.class)))
-            }, responseCode = "200", description = "Correctly deleted all clubs and returned deleted clubs"),
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = BulkDeleteSummary.class))
+            }, responseCode = "200", description = "Correctly deleted all clubs and returned number of deleted clubs"),
             @ApiResponse(content = {
                     @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ExceptionInfo.class)))
             }, responseCode = "400", description = "Error occured due to club being assigned to some event")
@@ -123,7 +127,7 @@ public class ClubsController {
     @DeleteMapping("")
     public ResponseEntity<?> removeAllClubs() {
         try {
-            var removed = service.removeAllClubs();
+            var removed = bulkService.removeAllClubs();
             logger.info("Deleted all clubs");
             return ResponseEntity.ok().body(removed);
         } catch (ClubException e) {
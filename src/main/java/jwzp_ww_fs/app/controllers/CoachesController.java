@@ -1,9 +1,11 @@
 package jwzp_ww_fs.app.controllers;
 
+import jwzp_ww_fs.app.dto.BulkDeleteSummary;
 import jwzp_ww_fs.app.exceptions.coach.CoachException;
 import jwzp_ww_fs.app.models.Coach;
 import jwzp_ww_fs.app.util.DefaultValues;
 import jwzp_ww_fs.app.models.ExceptionInfo;
+import jwzp_ww_fs.app.services.BulkMaintenanceService;
 import jwzp_ww_fs.app.services.CoachesService;
 
 import org.slf4j.Logger;
@@ -29,13 +31,15 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 public class CoachesController {
 
     private final CoachesService service;
+    private final BulkMaintenanceService bulkService;
     private final DefaultValues defaultValues;
 
     Logger logger = LoggerFactory.getLogger(CoachesController.class);
 
     @Autowired
-    public CoachesController(CoachesService service, DefaultValues defaultValues) {
+    public CoachesController(CoachesService service, BulkMaintenanceService bulkService, DefaultValues defaultValues) {
         this.service = service;
+        this.bulkService = bulkService;
         this.defaultValues = defaultValues;
     }
 
@@ -106,8 +110,8 @@ public class CoachesController {
 
     @ApiResponses(value = {
             @ApiResponse(content = {
-                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = Coach.class)))
-            }, responseCode = "200", description = "Correctly deleted all coaches and returned deleted coaches"),
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = BulkDeleteSummary.class))
+            }, responseCode = "200", description = "Correctly deleted all coaches and returned number of deleted coaches"),
             @ApiResponse(content = {
                     @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ExceptionInfo.class)))
             }, responseCode = "400", description = "Error occured due to coach being assigned to some event")
@@ -115,7 +119,7 @@ public class CoachesController {
     @DeleteMapping("")
     public ResponseEntity<?> removeAllCoaches() {
         try {
-            var removed = service.removeAllCoaches();
+            var removed = bulkService.removeAllCoaches();
             logger.info("Deleted all coaches");
             return ResponseEntity.ok().body(removed);
         } catch (CoachException e) {
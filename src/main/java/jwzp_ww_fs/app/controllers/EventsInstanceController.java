@@ -1,18 +1,29 @@
 package jwzp_ww_fs.app.controllers;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import jwzp_ww_fs.app.dto.AvailableEvents;
+import jwzp_ww_fs.app.dto.BulkDeleteSummary;
+import jwzp_ww_fs.app.dto.EventAvailabilityView;
+import jwzp_ww_fs.app.dto.EventInstanceView;
 import jwzp_ww_fs.app.exceptions.event.EventException;
 import jwzp_ww_fs.app.util.DefaultValues;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,6 +33,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -32,7 +44,12 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jwzp_ww_fs.app.models.EventInstance;
 import jwzp_ww_fs.app.models.EventInstanceData;
+import jwzp_ww_fs.app.models.ExceptionInfo;
+import jwzp_ww_fs.app.services.BulkMaintenanceService;
+import jwzp_ww_fs.app.services.EventSearchService;
 import jwzp_ww_fs.app.services.EventsInstancesService;
+import jwzp_ww_fs.app.services.SeatFeedService;
+import jwzp_ww_fs.app.services.SignUpQueueService;
 
 @RestController
 @RequestMapping({ "/api/v1/events", "/api/events" })
@@ -40,19 +57,29 @@ import jwzp_ww_fs.app.services.EventsInstancesService;
 public class EventsInstanceController {
 
     private final EventsInstancesService service;
+    private final BulkMaintenanceService bulkService;
+    private final EventSearchService searchService;
+    private final SeatFeedService seatFeedService;
+    private final SignUpQueueService signUpQueue;
     private final DefaultValues defaultValues;
 
     Logger logger = LoggerFactory.getLogger(EventsInstanceController.class);
 
     @Autowired
-    public EventsInstanceController(EventsInstancesService service, DefaultValues defaultValues) {
+    public EventsInstanceController(EventsInstancesService service, BulkMaintenanceService bulkService,
+                                    EventSearchService searchService, SeatFeedService seatFeedService,
+                                    SignUpQueueService signUpQueue, DefaultValues defaultValues) {
         this.service = service;
+        this.bulkService = bulkService;
+        this.searchService = searchService;
+        this.seatFeedService = seatFeedService;
+        this.signUpQueue = signUpQueue;
         this.defaultValues = defaultValues;
     }
 
     @ApiResponses(value = {
             @ApiResponse(content = {
-                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = EventInstance.class)))
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = EventInstanceView.class)))
             }, responseCode = "200", description = "Correctly returned all events")
     })
     @GetMapping("")
@@ -73,12 +100,102 @@ public class EventsInstanceController {
         return new ResponseEntity<>(out, HttpStatus.OK);
     }
 
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = AvailableEvents.class))
+            }, responseCode = "200", description = "Correctly returned page of events with free seats"),
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ExceptionInfo.class))
+            }, responseCode = "400", description = "Invalid date range or paging cursor")
+    })
+    @GetMapping("/available")
+    public ResponseEntity<?> getAvailableEventInstances(
+            @Parameter(description = "First date in the format yyyy-mm-dd to search by") @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @Parameter(description = "Last date in the format yyyy-mm-dd to search by") @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+            @Parameter(description = "ID of club to narrow search") @RequestParam Optional<Integer> clubId,
+            @Parameter(description = "ID of coach to narrow search") @RequestParam Optional<Integer> coachId,
+            @Parameter(description = "Minimal number of free seats") @RequestParam(defaultValue = "1") int minSeats,
+            @Parameter(description = "Cursor returned as next by the previous page") @RequestParam Optional<String> after,
+            @Parameter(description = "Maximal number of returned events") @RequestParam(defaultValue = "50") int limit) {
+        try {
+            var out = service.getAvailableEvents(from, to, clubId, coachId, minSeats, after, limit);
+            logger.info("Returned {} available events between {} and {}", out.events().size(), from, to);
+            return ResponseEntity.ok().body(out);
+        } catch (EventException ex) {
+            logger.info("Could not return available events between {} and {}", from, to);
+            return ResponseEntity.badRequest().body(ex.getErrorInfo());
+        }
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = EventAvailabilityView.class)))
+            }, responseCode = "200", description = "Correctly returned upcoming events matching all filters"),
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ExceptionInfo.class))
+            }, responseCode = "400", description = "Invalid date range")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<?> searchEventInstances(
+            @Parameter(description = "Words that must all appear in the title") @RequestParam Optional<String> q,
+            @Parameter(description = "ID of club to narrow search") @RequestParam Optional<Integer> clubId,
+            @Parameter(description = "ID of coach to narrow search") @RequestParam Optional<Integer> coachId,
+            @Parameter(description = "First date in the format yyyy-mm-dd, today by default") @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Optional<LocalDate> from,
+            @Parameter(description = "Last date in the format yyyy-mm-dd, a week from the first by default") @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Optional<LocalDate> to,
+            @Parameter(description = "Earliest start time in the format hh:mm") @RequestParam @DateTimeFormat(pattern = "HH:mm") Optional<LocalTime> startsAfter,
+            @Parameter(description = "Latest start time in the format hh:mm, before the earliest for a window past midnight") @RequestParam @DateTimeFormat(pattern = "HH:mm") Optional<LocalTime> startsBefore,
+            @Parameter(description = "Days of week to narrow search") @RequestParam Optional<List<DayOfWeek>> day,
+            @Parameter(description = "Minimal number of free seats") @RequestParam(defaultValue = "0") int minSeats,
+            @Parameter(description = "Maximal number of returned events") @RequestParam(defaultValue = "50") int limit) {
+        var first = from.orElse(LocalDate.now());
+        var last = to.orElse(first.plusWeeks(1));
+        var days = day.filter(d -> !d.isEmpty()).map(EnumSet::copyOf).orElse(EnumSet.noneOf(DayOfWeek.class));
+        try {
+            var out = searchService.search(q, clubId, coachId, first, last, startsAfter, startsBefore, days, minSeats, limit);
+            logger.info("Returned {} events matching search between {} and {}", out.size(), first, last);
+            return ResponseEntity.ok().body(out);
+        } catch (EventException ex) {
+            logger.info("Could not search events between {} and {}", first, last);
+            return ResponseEntity.badRequest().body(ex.getErrorInfo());
+        }
+    }
+
     @GetMapping("/{id}")
     public EventInstance getAllEventInstances(@PathVariable long id) {
         logger.info("Returned event with id {}", id);
         return service.getEventInstanceWithId(id);
     }
 
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "text/event-stream")
+            }, responseCode = "200", description = "Stream of seat counts of the event, starting with the current one"),
+            @ApiResponse(responseCode = "404", description = "Event does not exist")
+    })
+    @GetMapping(value = "/{id}/seats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEventSeats(@PathVariable long id) {
+        var event = service.getEventInstanceWithId(id);
+        if (event == null) {
+            logger.info("Could not subscribe to seats of event with id {}", id);
+            return ResponseEntity.notFound().build();
+        }
+
+        logger.info("Subscribed to seats of event with id {}", id);
+        return ResponseEntity.ok(seatFeedService.subscribeEvent(event));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "text/event-stream")
+            }, responseCode = "200", description = "Stream of seat counts of all events in the club")
+    })
+    @GetMapping(value = "/seats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamClubSeats(
+            @Parameter(description = "Club whose events are streamed") @RequestParam int clubId) {
+        logger.info("Subscribed to seats of events in club {}", clubId);
+        return seatFeedService.subscribeClub(clubId);
+    }
+
     @PatchMapping("/{id}")
     public ResponseEntity<?> updateEventInstance(@PathVariable long id,
             @org.springframework.web.bind.annotation.RequestBody EventInstanceData newData) {
@@ -92,22 +209,66 @@ public class EventsInstanceController {
         }
     }
 
+    // completes once the sign-up is admitted, right away unless queued sign-ups are enabled
     @PostMapping("/{id}")
-    public ResponseEntity<?> updateEventInstance(@PathVariable long id) {
+    public CompletableFuture<ResponseEntity<?>> updateEventInstance(@PathVariable long id) {
+        return signUpQueue.signUp(id, LocalDate.now()).<ResponseEntity<?>>handle((signed, thrown) -> {
+            if (thrown == null) {
+                logger.info("Signed person up for event with id {}", id);
+                return ResponseEntity.ok().body(signed);
+            }
+
+            Throwable cause = thrown instanceof CompletionException ? thrown.getCause() : thrown;
+            if (cause instanceof EventException ex) {
+                logger.info("Could not sign person up for event with id {}", id);
+                return ResponseEntity.badRequest().body(ex.getErrorInfo());
+            }
+            throw new CompletionException(cause);
+        });
+    }
+
+    @PostMapping("/occurrences/{scheduleId}/{date}")
+    public ResponseEntity<?> signUpForOccurrence(@PathVariable int scheduleId,
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date) {
         try {
-            var signed = service.signUpForEvent(id, LocalDate.now());
-            logger.info("Signed person up for event with id {}", id);
+            EventInstance signed;
+            try {
+                signed = service.signUpForOccurrence(scheduleId, date, LocalDate.now());
+            } catch (DataIntegrityViolationException ex) {
+                // occurrence was persisted concurrently, second attempt signs up for that instance
+                signed = service.signUpForOccurrence(scheduleId, date, LocalDate.now());
+            }
+            logger.info("Signed person up for occurrence of schedule {} on {}", scheduleId, date);
             return ResponseEntity.ok().body(signed);
         } catch (EventException ex) {
-            logger.info("Could not sign person up for event with id {}", id);
+            logger.info("Could not sign person up for occurrence of schedule {} on {}", scheduleId, date);
+            return ResponseEntity.badRequest().body(ex.getErrorInfo());
+        }
+    }
+
+    @PatchMapping("/occurrences/{scheduleId}/{date}")
+    public ResponseEntity<?> updateOccurrence(@PathVariable int scheduleId,
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date,
+            @org.springframework.web.bind.annotation.RequestBody EventInstanceData newData) {
+        try {
+            EventInstance updated;
+            try {
+                updated = service.updateOccurrence(scheduleId, date, newData);
+            } catch (DataIntegrityViolationException ex) {
+                updated = service.updateOccurrence(scheduleId, date, newData);
+            }
+            logger.info("Updated occurrence of schedule {} on {}", scheduleId, date);
+            return ResponseEntity.ok().body(updated);
+        } catch (EventException ex) {
+            logger.info("Could not update occurrence of schedule {} on {}", scheduleId, date);
             return ResponseEntity.badRequest().body(ex.getErrorInfo());
         }
     }
 
     @DeleteMapping("")
-    public List<EventInstance> deleteAllEventInstances() {
+    public BulkDeleteSummary deleteAllEventInstances() {
         logger.info("Removed all events");
-        return service.removeAllEvents();
+        return bulkService.removeAllEvents();
     }
 
     @DeleteMapping("/{id}")
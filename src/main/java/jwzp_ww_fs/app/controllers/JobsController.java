@@ -0,0 +1,51 @@
+package jwzp_ww_fs.app.controllers;
+
+import java.util.Optional;
+
+import jwzp_ww_fs.app.models.JobRun;
+import jwzp_ww_fs.app.services.JobsService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping({ "/api/v1/jobs", "/api/jobs" })
+@Tag(name = "Jobs", description = "history of scheduled jobs run by replicas")
+public class JobsController {
+
+    private final JobsService service;
+
+    Logger logger = LoggerFactory.getLogger(JobsController.class);
+
+    @Autowired
+    public JobsController(JobsService service) {
+        this.service = service;
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))
+            }, responseCode = "200", description = "Correctly returned job runs")
+    })
+    @GetMapping("/runs")
+    public Page<JobRun> getRuns(
+            @Parameter(description = "Name of job to narrow search") @RequestParam Optional<String> job,
+            @Parameter(description = "data for paging") Pageable p) {
+        logger.info("Returned runs of job {}", job.orElse("*"));
+        return service.getRuns(p, job);
+    }
+}
@@ -0,0 +1,113 @@
+package jwzp_ww_fs.app.controllers;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import jwzp_ww_fs.app.exceptions.event.EventException;
+import jwzp_ww_fs.app.exceptions.event.InvalidIdempotencyKeyException;
+import jwzp_ww_fs.app.exceptions.event.ReusedIdempotencyKeyException;
+import jwzp_ww_fs.app.models.EventParticipant;
+import jwzp_ww_fs.app.models.ExceptionInfo;
+import jwzp_ww_fs.app.services.ParticipantsService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping({ "/api/v1/events/{eventId}/participants", "/api/events/{eventId}/participants" })
+@Tag(name = "Participants", description = "members signed up for events")
+public class ParticipantsController {
+    // length of the idempotency_key column
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+
+    private final ParticipantsService service;
+
+    Logger logger = LoggerFactory.getLogger(ParticipantsController.class);
+
+    @Autowired
+    public ParticipantsController(ParticipantsService service) {
+        this.service = service;
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))
+            }, responseCode = "200", description = "Correctly returned participants of event")
+    })
+    @GetMapping("")
+    public Page<EventParticipant> getParticipants(@PathVariable long eventId,
+            @Parameter(description = "data for paging") Pageable p) {
+        logger.info("Returned participants of event with id {}", eventId);
+        return service.getParticipants(p, eventId);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = EventParticipant.class))
+            }, responseCode = "200", description = "Member signed up, or was already signed up, for event"),
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ExceptionInfo.class))
+            }, responseCode = "400", description = "Could not sign member up for event"),
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ExceptionInfo.class))
+            }, responseCode = "409", description = "Idempotency key was already used to sign up another member")
+    })
+    @PostMapping("/{memberId}")
+    public ResponseEntity<?> signUp(@PathVariable long eventId, @PathVariable long memberId,
+            @Parameter(description = "Key identifying the request, a retried request with the same key is not counted twice")
+            @RequestHeader(value = "Idempotency-Key", required = false) Optional<String> idempotencyKey) {
+        if (idempotencyKey.isPresent() && (idempotencyKey.get().isBlank() || idempotencyKey.get().length() > MAX_IDEMPOTENCY_KEY_LENGTH))
+            return ResponseEntity.badRequest().body(new InvalidIdempotencyKeyException().getErrorInfo());
+
+        try {
+            EventParticipant participant;
+            try {
+                participant = service.signUp(eventId, memberId, idempotencyKey, LocalDate.now());
+            } catch (DataIntegrityViolationException ex) {
+                // same sign-up was inserted concurrently, second attempt returns that row
+                participant = service.signUp(eventId, memberId, idempotencyKey, LocalDate.now());
+            }
+            logger.info("Signed member {} up for event with id {}", memberId, eventId);
+            return ResponseEntity.ok().body(participant);
+        } catch (ReusedIdempotencyKeyException ex) {
+            logger.info("Idempotency key of member {} for event with id {} belongs to another member", memberId, eventId);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getErrorInfo());
+        } catch (EventException ex) {
+            logger.info("Could not sign member {} up for event with id {}", memberId, eventId);
+            return ResponseEntity.badRequest().body(ex.getErrorInfo());
+        }
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = EventParticipant.class))
+            }, responseCode = "200", description = "Cancelled sign-up and returned it"),
+            @ApiResponse(responseCode = "204", description = "Member was not signed up for event")
+    })
+    @DeleteMapping("/{memberId}")
+    public ResponseEntity<?> cancel(@PathVariable long eventId, @PathVariable long memberId) {
+        var cancelled = service.cancel(eventId, memberId);
+        logger.info("Cancelled sign-up of member {} for event with id {}", memberId, eventId);
+        return cancelled.<ResponseEntity<?>>map(p -> ResponseEntity.ok().body(p)).orElseGet(() -> ResponseEntity.noContent().build());
+    }
+}
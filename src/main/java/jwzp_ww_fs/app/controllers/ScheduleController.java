@@ -1,8 +1,10 @@
 package jwzp_ww_fs.app.controllers;
 
-import java.util.List;
+import java.time.LocalDate;
 import java.util.Optional;
 
+import jwzp_ww_fs.app.dto.BulkDeleteSummary;
+import jwzp_ww_fs.app.dto.ScheduleOccurrence;
 import jwzp_ww_fs.app.exceptions.schedule.ScheduleException;
 import jwzp_ww_fs.app.util.DefaultValues;
 
@@ -11,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -32,6 +35,8 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jwzp_ww_fs.app.models.ExceptionInfo;
 import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.services.BulkMaintenanceService;
+import jwzp_ww_fs.app.services.RecurrenceService;
 import jwzp_ww_fs.app.services.ScheduleService;
 
 @RestController
@@ -40,13 +45,18 @@ import jwzp_ww_fs.app.services.ScheduleService;
 public class ScheduleController {
 
     private final ScheduleService service;
+    private final BulkMaintenanceService bulkService;
+    private final RecurrenceService recurrenceService;
     private final DefaultValues defaultValues;
 
     Logger logger = LoggerFactory.getLogger(ScheduleController.class);
 
     @Autowired
-    public ScheduleController(ScheduleService service, DefaultValues defaultValues) {
+    public ScheduleController(ScheduleService service, BulkMaintenanceService bulkService, RecurrenceService recurrenceService,
+                              DefaultValues defaultValues) {
         this.service = service;
+        this.bulkService = bulkService;
+        this.recurrenceService = recurrenceService;
         this.defaultValues = defaultValues;
     }
 
@@ -70,12 +80,35 @@ public class ScheduleController {
 
     @ApiResponses(value = {
             @ApiResponse(content = {
-                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = Schedule.class)))
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = BulkDeleteSummary.class))
             }) })
     @DeleteMapping("")
-    public List<Schedule> removeAllSchedules() {
+    public BulkDeleteSummary removeAllSchedules() {
         logger.info("Deleted all items from schedule");
-        return service.removeAllSchedules();
+        return bulkService.removeAllSchedules();
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ScheduleOccurrence.class)))
+            }, responseCode = "200", description = "Correctly returned occurrences of schedules within date range"),
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ExceptionInfo.class)))
+            }, responseCode = "400", description = "Invalid or too long date range")
+    })
+    @GetMapping("/expand")
+    public ResponseEntity<?> expandSchedules(
+            @Parameter(description = "First date in the format yyyy-mm-dd") @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @Parameter(description = "Last date in the format yyyy-mm-dd") @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+            @Parameter(description = "ID of club to narrow search") @RequestParam Optional<Integer> clubId) {
+        try {
+            var occurrences = recurrenceService.expand(from, to, clubId);
+            logger.info("Returned occurrences of schedules between {} and {}", from, to);
+            return ResponseEntity.ok().body(occurrences);
+        } catch (ScheduleException ex) {
+            logger.info("Could not return occurrences of schedules between {} and {}", from, to);
+            return ResponseEntity.badRequest().body(ex.getErrorInfo());
+        }
     }
 
     @ApiResponses(value = {
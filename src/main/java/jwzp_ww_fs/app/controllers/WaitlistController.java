@@ -0,0 +1,98 @@
+package jwzp_ww_fs.app.controllers;
+
+import java.time.LocalDate;
+
+import jwzp_ww_fs.app.dto.WaitlistStatus;
+import jwzp_ww_fs.app.exceptions.event.EventException;
+import jwzp_ww_fs.app.models.ExceptionInfo;
+import jwzp_ww_fs.app.models.WaitlistEntry;
+import jwzp_ww_fs.app.services.WaitlistService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping({ "/api/v1/events/{eventId}/waitlist", "/api/events/{eventId}/waitlist" })
+@Tag(name = "Waitlist", description = "members waiting for a seat in full events")
+public class WaitlistController {
+
+    private final WaitlistService service;
+
+    Logger logger = LoggerFactory.getLogger(WaitlistController.class);
+
+    @Autowired
+    public WaitlistController(WaitlistService service) {
+        this.service = service;
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))
+            }, responseCode = "200", description = "Correctly returned waitlist of event in order of promotion")
+    })
+    @GetMapping("")
+    public Page<WaitlistEntry> getWaitlist(@PathVariable long eventId,
+            @Parameter(description = "data for paging") Pageable p) {
+        logger.info("Returned waitlist of event with id {}", eventId);
+        return service.getWaitlist(p, eventId);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = WaitlistStatus.class))
+            }, responseCode = "200", description = "Member signed up, or joined the waitlist when the event is full"),
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ExceptionInfo.class))
+            }, responseCode = "400", description = "Could not sign member up for event")
+    })
+    @PostMapping("/{memberId}")
+    public ResponseEntity<?> join(@PathVariable long eventId, @PathVariable long memberId) {
+        try {
+            var status = service.join(eventId, memberId, LocalDate.now());
+            logger.info("Member {} joined event with id {} as {}", memberId, eventId, status.status());
+            return ResponseEntity.ok().body(status);
+        } catch (EventException ex) {
+            logger.info("Member {} could not join event with id {}", memberId, eventId);
+            return ResponseEntity.badRequest().body(ex.getErrorInfo());
+        }
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = WaitlistStatus.class))
+            }, responseCode = "200", description = "Position of member in waitlist, or that the member is signed up"),
+            @ApiResponse(responseCode = "404", description = "Member neither waits nor is signed up")
+    })
+    @GetMapping("/{memberId}")
+    public ResponseEntity<WaitlistStatus> getStatus(@PathVariable long eventId, @PathVariable long memberId) {
+        logger.info("Returned waitlist status of member {} for event with id {}", memberId, eventId);
+        return ResponseEntity.of(service.status(eventId, memberId));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Member no longer waits for event")
+    })
+    @DeleteMapping("/{memberId}")
+    public ResponseEntity<?> leave(@PathVariable long eventId, @PathVariable long memberId) {
+        service.leave(eventId, memberId);
+        logger.info("Member {} left waitlist of event with id {}", memberId, eventId);
+        return ResponseEntity.noContent().build();
+    }
+}
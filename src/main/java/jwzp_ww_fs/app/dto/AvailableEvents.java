@@ -0,0 +1,6 @@
+package jwzp_ww_fs.app.dto;
+
+import java.util.List;
+
+// one keyset page of available events, next is null when there are no more events
+public record AvailableEvents(List<EventAvailabilityView> events, String next) {}
@@ -0,0 +1,4 @@
+package jwzp_ww_fs.app.dto;
+
+// returned by the delete-all endpoints instead of the deleted entities
+public record BulkDeleteSummary(String entity, long deleted, int chunks) {}
@@ -0,0 +1,9 @@
+package jwzp_ww_fs.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public record EventAvailabilityView(long id, String title, LocalDate date, LocalTime time, int clubId, int coachId, int freeSeats,
+                                    @JsonIgnore Integer scheduleId) {}
@@ -0,0 +1,37 @@
+package jwzp_ww_fs.app.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+// position in (date, time, id) order, rendered as e.g. "2022-01-04T14:30/123"
+public record EventCursor(LocalDate date, LocalTime time, long id) {
+
+    public static EventCursor before(LocalDate date) {
+        return new EventCursor(date, LocalTime.MIN, 0);
+    }
+
+    public static EventCursor after(EventAvailabilityView event) {
+        return new EventCursor(event.date(), event.time(), event.id());
+    }
+
+    public static EventCursor parse(String value) {
+        int timeSeparator = value.indexOf('T');
+        int idSeparator = value.indexOf('/');
+        if (timeSeparator < 0 || idSeparator < timeSeparator) throw new IllegalArgumentException(value);
+
+        try {
+            return new EventCursor(
+                    LocalDate.parse(value.substring(0, timeSeparator)),
+                    LocalTime.parse(value.substring(timeSeparator + 1, idSeparator)),
+                    Long.parseLong(value.substring(idSeparator + 1)));
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException(value, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return date + "T" + time + "/" + id;
+    }
+}
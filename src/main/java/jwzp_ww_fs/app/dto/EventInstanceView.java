@@ -0,0 +1,22 @@
+package jwzp_ww_fs.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// read-only projection of EventInstance, serialized the same way as the entity
+public record EventInstanceView(
+        @JsonIgnore long id,
+        String title,
+        LocalDate date,
+        LocalTime time,
+        Duration duration,
+        int capacity,
+        int participants,
+        int clubId,
+        int coachId,
+        // schedule the title and duration are resolved from while they are null, see ScheduleDefaultsCache
+        @JsonIgnore Integer scheduleId
+) {}
@@ -0,0 +1,5 @@
+package jwzp_ww_fs.app.dto;
+
+import java.time.LocalDate;
+
+public record OccurrenceKey(int scheduleId, LocalDate date) {}
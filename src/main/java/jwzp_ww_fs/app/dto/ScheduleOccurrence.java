@@ -0,0 +1,19 @@
+package jwzp_ww_fs.app.dto;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// single occurrence of a schedule, eventId is null until the occurrence is persisted as an event instance
+public record ScheduleOccurrence(
+        int scheduleId,
+        Long eventId,
+        String title,
+        LocalDate date,
+        LocalTime time,
+        Duration duration,
+        int capacity,
+        int participants,
+        int clubId,
+        int coachId
+) {}
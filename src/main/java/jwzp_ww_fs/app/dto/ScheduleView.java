@@ -0,0 +1,19 @@
+package jwzp_ww_fs.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+
+// read-only projection of Schedule, serialized the same way as the entity
+public record ScheduleView(
+        @JsonIgnore int id,
+        String title,
+        DayOfWeek day,
+        LocalTime time,
+        Duration duration,
+        int capacity,
+        int clubId,
+        int coachId
+) {}
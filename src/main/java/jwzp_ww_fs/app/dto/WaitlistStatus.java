@@ -0,0 +1,14 @@
+package jwzp_ww_fs.app.dto;
+
+// position is 1 for the next member to be promoted, null once signed up
+public record WaitlistStatus(long eventId, long memberId, Status status, Long position) {
+    public enum Status { SIGNED_UP, WAITING }
+
+    public static WaitlistStatus signedUp(long eventId, long memberId) {
+        return new WaitlistStatus(eventId, memberId, Status.SIGNED_UP, null);
+    }
+
+    public static WaitlistStatus waiting(long eventId, long memberId, long position) {
+        return new WaitlistStatus(eventId, memberId, Status.WAITING, position);
+    }
+}
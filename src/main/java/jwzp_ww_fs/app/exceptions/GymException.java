@@ -2,6 +2,11 @@ package jwzp_ww_fs.app.exceptions;
 
 import jwzp_ww_fs.app.models.ExceptionInfo;
 
+// rejections of requests are expected outcomes mapped to responses, not bugs, so they skip the stack trace
 public abstract class GymException extends RuntimeException {
+    protected GymException() {
+        super(null, null, false, false);
+    }
+
     public abstract ExceptionInfo getErrorInfo();
 }
@@ -0,0 +1,10 @@
+package jwzp_ww_fs.app.exceptions.event;
+
+import jwzp_ww_fs.app.models.ExceptionInfo;
+
+public class InvalidCursorException extends EventException {
+    @Override
+    public ExceptionInfo getErrorInfo() {
+        return new ExceptionInfo("308", "Given paging cursor is not valid.");
+    }
+}
@@ -0,0 +1,10 @@
+package jwzp_ww_fs.app.exceptions.event;
+
+import jwzp_ww_fs.app.models.ExceptionInfo;
+
+public class InvalidDateRangeException extends EventException {
+    @Override
+    public ExceptionInfo getErrorInfo() {
+        return new ExceptionInfo("309", "End of the date range cannot be before its beginning.");
+    }
+}
@@ -0,0 +1,10 @@
+package jwzp_ww_fs.app.exceptions.event;
+
+import jwzp_ww_fs.app.models.ExceptionInfo;
+
+public class InvalidIdempotencyKeyException extends EventException {
+    @Override
+    public ExceptionInfo getErrorInfo() {
+        return new ExceptionInfo("311", "Idempotency key cannot be blank or longer than 64 characters.");
+    }
+}
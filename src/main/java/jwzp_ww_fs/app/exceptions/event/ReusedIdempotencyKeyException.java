@@ -0,0 +1,10 @@
+package jwzp_ww_fs.app.exceptions.event;
+
+import jwzp_ww_fs.app.models.ExceptionInfo;
+
+public class ReusedIdempotencyKeyException extends EventException {
+    @Override
+    public ExceptionInfo getErrorInfo() {
+        return new ExceptionInfo("310", "Idempotency key was already used to sign up another member.");
+    }
+}
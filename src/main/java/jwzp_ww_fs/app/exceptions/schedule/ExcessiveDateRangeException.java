@@ -0,0 +1,10 @@
+package jwzp_ww_fs.app.exceptions.schedule;
+
+import jwzp_ww_fs.app.models.ExceptionInfo;
+
+public class ExcessiveDateRangeException extends ScheduleException {
+    @Override
+    public ExceptionInfo getErrorInfo() {
+        return new ExceptionInfo("408", "Date range cannot be longer than a year.");
+    }
+}
@@ -0,0 +1,10 @@
+package jwzp_ww_fs.app.exceptions.schedule;
+
+import jwzp_ww_fs.app.models.ExceptionInfo;
+
+public class InvalidDateRangeException extends ScheduleException {
+    @Override
+    public ExceptionInfo getErrorInfo() {
+        return new ExceptionInfo("407", "End of the date range cannot be before its beginning.");
+    }
+}
@@ -0,0 +1,104 @@
+package jwzp_ww_fs.app.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+@Entity
+@Table(name = "change_outbox")
+public class ChangeRecord {
+    public enum Operation { CREATED, UPDATED, DELETED, PROMOTED }
+
+    // taken before commit, so rows may become visible in another order
+    @JsonIgnore
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    @Column(name = "seq")
+    private long id;
+
+    // order in which the row became visible, assigned by the relay after commit, null until then
+    @JsonProperty("seq")
+    @Column(name = "relay_seq")
+    private Long seq;
+
+    @JsonProperty("entity")
+    @Column(name = "entity")
+    private String entity;
+
+    @JsonProperty("entityId")
+    @Column(name = "entity_id")
+    private String entityId;
+
+    @JsonProperty("operation")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation")
+    private Operation operation;
+
+    // already serialized json, null when the state did not fit into the column
+    @JsonProperty("payload")
+    @JsonRawValue
+    @Column(name = "payload")
+    private String payload;
+
+    @JsonProperty("createdAt")
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    public ChangeRecord() {
+        this.entity = null;
+        this.entityId = null;
+        this.operation = null;
+        this.payload = null;
+        this.createdAt = null;
+    }
+
+    public ChangeRecord(String entity, String entityId, Operation operation, String payload, Instant createdAt) {
+        this.entity = entity;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public ChangeRecord(long seq, String entity, String entityId, Operation operation, String payload, Instant createdAt) {
+        this(entity, entityId, operation, payload, createdAt);
+        this.seq = seq;
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public Long seq() {
+        return seq;
+    }
+
+    public void sequence(long seq) {
+        this.seq = seq;
+    }
+
+    public String entity() {
+        return entity;
+    }
+
+    public String entityId() {
+        return entityId;
+    }
+
+    public Operation operation() {
+        return operation;
+    }
+
+    public String payload() {
+        return payload;
+    }
+
+    public Instant createdAt() {
+        return createdAt;
+    }
+}
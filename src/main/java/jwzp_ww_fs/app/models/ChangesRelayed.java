@@ -0,0 +1,7 @@
+package jwzp_ww_fs.app.models;
+
+import java.util.List;
+
+// published by ChangesService on every node for every batch of committed changes it relays, in the order of seq,
+// so that consumers of the node see the changes of every node
+public record ChangesRelayed(List<ChangeRecord> changes) {}
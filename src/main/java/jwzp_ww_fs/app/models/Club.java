@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
 import java.time.DayOfWeek;
@@ -48,8 +49,10 @@ public class Club {
     @Column(name = "address")
     private String address;
 
+    // always serialized, so it is loaded with the club (in batches) instead of relying on open session in view
     @JsonProperty("whenOpen")
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @BatchSize(size = 100)
     @JoinTable(name = "when_open",
             joinColumns = {@JoinColumn(name = "club_id", referencedColumnName = "id")},
             inverseJoinColumns = {@JoinColumn(name = "opening_hours_id", referencedColumnName = "id")})
@@ -0,0 +1,13 @@
+package jwzp_ww_fs.app.models;
+
+// inclusive range of club IDs
+public record ClubRange(int fromId, int toId) {
+    public boolean contains(int clubId) {
+        return fromId <= clubId && clubId <= toId;
+    }
+
+    @Override
+    public String toString() {
+        return fromId + "-" + toId;
+    }
+}
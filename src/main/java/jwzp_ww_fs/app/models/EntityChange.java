@@ -0,0 +1,12 @@
+package jwzp_ww_fs.app.models;
+
+// published by the services after a club, coach, event instance or participant is mutated, state is what consumers
+// of the change stream receive as payload, schedules publish ScheduleChange instead
+public record EntityChange(String entity, String entityId, ChangeRecord.Operation operation, Object state) {
+    public static final String CLUB = "club";
+    public static final String COACH = "coach";
+    public static final String SCHEDULE = "schedule";
+    public static final String EVENT = "event";
+    public static final String PARTICIPANT = "participant";
+    public static final String WAITLIST = "waitlist";
+}
@@ -5,23 +5,36 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import io.swagger.v3.oas.annotations.media.Schema;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
-import static javax.persistence.GenerationType.IDENTITY;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jwzp_ww_fs.app.util.ScheduleDefaultsListener;
+import jwzp_ww_fs.app.util.ShardSequenceGenerator;
 
 // public record Event(String title, DayOfWeek day, LocalTime time, Duration duration, int clubId, int coachId) {
 // }
 
+// Occurrences of a schedule store its title and duration only when they differ from those of the schedule, e.g.
+// after the schedule changed while they were booked; the others are resolved from the schedule when loaded. Only
+// the home shard has the schedules, occurrences on the other shards always store copies.
 @Entity
 @Table(name = "EventInstance")
+@EntityListeners(ScheduleDefaultsListener.class)
 @Schema(example = EventInstance.exampleSchema)
 public class EventInstance {
+    // title and duration of the schedule of an occurrence
+    public record Defaults(String title, Duration duration) {}
+
     public static final String exampleSchema = """
         {\"title\": \"string\",
         \"day\": \"MONDAY\",
@@ -32,10 +45,17 @@ public class EventInstance {
         \"coachId\": 0,
         \"clubId\": 0}""";
 
+    // sequence instead of identity, so that generated instances can be inserted in JDBC batches; the sequence of
+    // the shard the instance is written to, so that its ID stays in the range of the shard
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(generator = "event_instance_seq")
+    @GenericGenerator(name = "event_instance_seq", strategy = "jwzp_ww_fs.app.util.ShardSequenceGenerator", parameters = {
+            @Parameter(name = ShardSequenceGenerator.SEQUENCE, value = "event_instance_seq"),
+            @Parameter(name = ShardSequenceGenerator.ALLOCATION_SIZE, value = "50")
+    })
     private long id;
 
+    // null while the title is the one of the schedule
     @JsonProperty("title")
     private String title;
 
@@ -45,6 +65,7 @@ public class EventInstance {
     @JsonProperty("time")
     private LocalTime time;
 
+    // null while the duration is the one of the schedule
     @JsonProperty("duration")
     private Duration duration;
 
@@ -62,6 +83,18 @@ public class EventInstance {
     //TODO FOREIGN KEY
     private int coachId;
 
+    // schedule this instance is an occurrence of, null for instances created before it was recorded
+    @JsonIgnore
+    private Integer scheduleId;
+
+    // date the schedule gave this occurrence, kept when it is moved, so that the schedule does not bring it back
+    @JsonIgnore
+    private LocalDate originalDate;
+
+    @Transient
+    @JsonIgnore
+    private Defaults defaults;
+
     public EventInstance() {
         this.title = null;
         this.date = null;
@@ -85,14 +118,17 @@ public class EventInstance {
     }
 
     public EventInstance(Schedule schedule, LocalDate date) {
-        this.title = schedule.title();
+        this.title = null;
         this.date = date;
         this.time = schedule.time();
-        this.duration = schedule.duration();
+        this.duration = null;
         this.capacity = schedule.capacity();
         this.participants = 0;
         this.clubId = schedule.clubId();
         this.coachId = schedule.coachId();
+        this.scheduleId = schedule.id();
+        this.originalDate = date;
+        this.defaults = new Defaults(schedule.title(), schedule.duration());
     }
 
     public void updateData(EventInstance other) {
@@ -104,10 +140,42 @@ public class EventInstance {
         this.participants = other.participants;
         this.clubId = other.clubId;
         this.coachId = other.coachId;
+        this.scheduleId = other.scheduleId;
+        this.originalDate = other.originalDate;
+        this.defaults = other.defaults;
+    }
+
+    // an unmanaged copy with another participant count, for counters updated in bulk past the loaded entity
+    public EventInstance withParticipants(int participants) {
+        EventInstance copy = new EventInstance();
+        copy.id = id;
+        copy.updateData(this);
+        copy.participants = participants;
+        return copy;
+    }
+
+    // whether the title or duration is taken from the schedule, which was not resolved yet
+    public boolean needsDefaults() {
+        return scheduleId != null && defaults == null && (title == null || duration == null);
     }
 
+    public void resolve(Defaults defaults) {
+        this.defaults = defaults;
+    }
+
+    public void storeDefaults() {
+        if (defaults == null) return;
+        if (title == null) title = defaults.title();
+        if (duration == null) duration = defaults.duration();
+    }
+
+    public long id() {
+        return id;
+    }
+
+    @JsonProperty("title")
     public String title() {
-        return title;
+        return title != null || defaults == null ? title : defaults.title();
     }
 
     public LocalDate date() {
@@ -118,8 +186,9 @@ public class EventInstance {
         return time;
     }
 
+    @JsonProperty("duration")
     public Duration duration() {
-        return duration;
+        return duration != null || defaults == null ? duration : defaults.duration();
     }
 
     public int capacity() {
@@ -137,4 +206,12 @@ public class EventInstance {
     public int clubId() {
         return clubId;
     }
+
+    public Integer scheduleId() {
+        return scheduleId;
+    }
+
+    public LocalDate originalDate() {
+        return originalDate;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package jwzp_ww_fs.app.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+@Entity
+@Table(name = "event_participants")
+@IdClass(EventParticipant.Key.class)
+public class EventParticipant {
+    // not a record, hibernate assigns the fields of the id class through reflection
+    public static class Key implements Serializable {
+        private long eventId;
+        private long memberId;
+
+        public Key() {
+        }
+
+        public Key(long eventId, long memberId) {
+            this.eventId = eventId;
+            this.memberId = memberId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && eventId == other.eventId && memberId == other.memberId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(eventId, memberId);
+        }
+    }
+
+    @JsonProperty("eventId")
+    @Id
+    @Column(name = "event_id")
+    private long eventId;
+
+    @JsonProperty("memberId")
+    @Id
+    @Column(name = "member_id")
+    private long memberId;
+
+    @JsonIgnore
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @JsonProperty("signedUpAt")
+    @Column(name = "signed_up_at")
+    private Instant signedUpAt;
+
+    public EventParticipant() {
+        this.idempotencyKey = null;
+        this.signedUpAt = null;
+    }
+
+    public EventParticipant(long eventId, long memberId, String idempotencyKey, Instant signedUpAt) {
+        this.eventId = eventId;
+        this.memberId = memberId;
+        this.idempotencyKey = idempotencyKey;
+        this.signedUpAt = signedUpAt;
+    }
+
+    public long eventId() {
+        return eventId;
+    }
+
+    public long memberId() {
+        return memberId;
+    }
+
+    public String idempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public Instant signedUpAt() {
+        return signedUpAt;
+    }
+}
@@ -0,0 +1,37 @@
+package jwzp_ww_fs.app.models;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDate;
+
+// last date up to which a generation job has materialized event instances
+@Entity
+@Table(name = "generation_horizon")
+public class GenerationHorizon {
+    @Id
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "last_date")
+    private LocalDate lastDate;
+
+    public GenerationHorizon() {
+        this.name = null;
+        this.lastDate = null;
+    }
+
+    public GenerationHorizon(String name, LocalDate lastDate) {
+        this.name = name;
+        this.lastDate = lastDate;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public LocalDate lastDate() {
+        return lastDate;
+    }
+}
@@ -0,0 +1,26 @@
+package jwzp_ww_fs.app.models;
+
+import java.util.Set;
+
+// a cached club, coach or schedule changed; a chunk of a bulk delete invalidates the range of ids first-last.
+// Not versioned: the outbox numbers changes only when it relays them, after the commit that sends the invalidation,
+// so caches drop loads that raced an invalidation by counting the invalidations they applied, see EntityCache.
+public record Invalidation(String entity, String entityId) {
+    // entities the nodes cache, changes of the others are not broadcast
+    public static final Set<String> CACHED = Set.of(EntityChange.CLUB, EntityChange.COACH, EntityChange.SCHEDULE);
+
+    public boolean isRange() {
+        return entityId.indexOf('-', 1) > 0;
+    }
+
+    public boolean covers(Object id) {
+        int dash = entityId.indexOf('-', 1);
+        if (dash < 0) return entityId.equals(String.valueOf(id));
+        try {
+            long value = Long.parseLong(String.valueOf(id));
+            return Long.parseLong(entityId.substring(0, dash)) <= value && value <= Long.parseLong(entityId.substring(dash + 1));
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
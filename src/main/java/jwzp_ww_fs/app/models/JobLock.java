@@ -0,0 +1,47 @@
+package jwzp_ww_fs.app.models;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+
+@Entity
+@Table(name = "job_locks")
+public class JobLock {
+    @Id
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "locked_at")
+    private Instant lockedAt;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    public JobLock() {
+        this.name = null;
+        this.lockedUntil = null;
+        this.lockedAt = null;
+        this.lockedBy = null;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Instant lockedUntil() {
+        return lockedUntil;
+    }
+
+    public Instant lockedAt() {
+        return lockedAt;
+    }
+
+    public String lockedBy() {
+        return lockedBy;
+    }
+}
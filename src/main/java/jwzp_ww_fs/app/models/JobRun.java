@@ -0,0 +1,102 @@
+package jwzp_ww_fs.app.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+@Entity
+@Table(name = "job_runs")
+public class JobRun {
+    // PARTIAL runs finished, but left part of their work undone, as the message tells
+    public enum Status { SUCCEEDED, PARTIAL, FAILED }
+
+    @JsonProperty("id")
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    @Column(name = "id")
+    private long id;
+
+    @JsonProperty("jobName")
+    @Column(name = "job_name")
+    private String jobName;
+
+    @JsonProperty("node")
+    @Column(name = "node")
+    private String node;
+
+    @JsonProperty("startedAt")
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @JsonProperty("finishedAt")
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    @JsonProperty("durationMs")
+    @Column(name = "duration_ms")
+    private long durationMs;
+
+    @JsonProperty("rowCount")
+    @Column(name = "row_count")
+    private long rowCount;
+
+    @JsonProperty("status")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private Status status;
+
+    @JsonProperty("message")
+    @Column(name = "message")
+    private String message;
+
+    public JobRun() {
+        this.jobName = null;
+        this.node = null;
+        this.startedAt = null;
+        this.finishedAt = null;
+        this.status = null;
+        this.message = null;
+    }
+
+    public JobRun(String jobName, String node, Instant startedAt, Instant finishedAt, long rowCount, Status status, String message) {
+        this.jobName = jobName;
+        this.node = node;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.durationMs = finishedAt.toEpochMilli() - startedAt.toEpochMilli();
+        this.rowCount = rowCount;
+        this.status = status;
+        this.message = message;
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public String jobName() {
+        return jobName;
+    }
+
+    public String node() {
+        return node;
+    }
+
+    public Instant startedAt() {
+        return startedAt;
+    }
+
+    public long durationMs() {
+        return durationMs;
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    public Status status() {
+        return status;
+    }
+}
@@ -88,6 +88,10 @@ public class Schedule {
         this.coachId = other.coachId;
     }
 
+    public int id() {
+        return id;
+    }
+
     public String title() {
         return title;
     }
@@ -0,0 +1,4 @@
+package jwzp_ww_fs.app.models;
+
+// published after a schedule is added (before is null), updated or removed (after is null)
+public record ScheduleChange(int scheduleId, Schedule before, Schedule after) {}
@@ -0,0 +1,11 @@
+package jwzp_ww_fs.app.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// participants and capacity of an event instance as pushed to seat feed subscribers, read from relayed changes
+public record SeatsChange(long eventId, int clubId, int participants, int capacity) {
+    @JsonProperty("freeSeats")
+    public int freeSeats() {
+        return Math.max(0, capacity - participants);
+    }
+}
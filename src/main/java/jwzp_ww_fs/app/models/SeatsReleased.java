@@ -0,0 +1,4 @@
+package jwzp_ww_fs.app.models;
+
+// published within the transaction that raised the capacity of an event instance or cancelled a sign-up
+public record SeatsReleased(long eventId) {}
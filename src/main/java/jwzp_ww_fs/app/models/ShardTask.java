@@ -0,0 +1,76 @@
+package jwzp_ww_fs.app.models;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+// Unbooked occurrences of a schedule on a shard other than the home one, from a date on, to be brought in line with
+// the schedule. Recorded with the change of the schedule and applied with the schedule as it is when the task runs,
+// so tasks can be repeated; those of one shard must run in order.
+@Entity
+@Table(name = "shard_tasks")
+public class ShardTask {
+    public enum Operation { UPDATE, DELETE, INSERT }
+
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    @Column(name = "id")
+    private long id;
+
+    @Column(name = "shard")
+    private String shard;
+
+    @Column(name = "schedule_id")
+    private int scheduleId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation")
+    private Operation operation;
+
+    @Column(name = "from_date")
+    private LocalDate from;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    public ShardTask() {
+        this.shard = null;
+        this.operation = null;
+        this.from = null;
+        this.createdAt = null;
+    }
+
+    public ShardTask(String shard, int scheduleId, Operation operation, LocalDate from, Instant createdAt) {
+        this.shard = shard;
+        this.scheduleId = scheduleId;
+        this.operation = operation;
+        this.from = from;
+        this.createdAt = createdAt;
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public String shard() {
+        return shard;
+    }
+
+    public int scheduleId() {
+        return scheduleId;
+    }
+
+    public Operation operation() {
+        return operation;
+    }
+
+    public LocalDate from() {
+        return from;
+    }
+
+    public Instant createdAt() {
+        return createdAt;
+    }
+}
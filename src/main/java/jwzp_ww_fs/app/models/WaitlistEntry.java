@@ -0,0 +1,60 @@
+package jwzp_ww_fs.app.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+import static javax.persistence.GenerationType.SEQUENCE;
+
+@Entity
+@Table(name = "event_waitlist")
+public class WaitlistEntry {
+    // one id per insert, so that ids follow the order members joined on every node; blocks of ids taken by each node
+    // would not
+    @JsonIgnore
+    @Id
+    @GeneratedValue(strategy = SEQUENCE, generator = "event_waitlist_seq")
+    @SequenceGenerator(name = "event_waitlist_seq", sequenceName = "event_waitlist_seq", allocationSize = 1)
+    @Column(name = "id")
+    private long id;
+
+    @JsonProperty("eventId")
+    @Column(name = "event_id")
+    private long eventId;
+
+    @JsonProperty("memberId")
+    @Column(name = "member_id")
+    private long memberId;
+
+    @JsonProperty("joinedAt")
+    @Column(name = "joined_at")
+    private Instant joinedAt;
+
+    public WaitlistEntry() {
+        this.joinedAt = null;
+    }
+
+    public WaitlistEntry(long eventId, long memberId, Instant joinedAt) {
+        this.eventId = eventId;
+        this.memberId = memberId;
+        this.joinedAt = joinedAt;
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public long eventId() {
+        return eventId;
+    }
+
+    public long memberId() {
+        return memberId;
+    }
+
+    public Instant joinedAt() {
+        return joinedAt;
+    }
+}
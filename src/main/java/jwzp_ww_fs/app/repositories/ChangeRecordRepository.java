@@ -0,0 +1,42 @@
+package jwzp_ww_fs.app.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import jwzp_ww_fs.app.models.ChangeRecord;
+
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface ChangeRecordRepository extends JpaRepository<ChangeRecord, Long> {
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("SELECT c FROM ChangeRecord c WHERE c.seq > ?1 AND c.seq <= ?2 ORDER BY c.seq")
+    List<ChangeRecord> findChangesBetween(long afterSeq, long toSeq, Pageable limit);
+
+    @Query("SELECT MAX(c.seq) FROM ChangeRecord c")
+    Long findMaxSeq();
+
+    @Query("SELECT c FROM ChangeRecord c WHERE c.seq IS NULL ORDER BY c.id")
+    List<ChangeRecord> findUnsequenced(Pageable limit);
+
+    // last assigned seq, the row stays locked until the end of the transaction, so that one node numbers at a time
+    @Query(value = "SELECT last_seq FROM change_sequencer WHERE id = 1 FOR UPDATE", nativeQuery = true)
+    long lockSequencer();
+
+    @Modifying
+    @Query(value = "UPDATE change_sequencer SET last_seq = ?1 WHERE id = 1", nativeQuery = true)
+    int advanceSequencer(long lastSeq);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChangeRecord c WHERE c.createdAt < ?1")
+    int deleteChangesCreatedBefore(Instant before);
+}
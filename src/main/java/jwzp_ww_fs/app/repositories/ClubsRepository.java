@@ -1,9 +1,75 @@
 package jwzp_ww_fs.app.repositories;
 
 import jwzp_ww_fs.app.models.Club;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
+import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
-public interface ClubsRepository extends JpaRepository<Club, Integer> {}
+public interface ClubsRepository extends JpaRepository<Club, Integer> {
+    // opening hours in the same statement, batch fetching them would take one more per 100 clubs
+    @QueryHints({
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false")
+    })
+    @Query("select distinct c from Club c left join fetch c.whenOpen")
+    List<Club> findAllReadOnly();
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query(value = "select c from Club c", countQuery = "select count(c) from Club c")
+    Page<Club> findAllReadOnly(Pageable p);
+
+    @Query("select min(c.id) from Club c")
+    Integer findMinId();
+
+    @Query("select max(c.id) from Club c")
+    Integer findMaxId();
+
+    boolean existsByNumberOfEventsGreaterThan(int numberOfEvents);
+
+    // clubs with schedules are never deleted in bulk
+    @Query("select c.id from Club c where c.id > ?1 and c.numberOfEvents <= 0 order by c.id")
+    List<Integer> findEmptyIdsAfter(int afterId, Pageable limit);
+
+    @Modifying
+    @Query("update Club c set c.numberOfEvents = (select count(s) from Schedule s where s.clubId = c.id)")
+    int recountEvents();
+
+    // owned rows of the hours maps, removed before the clubs since bulk deletes do not cascade
+
+    @Query(value = "select opening_hours_id from when_open where club_id in ?1", nativeQuery = true)
+    List<Integer> findOpeningHoursIds(Collection<Integer> clubIds);
+
+    @Query(value = "select fill_level_id from fill_level where club_id in ?1", nativeQuery = true)
+    List<Integer> findFillLevelIds(Collection<Integer> clubIds);
+
+    @Query(value = "select fill_level_id from fill_level where club_id not in (select club_id from schedules)", nativeQuery = true)
+    List<Integer> findFillLevelIdsOfClubsWithoutSchedules();
+
+    @Modifying
+    @Query(value = "delete from when_open where club_id in ?1", nativeQuery = true)
+    int deleteOpeningHoursOfClubs(Collection<Integer> clubIds);
+
+    @Modifying
+    @Query(value = "delete from fill_level where fill_level_id in ?1", nativeQuery = true)
+    int deleteFillLevels(Collection<Integer> eventHoursIds);
+
+    @Modifying
+    @Query(value = "delete from opening_hours where id in ?1", nativeQuery = true)
+    int deleteOpeningHours(Collection<Integer> ids);
 
+    @Modifying
+    @Query(value = "delete from event_hours where id in ?1", nativeQuery = true)
+    int deleteEventHours(Collection<Integer> ids);
+}
@@ -2,9 +2,24 @@ package jwzp_ww_fs.app.repositories;
 
 import jwzp_ww_fs.app.models.Coach;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 
 @Repository
-public interface CoachRepository extends JpaRepository<Coach, Integer> {}
\ No newline at end of file
+public interface CoachRepository extends JpaRepository<Coach, Integer> {
+    boolean existsByNumberOfEventsGreaterThan(int numberOfEvents);
+
+    // coaches with schedules are never deleted in bulk
+    @Query("select c.id from Coach c where c.id > ?1 and c.numberOfEvents <= 0 order by c.id")
+    List<Integer> findEmptyIdsAfter(int afterId, Pageable limit);
+
+    @Modifying
+    @Query("update Coach c set c.numberOfEvents = (select count(s) from Schedule s where s.coachId = c.id)")
+    int recountEvents();
+}
@@ -0,0 +1,27 @@
+package jwzp_ww_fs.app.repositories;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import jwzp_ww_fs.app.models.EventParticipant;
+
+public interface EventParticipantsRepository extends JpaRepository<EventParticipant, EventParticipant.Key> {
+    Page<EventParticipant> findEventParticipantByEventId(Pageable p, long eventId);
+
+    Optional<EventParticipant> findEventParticipantByEventIdAndIdempotencyKey(long eventId, String idempotencyKey);
+
+    // plain insert, save would first select the row because the id is assigned
+    @Modifying
+    @Query(value = "insert into event_participants (event_id, member_id, idempotency_key, signed_up_at) values (?1, ?2, ?3, ?4)", nativeQuery = true)
+    int insert(long eventId, long memberId, String idempotencyKey, Instant signedUpAt);
+
+    @Modifying
+    @Query(value = "delete from EventParticipant p where p.eventId = ?1 and p.memberId = ?2")
+    int deleteParticipant(long eventId, long memberId);
+}
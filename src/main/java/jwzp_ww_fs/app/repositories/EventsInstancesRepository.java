@@ -1,17 +1,26 @@
 package jwzp_ww_fs.app.repositories;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import jwzp_ww_fs.app.dto.EventAvailabilityView;
+import jwzp_ww_fs.app.dto.EventInstanceView;
+import jwzp_ww_fs.app.dto.OccurrenceKey;
 import jwzp_ww_fs.app.models.EventInstance;
 
+import javax.persistence.LockModeType;
+
 public interface EventsInstancesRepository extends JpaRepository<EventInstance, Long> {
     List<EventInstance> findEventByClubId(int clubId);
 
@@ -27,11 +36,105 @@ public interface EventsInstancesRepository extends JpaRepository<EventInstance,
 
     Page<EventInstance> findEventByClubIdAndDate(Pageable p, int clubId, LocalDate date);
 
+    // occurrences are found by the date their schedule gave them, see EventInstance.originalDate
+    Optional<EventInstance> findEventByScheduleIdAndOriginalDate(int scheduleId, LocalDate originalDate);
+
+    @Query(value = "select e from EventInstance e where e.scheduleId is not null and e.originalDate between ?1 and ?2")
+    List<EventInstance> findOccurrences(LocalDate from, LocalDate to);
+
+    @Query(value = "select e from EventInstance e where e.scheduleId is not null and e.originalDate between ?1 and ?2 and e.clubId = ?3")
+    List<EventInstance> findOccurrencesOfClub(LocalDate from, LocalDate to, int clubId);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.OccurrenceKey(e.scheduleId, e.originalDate) from EventInstance e " +
+            "where e.scheduleId is not null and e.originalDate between ?1 and ?2 and e.clubId between ?3 and ?4")
+    List<OccurrenceKey> findOccurrenceKeys(LocalDate from, LocalDate to, int fromClubId, int toClubId);
+
+    // pages of views take the title and duration from the schedule in the query, so that they can be sorted by them;
+    // other shards than the home one have no schedules and store copies
+    @Query(value = "select new jwzp_ww_fs.app.dto.EventInstanceView(e.id, coalesce(e.title, s.title), e.date, e.time, coalesce(e.duration, s.duration), e.capacity, e.participants, e.clubId, e.coachId, e.scheduleId) from EventInstance e left join Schedule s on s.id = e.scheduleId",
+            countQuery = "select count(e) from EventInstance e")
+    Page<EventInstanceView> findViews(Pageable p);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.EventInstanceView(e.id, coalesce(e.title, s.title), e.date, e.time, coalesce(e.duration, s.duration), e.capacity, e.participants, e.clubId, e.coachId, e.scheduleId) from EventInstance e left join Schedule s on s.id = e.scheduleId where e.clubId = ?1",
+            countQuery = "select count(e) from EventInstance e where e.clubId = ?1")
+    Page<EventInstanceView> findViewsByClubId(Pageable p, int clubId);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.EventInstanceView(e.id, coalesce(e.title, s.title), e.date, e.time, coalesce(e.duration, s.duration), e.capacity, e.participants, e.clubId, e.coachId, e.scheduleId) from EventInstance e left join Schedule s on s.id = e.scheduleId where e.date = ?1",
+            countQuery = "select count(e) from EventInstance e where e.date = ?1")
+    Page<EventInstanceView> findViewsByDate(Pageable p, LocalDate date);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.EventInstanceView(e.id, coalesce(e.title, s.title), e.date, e.time, coalesce(e.duration, s.duration), e.capacity, e.participants, e.clubId, e.coachId, e.scheduleId) from EventInstance e left join Schedule s on s.id = e.scheduleId where e.clubId = ?1 and e.date = ?2",
+            countQuery = "select count(e) from EventInstance e where e.clubId = ?1 and e.date = ?2")
+    Page<EventInstanceView> findViewsByClubIdAndDate(Pageable p, int clubId, LocalDate date);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.EventInstanceView(e.id, coalesce(e.title, s.title), e.date, e.time, coalesce(e.duration, s.duration), e.capacity, e.participants, e.clubId, e.coachId, e.scheduleId) from EventInstance e left join Schedule s on s.id = e.scheduleId where e.id in ?1")
+    List<EventInstanceView> findViewsByIdIn(Collection<Long> ids);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.EventInstanceView(e.id, e.title, e.date, e.time, e.duration, e.capacity, e.participants, e.clubId, e.coachId, e.scheduleId) from EventInstance e " +
+            "where e.date >= ?1 and e.id > ?2 order by e.id")
+    List<EventInstanceView> findUpcomingViews(LocalDate from, long afterId, Pageable limit);
+
+    // keyset pages in (date, time, id) order, one query per combination of filters, so that each gets its own plan;
+    // "participants < capacity" matches the partial index on PostgreSQL
+    @Query(value = "select new jwzp_ww_fs.app.dto.EventAvailabilityView(e.id, e.title, e.date, e.time, e.clubId, e.coachId, e.capacity - e.participants, e.scheduleId) from EventInstance e " +
+            "where e.participants < e.capacity and e.capacity - e.participants >= ?1 " +
+            "and (e.date > ?2 or (e.date = ?2 and (e.time > ?3 or (e.time = ?3 and e.id > ?4)))) and e.date <= ?5 " +
+            "order by e.date, e.time, e.id")
+    List<EventAvailabilityView> findAvailable(int minSeats, LocalDate afterDate, LocalTime afterTime, long afterId,
+                                              LocalDate to, Pageable limit);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.EventAvailabilityView(e.id, e.title, e.date, e.time, e.clubId, e.coachId, e.capacity - e.participants, e.scheduleId) from EventInstance e " +
+            "where e.participants < e.capacity and e.capacity - e.participants >= ?1 " +
+            "and (e.date > ?2 or (e.date = ?2 and (e.time > ?3 or (e.time = ?3 and e.id > ?4)))) and e.date <= ?5 " +
+            "and e.clubId = ?6 " +
+            "order by e.date, e.time, e.id")
+    List<EventAvailabilityView> findAvailableInClub(int minSeats, LocalDate afterDate, LocalTime afterTime, long afterId,
+                                                    LocalDate to, int clubId, Pageable limit);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.EventAvailabilityView(e.id, e.title, e.date, e.time, e.clubId, e.coachId, e.capacity - e.participants, e.scheduleId) from EventInstance e " +
+            "where e.participants < e.capacity and e.capacity - e.participants >= ?1 " +
+            "and (e.date > ?2 or (e.date = ?2 and (e.time > ?3 or (e.time = ?3 and e.id > ?4)))) and e.date <= ?5 " +
+            "and e.coachId = ?6 " +
+            "order by e.date, e.time, e.id")
+    List<EventAvailabilityView> findAvailableOfCoach(int minSeats, LocalDate afterDate, LocalTime afterTime, long afterId,
+                                                     LocalDate to, int coachId, Pageable limit);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.EventAvailabilityView(e.id, e.title, e.date, e.time, e.clubId, e.coachId, e.capacity - e.participants, e.scheduleId) from EventInstance e " +
+            "where e.participants < e.capacity and e.capacity - e.participants >= ?1 " +
+            "and (e.date > ?2 or (e.date = ?2 and (e.time > ?3 or (e.time = ?3 and e.id > ?4)))) and e.date <= ?5 " +
+            "and e.clubId = ?6 and e.coachId = ?7 " +
+            "order by e.date, e.time, e.id")
+    List<EventAvailabilityView> findAvailableInClubOfCoach(int minSeats, LocalDate afterDate, LocalTime afterTime, long afterId,
+                                                           LocalDate to, int clubId, int coachId, Pageable limit);
+
     @Modifying
     @Query(value = "update EventInstance e set e.participants = e.participants + 1 where e.id = ?1")
     int incrementParticipantsForEvent(long eventId);
 
+    // row stays locked until the end of the transaction, so that a batch of sign-ups can be admitted at once
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select e from EventInstance e where e.id = ?1")
+    Optional<EventInstance> findEventForUpdate(long eventId);
+
     @Modifying
+    @Query(value = "update EventInstance e set e.participants = e.participants + ?2 where e.id = ?1")
+    int addParticipantsForEvent(long eventId, int count);
+
+    // the counter as the transaction left it, after updates that bypass the loaded entity
+    @Query(value = "select e.participants from EventInstance e where e.id = ?1")
+    int findParticipants(long eventId);
+
+    // counters of registered participants change only together with their rows
+    @Modifying
+    @Query(value = "update EventInstance e set e.participants = e.participants + 1 where e.id = ?1 and e.participants < e.capacity")
+    int incrementParticipantsIfFree(long eventId);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "update EventInstance e set e.participants = e.participants - 1 where e.id = ?1 and e.participants > 0")
+    int decrementParticipantsForEvent(long eventId);
+
+    // cleared, so that waitlist promotion later in the transaction reads the new capacity
+    @Modifying(clearAutomatically = true)
     @Query(value = "update EventInstance e set e.capacity = ?2 where e.id = ?1")
     int setCapacityForEvent(long eventId, int capacity);
 
@@ -40,5 +143,42 @@ public interface EventsInstancesRepository extends JpaRepository<EventInstance,
     int setDateAndTimeOfEvent(long eventId, LocalDate date, LocalTime time);
 
     @Modifying
-    void deleteEventByDateBefore(LocalDate date);
+    @Query(value = "delete from EventInstance e where e.scheduleId = ?1 and e.date >= ?2 and e.participants = 0")
+    int deleteUnbookedOccurrences(int scheduleId, LocalDate from);
+
+    // title and duration follow the schedule again, null on the home shard and copies on the others
+    @Modifying
+    @Query(value = "update EventInstance e set e.title = ?7, e.time = ?3, e.duration = ?8, e.capacity = ?4, e.clubId = ?5, e.coachId = ?6 " +
+            "where e.scheduleId = ?1 and e.date >= ?2 and e.participants = 0")
+    int updateUnbookedOccurrences(int scheduleId, LocalDate from, LocalTime time, int capacity, int clubId, int coachId,
+                                  String title, Duration duration);
+
+    // occurrences the schedule no longer changes, past or booked ones, keep the title and duration it had
+    @Modifying
+    @Query(value = "update EventInstance e set e.title = coalesce(e.title, ?3), e.duration = coalesce(e.duration, ?4) " +
+            "where e.scheduleId = ?1 and (e.date < ?2 or e.participants > 0) and (e.title is null or e.duration is null)")
+    int pinOccurrences(int scheduleId, LocalDate from, String title, Duration duration);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.OccurrenceKey(e.scheduleId, e.originalDate) from EventInstance e " +
+            "where e.scheduleId = ?1 and e.originalDate between ?2 and ?3")
+    List<OccurrenceKey> findOccurrenceKeysOfSchedule(int scheduleId, LocalDate from, LocalDate to);
+
+    // as pinOccurrences, from the schedules themselves, before they are removed
+    @Modifying
+    @Query(value = "update EventInstance e set " +
+            "e.title = coalesce(e.title, (select s.title from Schedule s where s.id = e.scheduleId)), " +
+            "e.duration = coalesce(e.duration, (select s.duration from Schedule s where s.id = e.scheduleId)) " +
+            "where e.scheduleId in ?1 and (e.date < ?2 or e.participants > 0) and (e.title is null or e.duration is null)")
+    int pinOccurrencesOfSchedules(Collection<Integer> scheduleIds, LocalDate from);
+
+    @Modifying
+    @Query(value = "delete from EventInstance e where e.scheduleId in ?1 and e.date >= ?2 and e.participants = 0")
+    int deleteUnbookedOccurrencesOfSchedules(Collection<Integer> scheduleIds, LocalDate from);
+
+    @Query(value = "select e.id from EventInstance e where e.id > ?1 order by e.id")
+    List<Long> findIdsAfter(long afterId, Pageable limit);
+
+    @Modifying
+    @Query(value = "delete from EventInstance e where e.date < ?1")
+    int deleteEventByDateBefore(LocalDate date);
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package jwzp_ww_fs.app.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import jwzp_ww_fs.app.models.GenerationHorizon;
+
+public interface GenerationHorizonRepository extends JpaRepository<GenerationHorizon, String> {}
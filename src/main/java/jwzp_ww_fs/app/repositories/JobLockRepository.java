@@ -0,0 +1,28 @@
+package jwzp_ww_fs.app.repositories;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import jwzp_ww_fs.app.models.JobLock;
+
+// every method commits on its own, so that other nodes see the lock as soon as it is taken
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+    @Transactional
+    @Modifying
+    @Query(value = "update JobLock l set l.lockedUntil = ?2, l.lockedAt = ?3, l.lockedBy = ?4 where l.name = ?1 and l.lockedUntil <= ?3")
+    int acquire(String name, Instant lockedUntil, Instant now, String node);
+
+    @Transactional
+    @Modifying
+    @Query(value = "insert into job_locks (name, locked_until, locked_at, locked_by) values (?1, ?2, ?3, ?4)", nativeQuery = true)
+    int create(String name, Instant lockedUntil, Instant now, String node);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update JobLock l set l.lockedUntil = ?2 where l.name = ?1 and l.lockedBy = ?3")
+    int release(String name, Instant lockedUntil, String node);
+}
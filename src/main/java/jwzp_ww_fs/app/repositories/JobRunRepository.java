@@ -0,0 +1,11 @@
+package jwzp_ww_fs.app.repositories;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import jwzp_ww_fs.app.models.JobRun;
+
+public interface JobRunRepository extends JpaRepository<JobRun, Long> {
+    Page<JobRun> findJobRunByJobName(Pageable p, String jobName);
+}
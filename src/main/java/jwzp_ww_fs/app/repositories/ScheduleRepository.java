@@ -5,14 +5,36 @@ import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import jwzp_ww_fs.app.dto.ScheduleView;
 import jwzp_ww_fs.app.models.Schedule;
 
 public interface ScheduleRepository extends JpaRepository<Schedule, Integer> {
     List<Schedule> findScheduleByCoachId(int coachId);
     List<Schedule> findScheduleByClubId(int clubId);
     List<Schedule> findScheduleByClubIdAndCoachId(int clubId, int coachId);
+    List<Schedule> findScheduleByClubIdBetween(int fromClubId, int toClubId);
     Page<Schedule> findScheduleByCoachId(Pageable p, int coachId);
     Page<Schedule> findScheduleByClubId(Pageable p, int coachId);
     Page<Schedule> findScheduleByClubIdAndCoachId(Pageable p, int clubId, int coachId);
+
+    @Query(value = "select s.id from Schedule s where s.id > ?1 order by s.id")
+    List<Integer> findIdsAfter(int afterId, Pageable limit);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.ScheduleView(s.id, s.title, s.day, s.time, s.duration, s.capacity, s.clubId, s.coachId) from Schedule s",
+            countQuery = "select count(s) from Schedule s")
+    Page<ScheduleView> findViews(Pageable p);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.ScheduleView(s.id, s.title, s.day, s.time, s.duration, s.capacity, s.clubId, s.coachId) from Schedule s where s.coachId = ?1",
+            countQuery = "select count(s) from Schedule s where s.coachId = ?1")
+    Page<ScheduleView> findViewsByCoachId(Pageable p, int coachId);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.ScheduleView(s.id, s.title, s.day, s.time, s.duration, s.capacity, s.clubId, s.coachId) from Schedule s where s.clubId = ?1",
+            countQuery = "select count(s) from Schedule s where s.clubId = ?1")
+    Page<ScheduleView> findViewsByClubId(Pageable p, int clubId);
+
+    @Query(value = "select new jwzp_ww_fs.app.dto.ScheduleView(s.id, s.title, s.day, s.time, s.duration, s.capacity, s.clubId, s.coachId) from Schedule s where s.clubId = ?1 and s.coachId = ?2",
+            countQuery = "select count(s) from Schedule s where s.clubId = ?1 and s.coachId = ?2")
+    Page<ScheduleView> findViewsByClubIdAndCoachId(Pageable p, int clubId, int coachId);
 }
\ No newline at end of file
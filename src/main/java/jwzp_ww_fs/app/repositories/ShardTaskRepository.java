@@ -0,0 +1,17 @@
+package jwzp_ww_fs.app.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import jwzp_ww_fs.app.models.ShardTask;
+
+public interface ShardTaskRepository extends JpaRepository<ShardTask, Long> {
+    int BATCH = 100;
+
+    // rows stay locked until the end of the transaction, a node applying the same shard waits for them
+    @Query(value = "SELECT * FROM shard_tasks WHERE shard = ?1 ORDER BY id FETCH FIRST " + BATCH + " ROWS ONLY FOR UPDATE",
+            nativeQuery = true)
+    List<ShardTask> findPendingForUpdate(String shard);
+}
@@ -0,0 +1,31 @@
+package jwzp_ww_fs.app.repositories;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import jwzp_ww_fs.app.models.WaitlistEntry;
+
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Long> {
+    Page<WaitlistEntry> findWaitlistEntryByEventIdOrderById(Pageable p, long eventId);
+
+    Optional<WaitlistEntry> findWaitlistEntryByEventIdAndMemberId(long eventId, long memberId);
+
+    @Query(value = "select w from WaitlistEntry w where w.eventId = ?1 order by w.id")
+    List<WaitlistEntry> findHead(long eventId, Pageable limit);
+
+    // range count over the (event_id, id) index
+    @Query(value = "select count(w) from WaitlistEntry w where w.eventId = ?1 and w.id < ?2")
+    long countAhead(long eventId, long id);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from WaitlistEntry w where w.eventId = ?1 and w.memberId = ?2")
+    int deleteEntry(long eventId, long memberId);
+}
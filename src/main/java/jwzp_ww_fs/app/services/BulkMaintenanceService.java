@@ -0,0 +1,162 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import jwzp_ww_fs.app.dto.BulkDeleteSummary;
+import jwzp_ww_fs.app.exceptions.club.EventAssociatedWithClubException;
+import jwzp_ww_fs.app.exceptions.coach.EventAssociatedWithCoachException;
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.repositories.ClubsRepository;
+import jwzp_ww_fs.app.repositories.CoachRepository;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import jwzp_ww_fs.app.repositories.ScheduleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Delete-all operations. Rows are deleted in chunks of IDs in ID order, every chunk with a single delete
+// statement in its own transaction, so that no transaction holds more than a chunk of rows locked and
+// nothing is loaded into memory besides the IDs. Every chunk is announced to the change stream as one
+// change, and counters of clubs and coaches are recalculated with one aggregate update at the end.
+@Service
+public class BulkMaintenanceService {
+    EventsInstancesRepository eventsRepository;
+    ScheduleRepository scheduleRepository;
+    ClubsRepository clubsRepository;
+    CoachRepository coachRepository;
+    ShardingService sharding;
+    HorizonService horizonService;
+    ApplicationEventPublisher publisher;
+
+    Logger logger = LoggerFactory.getLogger(BulkMaintenanceService.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public BulkMaintenanceService(
+            EventsInstancesRepository eventsRepository,
+            ScheduleRepository scheduleRepository,
+            ClubsRepository clubsRepository,
+            CoachRepository coachRepository,
+            ShardingService sharding,
+            HorizonService horizonService,
+            ApplicationEventPublisher publisher,
+            PlatformTransactionManager transactionManager,
+            @Value("${gym.bulk.chunk-size:500}") int chunkSize
+    ) {
+        this.eventsRepository = eventsRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.clubsRepository = clubsRepository;
+        this.coachRepository = coachRepository;
+        this.sharding = sharding;
+        this.horizonService = horizonService;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    // every shard deletes its own events, the summary adds them up
+    public BulkDeleteSummary removeAllEvents() {
+        var summaries = sharding.gather(shard -> deleteInChunks(EntityChange.EVENT, 0L,
+                after -> eventsRepository.findIdsAfter(after, PageRequest.ofSize(chunkSize)),
+                eventsRepository::deleteAllByIdInBatch));
+        return new BulkDeleteSummary(EntityChange.EVENT, summaries.stream().mapToLong(BulkDeleteSummary::deleted).sum(),
+                summaries.stream().mapToInt(BulkDeleteSummary::chunks).sum());
+    }
+
+    // unbooked future occurrences go with their schedules, like when a single schedule is removed
+    public BulkDeleteSummary removeAllSchedules() {
+        LocalDate today = LocalDate.now();
+        var summary = deleteInChunks(EntityChange.SCHEDULE, 0,
+                after -> scheduleRepository.findIdsAfter(after, PageRequest.ofSize(chunkSize)),
+                ids -> {
+                    // the occurrences that stay are pinned to their schedules first, the other shards keep copies;
+                    // the others go before the schedules, whose removal clears schedule_id of what is left
+                    eventsRepository.pinOccurrencesOfSchedules(ids, today);
+                    horizonService.deleteUnbookedOccurrences(ids, today);
+                    scheduleRepository.deleteAllByIdInBatch(ids);
+                });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            clubsRepository.recountEvents();
+            coachRepository.recountEvents();
+            // clubs without schedules have nothing their opening hours must cover
+            var fillLevels = clubsRepository.findFillLevelIdsOfClubsWithoutSchedules();
+            if (!fillLevels.isEmpty()) {
+                clubsRepository.deleteFillLevels(fillLevels);
+                clubsRepository.deleteEventHours(fillLevels);
+            }
+        });
+        return summary;
+    }
+
+    public BulkDeleteSummary removeAllClubs() throws EventAssociatedWithClubException {
+        if (clubsRepository.existsByNumberOfEventsGreaterThan(0)) throw new EventAssociatedWithClubException();
+
+        return deleteInChunks(EntityChange.CLUB, 0,
+                after -> clubsRepository.findEmptyIdsAfter(after, PageRequest.ofSize(chunkSize)),
+                ids -> {
+                    var openingHours = clubsRepository.findOpeningHoursIds(ids);
+                    var fillLevels = clubsRepository.findFillLevelIds(ids);
+                    clubsRepository.deleteOpeningHoursOfClubs(ids);
+                    if (!fillLevels.isEmpty()) clubsRepository.deleteFillLevels(fillLevels);
+                    clubsRepository.deleteAllByIdInBatch(ids);
+                    if (!openingHours.isEmpty()) clubsRepository.deleteOpeningHours(openingHours);
+                    if (!fillLevels.isEmpty()) clubsRepository.deleteEventHours(fillLevels);
+                });
+    }
+
+    public BulkDeleteSummary removeAllCoaches() throws EventAssociatedWithCoachException {
+        if (coachRepository.existsByNumberOfEventsGreaterThan(0)) throw new EventAssociatedWithCoachException();
+
+        return deleteInChunks(EntityChange.COACH, 0,
+                after -> coachRepository.findEmptyIdsAfter(after, PageRequest.ofSize(chunkSize)),
+                coachRepository::deleteAllByIdInBatch);
+    }
+
+    private <ID> BulkDeleteSummary deleteInChunks(String entity, ID start, Function<ID, List<ID>> nextChunk, Consumer<List<ID>> delete) {
+        long deleted = 0;
+        int chunks = 0;
+        ID after = start;
+
+        while (true) {
+            final ID from = after;
+            List<ID> ids = transactionTemplate.execute(status -> {
+                var chunk = nextChunk.apply(from);
+                if (!chunk.isEmpty()) {
+                    delete.accept(chunk);
+                    publishChunk(entity, chunk);
+                }
+                return chunk;
+            });
+            if (ids == null || ids.isEmpty()) break;
+
+            deleted += ids.size();
+            chunks++;
+            after = ids.get(ids.size() - 1);
+        }
+
+        logger.info("Deleted {} rows of {} in {} chunks", deleted, entity, chunks);
+        return new BulkDeleteSummary(entity, deleted, chunks);
+    }
+
+    // one change per chunk, listing every deleted ID would not fit the outbox payload
+    private <ID> void publishChunk(String entity, List<ID> ids) {
+        var first = ids.get(0);
+        var last = ids.get(ids.size() - 1);
+        publisher.publishEvent(new EntityChange(entity, first + "-" + last, ChangeRecord.Operation.DELETED,
+                Map.of("fromId", first, "toId", last, "count", ids.size())));
+    }
+}
@@ -0,0 +1,189 @@
+package jwzp_ww_fs.app.services;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.models.ChangesRelayed;
+import jwzp_ww_fs.app.repositories.ChangeRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// Relays committed outbox rows to SSE subscribers and waiting long-polls. Every replica relays the shared
+// table on its own, so each node serves its own connections. Identity values are handed out before commit,
+// so a row may become visible after a higher one; rows are therefore numbered again once committed, in
+// transactions that hold the change_sequencer row, and a number is visible only after all below it are.
+// Every relayed batch is published as ChangesRelayed to the consumers within the node as well.
+@Service
+public class ChangesService {
+    public static final int MAX_BATCH = 500;
+    private static final long EMITTER_TIMEOUT = Duration.ofMinutes(30).toMillis();
+
+    ChangeRecordRepository repository;
+    JobsService jobsService;
+    ApplicationEventPublisher publisher;
+
+    private final Duration retention;
+    private final TransactionTemplate transactionTemplate;
+
+    // highest seq below which every committed row has been relayed, -1 until read from the table
+    private final AtomicLong watermark = new AtomicLong(-1);
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Queue<PendingPoll> polls = new ConcurrentLinkedQueue<>();
+    private final Object relayLock = new Object();
+
+    Logger logger = LoggerFactory.getLogger(ChangesService.class);
+
+    private record PendingPoll(long since, int limit, DeferredResult<List<ChangeRecord>> result) {}
+
+    private record Subscriber(SseEmitter emitter) {}
+
+    @Autowired
+    public ChangesService(
+            ChangeRecordRepository repository,
+            JobsService jobsService,
+            ApplicationEventPublisher publisher,
+            PlatformTransactionManager transactionManager,
+            @Value("${gym.changes.retention:P7D}") Duration retention
+    ) {
+        this.repository = repository;
+        this.jobsService = jobsService;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+    }
+
+    public long watermark() {
+        if (watermark.get() < 0) {
+            Long maxSeq = repository.findMaxSeq();
+            watermark.compareAndSet(-1, maxSeq == null ? 0 : maxSeq);
+        }
+        return watermark.get();
+    }
+
+    public List<ChangeRecord> getChanges(long since, int limit) {
+        long to = watermark();
+        if (since >= to) return List.of();
+        return repository.findChangesBetween(since, to, PageRequest.of(0, Math.max(1, Math.min(limit, MAX_BATCH))));
+    }
+
+    // completes at once when changes after since were already relayed, otherwise with the next batch or
+    // with an empty list after the timeout
+    public DeferredResult<List<ChangeRecord>> poll(long since, int limit, Duration timeout) {
+        var result = new DeferredResult<List<ChangeRecord>>(timeout.toMillis(), List.of());
+        var pending = new PendingPoll(since, limit, result);
+        polls.add(pending);
+        result.onCompletion(() -> polls.remove(pending));
+
+        // checked after registering, so that a batch relayed in between is not missed
+        if (watermark() > since)
+            result.setResult(getChanges(since, limit));
+        return result;
+    }
+
+    // replays the changes after lastEventId before the subscriber starts receiving relayed batches
+    public SseEmitter subscribe(Optional<Long> lastEventId) {
+        var subscriber = new Subscriber(new SseEmitter(EMITTER_TIMEOUT));
+        subscriber.emitter().onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter().onTimeout(subscriber.emitter()::complete);
+        subscriber.emitter().onError(ex -> subscribers.remove(subscriber));
+
+        long position = lastEventId.orElseGet(this::watermark);
+        try {
+            // far behind consumers catch up without holding back the relay
+            List<ChangeRecord> page;
+            while ((page = getChanges(position, MAX_BATCH)).size() == MAX_BATCH)
+                position = send(subscriber, page);
+
+            synchronized (relayLock) {
+                while (!(page = getChanges(position, MAX_BATCH)).isEmpty())
+                    position = send(subscriber, page);
+                subscribers.add(subscriber);
+            }
+        } catch (IOException | IllegalStateException ex) {
+            subscriber.emitter().completeWithError(ex);
+        }
+        return subscriber.emitter();
+    }
+
+    @Scheduled(fixedDelayString = "${gym.changes.relay-interval-ms:500}")
+    public void relay() {
+        sequence();
+        long from = watermark();
+        var ready = repository.findChangesBetween(from, Long.MAX_VALUE, PageRequest.of(0, MAX_BATCH));
+        if (ready.isEmpty()) return;
+
+        // only the watermark and the subscribers it reaches are taken under the lock, a subscriber added later
+        // has already read the batch while catching up; slow clients are written to after releasing it
+        List<Subscriber> receivers;
+        synchronized (relayLock) {
+            watermark.set(ready.get(ready.size() - 1).seq());
+            receivers = List.copyOf(subscribers);
+        }
+        for (var subscriber : receivers) {
+            try {
+                send(subscriber, ready);
+            } catch (IOException | IllegalStateException ex) {
+                subscribers.remove(subscriber);
+                subscriber.emitter().completeWithError(ex);
+            }
+        }
+
+        for (var pending : polls) {
+            var changes = ready.stream().filter(c -> c.seq() > pending.since()).limit(pending.limit()).toList();
+            if (!changes.isEmpty()) pending.result().setResult(changes);
+        }
+        polls.removeIf(pending -> pending.result().isSetOrExpired());
+        publisher.publishEvent(new ChangesRelayed(ready));
+        logger.debug("Relayed {} changes up to {}", ready.size(), watermark.get());
+    }
+
+    // numbers the committed rows without seq after the last numbered one; a transaction still in flight numbers
+    // nothing below what it will number later, so consumers never pass a change that becomes visible later
+    int sequence() {
+        Integer sequenced = transactionTemplate.execute(status -> {
+            long last = repository.lockSequencer();
+            var unsequenced = repository.findUnsequenced(PageRequest.of(0, MAX_BATCH));
+            if (unsequenced.isEmpty()) return 0;
+
+            for (var change : unsequenced)
+                change.sequence(++last);
+            repository.advanceSequencer(last);
+            return unsequenced.size();
+        });
+        return sequenced == null ? 0 : sequenced;
+    }
+
+    private static long send(Subscriber subscriber, List<ChangeRecord> changes) throws IOException {
+        long last = changes.get(changes.size() - 1).seq();
+        subscriber.emitter().send(SseEmitter.event()
+                .id(String.valueOf(last))
+                .name("changes")
+                .data(changes, MediaType.APPLICATION_JSON));
+        return last;
+    }
+
+    @Scheduled(cron = "0 30 * * * *")
+    public void purgeChanges() {
+        jobsService.runExclusively("purge-changes",
+                () -> repository.deleteChangesCreatedBefore(Instant.now().minus(retention)));
+    }
+}
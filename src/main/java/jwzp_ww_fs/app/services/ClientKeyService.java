@@ -0,0 +1,73 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Identifies the client of a request, for rate limits and for reading its own writes. A client is its address,
+// as forwarded by the proxy in front of the application (server.forward-headers-strategy). Clients behind one
+// address, the kiosks and the reception desk of a club, may tell themselves apart with the X-Client-Id header;
+// the header is set by the client itself, so an address gets at most gym.limits.clients-per-address of them and
+// further ones share the key of the address. Ids not seen for gym.limits.client-ttl are forgotten.
+@Service
+public class ClientKeyService {
+    public static final String CLIENT_HEADER = "X-Client-Id";
+    static final int MAX_CLIENT_LENGTH = 64;
+
+    private final int clientsPerAddress;
+    private final long ttlNanos;
+
+    // ids admitted under an address and when they were last seen, in nanoTime
+    private final Map<String, Map<String, Long>> clients = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ClientKeyService(
+            @Value("${gym.limits.clients-per-address:8}") int clientsPerAddress,
+            @Value("${gym.limits.client-ttl:PT10M}") Duration ttl
+    ) {
+        this.clientsPerAddress = clientsPerAddress;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public String clientKey(HttpServletRequest request) {
+        return clientKey(request.getRemoteAddr(), request.getHeader(CLIENT_HEADER), System.nanoTime());
+    }
+
+    String clientKey(String address, String client, long now) {
+        if (client == null || client.isBlank() || clientsPerAddress <= 0) return address;
+        if (client.length() > MAX_CLIENT_LENGTH) client = client.substring(0, MAX_CLIENT_LENGTH);
+
+        var admitted = clients.computeIfAbsent(address, a -> new ConcurrentHashMap<>());
+        synchronized (admitted) {
+            if (!admitted.containsKey(client) && admitted.size() >= clientsPerAddress) return address;
+            admitted.put(client, now);
+        }
+        return address + ' ' + client;
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void sweep() {
+        sweep(System.nanoTime());
+    }
+
+    // an id admitted into a map removed at the same time is admitted again on its next request
+    void sweep(long now) {
+        clients.values().removeIf(admitted -> {
+            synchronized (admitted) {
+                admitted.values().removeIf(seen -> now - seen > ttlNanos);
+                return admitted.isEmpty();
+            }
+        });
+    }
+
+    int addresses() {
+        return clients.size();
+    }
+}
@@ -5,10 +5,13 @@ import jwzp_ww_fs.app.exceptions.club.ProtrudingEventException;
 import jwzp_ww_fs.app.models.*;
 import jwzp_ww_fs.app.models.Schedule;
 import jwzp_ww_fs.app.repositories.ClubsRepository;
+import jwzp_ww_fs.app.util.EntityLoader;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.DayOfWeek;
 import java.time.LocalTime;
@@ -19,50 +22,67 @@ import java.util.Map;
 @Service
 public class ClubsService {
     ClubsRepository repository;
+    EntityCache cache;
+    ApplicationEventPublisher publisher;
 
     @Autowired
-    public ClubsService(ClubsRepository repository) {
+    public ClubsService(ClubsRepository repository, EntityCache cache, ApplicationEventPublisher publisher) {
         this.repository = repository;
+        this.cache = cache;
+        this.publisher = publisher;
     }
 
+    @Transactional
     public void setFillLevel(int clubId, Map<DayOfWeek, OpeningHours> fillLevel) {
         var converted = new HashMap<DayOfWeek, EventHours>();
         for (var entry : fillLevel.entrySet())
             converted.put(entry.getKey(), new EventHours(entry.getValue().from(), entry.getValue().to()));
 
-        var club = repository.findById(clubId).orElse(null);
+        var club = getClub(clubId);
         if (club == null) return;
 
         club.fillLevel(converted);
         repository.save(club);
     }
 
+    @Transactional
     public synchronized void addEventToClub(int clubId) {
         var club = repository.getById(clubId);
         club.addEvent();
         repository.save(club);
     }
 
+    @Transactional
     public synchronized void subtractEventFromClub(int clubId) {
         var club = repository.getById(clubId);
         club.subEvent();
         repository.save(club);
     }
 
+    @Transactional
     public Club addClub(Club club) {
         var out = repository.save(club);
         out.numberOfEvents(0);
         out.fillLevel(new HashMap<>());
-        return repository.save(club);
+        var added = repository.save(club);
+        publish(added, ChangeRecord.Operation.CREATED);
+        return added;
     }
 
+    @Transactional
     public Club patchClub(int clubId, Club club) throws ProtrudingEventException {
-        var clubToUpdate = repository.findById(clubId).orElse(null);
+        var clubToUpdate = getClub(clubId);
         if (clubToUpdate == null) return null;
         if (hoursCollision(clubToUpdate, club)) throw  new ProtrudingEventException();
 
         clubToUpdate.updateData(club);
-        return repository.save(clubToUpdate);
+        var updated = repository.save(clubToUpdate);
+        publish(updated, ChangeRecord.Operation.UPDATED);
+        return updated;
+    }
+
+    private void publish(Club club, ChangeRecord.Operation operation) {
+        publisher.publishEvent(new EntityChange(EntityChange.CLUB, String.valueOf(club.id()), operation, club));
     }
 
     public boolean hoursCollision(Club oldClub, Club newClub) {
@@ -82,34 +102,30 @@ public class ClubsService {
         return false;
     }
 
+    @Transactional
     public Club removeClub(int clubId) throws EventAssociatedWithClubException {
-        Club club = repository.findById(clubId).orElse(null);
+        Club club = getClub(clubId);
         if (club == null) return null;
         if (!club.isEmpty()) throw new EventAssociatedWithClubException();
 
         repository.deleteById(clubId);
+        EntityLoader.evict(Club.class, clubId);
+        publish(club, ChangeRecord.Operation.DELETED);
         return club;
     }
 
-    public List<Club> removeAllClubs() throws EventAssociatedWithClubException {
-        var clubs = repository.findAll();
-        for (var club : clubs)
-            if (!club.isEmpty()) throw new EventAssociatedWithClubException();
-
-        repository.deleteAll();
-        return clubs;
-    }
-
+    @Transactional(readOnly = true)
     public List<Club> getAllClubs() {
-        return repository.findAll();
+        return repository.findAllReadOnly();
     }
 
+    @Transactional(readOnly = true)
     public Page<Club> getAllClubs(Pageable p) {
-        return repository.findAll(p);
+        return repository.findAllReadOnly(p);
     }
 
     public Club getClub(int clubId) {
-        return repository.findById(clubId).orElse(null);
+        return EntityLoader.load(Club.class, clubId, id -> cache.load(EntityChange.CLUB, Club.class, id, repository::findById));
     }
 
 
@@ -117,15 +133,16 @@ public class ClubsService {
     public boolean isScheduleInClubOpeningHours(Schedule scheduleToAdd) {
         LocalTime beg = scheduleToAdd.time();
         LocalTime end = scheduleToAdd.time().plus(scheduleToAdd.duration());
+        var whenOpen = getClub(scheduleToAdd.clubId()).whenOpen();
 
         if (beg.isBefore(end)) {
-            OpeningHours openingHours = getClub(scheduleToAdd.clubId()).whenOpen().get(scheduleToAdd.day());
+            OpeningHours openingHours = whenOpen.get(scheduleToAdd.day());
             if (openingHours.from().equals(openingHours.to())) return true;
             return !openingHours.from().isAfter(beg) && ((!openingHours.to().isBefore(end)) || (openingHours.to().equals(LocalTime.MIDNIGHT)));
         }
 
-        OpeningHours firstDay = getClub(scheduleToAdd.clubId()).whenOpen().get(scheduleToAdd.day());
-        OpeningHours secondDay = getClub(scheduleToAdd.clubId()).whenOpen().get(scheduleToAdd.day().plus(1));
+        OpeningHours firstDay = whenOpen.get(scheduleToAdd.day());
+        OpeningHours secondDay = whenOpen.get(scheduleToAdd.day().plus(1));
 
         boolean firstDayOk, secondDayOk;
         if (firstDay.from().equals(firstDay.to())) firstDayOk = true;
@@ -140,15 +157,16 @@ public class ClubsService {
     public boolean isEventInstanceInClubOpeningHours(EventInstance eventToAdd) {
         LocalTime beg = eventToAdd.time();
         LocalTime end = eventToAdd.time().plus(eventToAdd.duration());
+        var whenOpen = getClub(eventToAdd.clubId()).whenOpen();
 
         if (beg.isBefore(end)) {
-            OpeningHours openingHours = getClub(eventToAdd.clubId()).whenOpen().get(eventToAdd.date().getDayOfWeek());
+            OpeningHours openingHours = whenOpen.get(eventToAdd.date().getDayOfWeek());
             if (openingHours.from().equals(openingHours.to())) return true;
             return !openingHours.from().isAfter(beg) && ((!openingHours.to().isBefore(end)) || (openingHours.to().equals(LocalTime.MIDNIGHT)));
         }
 
-        OpeningHours firstDay = getClub(eventToAdd.clubId()).whenOpen().get(eventToAdd.date().getDayOfWeek());
-        OpeningHours secondDay = getClub(eventToAdd.clubId()).whenOpen().get(eventToAdd.date().getDayOfWeek().plus(1));
+        OpeningHours firstDay = whenOpen.get(eventToAdd.date().getDayOfWeek());
+        OpeningHours secondDay = whenOpen.get(eventToAdd.date().getDayOfWeek().plus(1));
 
         boolean firstDayOk, secondDayOk;
         if (firstDay.from().equals(firstDay.to())) firstDayOk = true;
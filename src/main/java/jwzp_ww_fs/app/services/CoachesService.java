@@ -1,29 +1,41 @@
 package jwzp_ww_fs.app.services;
 
 import jwzp_ww_fs.app.exceptions.coach.EventAssociatedWithCoachException;
+import jwzp_ww_fs.app.models.ChangeRecord;
 import jwzp_ww_fs.app.models.Coach;
+import jwzp_ww_fs.app.models.EntityChange;
 import jwzp_ww_fs.app.repositories.CoachRepository;
+import jwzp_ww_fs.app.util.EntityLoader;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
 public class CoachesService {
     CoachRepository repository;
+    EntityCache cache;
+    ApplicationEventPublisher publisher;
+
     @Autowired
-    public CoachesService(CoachRepository repository) {
+    public CoachesService(CoachRepository repository, EntityCache cache, ApplicationEventPublisher publisher) {
         this.repository = repository;
+        this.cache = cache;
+        this.publisher = publisher;
     }
 
+    @Transactional
     public synchronized void addEventForCoach(int coachId) {
         Coach coach = repository.getById(coachId);
         coach.addEvent();
         repository.save(coach);
     }
 
+    @Transactional
     public synchronized void subtractEventFromCoach(int coachId) {
         Coach coach = repository.getById(coachId);
         coach.subEvent();
@@ -38,34 +50,38 @@ public class CoachesService {
         }
     }
 
+    @Transactional
     synchronized public Coach addCoach(Coach coach) {
-        return repository.save(coach);
+        var added = repository.save(coach);
+        publish(added, ChangeRecord.Operation.CREATED);
+        return added;
     }
 
+    @Transactional
     public Coach patchCoach(int coachId, Coach coach) {
-        var coachToUpdate = repository.findById(coachId).orElse(null);
+        var coachToUpdate = getCoach(coachId);
         if (coachToUpdate == null) return null;
 
         coachToUpdate.updateData(coach);
-        return repository.save(coachToUpdate);
+        var updated = repository.save(coachToUpdate);
+        publish(updated, ChangeRecord.Operation.UPDATED);
+        return updated;
     }
 
+    @Transactional
     synchronized public Coach removeCoach(int coachId) throws EventAssociatedWithCoachException {
-        Coach coach = repository.findById(coachId).orElse(null);
+        Coach coach = getCoach(coachId);
         if (coach == null) return null;
         if (!coach.isEmpty()) throw new EventAssociatedWithCoachException();
 
         repository.deleteById(coachId);
+        EntityLoader.evict(Coach.class, coachId);
+        publish(coach, ChangeRecord.Operation.DELETED);
         return coach;
     }
 
-    public List<Coach> removeAllCoaches() throws EventAssociatedWithCoachException {
-        var coaches = repository.findAll();
-        for (var coach : coaches)
-            if (!coach.isEmpty()) throw new EventAssociatedWithCoachException();
-
-        repository.deleteAll();
-        return coaches;
+    private void publish(Coach coach, ChangeRecord.Operation operation) {
+        publisher.publishEvent(new EntityChange(EntityChange.COACH, String.valueOf(coach.id()), operation, coach));
     }
 
     public List<Coach> getAllCoaches() {
@@ -77,7 +93,7 @@ public class CoachesService {
     }
 
     public Coach getCoach(int coachId) {
-        return repository.findById(coachId).orElse(null);
+        return EntityLoader.load(Coach.class, coachId, id -> cache.load(EntityChange.COACH, Coach.class, id, repository::findById));
     }
 
     public Page<Coach> getPage(Pageable p) {
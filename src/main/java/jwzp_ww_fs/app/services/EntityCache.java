@@ -0,0 +1,133 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jwzp_ww_fs.app.models.Invalidation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Clubs, coaches and schedules by id across requests, misses included, for lookups outside of transactions such as
+// the GET endpoints and the request interceptors. Within a transaction the entity is loaded by its persistence
+// context instead, where the services mutate it, so cached instances are only ever read. Every change recorded to the
+// outbox is broadcast by the InvalidationBus and drops the entry on every node, a bulk delete drops the range of ids
+// of each of its chunks. A lookup that overlapped an invalidation is not stored, as it may have read the entity
+// before the change, and nothing is cached while the bus is disconnected. Entries older than gym.cache.ttl are
+// loaded again, in case an invalidation went astray nonetheless.
+@Service
+public class EntityCache implements InvalidationBus.Listener {
+    private record Key(String entity, Object id) {}
+
+    private record Entry(Optional<?> value, long loadedAt) {}
+
+    private final InvalidationBus bus;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    // invalidations applied on this node, a lookup is stored only when none was applied while it loaded
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public EntityCache(
+            InvalidationBus bus,
+            MeterRegistry registry,
+            @Value("${gym.cache.enabled:true}") boolean enabled,
+            @Value("${gym.cache.max-entries:10000}") int maxEntries,
+            @Value("${gym.cache.ttl:PT10M}") Duration ttl
+    ) {
+        this.bus = bus;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        if (bus != null) bus.subscribe(this);
+
+        if (registry != null) {
+            Gauge.builder("gym.cache.entries", entries, Map::size)
+                    .description("cached clubs, coaches and schedules")
+                    .register(registry);
+        }
+        this.hits = registry == null ? null : Counter.builder("gym.cache.lookups").tag("result", "hit").register(registry);
+        this.misses = registry == null ? null : Counter.builder("gym.cache.lookups").tag("result", "miss").register(registry);
+    }
+
+    // every lookup goes to the finder, for tests of the services
+    public static EntityCache disabled() {
+        return new EntityCache(null, null, false, 0, Duration.ZERO);
+    }
+
+    public <T, ID> Optional<T> load(String entity, Class<T> type, ID id, Function<ID, Optional<T>> finder) {
+        if (!enabled || !bus.isConnected() || TransactionSynchronizationManager.isActualTransactionActive())
+            return finder.apply(id);
+
+        var key = new Key(entity, id);
+        long now = System.nanoTime();
+        var cached = entries.get(key);
+        if (cached != null && now - cached.loadedAt() < ttlNanos) {
+            hits.increment();
+            return cached.value().map(type::cast);
+        }
+
+        misses.increment();
+        long before = invalidations.get();
+        Optional<T> found = finder.apply(id);
+        if (cached != null || entries.size() < maxEntries) {
+            var entry = new Entry(found, now);
+            entries.put(key, entry);
+            // an invalidation counted after the put removes the entry itself
+            if (invalidations.get() != before || !bus.isConnected()) entries.remove(key, entry);
+        }
+        return found;
+    }
+
+    @Override
+    public synchronized void invalidate(List<Invalidation> batch) {
+        for (var invalidation : batch) {
+            invalidations.incrementAndGet();
+            if (invalidation.isRange())
+                entries.keySet().removeIf(key -> key.entity().equals(invalidation.entity()) && invalidation.covers(key.id()));
+            else
+                entries.remove(new Key(invalidation.entity(), id(invalidation)));
+        }
+    }
+
+    // expired entries are loaded again on use, the ones not used any more are removed here
+    @Scheduled(fixedDelay = 60000)
+    public void sweep() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.loadedAt() >= ttlNanos);
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    // IDs of all cached entities are ints
+    private static Object id(Invalidation invalidation) {
+        try {
+            return Integer.valueOf(invalidation.entityId());
+        } catch (NumberFormatException ex) {
+            return invalidation.entityId();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,165 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import jwzp_ww_fs.app.dto.EventAvailabilityView;
+import jwzp_ww_fs.app.dto.EventInstanceView;
+
+// Bitmap indexes over event instances, not thread safe. Every indexed event gets a small document number,
+// reused after removal so that the bitmaps stay dense; every indexed value maps to the bitmap of documents
+// having it. Filters are intersections of bitmaps, ranges are unions of the bitmaps of their values.
+class EventSearchIndex {
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final Comparator<EventInstanceView> ORDER = Comparator.comparing(EventInstanceView::date)
+            .thenComparing(EventInstanceView::time)
+            .thenComparingLong(EventInstanceView::id);
+
+    private final NavigableMap<Long, Integer> documents = new TreeMap<>();
+    private final List<EventInstanceView> events = new ArrayList<>();
+    private final Deque<Integer> freeDocuments = new ArrayDeque<>();
+    private final BitSet live = new BitSet();
+
+    private final Map<String, BitSet> tokens = new HashMap<>();
+    private final Map<Integer, BitSet> clubs = new HashMap<>();
+    private final Map<Integer, BitSet> coaches = new HashMap<>();
+    private final NavigableMap<LocalDate, BitSet> dates = new TreeMap<>();
+    private final NavigableMap<Integer, BitSet> startMinutes = new TreeMap<>();
+    private final BitSet[] days = new BitSet[DayOfWeek.values().length];
+
+    // clubId and coachId equal to 0 match every club and coach, empty tokens and days match everything
+    record Query(Collection<String> tokens, int clubId, int coachId, LocalDate from, LocalDate to,
+                 int fromMinute, int toMinute, Set<DayOfWeek> days, int minSeats, int limit) {}
+
+    EventSearchIndex() {
+        for (int i = 0; i < days.length; i++)
+            days[i] = new BitSet();
+    }
+
+    void put(EventInstanceView event) {
+        remove(event.id());
+
+        Integer free = freeDocuments.poll();
+        int document = free == null ? events.size() : free;
+        if (free == null) events.add(event);
+        else events.set(document, event);
+        documents.put(event.id(), document);
+        live.set(document);
+
+        for (var token : tokenize(event.title()))
+            tokens.computeIfAbsent(token, t -> new BitSet()).set(document);
+        clubs.computeIfAbsent(event.clubId(), c -> new BitSet()).set(document);
+        coaches.computeIfAbsent(event.coachId(), c -> new BitSet()).set(document);
+        dates.computeIfAbsent(event.date(), d -> new BitSet()).set(document);
+        startMinutes.computeIfAbsent(minuteOfDay(event), m -> new BitSet()).set(document);
+        days[event.date().getDayOfWeek().ordinal()].set(document);
+    }
+
+    void remove(long eventId) {
+        Integer document = documents.remove(eventId);
+        if (document == null) return;
+
+        var event = events.get(document);
+        for (var token : tokenize(event.title()))
+            clear(tokens, token, document);
+        clear(clubs, event.clubId(), document);
+        clear(coaches, event.coachId(), document);
+        clear(dates, event.date(), document);
+        clear(startMinutes, minuteOfDay(event), document);
+        days[event.date().getDayOfWeek().ordinal()].clear(document);
+
+        live.clear(document);
+        events.set(document, null);
+        freeDocuments.push(document);
+    }
+
+    void removeRange(long fromId, long toId) {
+        for (var eventId : List.copyOf(documents.subMap(fromId, true, toId, true).keySet()))
+            remove(eventId);
+    }
+
+    // events of past days are never searched
+    void removeBefore(LocalDate date) {
+        for (var bitmap : List.copyOf(dates.headMap(date).values()))
+            bitmap.stream().mapToObj(events::get).toList().forEach(event -> remove(event.id()));
+    }
+
+    int size() {
+        return documents.size();
+    }
+
+    List<EventAvailabilityView> search(Query query) {
+        var result = (BitSet) live.clone();
+
+        for (var token : query.tokens()) {
+            var bitmap = tokens.get(token);
+            if (bitmap == null) return List.of();
+            result.and(bitmap);
+        }
+        if (query.clubId() != 0) result.and(clubs.getOrDefault(query.clubId(), new BitSet()));
+        if (query.coachId() != 0) result.and(coaches.getOrDefault(query.coachId(), new BitSet()));
+        result.and(union(dates.subMap(query.from(), true, query.to(), true).values()));
+        if (query.fromMinute() > 0 || query.toMinute() < MINUTES_PER_DAY - 1)
+            result.and(union(startingBetween(query.fromMinute(), query.toMinute())));
+        if (!query.days().isEmpty())
+            result.and(union(query.days().stream().map(day -> days[day.ordinal()]).toList()));
+
+        // seats change too often to be indexed, they only filter the few matching events
+        return result.stream()
+                .mapToObj(events::get)
+                .filter(event -> event.capacity() - event.participants() >= query.minSeats())
+                .sorted(ORDER)
+                .limit(query.limit())
+                .map(event -> new EventAvailabilityView(event.id(), event.title(), event.date(), event.time(),
+                        event.clubId(), event.coachId(), event.capacity() - event.participants(), event.scheduleId()))
+                .toList();
+    }
+
+    static Set<String> tokenize(String text) {
+        var out = new LinkedHashSet<String>();
+        if (text == null) return out;
+        for (var token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+            if (!token.isEmpty()) out.add(token);
+        return out;
+    }
+
+    private static int minuteOfDay(EventInstanceView event) {
+        return event.time().getHour() * 60 + event.time().getMinute();
+    }
+
+    // a window that ends before it begins wraps past midnight, e.g. from 20:00 to 08:00
+    private Collection<BitSet> startingBetween(int fromMinute, int toMinute) {
+        if (fromMinute <= toMinute) return startMinutes.subMap(fromMinute, true, toMinute, true).values();
+        var wrapped = new ArrayList<>(startMinutes.tailMap(fromMinute, true).values());
+        wrapped.addAll(startMinutes.headMap(toMinute, true).values());
+        return wrapped;
+    }
+
+    private static BitSet union(Collection<BitSet> bitmaps) {
+        var out = new BitSet();
+        for (var bitmap : bitmaps)
+            out.or(bitmap);
+        return out;
+    }
+
+    private static <K> void clear(Map<K, BitSet> index, K key, int document) {
+        var bitmap = index.get(key);
+        if (bitmap == null) return;
+        bitmap.clear(document);
+        if (bitmap.isEmpty()) index.remove(key);
+    }
+}
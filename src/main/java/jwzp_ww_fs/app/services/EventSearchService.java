@@ -0,0 +1,235 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jwzp_ww_fs.app.dto.EventAvailabilityView;
+import jwzp_ww_fs.app.dto.EventInstanceView;
+import jwzp_ww_fs.app.exceptions.event.EventException;
+import jwzp_ww_fs.app.exceptions.event.InvalidDateRangeException;
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.models.ChangesRelayed;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.models.ScheduleChange;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// In-memory search over upcoming event instances. Committed changes of single events, of every node, are applied
+// to the index as the change relay hands them over, with the events as they are read then; changes made by bulk
+// updates of schedule occurrences, nightly generation and purges are not announced per event, so the index is
+// rebuilt in the background after schedule changes and periodically. Changes arriving during a rebuild are
+// replayed onto the new index before it replaces the old.
+@Service
+public class EventSearchService {
+    private static final int REBUILD_PAGE_SIZE = 1000;
+    private static final int MAX_RESULTS = 500;
+
+    EventsInstancesRepository repository;
+    ShardingService sharding;
+    ScheduleDefaultsCache defaults;
+
+    Logger logger = LoggerFactory.getLogger(EventSearchService.class);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private EventSearchIndex index = new EventSearchIndex();
+    // changes applied while a rebuild reads the table, null when no rebuild runs
+    private List<Consumer<EventSearchIndex>> replay;
+    private volatile LocalDate indexedFrom = LocalDate.MIN;
+
+    @Autowired
+    public EventSearchService(EventsInstancesRepository repository, ShardingService sharding,
+                              ScheduleDefaultsCache defaults, MeterRegistry registry) {
+        this.repository = repository;
+        this.sharding = sharding;
+        this.defaults = defaults;
+
+        Gauge.builder("gym.search.indexed", this, EventSearchService::indexed)
+                .description("event instances in the search index")
+                .register(registry);
+    }
+
+    public List<EventAvailabilityView> search(Optional<String> text, Optional<Integer> clubId, Optional<Integer> coachId,
+                                              LocalDate from, LocalDate to, Optional<LocalTime> startsAfter,
+                                              Optional<LocalTime> startsBefore, Set<DayOfWeek> days, int minSeats,
+                                              int limit) throws EventException {
+        if (to.isBefore(from)) throw new InvalidDateRangeException();
+
+        var query = new EventSearchIndex.Query(
+                EventSearchIndex.tokenize(text.orElse(null)),
+                clubId.orElse(0), coachId.orElse(0),
+                from.isBefore(indexedFrom) ? indexedFrom : from, to,
+                startsAfter.map(t -> t.getHour() * 60 + t.getMinute()).orElse(0),
+                startsBefore.map(t -> t.getHour() * 60 + t.getMinute()).orElse(EventSearchIndex.MINUTES_PER_DAY - 1),
+                days, Math.max(0, minSeats), Math.max(1, Math.min(limit, MAX_RESULTS)));
+        if (query.to().isBefore(query.from())) return List.of();
+
+        lock.readLock().lock();
+        try {
+            return index.search(query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int indexed() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onChangesRelayed(ChangesRelayed relayed) {
+        Set<Long> changed = new LinkedHashSet<>();
+        for (var change : relayed.changes()) {
+            if (!EntityChange.EVENT.equals(change.entity())) continue;
+            if (change.operation() != ChangeRecord.Operation.DELETED) {
+                changed.add(Long.parseLong(change.entityId()));
+                continue;
+            }
+            // chunks of bulk deletes carry the range of their IDs
+            int dash = change.entityId().indexOf('-', 1);
+            if (dash < 0) {
+                long id = Long.parseLong(change.entityId());
+                apply(target -> target.remove(id));
+            } else {
+                long fromId = Long.parseLong(change.entityId().substring(0, dash));
+                long toId = Long.parseLong(change.entityId().substring(dash + 1));
+                apply(target -> target.removeRange(fromId, toId));
+            }
+        }
+        if (changed.isEmpty()) return;
+
+        try {
+            // IDs never come back, an event deleted since is not found and stays removed
+            var byShard = changed.stream().collect(Collectors.groupingBy(sharding::shardOfEvent));
+            for (var shard : byShard.entrySet()) {
+                var found = sharding.on(shard.getKey(), () -> repository.findViewsByIdIn(shard.getValue()));
+                apply(target -> {
+                    shard.getValue().forEach(target::remove);
+                    found.forEach(target::put);
+                });
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Could not read {} changed events, rebuilding the search index", changed.size(), ex);
+            stale.set(true);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChange(ScheduleChange change) {
+        stale.set(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        refresh();
+    }
+
+    // synchronized, the first refresh on startup may overlap the scheduled one
+    @Scheduled(fixedDelayString = "${gym.events.search.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        if (stale.getAndSet(false)) rebuild(LocalDate.now());
+        else if (indexedFrom.isBefore(LocalDate.now())) prune(LocalDate.now());
+    }
+
+    // generation and purges are not announced, a periodic rebuild picks them up
+    @Scheduled(cron = "${gym.events.search.rebuild-cron:0 45 * * * *}")
+    public void markStale() {
+        stale.set(true);
+    }
+
+    void rebuild(LocalDate today) {
+        lock.writeLock().lock();
+        try {
+            replay = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        var rebuilt = new EventSearchIndex();
+        try {
+            for (var upcoming : sharding.gather(shard -> upcomingViews(today)))
+                upcoming.forEach(view -> rebuilt.put(defaults.resolve(view)));
+        } catch (RuntimeException ex) {
+            logger.error("Could not rebuild search index", ex);
+            stale.set(true);
+            lock.writeLock().lock();
+            try {
+                replay = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            replay.forEach(change -> change.accept(rebuilt));
+            replay = null;
+            rebuilt.removeBefore(today);
+            index = rebuilt;
+            indexedFrom = today;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Rebuilt search index of {} events", rebuilt.size());
+    }
+
+    // of one shard, in pages by ID
+    private List<EventInstanceView> upcomingViews(LocalDate today) {
+        List<EventInstanceView> upcoming = new ArrayList<>();
+        long afterId = 0;
+        List<EventInstanceView> page;
+        do {
+            page = repository.findUpcomingViews(today, afterId, PageRequest.ofSize(REBUILD_PAGE_SIZE));
+            upcoming.addAll(page);
+            if (!page.isEmpty()) afterId = page.get(page.size() - 1).id();
+        } while (page.size() == REBUILD_PAGE_SIZE);
+        return upcoming;
+    }
+
+    private void prune(LocalDate today) {
+        lock.writeLock().lock();
+        try {
+            index.removeBefore(today);
+            indexedFrom = today;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<EventSearchIndex> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (replay != null) replay.add(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
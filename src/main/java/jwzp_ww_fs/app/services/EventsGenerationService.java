@@ -0,0 +1,207 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import jwzp_ww_fs.app.dto.OccurrenceKey;
+import jwzp_ww_fs.app.models.ClubRange;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.repositories.ClubsRepository;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import jwzp_ww_fs.app.repositories.ScheduleRepository;
+import jwzp_ww_fs.app.util.WeeklyRecurrence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+// Nightly generation of event instances from schedules. Generation is split into shards by ranges of
+// club IDs, each shard is a separate job, so that replicas can pick up different shards in parallel.
+@Service
+public class EventsGenerationService {
+    public static final int GENERATED_DAYS = 30;
+
+    EventsInstancesRepository repository;
+    ScheduleRepository scheduleRepository;
+    ClubsRepository clubsRepository;
+    JobsService jobsService;
+    HorizonService horizonService;
+    ShardingService sharding;
+
+    Logger logger = LoggerFactory.getLogger(EventsGenerationService.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final int shards;
+    // when enabled, instances are persisted only on first sign-up or edit of a schedule occurrence
+    private final boolean lazyMaterialization;
+
+    @Autowired
+    public EventsGenerationService(
+            EventsInstancesRepository repository,
+            ScheduleRepository scheduleRepository,
+            ClubsRepository clubsRepository,
+            JobsService jobsService,
+            HorizonService horizonService,
+            ShardingService sharding,
+            PlatformTransactionManager transactionManager,
+            @Value("${gym.jobs.generation-shards:4}") int shards,
+            @Value("${gym.jobs.generation-parallelism:4}") int parallelism,
+            @Value("${gym.events.lazy-materialization:false}") boolean lazyMaterialization
+    ) {
+        this.repository = repository;
+        this.scheduleRepository = scheduleRepository;
+        this.clubsRepository = clubsRepository;
+        this.jobsService = jobsService;
+        this.horizonService = horizonService;
+        this.sharding = sharding;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // bounded, so that generation never takes more connections than the pool can spare
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), new CustomizableThreadFactory("generation-"));
+        this.shards = Math.max(1, shards);
+        this.lazyMaterialization = lazyMaterialization;
+    }
+
+    @Scheduled(cron = "0 0 0 * * *")
+    public void generateEventInstances() {
+        LocalDate today = LocalDate.now();
+
+        if (!lazyMaterialization) {
+            var ranges = clubRanges(shards);
+            for (int i = 0; i < ranges.size(); i++) {
+                ClubRange range = ranges.get(i);
+                String jobName = "generate-events-" + i + "/" + ranges.size();
+                jobsService.runExclusivelyWithOutcome(jobName, () -> extendHorizon(range, today));
+            }
+        }
+
+        jobsService.runExclusively("delete-old-events", () -> sharding.gather(shard -> transactionTemplate.execute(
+                status -> (long) repository.deleteEventByDateBefore(today.minusDays(GENERATED_DAYS)))).stream().mapToLong(Long::longValue).sum());
+    }
+
+    public List<ClubRange> clubRanges(int count) {
+        Integer min = clubsRepository.findMinId();
+        Integer max = clubsRepository.findMaxId();
+        if (min == null || max == null) return List.of();
+
+        var ranges = new ArrayList<ClubRange>();
+        long width = Math.max(1, ((long) max - min + count) / count);
+        for (long from = min; from <= max; from += width)
+            ranges.add(new ClubRange((int) from, (int) Math.min(max, from + width - 1)));
+        return ranges;
+    }
+
+    // Appends only the days that entered the horizon of every club since the last run, which is a single day on a
+    // regular night. Edits of schedules are applied to already generated days by HorizonService.
+    JobsService.Outcome extendHorizon(ClubRange range, LocalDate today) {
+        var schedulesByClub = schedulesByClub(range);
+        var from = horizonService.nextDates(schedulesByClub.keySet(), today);
+        var result = generateEvents(range, schedulesByClub, from::get, today.plusDays(GENERATED_DAYS), true);
+        // a run with failed clubs is recorded as partial, not as succeeded
+        return new JobsService.Outcome(result.rows(), result.failedClubs() == 0 ? null
+                : "Generation failed for " + result.failedClubs() + " of " + schedulesByClub.size() + " clubs");
+    }
+
+    public record GenerationResult(long rows, int failedClubs) {}
+
+    public GenerationResult generateEvents(ClubRange range, LocalDate from, LocalDate to) {
+        return generateEvents(range, schedulesByClub(range), clubId -> from, to, false);
+    }
+
+    private Map<Integer, List<Schedule>> schedulesByClub(ClubRange range) {
+        return scheduleRepository.findScheduleByClubIdBetween(range.fromId(), range.toId())
+                .stream().collect(Collectors.groupingBy(Schedule::clubId));
+    }
+
+    // Generates missing occurrences within the dates, so that a rerun or a partial failure does not duplicate them.
+    // Every club is a separate unit of work with its own transaction, so one bad club does not roll back the others,
+    // on the shard of the club, so that with sharding the writes of a range spread over the databases. Horizons of
+    // clubs are advanced once their unit commits; those of failed clubs stay, so that the next run retries them.
+    private GenerationResult generateEvents(ClubRange range, Map<Integer, List<Schedule>> schedulesByClub,
+                                            Function<Integer, LocalDate> fromOfClub, LocalDate to, boolean advance) {
+
+        var workers = new ConcurrentHashMap<String, WorkerStats>();
+        var failedClubs = new AtomicInteger();
+        var units = new ArrayList<CompletableFuture<Void>>();
+        for (var entry : schedulesByClub.entrySet()) {
+            LocalDate from = fromOfClub.apply(entry.getKey());
+            if (from.isAfter(to)) continue;
+            units.add(CompletableFuture.runAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    Long rows = sharding.onClub(entry.getKey(),
+                            () -> transactionTemplate.execute(status -> generateClubEvents(entry.getKey(), entry.getValue(), from, to)));
+                    if (advance) horizonService.advance(HorizonService.clubHorizon(entry.getKey()), to);
+                    workers.computeIfAbsent(Thread.currentThread().getName(), name -> new WorkerStats())
+                            .add(rows == null ? 0 : rows, System.nanoTime() - start);
+                } catch (RuntimeException ex) {
+                    failedClubs.incrementAndGet();
+                    logger.error("Could not generate events for club {}", entry.getKey(), ex);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(units.toArray(CompletableFuture[]::new)).join();
+
+        workers.forEach((worker, stats) -> logger.info("Worker {} generated {} events for {} clubs ({} events/s)",
+                worker, stats.rows.sum(), stats.clubs.sum(), stats.throughput()));
+        if (failedClubs.get() > 0)
+            logger.warn("Generation failed for {} of {} clubs in range {}", failedClubs.get(), schedulesByClub.size(), range);
+
+        return new GenerationResult(workers.values().stream().mapToLong(stats -> stats.rows.sum()).sum(), failedClubs.get());
+    }
+
+    private long generateClubEvents(int clubId, List<Schedule> schedules, LocalDate from, LocalDate to) {
+        var recurrence = new WeeklyRecurrence(schedules);
+        var existing = new HashSet<>(repository.findOccurrenceKeys(from, to, clubId, clubId));
+
+        List<EventInstance> generated = new ArrayList<>();
+        recurrence.forEachOccurrence(from, to, (s, date) -> {
+            if (!existing.contains(new OccurrenceKey(s.id(), date)))
+                generated.add(new EventInstance(s, date));
+        });
+
+        repository.saveAll(generated);
+        return generated.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class WorkerStats {
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder clubs = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void add(long generatedRows, long elapsedNanos) {
+            rows.add(generatedRows);
+            clubs.increment();
+            nanos.add(elapsedNanos);
+        }
+
+        long throughput() {
+            long elapsed = nanos.sum();
+            return elapsed == 0 ? 0 : rows.sum() * 1_000_000_000L / elapsed;
+        }
+    }
+}
@@ -1,22 +1,37 @@
 package jwzp_ww_fs.app.services;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import jwzp_ww_fs.app.dto.AvailableEvents;
+import jwzp_ww_fs.app.dto.EventAvailabilityView;
+import jwzp_ww_fs.app.dto.EventCursor;
+import jwzp_ww_fs.app.dto.EventInstanceView;
 import jwzp_ww_fs.app.exceptions.event.*;
+import jwzp_ww_fs.app.util.ValidationPipeline;
+import jwzp_ww_fs.app.util.ValidationPipeline.Cost;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.models.EntityChange;
 import jwzp_ww_fs.app.models.EventInstance;
 import jwzp_ww_fs.app.models.EventInstanceData;
 import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.models.SeatsReleased;
 import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
 
 // public List<Event> getAllEvents() {
@@ -53,61 +68,74 @@ import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
 
 @Service
 public class EventsInstancesService {
-    private LocalDate lastGeneratedInstancesDate = null;
-    private final int GENERATED_DAYS = 30;
+    private static final int MAX_AVAILABLE_PAGE_SIZE = 500;
+    private static final Comparator<EventAvailabilityView> AVAILABLE_ORDER = Comparator.comparing(EventAvailabilityView::date)
+            .thenComparing(EventAvailabilityView::time).thenComparingLong(EventAvailabilityView::id);
+    // properties the pages of events may be sorted by, for merging the pages of shards
+    private static final Map<String, Comparator<EventInstanceView>> VIEW_ORDER = Map.of(
+            "id", Comparator.comparingLong(EventInstanceView::id),
+            "title", Comparator.comparing(EventInstanceView::title, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "date", Comparator.comparing(EventInstanceView::date),
+            "time", Comparator.comparing(EventInstanceView::time),
+            "duration", Comparator.comparing(EventInstanceView::duration, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "capacity", Comparator.comparingInt(EventInstanceView::capacity),
+            "participants", Comparator.comparingInt(EventInstanceView::participants),
+            "clubId", Comparator.comparingInt(EventInstanceView::clubId),
+            "coachId", Comparator.comparingInt(EventInstanceView::coachId));
+    // taken from the schedule by the queries of views, sorted by what they select
+    private static final Map<String, String> RESOLVED_PROPERTIES = Map.of(
+            "title", "coalesce(e.title, s.title)",
+            "duration", "coalesce(e.duration, s.duration)");
 
     EventsInstancesRepository repository;
 
     ClubsService clubsService;
     CoachesService coachesService;
     ScheduleService scheduleService;
+    ShardingService sharding;
+    ScheduleDefaultsCache defaults;
+    ApplicationEventPublisher publisher;
+
+    // the event as loaded and the same event at the requested date and time
+    private record EventUpdate(EventInstance current, EventInstance moved, int capacity) {}
+
+    private final ValidationPipeline<EventUpdate> updateValidation = ValidationPipeline.<EventUpdate>builder()
+            .rule(Cost.MEMORY, update -> update.capacity() >= update.current().participants(),
+                    NonSufficientCapacityException::new)
+            // clubs are kept by the home shard
+            .rule(Cost.LOOKUP, update -> sharding.onHome(() -> clubsService.isEventInstanceInClubOpeningHours(update.moved())),
+                    ProtrudingEventException::new)
+            .rule(Cost.SCAN, update -> !existsSimultaneousEventWithCoach(update.moved(), update.current()),
+                    AlreadyAssignedCoachException::new)
+            .build();
 
     @Autowired
     public EventsInstancesService(
             EventsInstancesRepository repository,
             ClubsService clubsService,
             CoachesService coachesService,
-            ScheduleService scheduleService
+            ScheduleService scheduleService,
+            ShardingService sharding,
+            ScheduleDefaultsCache defaults,
+            ApplicationEventPublisher publisher
     ) {
         this.repository = repository;
         this.clubsService = clubsService;
         this.coachesService = coachesService;
         this.scheduleService = scheduleService;
+        this.sharding = sharding;
+        this.defaults = defaults;
+        this.publisher = publisher;
     }
 
-    @Scheduled(cron = "0 0 0 * * *")
     @Transactional
-    public void generateEventInstances() {
-        generateEvents(LocalDate.now(), GENERATED_DAYS);
-        deleteOldEvents(LocalDate.now(), GENERATED_DAYS);
-    }
-
-    private void generateEvents(LocalDate today, int daysAhead) {
-        List<Schedule> allSchedules = scheduleService.getAllSchedules();
-
-        for (int i = 0; i <= daysAhead; i++) {
-            LocalDate date = today.plusDays(i);
-
-            if (lastGeneratedInstancesDate != null && !lastGeneratedInstancesDate.isBefore(date)) {
-                continue;
-            }
-
-            lastGeneratedInstancesDate = date;
-
-            DayOfWeek dow = date.getDayOfWeek();
-            allSchedules.stream().filter(s -> s.day().equals(dow)).forEach(
-                    s -> addEvent(new EventInstance(s, date)));
-        }
-    }
-
-    private void deleteOldEvents(LocalDate today, int daysBackTreshold) {
-        repository.deleteEventByDateBefore(today.minusDays(daysBackTreshold));
-    }
-
     public EventInstance addEvent(EventInstance event) {
-        return repository.save(event);
+        var added = repository.save(event);
+        publish(added.id(), ChangeRecord.Operation.CREATED, added);
+        return added;
     }
 
+    @Transactional
     public EventInstance removeEvent(long eventId) throws NonExistingEventException {
         Optional<EventInstance> eventToRemove = repository.findById(eventId);
 
@@ -117,17 +145,10 @@ public class EventsInstancesService {
         EventInstance removedEvent = eventToRemove.get();
 
         repository.deleteById(eventId);
+        publish(eventId, ChangeRecord.Operation.DELETED, removedEvent);
         return removedEvent;
     }
 
-    public List<EventInstance> removeAllEvents() {
-        var removedEvents = repository.findAll();
-
-        repository.deleteAll();
-
-        return removedEvents;
-    }
-
     @Transactional
     public EventInstance signUpForEvent(long eventId, LocalDate today) throws EventException {
         Optional<EventInstance> eventToUpdate = repository.findById(eventId);
@@ -144,10 +165,37 @@ public class EventsInstancesService {
         }
 
         repository.incrementParticipantsForEvent(eventId);
+        publishUpdate(updatedEvent, updatedEvent.date(), updatedEvent.time(), updatedEvent.capacity());
 
         return updatedEvent;
     }
 
+    @Transactional
+    public EventInstance signUpForOccurrence(int scheduleId, LocalDate date, LocalDate today) throws EventException {
+        EventInstance event = materializeOccurrence(scheduleId, date);
+        return signUpForEvent(event.id(), today);
+    }
+
+    @Transactional
+    public EventInstance updateOccurrence(int scheduleId, LocalDate date, EventInstanceData data) throws EventException {
+        EventInstance event = materializeOccurrence(scheduleId, date);
+        return updateEventInstance(event.id(), data);
+    }
+
+    private EventInstance materializeOccurrence(int scheduleId, LocalDate date) throws NonExistingEventException {
+        var existing = repository.findEventByScheduleIdAndOriginalDate(scheduleId, date);
+        if (existing.isPresent())
+            return existing.get();
+
+        Schedule schedule = sharding.onHome(() -> scheduleService.getSchedule(scheduleId));
+        if (schedule == null || !schedule.day().equals(date.getDayOfWeek()))
+            throw new NonExistingEventException();
+
+        var materialized = repository.saveAndFlush(new EventInstance(schedule, date));
+        publish(materialized.id(), ChangeRecord.Operation.CREATED, materialized);
+        return materialized;
+    }
+
     @Transactional
     public EventInstance updateEventInstance(long eventId, EventInstanceData data) throws EventException {
         Optional<EventInstance> eventToUpdate = repository.findById(eventId);
@@ -157,43 +205,125 @@ public class EventsInstancesService {
 
         EventInstance updatedEvent = eventToUpdate.get();
 
-        if (data.capacity() < updatedEvent.participants()) {
-            throw new NonSufficientCapacityException();
-        }
-
         EventInstance tempEvent = new EventInstance("", data.date(), data.time(), updatedEvent.duration(), -1,
                 updatedEvent.clubId(),
                 updatedEvent.coachId());
 
-        if (existsSimultaneousEventWithCoach(tempEvent, updatedEvent))
-            throw new AlreadyAssignedCoachException();
-        if (!clubsService.isEventInstanceInClubOpeningHours(tempEvent))
-            throw new ProtrudingEventException();
+        updateValidation.validate(new EventUpdate(updatedEvent, tempEvent, data.capacity())).throwIfInvalid();
 
         repository.setDateAndTimeOfEvent(eventId, data.date(), data.time());
 
         repository.setCapacityForEvent(eventId, data.capacity());
+        publishUpdate(updatedEvent, data.date(), data.time(), data.capacity());
+        if (data.capacity() > updatedEvent.capacity())
+            publisher.publishEvent(new SeatsReleased(eventId));
 
         return updatedEvent;
     }
 
+    // the bulk updates bypass the loaded entity, so its new state is passed explicitly and the participants
+    // are read again after them; the seat feeds of every node take the count from the relayed change
+    void publishUpdate(EventInstance event, LocalDate date, LocalTime time, int capacity) {
+        int participants = repository.findParticipants(event.id());
+        publish(event.id(), ChangeRecord.Operation.UPDATED, new EventInstanceView(event.id(), event.title(), date,
+                time, event.duration(), capacity, participants, event.clubId(), event.coachId(), event.scheduleId()));
+    }
+
+    private void publish(long eventId, ChangeRecord.Operation operation, Object state) {
+        publisher.publishEvent(new EntityChange(EntityChange.EVENT, String.valueOf(eventId), operation, state));
+    }
+
     public EventInstance getEventInstanceWithId(long id) {
         return repository.findById(id).orElse(null);
     }
 
-    public Page<EventInstance> getEventsByParams(Pageable p, Optional<LocalDate> date, Optional<Integer> clubId) {
+    @Transactional(readOnly = true)
+    public Page<EventInstanceView> getEventsByParams(Pageable p, Optional<LocalDate> date, Optional<Integer> clubId) {
         if (date.isEmpty() && clubId.isEmpty())
-            return repository.findAll(p);
+            return gatherViews(p, page -> repository.findViews(resolvedSort(page)));
         else if (date.isEmpty())
-            return repository.findEventByClubId(p, clubId.get());
+            return sharding.onClub(clubId.get(), () -> repository.findViewsByClubId(resolvedSort(p), clubId.get()));
         else if (clubId.isEmpty())
-            return repository.findEventByDate(p, date.get());
+            return gatherViews(p, page -> repository.findViewsByDate(resolvedSort(page), date.get()));
+        else
+            return sharding.onClub(clubId.get(), () -> repository.findViewsByClubIdAndDate(resolvedSort(p), clubId.get(), date.get()));
+    }
+
+    // the merge of the pages of shards sorts by the properties of the views, the database by the expressions
+    private static Pageable resolvedSort(Pageable p) {
+        if (p.isUnpaged() || p.getSort().stream().noneMatch(order -> RESOLVED_PROPERTIES.containsKey(order.getProperty())))
+            return p;
+
+        Sort sort = Sort.unsorted();
+        for (Sort.Order order : p.getSort()) {
+            String expression = RESOLVED_PROPERTIES.get(order.getProperty());
+            sort = sort.and(expression == null ? Sort.by(order) : JpaSort.unsafe(order.getDirection(), expression));
+        }
+        return PageRequest.of(p.getPageNumber(), p.getPageSize(), sort);
+    }
+
+    private Page<EventInstanceView> gatherViews(Pageable p, Function<Pageable, Page<EventInstanceView>> query) {
+        if (!sharding.isSharded()) return query.apply(p);
+
+        // unsorted pages of shards are merged by ID
+        Pageable sorted = p.isUnpaged() || p.getSort().isSorted() ? p : PageRequest.of(p.getPageNumber(), p.getPageSize(), Sort.by("id"));
+        return sharding.gatherPage(sorted, query, viewOrder(sorted.getSort()));
+    }
+
+    private static Comparator<EventInstanceView> viewOrder(Sort sort) {
+        Comparator<EventInstanceView> order = (a, b) -> 0;
+        for (Sort.Order property : sort) {
+            // properties of the entity that the view lacks sort the rows of a shard, not the merge
+            var comparator = VIEW_ORDER.get(property.getProperty());
+            if (comparator != null)
+                order = order.thenComparing(property.isDescending() ? comparator.reversed() : comparator);
+        }
+        return order;
+    }
+
+    @Transactional(readOnly = true)
+    public AvailableEvents getAvailableEvents(LocalDate from, LocalDate to, Optional<Integer> clubId,
+                                              Optional<Integer> coachId, int minSeats, Optional<String> after,
+                                              int limit) throws EventException {
+        if (to.isBefore(from))
+            throw new InvalidDateRangeException();
+
+        EventCursor cursor;
+        try {
+            cursor = after.map(EventCursor::parse).orElse(EventCursor.before(from));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException();
+        }
+        if (cursor.date().isBefore(from))
+            cursor = EventCursor.before(from);
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_AVAILABLE_PAGE_SIZE));
+        final EventCursor start = cursor;
+        int seats = Math.max(1, minSeats);
+        var page = PageRequest.of(0, pageSize);
+        Supplier<List<EventAvailabilityView>> query;
+        if (clubId.isPresent() && coachId.isPresent())
+            query = () -> repository.findAvailableInClubOfCoach(seats, start.date(), start.time(), start.id(), to, clubId.get(), coachId.get(), page);
+        else if (clubId.isPresent())
+            query = () -> repository.findAvailableInClub(seats, start.date(), start.time(), start.id(), to, clubId.get(), page);
+        else if (coachId.isPresent())
+            query = () -> repository.findAvailableOfCoach(seats, start.date(), start.time(), start.id(), to, coachId.get(), page);
         else
-            return repository.findEventByClubIdAndDate(p, clubId.get(), date.get());
+            query = () -> repository.findAvailable(seats, start.date(), start.time(), start.id(), to, page);
+        // without a club, the first page of every shard, as the cursor applies to each of them
+        var found = clubId.isPresent()
+                ? sharding.onClub(clubId.get(), query)
+                : sharding.gather(shard -> query.get()).stream().flatMap(List::stream).sorted(AVAILABLE_ORDER).limit(pageSize).toList();
+        var events = found.stream().map(defaults::resolve).toList();
+
+        String next = events.size() < pageSize ? null : EventCursor.after(events.get(events.size() - 1)).toString();
+        return new AvailableEvents(events, next);
     }
 
     private boolean existsSimultaneousEventWithCoach(EventInstance eventToAdd, EventInstance eventToIgnore) {
-        var otherEventsWithCoach = repository.findEventByCoachId(eventToAdd.coachId());
+        // coaches run events in clubs of every shard
+        var otherEventsWithCoach = sharding.gather(shard -> repository.findEventByCoachId(eventToAdd.coachId()))
+                .stream().flatMap(List::stream).toList();
         if (eventToIgnore != null) {
             otherEventsWithCoach = otherEventsWithCoach.stream().filter(e -> !e.equals(eventToIgnore)).toList();
         }
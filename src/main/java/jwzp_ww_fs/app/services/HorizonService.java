@@ -0,0 +1,281 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import jwzp_ww_fs.app.dto.OccurrenceKey;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.GenerationHorizon;
+import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.models.ScheduleChange;
+import jwzp_ww_fs.app.models.ShardTask;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import jwzp_ww_fs.app.repositories.GenerationHorizonRepository;
+import jwzp_ww_fs.app.repositories.ScheduleRepository;
+import jwzp_ww_fs.app.repositories.ShardTaskRepository;
+import jwzp_ww_fs.app.util.EntityLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Keeps already generated future event instances in line with their schedules, so that the nightly
+// job only has to append the days that entered the horizon. Instances with sign-ups are never touched: they, and the
+// past ones, store the title and duration the schedule had before it changed them; on other shards than the home
+// one, which store copies of them anyway, they are left as they are. Instances on those shards follow the schedule
+// through shard tasks: recorded with the change, within its transaction, and applied once it commits; tasks that
+// fail there stay and are applied again every gym.shards.task-interval-ms.
+@Service
+public class HorizonService {
+    EventsInstancesRepository repository;
+    GenerationHorizonRepository horizonRepository;
+    ScheduleRepository scheduleRepository;
+    ShardTaskRepository taskRepository;
+    ShardingService sharding;
+
+    Logger logger = LoggerFactory.getLogger(HorizonService.class);
+
+    private final TransactionTemplate taskTransaction;
+    private final boolean lazyMaterialization;
+
+    @Autowired
+    public HorizonService(
+            EventsInstancesRepository repository,
+            GenerationHorizonRepository horizonRepository,
+            ScheduleRepository scheduleRepository,
+            ShardTaskRepository taskRepository,
+            ShardingService sharding,
+            PlatformTransactionManager transactionManager,
+            @Value("${gym.events.lazy-materialization:false}") boolean lazyMaterialization
+    ) {
+        this.repository = repository;
+        this.horizonRepository = horizonRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.taskRepository = taskRepository;
+        this.sharding = sharding;
+        this.lazyMaterialization = lazyMaterialization;
+        if (transactionManager == null) {
+            this.taskTransaction = null;
+        } else {
+            // tasks are applied after the change commits, while its transaction is still bound to the thread
+            this.taskTransaction = new TransactionTemplate(transactionManager);
+            this.taskTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+    }
+
+    // generation keeps a horizon per club, so that it stays right when the club ranges of its jobs shift
+    public static String clubHorizon(int clubId) {
+        return "club-" + clubId;
+    }
+
+    public Optional<LocalDate> horizon(String jobName) {
+        return horizonRepository.findById(jobName).map(GenerationHorizon::lastDate);
+    }
+
+    public void advance(String jobName, LocalDate lastDate) {
+        horizonRepository.save(new GenerationHorizon(jobName, lastDate));
+    }
+
+    // first date the job still has to generate, days before today are never generated
+    public LocalDate nextDate(String jobName, LocalDate today) {
+        return horizon(jobName).map(last -> last.plusDays(1)).filter(next -> next.isAfter(today)).orElse(today);
+    }
+
+    // first dates the clubs still have to generate, read with one query
+    public Map<Integer, LocalDate> nextDates(Collection<Integer> clubIds, LocalDate today) {
+        var last = new HashMap<String, LocalDate>();
+        for (var horizon : horizonRepository.findAllById(clubIds.stream().map(HorizonService::clubHorizon).toList())) {
+            if (horizon.lastDate() != null) last.put(horizon.name(), horizon.lastDate());
+        }
+
+        var next = new HashMap<Integer, LocalDate>();
+        for (int clubId : clubIds) {
+            LocalDate lastDate = last.get(clubHorizon(clubId));
+            next.put(clubId, lastDate != null && lastDate.isAfter(today.minusDays(1)) ? lastDate.plusDays(1) : today);
+        }
+        return next;
+    }
+
+    @EventListener
+    @Transactional
+    public void onScheduleChange(ScheduleChange change) {
+        LocalDate today = LocalDate.now();
+        Schedule before = change.before();
+        Schedule after = change.after();
+        String from = before == null ? null : sharding.shardOfClub(before.clubId());
+        String to = after == null ? null : sharding.shardOfClub(after.clubId());
+
+        // within the transaction of the change, which runs on the home shard
+        if (before != null && from.equals(sharding.home()) && (after == null || !from.equals(to)
+                || !Objects.equals(before.title(), after.title()) || !Objects.equals(before.duration(), after.duration()))) {
+            EntityLoader.evict(EventInstance.Defaults.class, change.scheduleId());
+            repository.pinOccurrences(change.scheduleId(), today, before.title(), before.duration());
+        }
+
+        if (after == null) {
+            apply(from, change.scheduleId(), ShardTask.Operation.DELETE, null, today);
+            return;
+        }
+
+        // a schedule moved to a club of another shard moves its occurrences like one moved to another day
+        if (before != null && before.day().equals(after.day()) && from.equals(to)) {
+            apply(to, change.scheduleId(), ShardTask.Operation.UPDATE, after, today);
+            return;
+        }
+
+        if (before != null)
+            apply(from, change.scheduleId(), ShardTask.Operation.DELETE, null, today);
+        if (!lazyMaterialization)
+            apply(to, change.scheduleId(), ShardTask.Operation.INSERT, after, today);
+    }
+
+    // unbooked occurrences of removed schedules, within the transaction that removes them
+    public void deleteUnbookedOccurrences(Collection<Integer> scheduleIds, LocalDate today) {
+        for (String shard : sharding.shards()) {
+            if (shard.equals(sharding.home())) {
+                repository.deleteUnbookedOccurrencesOfSchedules(scheduleIds, today);
+                continue;
+            }
+            taskRepository.saveAll(scheduleIds.stream()
+                    .map(id -> new ShardTask(shard, id, ShardTask.Operation.DELETE, today, Instant.now())).toList());
+            applyOnCommit(shard);
+        }
+    }
+
+    // the home shard in place, the others through a task
+    private void apply(String shard, int scheduleId, ShardTask.Operation operation, Schedule schedule, LocalDate today) {
+        if (shard.equals(sharding.home())) {
+            apply(operation, scheduleId, schedule, today, false);
+            return;
+        }
+        taskRepository.save(new ShardTask(shard, scheduleId, operation, today, Instant.now()));
+        applyOnCommit(shard);
+    }
+
+    private void apply(ShardTask.Operation operation, int scheduleId, Schedule schedule, LocalDate from, boolean copies) {
+        switch (operation) {
+            case DELETE -> repository.deleteUnbookedOccurrences(scheduleId, from);
+            case UPDATE -> repository.updateUnbookedOccurrences(scheduleId, from,
+                    schedule.time(), schedule.capacity(), schedule.clubId(), schedule.coachId(),
+                    copies ? schedule.title() : null, copies ? schedule.duration() : null);
+            case INSERT -> insertOccurrences(scheduleId, schedule, from,
+                    LocalDate.now().plusDays(EventsGenerationService.GENERATED_DAYS));
+        }
+    }
+
+    // once per shard and transaction, the tasks of the shard are applied in the order they were recorded
+    private void applyOnCommit(String shard) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyTasksQuietly(shard);
+            return;
+        }
+        for (var synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof TasksOnCommit tasks && tasks.shard.equals(shard)) return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TasksOnCommit(shard));
+    }
+
+    private class TasksOnCommit implements TransactionSynchronization {
+        private final String shard;
+
+        TasksOnCommit(String shard) {
+            this.shard = shard;
+        }
+
+        @Override
+        public void afterCommit() {
+            applyTasksQuietly(shard);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gym.shards.task-interval-ms:10000}")
+    public void applyTasks() {
+        if (!sharding.isSharded()) return;
+        for (String shard : sharding.shards()) {
+            if (!shard.equals(sharding.home())) applyTasksQuietly(shard);
+        }
+    }
+
+    private void applyTasksQuietly(String shard) {
+        try {
+            int applied;
+            do {
+                applied = applyTasks(shard);
+            } while (applied == ShardTaskRepository.BATCH);
+        } catch (RuntimeException ex) {
+            logger.warn("Could not apply schedule changes to shard {}, they are applied again later", shard, ex);
+        }
+    }
+
+    // A batch of the tasks of the shard, locked on the home shard until they are applied, so that nodes applying
+    // the same shard wait for each other. They are applied in a transaction of the shard that commits before the
+    // tasks are deleted; a failure in between applies them again, which changes nothing the second time.
+    int applyTasks(String shard) {
+        return sharding.onHome(() -> taskTransaction.execute(status -> {
+            var tasks = taskRepository.findPendingForUpdate(shard);
+            if (tasks.isEmpty()) return 0;
+
+            Map<Integer, Schedule> schedules = scheduleRepository.findAllById(
+                            tasks.stream().map(ShardTask::scheduleId).collect(Collectors.toSet())).stream()
+                    .collect(Collectors.toMap(Schedule::id, Function.identity()));
+            LocalDate today = LocalDate.now();
+            sharding.inTransaction(shard, () -> {
+                // consecutive deletes from the same date, those of a bulk delete, go in one statement
+                List<Integer> deleted = new ArrayList<>();
+                LocalDate deletedFrom = null;
+                for (var task : tasks) {
+                    LocalDate from = task.from().isBefore(today) ? today : task.from();
+                    if (!deleted.isEmpty() && (task.operation() != ShardTask.Operation.DELETE || !from.equals(deletedFrom))) {
+                        repository.deleteUnbookedOccurrencesOfSchedules(deleted, deletedFrom);
+                        deleted.clear();
+                    }
+                    if (task.operation() == ShardTask.Operation.DELETE) {
+                        deleted.add(task.scheduleId());
+                        deletedFrom = from;
+                        continue;
+                    }
+
+                    // with the schedule as it is now, which a later task of the same schedule may still move away
+                    var schedule = schedules.get(task.scheduleId());
+                    if (schedule != null && shard.equals(sharding.shardOfClub(schedule.clubId())))
+                        apply(task.operation(), task.scheduleId(), schedule, from, true);
+                }
+                if (!deleted.isEmpty()) repository.deleteUnbookedOccurrencesOfSchedules(deleted, deletedFrom);
+            });
+            taskRepository.deleteAllInBatch(tasks);
+            return tasks.size();
+        }));
+    }
+
+    private void insertOccurrences(int scheduleId, Schedule schedule, LocalDate from, LocalDate to) {
+        var existing = new HashSet<>(repository.findOccurrenceKeysOfSchedule(scheduleId, from, to));
+
+        List<EventInstance> inserted = new ArrayList<>();
+        for (LocalDate date = from.with(TemporalAdjusters.nextOrSame(schedule.day())); !date.isAfter(to); date = date.plusWeeks(1)) {
+            if (!existing.contains(new OccurrenceKey(scheduleId, date)))
+                inserted.add(new EventInstance(schedule, date));
+        }
+
+        repository.saveAll(inserted);
+    }
+}
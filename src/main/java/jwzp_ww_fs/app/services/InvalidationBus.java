@@ -0,0 +1,103 @@
+package jwzp_ww_fs.app.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import jwzp_ww_fs.app.models.Invalidation;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Broadcasts changes of cached entities to every node, this one included, see EntityCache. Invalidations published
+// within a transaction are sent as one batch when it commits and never when it rolls back. gym.cache.bus picks the
+// implementation: loopback, within this node only, or postgres for several nodes on one PostgreSQL database.
+public abstract class InvalidationBus {
+    public interface Listener {
+        void invalidate(List<Invalidation> batch);
+
+        // invalidations were missed and cannot be caught up on
+        void invalidateAll();
+    }
+
+    private static final class Batch implements TransactionSynchronization {
+        private final InvalidationBus bus;
+        private final List<Invalidation> invalidations = new ArrayList<>();
+
+        Batch(InvalidationBus bus) {
+            this.bus = bus;
+        }
+
+        // a nested transaction of its own collects its own batch, as it commits on its own
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(bus);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(bus, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (bus.sendsWithinTransaction()) bus.send(List.copyOf(invalidations));
+        }
+
+        @Override
+        public void afterCommit() {
+            if (!bus.sendsWithinTransaction()) bus.send(List.copyOf(invalidations));
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(bus);
+        }
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void publish(Invalidation invalidation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(List.of(invalidation));
+            return;
+        }
+
+        var batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = new Batch(this);
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        batch.invalidations.add(invalidation);
+    }
+
+    // whether the current transaction changed the entity, which other transactions do not see yet
+    public boolean isPending(String entity, String entityId) {
+        var batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        return batch != null && batch.invalidations.stream()
+                .anyMatch(invalidation -> invalidation.entity().equals(entity) && invalidation.covers(entityId));
+    }
+
+    // whether invalidations of every node arrive, caches must not be served while they do not
+    public abstract boolean isConnected();
+
+    // before the commit the batch can still be sent by the transaction itself, after it by anything else
+    protected abstract boolean sendsWithinTransaction();
+
+    protected abstract void send(List<Invalidation> batch);
+
+    protected void deliver(List<Invalidation> batch) {
+        if (batch.isEmpty()) return;
+        for (var listener : listeners)
+            listener.invalidate(batch);
+    }
+
+    protected void deliverReset() {
+        for (var listener : listeners)
+            listener.invalidateAll();
+    }
+}
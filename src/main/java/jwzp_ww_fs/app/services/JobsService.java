@@ -0,0 +1,127 @@
+package jwzp_ww_fs.app.services;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import jwzp_ww_fs.app.models.JobRun;
+import jwzp_ww_fs.app.repositories.JobLockRepository;
+import jwzp_ww_fs.app.repositories.JobRunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+// Coordinates scheduled jobs between replicas through the job_locks table. Works the same on
+// PostgreSQL and H2, unlike advisory locks. A lock is held for at least lockAtLeastFor, so that
+// a replica whose clock is slightly behind does not run the job again after it finished elsewhere.
+@Service
+public class JobsService {
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    JobLockRepository lockRepository;
+    JobRunRepository runRepository;
+
+    private final String node;
+    private final Duration lockAtMostFor;
+    private final Duration lockAtLeastFor;
+
+    Logger logger = LoggerFactory.getLogger(JobsService.class);
+
+    @Autowired
+    public JobsService(
+            JobLockRepository lockRepository,
+            JobRunRepository runRepository,
+            @Value("${gym.jobs.node-id:}") String node,
+            @Value("${gym.jobs.lock-at-most-for:PT30M}") Duration lockAtMostFor,
+            @Value("${gym.jobs.lock-at-least-for:PT5M}") Duration lockAtLeastFor
+    ) {
+        this.lockRepository = lockRepository;
+        this.runRepository = runRepository;
+        this.node = node.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : node;
+        this.lockAtMostFor = lockAtMostFor;
+        this.lockAtLeastFor = lockAtLeastFor;
+    }
+
+    public String node() {
+        return node;
+    }
+
+    // what a job that may fail in part did, failure tells what it left undone or is null
+    public record Outcome(long rows, String failure) {}
+
+    // runs the job if no other node holds its lock, the job returns the number of affected rows
+    public boolean runExclusively(String jobName, LongSupplier job) {
+        return runExclusivelyWithOutcome(jobName, () -> new Outcome(job.getAsLong(), null));
+    }
+
+    // as runExclusively, but a job reporting a failure is recorded as PARTIAL
+    public boolean runExclusivelyWithOutcome(String jobName, Supplier<Outcome> job) {
+        Instant startedAt = Instant.now();
+        if (!tryLock(jobName, startedAt)) {
+            logger.info("Job {} is locked by another node, skipping", jobName);
+            return false;
+        }
+
+        try {
+            Outcome outcome = job.get();
+            if (outcome.failure() == null) {
+                record(new JobRun(jobName, node, startedAt, Instant.now(), outcome.rows(), JobRun.Status.SUCCEEDED, null));
+                logger.info("Job {} finished, {} rows in {} ms", jobName, outcome.rows(), Duration.between(startedAt, Instant.now()).toMillis());
+            } else {
+                record(new JobRun(jobName, node, startedAt, Instant.now(), outcome.rows(), JobRun.Status.PARTIAL, truncate(outcome.failure())));
+                logger.warn("Job {} finished partially, {} rows in {} ms: {}", jobName, outcome.rows(),
+                        Duration.between(startedAt, Instant.now()).toMillis(), outcome.failure());
+            }
+        } catch (RuntimeException ex) {
+            record(new JobRun(jobName, node, startedAt, Instant.now(), 0, JobRun.Status.FAILED, truncate(String.valueOf(ex.getMessage()))));
+            logger.error("Job {} failed", jobName, ex);
+        } finally {
+            unlock(jobName, startedAt);
+        }
+        return true;
+    }
+
+    private boolean tryLock(String jobName, Instant now) {
+        Instant lockedUntil = now.plus(lockAtMostFor);
+        if (lockRepository.acquire(jobName, lockedUntil, now, node) > 0) return true;
+        if (lockRepository.existsById(jobName)) return false;
+
+        try {
+            return lockRepository.create(jobName, lockedUntil, now, node) > 0;
+        } catch (DataIntegrityViolationException ex) {
+            // created concurrently by another node
+            return false;
+        }
+    }
+
+    private void unlock(String jobName, Instant startedAt) {
+        Instant earliestRelease = startedAt.plus(lockAtLeastFor);
+        Instant now = Instant.now();
+        lockRepository.release(jobName, now.isAfter(earliestRelease) ? now : earliestRelease, node);
+    }
+
+    private void record(JobRun run) {
+        try {
+            runRepository.save(run);
+        } catch (RuntimeException ex) {
+            logger.warn("Could not record run of job {}", run.jobName(), ex);
+        }
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= MAX_MESSAGE_LENGTH ? message : message.substring(0, MAX_MESSAGE_LENGTH);
+    }
+
+    public Page<JobRun> getRuns(Pageable p, Optional<String> jobName) {
+        if (jobName.isPresent()) return runRepository.findJobRunByJobName(p, jobName.get());
+        return runRepository.findAll(p);
+    }
+}
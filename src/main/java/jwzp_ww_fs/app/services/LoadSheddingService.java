@@ -0,0 +1,110 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Adaptive limit of concurrently handled mutations (AIMD). Every request completing within the latency
+// threshold while the connection pool is not making callers wait raises the limit a little, every slow one
+// cuts it by a fraction. Requests above the limit are shed before they queue for a connection.
+@Service
+public class LoadSheddingService {
+    private static final double BACKOFF = 0.9;
+    private static final String POOL_ACQUIRE_TIMER = "hikaricp.connections.acquire";
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    // double bits of the current limit, so that it is updated with CAS like the counter
+    private final AtomicLong limit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final long poolWaitThresholdNanos;
+
+    private volatile long poolWaitNanos;
+
+    private final MeterRegistry registry;
+    private final Counter shed;
+
+    @Autowired
+    public LoadSheddingService(
+            MeterRegistry registry,
+            @Value("${gym.limits.concurrency.initial:20}") int initialLimit,
+            @Value("${gym.limits.concurrency.min:2}") int minLimit,
+            @Value("${gym.limits.concurrency.max:200}") int maxLimit,
+            @Value("${gym.limits.latency-threshold:PT0.5S}") Duration latencyThreshold,
+            @Value("${gym.limits.pool-wait-threshold:PT0.1S}") Duration poolWaitThreshold
+    ) {
+        this.registry = registry;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = new AtomicLong(Double.doubleToLongBits(Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit))));
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.poolWaitThresholdNanos = poolWaitThreshold.toNanos();
+
+        Gauge.builder("gym.limiter.concurrency.limit", this, LoadSheddingService::limit)
+                .description("current limit of concurrently handled mutations")
+                .register(registry);
+        Gauge.builder("gym.limiter.inflight", inflight, AtomicInteger::get)
+                .description("mutations being handled")
+                .register(registry);
+        this.shed = Counter.builder("gym.limiter.shed")
+                .description("mutations rejected because of the concurrency limit")
+                .register(registry);
+    }
+
+    public boolean tryEnter() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit()) {
+                shed.increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    public void exit(long latencyNanos) {
+        int current = inflight.getAndDecrement();
+        boolean overloaded = latencyNanos > latencyThresholdNanos || poolWaitNanos > poolWaitThresholdNanos;
+
+        while (true) {
+            long bits = limit.get();
+            double value = Double.longBitsToDouble(bits);
+            double next;
+            if (overloaded) next = Math.max(minLimit, value * BACKOFF);
+            // an idle service tells nothing about how much it could take
+            else if (current * 2 >= value) next = Math.min(maxLimit, value + 1 / value);
+            else return;
+            if (next == value || limit.compareAndSet(bits, Double.doubleToLongBits(next))) return;
+        }
+    }
+
+    public int limit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    int inflight() {
+        return inflight.get();
+    }
+
+    // worst wait for a connection over the last step of the pool metrics
+    @Scheduled(fixedDelay = 1000)
+    public void samplePool() {
+        poolWaitNanos = (long) registry.find(POOL_ACQUIRE_TIMER).timers().stream()
+                .mapToDouble(timer -> timer.max(TimeUnit.NANOSECONDS))
+                .max().orElse(0);
+    }
+
+    void poolWait(Duration wait) {
+        poolWaitNanos = wait.toNanos();
+    }
+}
@@ -0,0 +1,27 @@
+package jwzp_ww_fs.app.services;
+
+import java.util.List;
+
+import jwzp_ww_fs.app.models.Invalidation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+// Invalidations of this node only, for a single node and for tests. Nothing can be missed, so it is always connected.
+@Service
+@ConditionalOnProperty(name = "gym.cache.bus", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackInvalidationBus extends InvalidationBus {
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    protected boolean sendsWithinTransaction() {
+        return false;
+    }
+
+    @Override
+    protected void send(List<Invalidation> batch) {
+        deliver(batch);
+    }
+}
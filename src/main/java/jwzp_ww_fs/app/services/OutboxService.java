@@ -0,0 +1,79 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.models.Invalidation;
+import jwzp_ww_fs.app.models.ScheduleChange;
+import jwzp_ww_fs.app.repositories.ChangeRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Writes every published mutation into the change_outbox table. Listeners run synchronously, so the
+// row is committed or rolled back together with the mutation itself, which is why a surrounding
+// transaction is mandatory. ChangesService relays the committed rows to subscribers, changes of cached entities are
+// broadcast to the caches of every node as well.
+@Service
+public class OutboxService {
+    private static final int MAX_PAYLOAD_LENGTH = 4000;
+
+    ChangeRecordRepository repository;
+    InvalidationBus invalidations;
+    ObjectMapper mapper;
+
+    Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    @Autowired
+    public OutboxService(ChangeRecordRepository repository, InvalidationBus invalidations, ObjectMapper mapper) {
+        this.repository = repository;
+        this.invalidations = invalidations;
+        this.mapper = mapper;
+    }
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onEntityChange(EntityChange change) {
+        record(change);
+    }
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onScheduleChange(ScheduleChange change) {
+        ChangeRecord.Operation operation;
+        if (change.before() == null) operation = ChangeRecord.Operation.CREATED;
+        else if (change.after() == null) operation = ChangeRecord.Operation.DELETED;
+        else operation = ChangeRecord.Operation.UPDATED;
+
+        record(new EntityChange(EntityChange.SCHEDULE, String.valueOf(change.scheduleId()), operation,
+                change.after() != null ? change.after() : change.before()));
+    }
+
+    private void record(EntityChange change) {
+        repository.save(new ChangeRecord(change.entity(), change.entityId(), change.operation(),
+                serialize(change), Instant.now()));
+        if (Invalidation.CACHED.contains(change.entity()))
+            invalidations.publish(new Invalidation(change.entity(), change.entityId()));
+    }
+
+    // consumers re-read the entity when the payload is missing
+    private String serialize(EntityChange change) {
+        if (change.state() == null) return null;
+        try {
+            String payload = mapper.writeValueAsString(change.state());
+            if (payload.length() <= MAX_PAYLOAD_LENGTH) return payload;
+            logger.warn("Payload of {} {} change exceeds {} characters, recording it without state",
+                    change.entity(), change.entityId(), MAX_PAYLOAD_LENGTH);
+        } catch (JsonProcessingException ex) {
+            logger.warn("Could not serialize {} {} change", change.entity(), change.entityId(), ex);
+        }
+        return null;
+    }
+}
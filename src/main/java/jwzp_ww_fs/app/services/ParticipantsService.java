@@ -0,0 +1,109 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import jwzp_ww_fs.app.exceptions.event.ConcludedEventException;
+import jwzp_ww_fs.app.exceptions.event.EventException;
+import jwzp_ww_fs.app.exceptions.event.FilledEventException;
+import jwzp_ww_fs.app.exceptions.event.NonExistingEventException;
+import jwzp_ww_fs.app.exceptions.event.ReusedIdempotencyKeyException;
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.EventParticipant;
+import jwzp_ww_fs.app.models.SeatsReleased;
+import jwzp_ww_fs.app.repositories.EventParticipantsRepository;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Registered sign-ups. The participants counter of an event instance is changed by the same transaction
+// that inserts or deletes the row, so both stay consistent. Anonymous sign-ups only bump the counter.
+@Service
+public class ParticipantsService {
+    EventParticipantsRepository repository;
+    EventsInstancesRepository eventsRepository;
+    EventsInstancesService eventsService;
+    ApplicationEventPublisher publisher;
+
+    @Autowired
+    public ParticipantsService(EventParticipantsRepository repository, EventsInstancesRepository eventsRepository,
+                               EventsInstancesService eventsService, ApplicationEventPublisher publisher) {
+        this.repository = repository;
+        this.eventsRepository = eventsRepository;
+        this.eventsService = eventsService;
+        this.publisher = publisher;
+    }
+
+    // repeated sign-ups of a member, or requests with an already used idempotency key, return the existing row;
+    // a key used for another member is rejected
+    @Transactional
+    public EventParticipant signUp(long eventId, long memberId, Optional<String> idempotencyKey, LocalDate today) throws EventException {
+        EventInstance event = eventsRepository.findById(eventId).orElseThrow(NonExistingEventException::new);
+
+        var existing = repository.findById(new EventParticipant.Key(eventId, memberId));
+        if (existing.isPresent()) return existing.get();
+        if (idempotencyKey.isPresent()) {
+            var replayed = repository.findEventParticipantByEventIdAndIdempotencyKey(eventId, idempotencyKey.get());
+            if (replayed.isPresent() && replayed.get().memberId() != memberId) throw new ReusedIdempotencyKeyException();
+            if (replayed.isPresent()) return replayed.get();
+        }
+
+        if (event.date().isBefore(today)) throw new ConcludedEventException();
+        if (eventsRepository.incrementParticipantsIfFree(eventId) == 0) throw new FilledEventException();
+
+        var participant = new EventParticipant(eventId, memberId, idempotencyKey.orElse(null), Instant.now());
+        repository.insert(eventId, memberId, participant.idempotencyKey(), participant.signedUpAt());
+        publish(participant, ChangeRecord.Operation.CREATED);
+        eventsService.publishUpdate(event, event.date(), event.time(), event.capacity());
+        return participant;
+    }
+
+    // cancelling a missing sign-up is not an error, so that retried cancellations are harmless
+    @Transactional
+    public Optional<EventParticipant> cancel(long eventId, long memberId) {
+        var existing = repository.findById(new EventParticipant.Key(eventId, memberId));
+        if (existing.isEmpty()) return Optional.empty();
+
+        // loaded before the decrement, which clears the persistence context
+        var event = eventsRepository.findById(eventId);
+        if (repository.deleteParticipant(eventId, memberId) == 0) return Optional.empty();
+
+        eventsRepository.decrementParticipantsForEvent(eventId);
+        publish(existing.get(), ChangeRecord.Operation.DELETED);
+        event.ifPresent(e -> eventsService.publishUpdate(e, e.date(), e.time(), e.capacity()));
+        publisher.publishEvent(new SeatsReleased(eventId));
+        return existing;
+    }
+
+    public boolean isParticipant(long eventId, long memberId) {
+        return repository.existsById(new EventParticipant.Key(eventId, memberId));
+    }
+
+    // signs up a member promoted from the waitlist, false when the event got full in the meantime, seats
+    // are published by the caller once for the whole promotion
+    boolean admitFromWaitlist(long eventId, long memberId) {
+        if (eventsRepository.incrementParticipantsIfFree(eventId) == 0) return false;
+
+        var participant = new EventParticipant(eventId, memberId, null, Instant.now());
+        repository.insert(eventId, memberId, null, participant.signedUpAt());
+        publish(participant, ChangeRecord.Operation.CREATED);
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public Page<EventParticipant> getParticipants(Pageable p, long eventId) {
+        return repository.findEventParticipantByEventId(p, eventId);
+    }
+
+    private void publish(EventParticipant participant, ChangeRecord.Operation operation) {
+        publisher.publishEvent(new EntityChange(EntityChange.PARTICIPANT,
+                participant.eventId() + "/" + participant.memberId(), operation, participant));
+    }
+}
@@ -0,0 +1,189 @@
+package jwzp_ww_fs.app.services;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import jwzp_ww_fs.app.models.Invalidation;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+// Invalidations of every node sharing the database, over LISTEN/NOTIFY. The batch of a transaction is notified by
+// the transaction itself, PostgreSQL delivers it only when the transaction commits, so a node cannot commit a change
+// and fail before sending its invalidations. One connection of the pool listens, and is validated every
+// gym.cache.liveness-interval, as a connection dropped by the network delivers nothing but does not fail either.
+// After the connection was lost the node catches up from the change outbox, on the changes recorded since it was
+// last validated, less a margin for transactions that were still running then; after longer than
+// gym.cache.catch-up-limit it drops its whole cache instead.
+@Service
+@ConditionalOnProperty(name = "gym.cache.bus", havingValue = "postgres")
+public class PostgresInvalidationBus extends InvalidationBus {
+    static final String CHANNEL = "gym_invalidations";
+    // below the 8000 bytes PostgreSQL accepts, payloads are ASCII
+    static final int MAX_PAYLOAD_LENGTH = 7900;
+    private static final int POLL_MILLIS = 1000;
+    private static final long RECONNECT_MILLIS = 2000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final Duration catchUpMargin;
+    private final Duration catchUpLimit;
+    private final Duration livenessInterval;
+    private final Thread listener;
+
+    private volatile boolean running = true;
+    private volatile boolean connected;
+
+    Logger logger = LoggerFactory.getLogger(PostgresInvalidationBus.class);
+
+    @Autowired
+    public PostgresInvalidationBus(
+            DataSource dataSource,
+            @Value("${gym.cache.catch-up-margin:PT30S}") Duration catchUpMargin,
+            @Value("${gym.cache.catch-up-limit:PT1H}") Duration catchUpLimit,
+            @Value("${gym.cache.liveness-interval:PT10S}") Duration livenessInterval
+    ) {
+        this.dataSource = dataSource;
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.catchUpMargin = catchUpMargin;
+        this.catchUpLimit = catchUpLimit;
+        this.livenessInterval = livenessInterval;
+        this.listener = new Thread(this::listen, "invalidations");
+        this.listener.setDaemon(true);
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void start() {
+        if (!listener.isAlive()) listener.start();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    protected boolean sendsWithinTransaction() {
+        return true;
+    }
+
+    // on the connection of the transaction, as its commit releases the notification
+    @Override
+    protected void send(List<Invalidation> batch) {
+        for (String payload : encode(batch))
+            jdbc.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+    }
+
+    private void listen() {
+        // nothing is cached before the first connection, so there is nothing to catch up on
+        Instant lastHeard = null;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                Instant listening = Instant.now();
+                try (var statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                var notifications = connection.unwrap(PGConnection.class);
+                // listening already, so what is committed from now on arrives as well
+                if (lastHeard != null) catchUp(lastHeard);
+                lastHeard = listening;
+                connected = true;
+                logger.info("Listening for invalidations");
+
+                while (running) {
+                    var received = notifications.getNotifications(POLL_MILLIS);
+                    if (received != null && received.length > 0) deliver(decode(received));
+
+                    // what was committed before a round trip arrived before its answer
+                    if (Duration.between(lastHeard, Instant.now()).compareTo(livenessInterval) >= 0) {
+                        Instant validating = Instant.now();
+                        if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS))
+                            throw new SQLException("Listening connection did not answer");
+                        lastHeard = validating;
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                if (connected) logger.warn("Lost the connection listening for invalidations", ex);
+                else if (running) logger.warn("Could not listen for invalidations", ex);
+                connected = false;
+                pause();
+            }
+        }
+    }
+
+    private void catchUp(Instant lastHeard) {
+        if (Duration.between(lastHeard, Instant.now()).compareTo(catchUpLimit) > 0) {
+            logger.info("Invalidations missed since {}, dropping cached entities", lastHeard);
+            deliverReset();
+            return;
+        }
+
+        var missed = jdbc.query("SELECT entity, entity_id FROM change_outbox WHERE created_at >= ? "
+                        + "AND entity IN ('" + String.join("', '", Invalidation.CACHED) + "') ORDER BY seq",
+                (rs, row) -> new Invalidation(rs.getString("entity"), rs.getString("entity_id")),
+                Timestamp.from(lastHeard.minus(catchUpMargin)));
+        logger.info("Caught up on {} invalidations missed since {}", missed.size(), lastHeard);
+        deliver(missed);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RECONNECT_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    // entity:id, comma separated, split into payloads PostgreSQL accepts
+    static List<String> encode(List<Invalidation> batch) {
+        var payloads = new ArrayList<String>();
+        var payload = new StringBuilder();
+        for (var invalidation : batch) {
+            String item = invalidation.entity() + ":" + invalidation.entityId();
+            if (payload.length() > 0 && payload.length() + 1 + item.length() > MAX_PAYLOAD_LENGTH) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+            }
+            if (payload.length() > 0) payload.append(',');
+            payload.append(item);
+        }
+        if (payload.length() > 0) payloads.add(payload.toString());
+        return payloads;
+    }
+
+    static List<Invalidation> decode(PGNotification[] notifications) {
+        var batch = new ArrayList<Invalidation>();
+        for (var notification : notifications) {
+            if (!CHANNEL.equals(notification.getName()) || notification.getParameter().isEmpty()) continue;
+            for (String item : notification.getParameter().split(",")) {
+                int entityEnd = item.indexOf(':');
+                batch.add(new Invalidation(item.substring(0, entityEnd), item.substring(entityEnd + 1)));
+            }
+        }
+        return batch;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        listener.interrupt();
+    }
+}
@@ -0,0 +1,115 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Token buckets per client and endpoint. A bucket is a single atomic timestamp (the time at which it
+// would be full again, GCRA), so taking a token is one CAS and needs no lock. Full buckets carry no state
+// and are swept; when the map is at its bound regardless, clients without a bucket share one per endpoint.
+@Service
+public class RateLimitService {
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> overflow = new ConcurrentHashMap<>();
+    private final int maxBuckets;
+
+    private final Limit mutationLimit;
+    private final Limit bulkLimit;
+
+    private final MeterRegistry registry;
+
+    // interval between two tokens and the number of tokens a full bucket holds
+    record Limit(long intervalNanos, int burst) {
+        long capacityNanos() {
+            return intervalNanos * burst;
+        }
+    }
+
+    static class Bucket {
+        final AtomicLong fullAt;
+
+        Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+
+        // 0 when a token was taken, otherwise nanoseconds until the next one
+        long tryAcquire(Limit limit, long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + limit.intervalNanos();
+                long wait = next - now - limit.capacityNanos();
+                if (wait > 0) return wait;
+                if (fullAt.compareAndSet(current, next)) return 0;
+            }
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() <= now;
+        }
+    }
+
+    @Autowired
+    public RateLimitService(
+            MeterRegistry registry,
+            @Value("${gym.limits.mutations-per-second:5}") double mutationsPerSecond,
+            @Value("${gym.limits.mutations-burst:10}") int mutationsBurst,
+            @Value("${gym.limits.bulk-per-minute:2}") double bulkPerMinute,
+            @Value("${gym.limits.max-buckets:10000}") int maxBuckets
+    ) {
+        this.registry = registry;
+        this.mutationLimit = new Limit((long) (Duration.ofSeconds(1).toNanos() / mutationsPerSecond), Math.max(1, mutationsBurst));
+        this.bulkLimit = new Limit((long) (Duration.ofMinutes(1).toNanos() / bulkPerMinute), 1);
+        this.maxBuckets = maxBuckets;
+
+        Gauge.builder("gym.limiter.buckets", buckets, Map::size)
+                .description("clients and endpoints with a rate limit bucket")
+                .register(registry);
+    }
+
+    // 0 when the request may proceed, otherwise the time after which it may be retried
+    public Duration tryAcquire(String client, String endpoint, boolean bulk) {
+        long wait = tryAcquire(client, endpoint, bulk, System.nanoTime());
+        if (wait == 0) return Duration.ZERO;
+
+        registry.counter("gym.limiter.throttled", "endpoint", endpoint).increment();
+        return Duration.ofNanos(wait);
+    }
+
+    long tryAcquire(String client, String endpoint, boolean bulk, long now) {
+        return bucket(client + ' ' + endpoint, endpoint, now).tryAcquire(bulk ? bulkLimit : mutationLimit, now);
+    }
+
+    private Bucket bucket(String key, String endpoint, long now) {
+        var bucket = buckets.get(key);
+        if (bucket != null) return bucket;
+
+        if (buckets.size() >= maxBuckets) {
+            sweep(now);
+            if (buckets.size() >= maxBuckets)
+                return overflow.computeIfAbsent(endpoint, e -> new Bucket(now));
+        }
+        return buckets.computeIfAbsent(key, k -> new Bucket(now));
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void sweep() {
+        sweep(System.nanoTime());
+    }
+
+    // removing a full bucket is the same as keeping it, a new one starts full as well
+    void sweep(long now) {
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    int buckets() {
+        return buckets.size();
+    }
+}
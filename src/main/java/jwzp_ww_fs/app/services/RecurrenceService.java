@@ -0,0 +1,75 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import jwzp_ww_fs.app.dto.OccurrenceKey;
+import jwzp_ww_fs.app.dto.ScheduleOccurrence;
+import jwzp_ww_fs.app.exceptions.schedule.ExcessiveDateRangeException;
+import jwzp_ww_fs.app.exceptions.schedule.InvalidDateRangeException;
+import jwzp_ww_fs.app.exceptions.schedule.ScheduleException;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import jwzp_ww_fs.app.repositories.ScheduleRepository;
+import jwzp_ww_fs.app.util.WeeklyRecurrence;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class RecurrenceService {
+    private static final int MAX_EXPANDED_DAYS = 366;
+
+    ScheduleRepository scheduleRepository;
+    EventsInstancesRepository eventsRepository;
+    ShardingService sharding;
+
+    @Autowired
+    public RecurrenceService(ScheduleRepository scheduleRepository, EventsInstancesRepository eventsRepository,
+                             ShardingService sharding) {
+        this.scheduleRepository = scheduleRepository;
+        this.eventsRepository = eventsRepository;
+        this.sharding = sharding;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ScheduleOccurrence> expand(LocalDate from, LocalDate to, Optional<Integer> clubId) throws ScheduleException {
+        if (to.isBefore(from)) throw new InvalidDateRangeException();
+        if (from.plusDays(MAX_EXPANDED_DAYS).isBefore(to)) throw new ExcessiveDateRangeException();
+
+        List<Schedule> schedules = clubId.isPresent()
+                ? scheduleRepository.findScheduleByClubId(clubId.get())
+                : scheduleRepository.findAll();
+        var materialized = materializedOccurrences(from, to, clubId);
+
+        var result = new ArrayList<ScheduleOccurrence>();
+        new WeeklyRecurrence(schedules).forEachOccurrence(from, to, (s, date) -> {
+            EventInstance event = materialized.get(new OccurrenceKey(s.id(), date));
+            if (event == null)
+                result.add(new ScheduleOccurrence(s.id(), null, s.title(), date, s.time(), s.duration(), s.capacity(), 0, s.clubId(), s.coachId()));
+            else
+                result.add(new ScheduleOccurrence(s.id(), event.id(), event.title(), event.date(), event.time(), event.duration(), event.capacity(), event.participants(), event.clubId(), event.coachId()));
+        });
+        return result;
+    }
+
+    // by the dates their schedules gave them, so that a moved occurrence takes the place of its original date;
+    // with a club only from its shard
+    public Map<OccurrenceKey, EventInstance> materializedOccurrences(LocalDate from, LocalDate to, Optional<Integer> clubId) {
+        var found = clubId.isPresent()
+                ? List.of(sharding.onClub(clubId.get(), () -> eventsRepository.findOccurrencesOfClub(from, to, clubId.get())))
+                : sharding.gather(shard -> eventsRepository.findOccurrences(from, to));
+
+        var result = new HashMap<OccurrenceKey, EventInstance>();
+        for (var events : found) {
+            for (EventInstance event : events)
+                result.put(new OccurrenceKey(event.scheduleId(), event.originalDate()), event);
+        }
+        return result;
+    }
+}
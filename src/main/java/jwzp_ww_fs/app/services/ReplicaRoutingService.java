@@ -0,0 +1,129 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Decides whether read-only transactions may use the read replica. The replica is used while its measured lag
+// is within gym.datasource.replica.max-lag, and not before the first measurement. A client that has just
+// mutated something reads from the primary for a while, so that it sees its own writes; the while is the
+// configured stickiness, or the current lag when the replica is further behind.
+@Service
+@ConditionalOnProperty(name = "gym.datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingService {
+    // PostgreSQL standby, an idle primary sends nothing to replay, so a replica that replayed all it received is current
+    static final String POSTGRES_LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+    private static final long UNKNOWN_LAG = Long.MAX_VALUE;
+
+    private final JdbcTemplate replica;
+    private final String lagQuery;
+    private final long maxLagNanos;
+    private final long stickyNanos;
+    private final int maxClients;
+
+    // last mutation of a client, in nanoTime
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private volatile long lagNanos = UNKNOWN_LAG;
+
+    Logger logger = LoggerFactory.getLogger(ReplicaRoutingService.class);
+
+    @Autowired
+    public ReplicaRoutingService(
+            @Qualifier("replicaDataSource") DataSource replica,
+            MeterRegistry registry,
+            @Value("${gym.datasource.replica.lag-query:" + POSTGRES_LAG_QUERY + "}") String lagQuery,
+            @Value("${gym.datasource.replica.max-lag:PT5S}") Duration maxLag,
+            @Value("${gym.datasource.replica.sticky-for:PT10S}") Duration stickyFor,
+            @Value("${gym.datasource.replica.max-clients:10000}") int maxClients
+    ) {
+        this.replica = new JdbcTemplate(replica);
+        this.lagQuery = lagQuery;
+        this.maxLagNanos = maxLag.toNanos();
+        this.stickyNanos = stickyFor.toNanos();
+        this.maxClients = maxClients;
+
+        Gauge.builder("gym.datasource.replica.lag", this, service -> service.lagNanos == UNKNOWN_LAG ? Double.NaN : service.lagNanos / 1e9)
+                .description("seconds the read replica is behind the primary, NaN when unknown")
+                .register(registry);
+        Gauge.builder("gym.datasource.replica.sticky-clients", lastWrites, Map::size)
+                .description("clients reading from the primary after a mutation")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${gym.datasource.replica.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        try {
+            Double seconds = replica.queryForObject(lagQuery, Double.class);
+            lagMeasured(seconds == null ? null : Duration.ofNanos((long) (seconds * 1e9)));
+        } catch (DataAccessException ex) {
+            if (lagNanos != UNKNOWN_LAG) logger.warn("Read replica unavailable, reading from the primary", ex);
+            lagMeasured(null);
+        }
+    }
+
+    // null when the lag could not be measured
+    void lagMeasured(Duration lag) {
+        boolean wasUsable = replicaUsable();
+        lagNanos = lag == null ? UNKNOWN_LAG : Math.max(0, lag.toNanos());
+        if (wasUsable != replicaUsable())
+            logger.info("Read replica {}, lag {}", replicaUsable() ? "in use" : "not used", lag);
+    }
+
+    public boolean replicaUsable() {
+        return lagNanos <= maxLagNanos;
+    }
+
+    public void wrote(String client) {
+        wrote(client, System.nanoTime());
+    }
+
+    void wrote(String client, long now) {
+        if (lastWrites.size() >= maxClients) sweep(now);
+        // at the bound regardless, the client reads from the replica and may miss its write for up to the lag
+        if (lastWrites.size() < maxClients || lastWrites.containsKey(client)) lastWrites.put(client, now);
+    }
+
+    public boolean readsFromPrimary(String client) {
+        return readsFromPrimary(client, System.nanoTime());
+    }
+
+    boolean readsFromPrimary(String client, long now) {
+        var wroteAt = lastWrites.get(client);
+        return wroteAt != null && now - wroteAt < stickyWindow();
+    }
+
+    private long stickyWindow() {
+        return lagNanos == UNKNOWN_LAG ? stickyNanos : Math.max(stickyNanos, lagNanos);
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void sweep() {
+        sweep(System.nanoTime());
+    }
+
+    void sweep(long now) {
+        long sticky = stickyWindow();
+        lastWrites.values().removeIf(wroteAt -> now - wroteAt >= sticky);
+    }
+
+    int stickyClients() {
+        return lastWrites.size();
+    }
+}
@@ -0,0 +1,162 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import jwzp_ww_fs.app.dto.EventAvailabilityView;
+import jwzp_ww_fs.app.dto.EventInstanceView;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.Invalidation;
+import jwzp_ww_fs.app.util.EntityLoader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Title and duration of schedules by id, which their occurrences store only when they differ, see EventInstance.
+// Read from the home shard, which holds the schedules, within the current transaction, once per transaction and
+// schedule. Unlike the EntityCache, lookups of transactions are stored too, unless the transaction may not see what
+// is committed: a read-only one on the replica, or one that changed the schedule itself. Changes of schedules drop
+// the entry on every node and entries expire after gym.cache.ttl, as in the EntityCache.
+@Service
+public class ScheduleDefaultsCache implements InvalidationBus.Listener {
+    private final InvalidationBus bus;
+    private final ShardingService sharding;
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final boolean replicaEnabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private record Entry(Optional<EventInstance.Defaults> value, long loadedAt) {}
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public ScheduleDefaultsCache(
+            InvalidationBus bus,
+            ShardingService sharding,
+            DataSource dataSource,
+            @Value("${gym.cache.enabled:true}") boolean enabled,
+            @Value("${gym.datasource.replica.enabled:false}") boolean replicaEnabled,
+            @Value("${gym.cache.max-entries:10000}") int maxEntries,
+            @Value("${gym.cache.ttl:PT10M}") Duration ttl
+    ) {
+        this.bus = bus;
+        this.sharding = sharding;
+        this.jdbc = dataSource == null ? null : new JdbcTemplate(dataSource);
+        this.enabled = enabled;
+        this.replicaEnabled = replicaEnabled;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        if (bus != null) bus.subscribe(this);
+    }
+
+    // nothing is resolved, for tests of the services
+    public static ScheduleDefaultsCache disabled() {
+        return new ScheduleDefaultsCache(null, null, null, false, false, 0, Duration.ZERO);
+    }
+
+    // null when the schedule no longer exists, its occurrences then store their title and duration
+    public EventInstance.Defaults of(int scheduleId) {
+        if (jdbc == null) return null;
+        if (enabled && bus.isConnected() && !changedHere(scheduleId)) {
+            var cached = entries.get(scheduleId);
+            if (cached != null && System.nanoTime() - cached.loadedAt() < ttlNanos) return cached.value().orElse(null);
+        }
+        return EntityLoader.load(EventInstance.Defaults.class, scheduleId, this::load);
+    }
+
+    public void resolve(EventInstance event) {
+        if (event.needsDefaults()) event.resolve(of(event.scheduleId()));
+    }
+
+    public EventInstanceView resolve(EventInstanceView view) {
+        if (view.scheduleId() == null || (view.title() != null && view.duration() != null)) return view;
+        var defaults = of(view.scheduleId());
+        if (defaults == null) return view;
+        return new EventInstanceView(view.id(), view.title() != null ? view.title() : defaults.title(), view.date(),
+                view.time(), view.duration() != null ? view.duration() : defaults.duration(), view.capacity(),
+                view.participants(), view.clubId(), view.coachId(), view.scheduleId());
+    }
+
+    public EventAvailabilityView resolve(EventAvailabilityView view) {
+        if (view.scheduleId() == null || view.title() != null) return view;
+        var defaults = of(view.scheduleId());
+        if (defaults == null) return view;
+        return new EventAvailabilityView(view.id(), defaults.title(), view.date(), view.time(), view.clubId(),
+                view.coachId(), view.freeSeats(), view.scheduleId());
+    }
+
+    private Optional<EventInstance.Defaults> load(int scheduleId) {
+        long before = invalidations.get();
+        long now = System.nanoTime();
+        boolean storable = enabled && seesCommitted(scheduleId);
+        Optional<EventInstance.Defaults> found = sharding.onHome(() -> jdbc.query(
+                "SELECT title, duration FROM schedules WHERE id = ?",
+                (rs, row) -> new EventInstance.Defaults(rs.getString("title"), Duration.ofNanos(rs.getLong("duration"))),
+                scheduleId)).stream().findFirst();
+
+        if (storable && (entries.containsKey(scheduleId) || entries.size() < maxEntries)) {
+            var entry = new Entry(found, now);
+            entries.put(scheduleId, entry);
+            // an invalidation counted after the put removes the entry itself
+            if (invalidations.get() != before || !bus.isConnected()) entries.remove(scheduleId, entry);
+        }
+        return found;
+    }
+
+    private boolean seesCommitted(int scheduleId) {
+        if (!bus.isConnected()) return false;
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) return true;
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) return !replicaEnabled;
+        return !changedHere(scheduleId);
+    }
+
+    private boolean changedHere(int scheduleId) {
+        return bus.isPending(EntityChange.SCHEDULE, String.valueOf(scheduleId));
+    }
+
+    @Override
+    public synchronized void invalidate(List<Invalidation> batch) {
+        for (var invalidation : batch) {
+            if (!invalidation.entity().equals(EntityChange.SCHEDULE)) continue;
+            invalidations.incrementAndGet();
+            if (invalidation.isRange()) {
+                entries.keySet().removeIf(invalidation::covers);
+                continue;
+            }
+            try {
+                entries.remove(Integer.valueOf(invalidation.entityId()));
+            } catch (NumberFormatException ex) {
+                // not a schedule of this cache
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void sweep() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.loadedAt() >= ttlNanos);
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -9,42 +9,90 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
+import jwzp_ww_fs.app.dto.ScheduleView;
 import jwzp_ww_fs.app.exceptions.schedule.*;
+import jwzp_ww_fs.app.util.EntityLoader;
+import jwzp_ww_fs.app.util.ValidationPipeline;
+import jwzp_ww_fs.app.util.ValidationPipeline.Cost;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import jwzp_ww_fs.app.models.Club;
+import jwzp_ww_fs.app.models.Coach;
+import jwzp_ww_fs.app.models.EntityChange;
 import jwzp_ww_fs.app.models.OpeningHours;
 import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.models.ScheduleChange;
 import jwzp_ww_fs.app.repositories.ScheduleRepository;
 
 @Service
 public class ScheduleService {
     ScheduleRepository repository;
+    EntityCache cache;
 
     ClubsService clubsService;
     CoachesService coachesService;
+    ApplicationEventPublisher publisher;
+
+    private final ValidationPipeline<ScheduleCheck> validation = ValidationPipeline.<ScheduleCheck>builder()
+            .rule(Cost.MEMORY, check -> isScheduleCorrectLength(check.schedule), ExcessivelyLongScheduleException::new)
+            .rule(Cost.LOOKUP, check -> check.club() != null, NonExistingClubException::new)
+            .rule(Cost.LOOKUP, check -> check.coach() != null, NonExistingCoachException::new)
+            // within the transaction the club is read from the persistence context, not queried again
+            .rule(Cost.LOOKUP, check -> check.club() == null || clubsService.isScheduleInClubOpeningHours(check.schedule),
+                    ProtrudingScheduleException::new)
+            .rule(Cost.SCAN, check -> !existsSimultaniousScheduleWithCoach(check.schedule, check.replaced),
+                    AlreadyAssignedCoachException::new)
+            .build();
+
+    // what the rules of one validation load, each loaded at most once
+    private class ScheduleCheck {
+        final Schedule schedule;
+        final Schedule replaced;
+        private Club club;
+        private Coach coach;
+
+        ScheduleCheck(Schedule schedule, Schedule replaced) {
+            this.schedule = schedule;
+            this.replaced = replaced;
+        }
+
+        Club club() {
+            if (club == null) club = clubsService.getClub(schedule.clubId());
+            return club;
+        }
+
+        Coach coach() {
+            if (coach == null) coach = coachesService.getCoach(schedule.coachId());
+            return coach;
+        }
+    }
 
     @Autowired
-    public ScheduleService(ScheduleRepository repository, ClubsService clubsService, CoachesService coachesService) {
+    public ScheduleService(ScheduleRepository repository, EntityCache cache, ClubsService clubsService,
+                           CoachesService coachesService, ApplicationEventPublisher publisher) {
         this.repository = repository;
+        this.cache = cache;
         this.clubsService = clubsService;
         this.coachesService = coachesService;
+        this.publisher = publisher;
     }
 
+    @Transactional
     public Schedule addSchedule(Schedule schedule) throws ScheduleException {
-        if (!existsClubForSchedule(schedule)) throw new NonExistingClubException();
-        if (!existsCoachForSchedule(schedule)) throw new NonExistingCoachException();
-        if (existsSimultaniousScheduleWithCoach(schedule, null)) throw new AlreadyAssignedCoachException();
-        if (!clubsService.isScheduleInClubOpeningHours(schedule)) throw new ProtrudingScheduleException();
-        if (!isScheduleCorrectLength(schedule)) throw new ExcessivelyLongScheduleException();
+        validation.validate(new ScheduleCheck(schedule, null)).throwIfInvalid();
 
         clubsService.addEventToClub(schedule.clubId());
         clubsService.setFillLevel(schedule.clubId(), getMinimalOpeningHoursForClub(schedule));
         coachesService.addEventForCoach(schedule.coachId());
 
-        return repository.save(schedule);
+        Schedule added = repository.save(schedule);
+        publisher.publishEvent(new ScheduleChange(added.id(), null, added));
+        return added;
     }
 
     private Map<DayOfWeek, OpeningHours> getMinimalOpeningHoursForClub(Schedule scheduleToAdd) {
@@ -87,14 +135,6 @@ public class ScheduleService {
         return scheduleToAdd.duration().compareTo(Duration.ofDays(1)) <= 0;
     }
 
-    private boolean existsClubForSchedule(Schedule scheduleToAdd) {
-        return clubsService.getClub(scheduleToAdd.clubId()) != null;
-    }
-
-    private boolean existsCoachForSchedule(Schedule scheduleToAdd) {
-        return coachesService.getCoach(scheduleToAdd.coachId()) != null;
-    }
-
     private boolean existsSimultaniousScheduleWithCoach(Schedule scheduleToAdd, Schedule scheduleToIgnore) {
         var otherSchedulesWithCoach = getSchedulesByCoach(scheduleToAdd.coachId());
         if (scheduleToIgnore != null) {
@@ -141,57 +181,41 @@ public class ScheduleService {
         return t.isAfter(s.time()) && t.isBefore(s.time().plus(s.duration()));
     }
 
+    @Transactional
     public Schedule removeSchedule(int scheduleId) throws NonExistingScheduleException {
         // Event removedEvent = repository.removeScheduleWithId(eventId);
 
 
-        Optional<Schedule> scheduleToRemove = repository.findById(scheduleId);
+        Schedule removedSchedule = getSchedule(scheduleId);
 
-        if (scheduleToRemove.isEmpty()) throw new NonExistingScheduleException();
-
-        Schedule removedSchedule = scheduleToRemove.get();
+        if (removedSchedule == null) throw new NonExistingScheduleException();
 
+        // announced first, so that the occurrences it leaves are pinned while they still reference it
+        publisher.publishEvent(new ScheduleChange(scheduleId, removedSchedule, null));
         repository.deleteById(scheduleId);
+        EntityLoader.evict(Schedule.class, scheduleId);
         return removedSchedule;
     }
 
-    public List<Schedule> removeAllSchedules() {
-        var allSchedules = getAllSchedules();
-
-        for (Schedule s : allSchedules) {
-            clubsService.subtractEventFromClub(s.clubId());
-            clubsService.setFillLevel(s.clubId(), new HashMap<>());
-            coachesService.subtractEventFromCoach(s.coachId());
-        }
-
-        var removedSchedules = repository.findAll();
-
-        repository.deleteAll();
-
-        return removedSchedules;
-    }
-
+    @Transactional
     public Schedule updateSchedule(int scheduleId, Schedule schedule) throws ScheduleException {
         Schedule currentScheduleWithId = getSchedule(scheduleId);
         
         if (currentScheduleWithId == null) throw new NonExistingScheduleException();
 
-        if (!existsClubForSchedule(schedule))
-            throw new NonExistingClubException();
-        if (!existsCoachForSchedule(schedule))
-            throw new NonExistingCoachException();
-        if (existsSimultaniousScheduleWithCoach(schedule, currentScheduleWithId))
-            throw new AlreadyAssignedCoachException();
-        if (!clubsService.isScheduleInClubOpeningHours(schedule))
-            throw new ProtrudingScheduleException();
-        if (!isScheduleCorrectLength(schedule))
-            throw new ExcessivelyLongScheduleException();
+        // copy, because within the transaction the entity below is the same instance
+        Schedule previousSchedule = new Schedule(currentScheduleWithId.title(), currentScheduleWithId.day(),
+                currentScheduleWithId.time(), currentScheduleWithId.duration(), currentScheduleWithId.capacity(),
+                currentScheduleWithId.clubId(), currentScheduleWithId.coachId());
+
+        validation.validate(new ScheduleCheck(schedule, currentScheduleWithId)).throwIfInvalid();
 
         Schedule scheduleToUpdate = repository.getById(scheduleId);
         scheduleToUpdate.updateData(schedule);
         repository.save(scheduleToUpdate);
+        publisher.publishEvent(new ScheduleChange(scheduleId, previousSchedule, scheduleToUpdate));
 
-        return currentScheduleWithId;
+        return previousSchedule;
     }
 
     public List<Schedule> getAllSchedules() {
@@ -214,14 +238,14 @@ public class ScheduleService {
     }
 
     public Schedule getSchedule(int id) {
-        Optional<Schedule> schedule = repository.findById(id);
-        return schedule.orElse(null);
+        return EntityLoader.load(Schedule.class, id, scheduleId -> cache.load(EntityChange.SCHEDULE, Schedule.class, scheduleId, repository::findById));
     }
 
-    public Page<Schedule> getPage(Pageable p, Optional<Integer> clubId, Optional<Integer> coachId) {
-        if (clubId.isPresent() && coachId.isPresent()) return repository.findScheduleByClubIdAndCoachId(p, clubId.get(), coachId.get());
-        if (clubId.isPresent()) return repository.findScheduleByClubId(p, clubId.get());
-        if (coachId.isPresent()) return repository.findScheduleByCoachId(p, coachId.get());
-        return repository.findAll(p);
+    @Transactional(readOnly = true)
+    public Page<ScheduleView> getPage(Pageable p, Optional<Integer> clubId, Optional<Integer> coachId) {
+        if (clubId.isPresent() && coachId.isPresent()) return repository.findViewsByClubIdAndCoachId(p, clubId.get(), coachId.get());
+        if (clubId.isPresent()) return repository.findViewsByClubId(p, clubId.get());
+        if (coachId.isPresent()) return repository.findViewsByCoachId(p, coachId.get());
+        return repository.findViews(p);
     }
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package jwzp_ww_fs.app.services;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.models.ChangesRelayed;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.SeatsChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// Pushes seat counts of event instances to SSE subscribers. Changes are coalesced: only the latest count
+// of an event is kept until the next flush, so an event is pushed at most once per flush interval no matter
+// how many sign-ups it receives. A subscriber costs one emitter referenced from a single set, idle
+// subscribers cost nothing besides the periodic heartbeat. Counts come from the changes of events the relay
+// hands over, so subscribers of every node see the sign-ups of every node.
+@Service
+public class SeatFeedService {
+    private static final long EMITTER_TIMEOUT = Duration.ofMinutes(30).toMillis();
+
+    private final Map<Long, Set<SseEmitter>> eventSubscribers = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<SseEmitter>> clubSubscribers = new ConcurrentHashMap<>();
+    // latest not yet pushed change of every event, only for events somebody listens to
+    private final Map<Long, SeatsChange> pending = new ConcurrentHashMap<>();
+
+    ObjectMapper mapper;
+
+    Logger logger = LoggerFactory.getLogger(SeatFeedService.class);
+
+    @Autowired
+    public SeatFeedService(ObjectMapper mapper, MeterRegistry registry) {
+        this.mapper = mapper;
+
+        Gauge.builder("gym.seats.subscribers", this, SeatFeedService::subscribers)
+                .description("open seat feed connections")
+                .register(registry);
+    }
+
+    public SseEmitter subscribeEvent(EventInstance event) {
+        var emitter = register(eventSubscribers, event.id());
+        send(emitter, new SeatsChange(event.id(), event.clubId(), event.participants(), event.capacity()));
+        return emitter;
+    }
+
+    public SseEmitter subscribeClub(int clubId) {
+        return register(clubSubscribers, clubId);
+    }
+
+    public int subscribers() {
+        return eventSubscribers.values().stream().mapToInt(Set::size).sum()
+                + clubSubscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    int pendingChanges() {
+        return pending.size();
+    }
+
+    // updates of events carry the counts as they were committed, see EventsInstancesService.publishUpdate
+    @EventListener
+    public void onChangesRelayed(ChangesRelayed relayed) {
+        for (var change : relayed.changes()) {
+            if (!EntityChange.EVENT.equals(change.entity()) || change.operation() != ChangeRecord.Operation.UPDATED
+                    || change.payload() == null) continue;
+            try {
+                var state = mapper.readTree(change.payload());
+                onSeatsChange(new SeatsChange(Long.parseLong(change.entityId()), state.path("clubId").asInt(),
+                        state.path("participants").asInt(), state.path("capacity").asInt()));
+            } catch (JsonProcessingException | NumberFormatException ex) {
+                logger.warn("Could not read seats of event {}", change.entityId(), ex);
+            }
+        }
+    }
+
+    void onSeatsChange(SeatsChange change) {
+        if (eventSubscribers.containsKey(change.eventId()) || clubSubscribers.containsKey(change.clubId()))
+            pending.put(change.eventId(), change);
+    }
+
+    @Scheduled(fixedDelayString = "${gym.events.seats.flush-interval-ms:500}")
+    public void flush() {
+        for (Long eventId : pending.keySet()) {
+            var change = pending.remove(eventId);
+            if (change == null) continue;
+
+            for (var emitter : eventSubscribers.getOrDefault(eventId, Set.of()))
+                send(emitter, change);
+            for (var emitter : clubSubscribers.getOrDefault(change.clubId(), Set.of()))
+                send(emitter, change);
+        }
+    }
+
+    // keeps connections open through proxies that close idle ones
+    @Scheduled(fixedDelayString = "${gym.events.seats.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        for (var subscribers : eventSubscribers.values())
+            subscribers.forEach(this::ping);
+        for (var subscribers : clubSubscribers.values())
+            subscribers.forEach(this::ping);
+    }
+
+    private <K> SseEmitter register(Map<K, Set<SseEmitter>> subscribers, K key) {
+        var emitter = new SseEmitter(EMITTER_TIMEOUT);
+        subscribers.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(emitter);
+
+        Runnable unregister = () -> subscribers.computeIfPresent(key, (k, set) -> {
+            set.remove(emitter);
+            return set.isEmpty() ? null : set;
+        });
+        emitter.onCompletion(unregister);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(ex -> unregister.run());
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, SeatsChange change) {
+        try {
+            emitter.send(SseEmitter.event().name("seats").data(change, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException ex) {
+            drop(emitter, ex);
+        }
+    }
+
+    // the container reports broken connections late, so they are removed as soon as a write fails
+    private void drop(SseEmitter emitter, Exception cause) {
+        eventSubscribers.values().removeIf(set -> set.remove(emitter) && set.isEmpty());
+        clubSubscribers.values().removeIf(set -> set.remove(emitter) && set.isEmpty());
+        emitter.completeWithError(cause);
+    }
+
+    private void ping(SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().comment(""));
+        } catch (IOException | IllegalStateException ex) {
+            drop(emitter, ex);
+        }
+    }
+}
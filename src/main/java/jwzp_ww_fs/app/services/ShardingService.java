@@ -0,0 +1,262 @@
+package jwzp_ww_fs.app.services;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import jwzp_ww_fs.app.util.ShardMap;
+import jwzp_ww_fs.app.util.ShardRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Runs work on the shards of gym.shards, see ShardingConfiguration. Events, with their participants and waitlists,
+// live on the shard of their club. Work for the shard the thread is bound to runs in place; for another shard it
+// runs in place too when the thread has no transaction, otherwise on a shard- thread, since the transaction
+// already holds a connection of its own shard. Without sharding every call runs in place and joins the caller.
+@Service
+public class ShardingService {
+    private static final int FORWARDED_BATCH = 500;
+
+    private final ShardMap shardMap;
+    private final ShardRoutingDataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final Map<String, TransactionTemplate> shardTransactions = new HashMap<>();
+
+    Logger logger = LoggerFactory.getLogger(ShardingService.class);
+
+    @Autowired
+    public ShardingService(
+            ObjectProvider<ShardRoutingDataSource> dataSource,
+            PlatformTransactionManager transactionManager
+    ) {
+        this(dataSource.getIfAvailable(), transactionManager);
+    }
+
+    private ShardingService(ShardRoutingDataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.dataSource = dataSource;
+        this.shardMap = dataSource == null ? ShardMap.single() : dataSource.shardMap();
+        this.transactionTemplate = transactionManager == null ? null : new TransactionTemplate(transactionManager);
+        // unbounded, a lookup within the work of one shard may gather again; the pools of the shards bound the connections
+        this.executor = shardMap.isSingle() ? null : Executors.newCachedThreadPool(new CustomizableThreadFactory("shard-"));
+        if (dataSource != null) {
+            for (String shard : shardMap.shards())
+                shardTransactions.put(shard, new TransactionTemplate(new DataSourceTransactionManager(dataSource.shard(shard))));
+        }
+    }
+
+    // everything runs in place, for tests of the services
+    public static ShardingService unsharded() {
+        return new ShardingService(null, null);
+    }
+
+    public boolean isSharded() {
+        return !shardMap.isSingle();
+    }
+
+    public String home() {
+        return shardMap.home();
+    }
+
+    public List<String> shards() {
+        return shardMap.shards();
+    }
+
+    // whether the thread works on the home shard, always without sharding
+    public boolean isHome() {
+        return current().equals(home());
+    }
+
+    public String shardOfClub(int clubId) {
+        return shardMap.shardOf(clubId);
+    }
+
+    public String shardOfEvent(long eventId) {
+        return shardMap.shardOfEvent(eventId);
+    }
+
+    public <T> T on(String shard, Supplier<T> work) {
+        if (shard.equals(current())) return work.get();
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            String previous = ShardRoutingDataSource.bind(shard);
+            try {
+                return work.get();
+            } finally {
+                ShardRoutingDataSource.bind(previous);
+            }
+        }
+        return join(submit(shard, work));
+    }
+
+    public <T> T onHome(Supplier<T> work) {
+        return on(home(), work);
+    }
+
+    public <T> T onClub(int clubId, Supplier<T> work) {
+        return on(shardOfClub(clubId), work);
+    }
+
+    public <T> T onEvent(long eventId, Supplier<T> work) {
+        return on(shardOfEvent(eventId), work);
+    }
+
+    // Work of every shard, results in the order of shards(). The shard of the thread runs in place, within the
+    // transaction of the thread, the others in parallel in transactions of their own.
+    public <T> List<T> gather(Function<String, T> work) {
+        if (!isSharded()) return List.of(work.apply(home()));
+
+        String current = current();
+        var futures = new ArrayList<CompletableFuture<T>>();
+        for (String shard : shards())
+            futures.add(shard.equals(current) ? null : submit(shard, () -> work.apply(shard)));
+
+        T own;
+        try {
+            own = work.apply(current);
+        } finally {
+            CompletableFuture.allOf(futures.stream().filter(Objects::nonNull).toArray(CompletableFuture[]::new))
+                    .exceptionally(ex -> null).join();
+        }
+
+        var results = new ArrayList<T>(futures.size());
+        for (var future : futures)
+            results.add(future == null ? own : join(future));
+        return results;
+    }
+
+    // Page of the rows of every shard merged in the order of the page. Every shard returns its rows up to the end
+    // of the page, so deep pages cost every shard what they would cost a single database.
+    public <T> Page<T> gatherPage(Pageable p, Function<Pageable, Page<T>> query, Comparator<T> order) {
+        if (!isSharded()) return query.apply(p);
+
+        Pageable top = p.isUnpaged() ? p
+                : PageRequest.of(0, (int) Math.min(Integer.MAX_VALUE, p.getOffset() + p.getPageSize()), p.getSort());
+        var pages = gather(shard -> query.apply(top));
+        long total = pages.stream().mapToLong(Page::getTotalElements).sum();
+        var content = pages.stream().flatMap(page -> page.getContent().stream()).sorted(order)
+                .skip(p.isUnpaged() ? 0 : p.getOffset())
+                .limit(p.isUnpaged() ? Long.MAX_VALUE : p.getPageSize())
+                .toList();
+        return new PageImpl<>(content, p, total);
+    }
+
+    // Work in a transaction of its own on the shard, committed when this returns. Within a transaction of the
+    // thread it runs on a shard- thread, so that the two commit separately.
+    public void inTransaction(String shard, Runnable work) {
+        if (transactionTemplate == null) {
+            work.run();
+            return;
+        }
+        if (!isSharded() || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            on(shard, () -> runInTransaction(work));
+            return;
+        }
+        join(submit(shard, () -> runInTransaction(work)));
+    }
+
+    private Void runInTransaction(Runnable work) {
+        return transactionTemplate.execute(status -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Changes of events are recorded to the outbox of their shard and moved to the one of the home shard, which
+    // ChangesService relays. A row is inserted into the home shard before it is deleted from its own, so a failure
+    // in between relays it twice rather than never. Locked rows keep other nodes from moving them at the same time.
+    @Scheduled(fixedDelayString = "${gym.shards.forward-interval-ms:500}")
+    public void forwardChanges() {
+        if (dataSource == null) return;
+
+        var home = new JdbcTemplate(dataSource.shard(home()));
+        for (String shard : shards()) {
+            if (shard.equals(home())) continue;
+            try {
+                int forwarded;
+                do {
+                    forwarded = forwardChanges(shard, home);
+                } while (forwarded == FORWARDED_BATCH);
+            } catch (RuntimeException ex) {
+                logger.warn("Could not forward changes of shard {}", shard, ex);
+            }
+        }
+    }
+
+    private int forwardChanges(String shard, JdbcTemplate home) {
+        var source = new JdbcTemplate(dataSource.shard(shard));
+        Integer forwarded = shardTransactions.get(shard).execute(status -> {
+            var rows = source.queryForList("SELECT seq, entity, entity_id, operation, payload FROM change_outbox "
+                    + "ORDER BY seq FETCH FIRST " + FORWARDED_BATCH + " ROWS ONLY FOR UPDATE");
+            if (rows.isEmpty()) return 0;
+
+            // stamped now, the retention of the home outbox starts when they arrive there
+            var now = Timestamp.from(Instant.now());
+            home.batchUpdate("INSERT INTO change_outbox (entity, entity_id, operation, payload, created_at) VALUES (?, ?, ?, ?, ?)",
+                    rows.stream().map(row -> new Object[]{ row.get("entity"), row.get("entity_id"), row.get("operation"),
+                            row.get("payload"), now }).toList());
+            source.batchUpdate("DELETE FROM change_outbox WHERE seq = ?",
+                    rows.stream().map(row -> new Object[]{ row.get("seq") }).toList());
+            return rows.size();
+        });
+        return forwarded == null ? 0 : forwarded;
+    }
+
+    private String current() {
+        String bound = ShardRoutingDataSource.bound();
+        return bound == null ? home() : bound;
+    }
+
+    private <T> CompletableFuture<T> submit(String shard, Supplier<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            ShardRoutingDataSource.bind(shard);
+            try {
+                return work.get();
+            } finally {
+                ShardRoutingDataSource.unbind();
+            }
+        }, executor);
+    }
+
+    // failures of the work are thrown as they were thrown on the shard- thread
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            if (ex.getCause() instanceof Error error) throw error;
+            throw ex;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) executor.shutdown();
+    }
+}
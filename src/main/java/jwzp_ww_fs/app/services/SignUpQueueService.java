@@ -0,0 +1,203 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jwzp_ww_fs.app.exceptions.event.ConcludedEventException;
+import jwzp_ww_fs.app.exceptions.event.EventException;
+import jwzp_ww_fs.app.exceptions.event.FilledEventException;
+import jwzp_ww_fs.app.exceptions.event.NonExistingEventException;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Queued admission of sign-ups for oversubscribed events. Requests for an event wait in its queue and a
+// single drainer per event admits them in FIFO order, a batch at a time: one locking read and one update
+// per batch instead of per request. When disabled, sign-ups go straight to EventsInstancesService.
+@Service
+public class SignUpQueueService {
+    EventsInstancesService eventsService;
+    EventsInstancesRepository repository;
+    ShardingService sharding;
+
+    Logger logger = LoggerFactory.getLogger(SignUpQueueService.class);
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+
+    private final Map<Long, EventQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final DistributionSummary batchSizes;
+
+    record PendingSignUp(LocalDate today, CompletableFuture<EventInstance> result) {}
+
+    private static class EventQueue {
+        final Queue<PendingSignUp> requests = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+    }
+
+    @Autowired
+    public SignUpQueueService(
+            EventsInstancesService eventsService,
+            EventsInstancesRepository repository,
+            ShardingService sharding,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry registry,
+            @Value("${gym.events.queued-signups:false}") boolean enabled,
+            @Value("${gym.events.signup-batch-size:100}") int batchSize,
+            @Value("${gym.events.signup-drainers:4}") int drainers
+    ) {
+        this.eventsService = eventsService;
+        this.repository = repository;
+        this.sharding = sharding;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // a drainer holds a connection only while applying a batch, so a few threads serve any number of events
+        this.executor = Executors.newFixedThreadPool(Math.max(1, drainers), new CustomizableThreadFactory("signup-"));
+
+        Gauge.builder("gym.signups.queued", queued, AtomicInteger::get)
+                .description("sign-ups waiting for admission")
+                .register(registry);
+        Gauge.builder("gym.signups.queues", queues, Map::size)
+                .description("events with queued sign-ups")
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("gym.signups.batch.size")
+                .description("sign-ups admitted or rejected by one update")
+                .register(registry);
+    }
+
+    public CompletableFuture<EventInstance> signUp(long eventId, LocalDate today) {
+        if (!enabled) {
+            try {
+                return CompletableFuture.completedFuture(eventsService.signUpForEvent(eventId, today));
+            } catch (EventException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+
+        var request = new PendingSignUp(today, new CompletableFuture<>());
+        // enqueued atomically with the lookup, so that an emptied queue is never removed under a new request
+        var queue = queues.compute(eventId, (id, q) -> {
+            var out = q == null ? new EventQueue() : q;
+            out.requests.add(request);
+            return out;
+        });
+        queued.incrementAndGet();
+
+        if (queue.draining.compareAndSet(false, true))
+            executor.execute(() -> drain(eventId, queue));
+        return request.result();
+    }
+
+    public int queued() {
+        return queued.get();
+    }
+
+    private void drain(long eventId, EventQueue queue) {
+        String shard = sharding.shardOfEvent(eventId);
+        do {
+            List<PendingSignUp> batch;
+            while (!(batch = poll(queue)).isEmpty())
+                admitSafely(shard, eventId, batch);
+
+            queue.draining.set(false);
+            // a request added after the last poll but before the flag was cleared would be stranded otherwise
+        } while (!queue.requests.isEmpty() && queue.draining.compareAndSet(false, true));
+
+        queues.computeIfPresent(eventId, (id, q) -> q.requests.isEmpty() && !q.draining.get() ? null : q);
+    }
+
+    private List<PendingSignUp> poll(EventQueue queue) {
+        List<PendingSignUp> batch = new ArrayList<>();
+        PendingSignUp request;
+        while (batch.size() < batchSize && (request = queue.requests.poll()) != null)
+            batch.add(request);
+        queued.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private void admitSafely(String shard, long eventId, List<PendingSignUp> batch) {
+        List<EventException> outcomes;
+        EventInstance event;
+        try {
+            var admitted = sharding.on(shard, () -> transactionTemplate.execute(status -> admit(eventId, batch)));
+            event = admitted.event();
+            outcomes = admitted.outcomes();
+        } catch (RuntimeException ex) {
+            logger.error("Could not admit {} sign-ups for event {}", batch.size(), eventId, ex);
+            batch.forEach(request -> request.result().completeExceptionally(ex));
+            return;
+        }
+
+        // completed only after the commit, so that callers never see an admission that was rolled back
+        for (int i = 0; i < batch.size(); i++) {
+            if (outcomes.get(i) == null) batch.get(i).result().complete(event);
+            else batch.get(i).result().completeExceptionally(outcomes.get(i));
+        }
+    }
+
+    record Admission(EventInstance event, List<EventException> outcomes) {}
+
+    // outcome of every request of the batch in order, null for admitted ones
+    Admission admit(long eventId, List<PendingSignUp> batch) {
+        batchSizes.record(batch.size());
+        var found = repository.findEventForUpdate(eventId);
+        List<EventException> outcomes = new ArrayList<>(batch.size());
+        if (found.isEmpty()) {
+            batch.forEach(request -> outcomes.add(new NonExistingEventException()));
+            return new Admission(null, outcomes);
+        }
+
+        EventInstance event = found.get();
+        int free = event.capacity() - event.participants();
+        int admitted = 0;
+        for (var request : batch) {
+            if (event.date().isBefore(request.today())) {
+                outcomes.add(new ConcludedEventException());
+            } else if (admitted >= free) {
+                outcomes.add(new FilledEventException());
+            } else {
+                outcomes.add(null);
+                admitted++;
+            }
+        }
+
+        if (admitted > 0) {
+            repository.addParticipantsForEvent(eventId, admitted);
+            eventsService.publishUpdate(event, event.date(), event.time(), event.capacity());
+            // the update bypasses the locked entity, the lock keeps its count exact until the commit
+            event = event.withParticipants(event.participants() + admitted);
+        }
+        return new Admission(event, outcomes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
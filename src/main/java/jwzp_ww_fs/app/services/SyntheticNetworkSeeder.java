@@ -0,0 +1,331 @@
+package jwzp_ww_fs.app.services;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// Bulk loads a synthetic network of clubs, coaches, weekly schedules and their event instances, bypassing JPA.
+// Rows go through COPY on PostgreSQL and through JDBC batches elsewhere. The network is appended after the
+// existing rows and depends only on the plan and its seed, so that runs against it are comparable. Occurrences
+// take their title and duration from their schedules, as generated ones do. All rows go to one database, so the
+// seeder does not run with sharding.
+@Service
+public class SyntheticNetworkSeeder {
+    private static final int FLUSH_ROWS = 10_000;
+    private static final int EVENT_ID_ALLOCATION = 50;
+    private static final int SLOT_ATTEMPTS = 20;
+    private static final String[] TITLES = { "Yoga", "Pilates", "Crossfit", "Spinning", "Zumba", "Boxing",
+            "Stretching", "Body pump", "Aqua aerobics", "Kettlebells" };
+    private static final String[] FIRST_NAMES = { "Anna", "Jan", "Maria", "Piotr", "Kasia", "Tomasz", "Ola", "Marek" };
+    private static final String[] LAST_NAMES = { "Nowak", "Kowalski", "Wisniewska", "Lewandowski", "Zielinska",
+            "Wojcik", "Kaminska", "Mazur" };
+
+    DataSource dataSource;
+    private final boolean sharded;
+
+    Logger logger = LoggerFactory.getLogger(SyntheticNetworkSeeder.class);
+
+    public record Plan(int clubs, int coachesPerClub, int schedulesPerClub, int pastDays, int futureDays, long seed) {}
+
+    public record Summary(int clubs, int coaches, int schedules, long events) {}
+
+    private record ClubHours(LocalTime[] open, LocalTime[] close) {}
+
+    private record GeneratedSchedule(int id, String title, DayOfWeek day, LocalTime time, Duration duration,
+                                     int capacity, int clubId, int coachId) {}
+
+    @Autowired
+    public SyntheticNetworkSeeder(DataSource dataSource, @Value("${gym.shards.enabled:false}") boolean sharded) {
+        this.dataSource = dataSource;
+        this.sharded = sharded;
+    }
+
+    public Summary seed(Plan plan, LocalDate today) throws SQLException, IOException {
+        if (sharded)
+            throw new IllegalStateException("The synthetic network cannot be seeded with gym.shards.enabled");
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            boolean postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            var random = new Random(plan.seed());
+
+            int firstClub = maxId(connection, "clubs") + 1;
+            int firstCoach = maxId(connection, "coaches") + 1;
+            int firstSchedule = maxId(connection, "schedules") + 1;
+            int firstOpeningHours = maxId(connection, "opening_hours") + 1;
+            int firstEventHours = maxId(connection, "event_hours") + 1;
+            long firstEvent = maxId(connection, "event_instance") + 1;
+
+            // the network is generated in memory first, so that rows can be written parents before children
+            var hours = new ArrayList<ClubHours>();
+            for (int i = 0; i < plan.clubs(); i++)
+                hours.add(clubHours(random));
+            var schedules = schedules(plan, hours, firstClub, firstCoach, firstSchedule, random);
+
+            var clubEvents = new int[plan.clubs()];
+            var coachEvents = new int[plan.clubs() * plan.coachesPerClub()];
+            for (var schedule : schedules) {
+                clubEvents[schedule.clubId() - firstClub]++;
+                coachEvents[schedule.coachId() - firstCoach]++;
+            }
+
+            try (var clubs = sink(connection, postgres, "clubs", "id", "name", "address", "number_of_events")) {
+                for (int i = 0; i < plan.clubs(); i++)
+                    clubs.add(firstClub + i, "Club " + (firstClub + i), "Street " + (i + 1), clubEvents[i]);
+            }
+            try (var openingHours = sink(connection, postgres, "opening_hours", "id", "_from", "_to")) {
+                int id = firstOpeningHours;
+                for (var club : hours)
+                    for (DayOfWeek day : DayOfWeek.values())
+                        openingHours.add(id++, club.open()[day.ordinal()], club.close()[day.ordinal()]);
+            }
+            try (var whenOpen = sink(connection, postgres, "when_open", "club_id", "opening_hours_id", "when_open_key")) {
+                int id = firstOpeningHours;
+                for (int i = 0; i < plan.clubs(); i++)
+                    for (DayOfWeek day : DayOfWeek.values())
+                        whenOpen.add(firstClub + i, id++, day.ordinal());
+            }
+            try (var coaches = sink(connection, postgres, "coaches", "id", "first_name", "last_name", "year_of_birth",
+                    "number_of_events")) {
+                for (int i = 0; i < coachEvents.length; i++)
+                    coaches.add(firstCoach + i, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                            LAST_NAMES[random.nextInt(LAST_NAMES.length)], 1960 + random.nextInt(40), coachEvents[i]);
+            }
+            try (var scheduleRows = sink(connection, postgres, "schedules", "id", "title", "day", "time", "duration",
+                    "capacity", "club_id", "coach_id")) {
+                for (var s : schedules)
+                    scheduleRows.add(s.id(), s.title(), s.day().name(), s.time(), s.duration().toNanos(), s.capacity(),
+                            s.clubId(), s.coachId());
+            }
+            writeFillLevels(connection, postgres, schedules, firstClub, firstEventHours, plan.clubs());
+            long events = writeEvents(connection, postgres, schedules, firstEvent, today.minusDays(plan.pastDays()),
+                    today.plusDays(plan.futureDays()), today, random);
+
+            restartIdentities(connection, postgres);
+            connection.commit();
+
+            var summary = new Summary(plan.clubs(), coachEvents.length, schedules.size(), events);
+            logger.info("Seeded {}", summary);
+            return summary;
+        }
+    }
+
+    private static ClubHours clubHours(Random random) {
+        var open = new LocalTime[DayOfWeek.values().length];
+        var close = new LocalTime[DayOfWeek.values().length];
+        int weekdayOpen = 6 + random.nextInt(3);
+        int weekdayClose = 20 + random.nextInt(3);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            boolean weekend = day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+            open[day.ordinal()] = LocalTime.of(weekend ? weekdayOpen + 2 : weekdayOpen, 0);
+            close[day.ordinal()] = LocalTime.of(weekend ? weekdayClose - 2 : weekdayClose, 0);
+        }
+        return new ClubHours(open, close);
+    }
+
+    // Every coach works in a single club and holds at most one schedule per hour, so schedules never overlap for
+    // a coach and always fit the opening hours, as if they had been added through the API.
+    private static List<GeneratedSchedule> schedules(Plan plan, List<ClubHours> hours, int firstClub, int firstCoach,
+                                                     int firstSchedule, Random random) {
+        var schedules = new ArrayList<GeneratedSchedule>();
+        var busy = new boolean[plan.coachesPerClub()][DayOfWeek.values().length * 24];
+        for (int club = 0; club < plan.clubs(); club++) {
+            for (var coachSlots : busy)
+                Arrays.fill(coachSlots, false);
+
+            for (int i = 0; i < plan.schedulesPerClub(); i++) {
+                int coach = random.nextInt(plan.coachesPerClub());
+                for (int attempt = 0; attempt < SLOT_ATTEMPTS; attempt++) {
+                    DayOfWeek day = DayOfWeek.values()[random.nextInt(DayOfWeek.values().length)];
+                    int open = hours.get(club).open()[day.ordinal()].getHour();
+                    int close = hours.get(club).close()[day.ordinal()].getHour();
+                    int hour = open + random.nextInt(close - open);
+                    int slot = day.ordinal() * 24 + hour;
+                    if (busy[coach][slot]) continue;
+
+                    busy[coach][slot] = true;
+                    schedules.add(new GeneratedSchedule(firstSchedule + schedules.size(),
+                            TITLES[random.nextInt(TITLES.length)], day, LocalTime.of(hour, 0),
+                            Duration.ofMinutes(random.nextBoolean() ? 45 : 60), 8 + random.nextInt(23),
+                            firstClub + club, firstCoach + club * plan.coachesPerClub() + coach));
+                    break;
+                }
+            }
+        }
+        return schedules;
+    }
+
+    // the hours each club's schedules span per day, which patches of opening hours must keep covering
+    private void writeFillLevels(Connection connection, boolean postgres, List<GeneratedSchedule> schedules,
+                                 int firstClub, int firstEventHours, int clubs) throws SQLException, IOException {
+        int days = DayOfWeek.values().length;
+        var from = new LocalTime[clubs * days];
+        var to = new LocalTime[clubs * days];
+        for (var s : schedules) {
+            int index = (s.clubId() - firstClub) * days + s.day().ordinal();
+            LocalTime end = s.time().plus(s.duration());
+            if (from[index] == null || s.time().isBefore(from[index])) from[index] = s.time();
+            if (to[index] == null || end.isAfter(to[index])) to[index] = end;
+        }
+
+        try (var eventHours = sink(connection, postgres, "event_hours", "id", "_from", "_to")) {
+            int id = firstEventHours;
+            for (int i = 0; i < from.length; i++)
+                if (from[i] != null) eventHours.add(id++, from[i], to[i]);
+        }
+        try (var fillLevel = sink(connection, postgres, "fill_level", "club_id", "fill_level_id", "fill_level_key")) {
+            int id = firstEventHours;
+            for (int i = 0; i < from.length; i++)
+                if (from[i] != null) fillLevel.add(firstClub + i / days, id++, i % days);
+        }
+    }
+
+    private long writeEvents(Connection connection, boolean postgres, List<GeneratedSchedule> schedules, long firstEvent,
+                             LocalDate from, LocalDate to, LocalDate today, Random random) throws SQLException, IOException {
+        long id = firstEvent;
+        try (var events = sink(connection, postgres, "event_instance", "id", "title", "date", "time", "duration",
+                "capacity", "participants", "club_id", "coach_id", "schedule_id", "original_date")) {
+            for (var s : schedules) {
+                for (LocalDate date = from.with(TemporalAdjusters.nextOrSame(s.day())); !date.isAfter(to); date = date.plusWeeks(1)) {
+                    // past occurrences filled up, upcoming ones still filling
+                    int participants = date.isBefore(today)
+                            ? random.nextInt(s.capacity() + 1)
+                            : random.nextInt(s.capacity() / 2 + 1);
+                    // title and duration are those of the schedule, which the occurrence does not store
+                    events.add(id++, null, date, s.time(), null, s.capacity(), participants,
+                            s.clubId(), s.coachId(), s.id(), date);
+                }
+            }
+        }
+        return id - firstEvent;
+    }
+
+    // rows were written with explicit ids, the generators must continue after them
+    private static void restartIdentities(Connection connection, boolean postgres) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : List.of("clubs", "coaches", "schedules", "opening_hours", "event_hours")) {
+                long next = maxId(connection, table) + 1;
+                statement.execute(postgres
+                        ? "SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), " + next + ", false)"
+                        : "ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+            }
+            // pooled optimizer hands out (value - EVENT_ID_ALLOCATION, value], as in the V2 migration
+            long next = maxId(connection, "event_instance") + EVENT_ID_ALLOCATION;
+            statement.execute(postgres
+                    ? "SELECT setval('event_instance_seq', " + next + ", false)"
+                    : "ALTER SEQUENCE event_instance_seq RESTART WITH " + next);
+        }
+    }
+
+    private static int maxId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            result.next();
+            return (int) Math.min(Integer.MAX_VALUE, result.getLong(1));
+        }
+    }
+
+    private static RowSink sink(Connection connection, boolean postgres, String table, String... columns) throws SQLException {
+        return postgres ? new CopySink(connection, table, columns) : new BatchSink(connection, table, columns);
+    }
+
+    private interface RowSink extends AutoCloseable {
+        void add(Object... values) throws SQLException, IOException;
+
+        @Override
+        void close() throws SQLException, IOException;
+    }
+
+    private static class BatchSink implements RowSink {
+        private final PreparedStatement statement;
+        private int pending;
+
+        BatchSink(Connection connection, String table, String... columns) throws SQLException {
+            String placeholders = String.join(", ", Collections.nCopies(columns.length, "?"));
+            statement = connection.prepareStatement("INSERT INTO " + table + " (" + String.join(", ", columns)
+                    + ") VALUES (" + placeholders + ")");
+        }
+
+        @Override
+        public void add(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++)
+                statement.setObject(i + 1, values[i]);
+            statement.addBatch();
+            if (++pending == FLUSH_ROWS) flush();
+        }
+
+        private void flush() throws SQLException {
+            if (pending == 0) return;
+            statement.executeBatch();
+            pending = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                statement.close();
+            }
+        }
+    }
+
+    private static class CopySink implements RowSink {
+        private final PGConnection connection;
+        private final String sql;
+        private final StringBuilder rows = new StringBuilder();
+        private int pending;
+
+        CopySink(Connection connection, String table, String... columns) throws SQLException {
+            this.connection = connection.unwrap(PGConnection.class);
+            this.sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+        }
+
+        @Override
+        public void add(Object... values) throws SQLException, IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) rows.append(',');
+                // an unquoted empty field is NULL
+                if (values[i] instanceof String text) rows.append('"').append(text.replace("\"", "\"\"")).append('"');
+                else if (values[i] != null) rows.append(values[i]);
+            }
+            rows.append('\n');
+            if (++pending == FLUSH_ROWS) flush();
+        }
+
+        private void flush() throws SQLException, IOException {
+            if (pending == 0) return;
+            connection.getCopyAPI().copyIn(sql, new StringReader(rows.toString()));
+            rows.setLength(0);
+            pending = 0;
+        }
+
+        @Override
+        public void close() throws SQLException, IOException {
+            flush();
+        }
+    }
+}
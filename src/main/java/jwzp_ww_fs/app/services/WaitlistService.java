@@ -0,0 +1,145 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import jwzp_ww_fs.app.dto.WaitlistStatus;
+import jwzp_ww_fs.app.exceptions.event.EventException;
+import jwzp_ww_fs.app.exceptions.event.FilledEventException;
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.models.SeatsReleased;
+import jwzp_ww_fs.app.models.WaitlistEntry;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import jwzp_ww_fs.app.repositories.WaitlistRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Waitlists of full events. Joining is a single insert, the waitlist is ordered by the sequence generated
+// ids. Released seats are handed to the head of the waitlist within the transaction that released them,
+// and every promotion is announced to the change stream as one batch.
+@Service
+public class WaitlistService {
+    private static final int MAX_PROMOTED = 500;
+
+    WaitlistRepository repository;
+    EventsInstancesRepository eventsRepository;
+    EventsInstancesService eventsService;
+    ParticipantsService participantsService;
+    ApplicationEventPublisher publisher;
+
+    Logger logger = LoggerFactory.getLogger(WaitlistService.class);
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public WaitlistService(
+            WaitlistRepository repository,
+            EventsInstancesRepository eventsRepository,
+            EventsInstancesService eventsService,
+            ParticipantsService participantsService,
+            ApplicationEventPublisher publisher,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.repository = repository;
+        this.eventsRepository = eventsRepository;
+        this.eventsService = eventsService;
+        this.participantsService = participantsService;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // signs the member up when a seat is free, otherwise puts them at the end of the waitlist
+    public WaitlistStatus join(long eventId, long memberId, LocalDate today) throws EventException {
+        try {
+            participantsService.signUp(eventId, memberId, Optional.empty(), today);
+            return WaitlistStatus.signedUp(eventId, memberId);
+        } catch (FilledEventException ex) {
+            // waits below
+        }
+
+        if (repository.findWaitlistEntryByEventIdAndMemberId(eventId, memberId).isEmpty()) {
+            try {
+                repository.save(new WaitlistEntry(eventId, memberId, Instant.now()));
+            } catch (DataIntegrityViolationException ex) {
+                // joined concurrently by a retried request
+            }
+        }
+
+        // a seat released between the sign-up attempt and the insert found an empty waitlist
+        transactionTemplate.executeWithoutResult(status -> promote(eventId, today));
+        return status(eventId, memberId).orElse(WaitlistStatus.signedUp(eventId, memberId));
+    }
+
+    public Optional<WaitlistStatus> status(long eventId, long memberId) {
+        var entry = repository.findWaitlistEntryByEventIdAndMemberId(eventId, memberId);
+        if (entry.isPresent())
+            return Optional.of(WaitlistStatus.waiting(eventId, memberId, repository.countAhead(eventId, entry.get().id()) + 1));
+        if (participantsService.isParticipant(eventId, memberId))
+            return Optional.of(WaitlistStatus.signedUp(eventId, memberId));
+        return Optional.empty();
+    }
+
+    public boolean leave(long eventId, long memberId) {
+        return repository.deleteEntry(eventId, memberId) > 0;
+    }
+
+    @Transactional(readOnly = true)
+    public Page<WaitlistEntry> getWaitlist(Pageable p, long eventId) {
+        return repository.findWaitlistEntryByEventIdOrderById(p, eventId);
+    }
+
+    @EventListener
+    @Transactional
+    public void onSeatsReleased(SeatsReleased released) {
+        promote(released.eventId(), LocalDate.now());
+    }
+
+    void promote(long eventId, LocalDate today) {
+        var found = eventsRepository.findById(eventId);
+        if (found.isEmpty() || found.get().date().isBefore(today)) return;
+
+        var event = found.get();
+        int free = event.capacity() - event.participants();
+        if (free <= 0) return;
+
+        var head = repository.findHead(eventId, PageRequest.of(0, Math.min(free, MAX_PROMOTED)));
+        if (head.isEmpty()) return;
+
+        List<Long> handled = new ArrayList<>();
+        List<Long> promoted = new ArrayList<>();
+        for (var entry : head) {
+            if (participantsService.isParticipant(eventId, entry.memberId())) {
+                handled.add(entry.id());
+            } else if (participantsService.admitFromWaitlist(eventId, entry.memberId())) {
+                handled.add(entry.id());
+                promoted.add(entry.memberId());
+            } else {
+                break;
+            }
+        }
+        if (!handled.isEmpty())
+            repository.deleteAllByIdInBatch(handled);
+        if (promoted.isEmpty()) return;
+
+        eventsService.publishUpdate(event, event.date(), event.time(), event.capacity());
+        publisher.publishEvent(new EntityChange(EntityChange.WAITLIST, String.valueOf(eventId),
+                ChangeRecord.Operation.PROMOTED, Map.of("eventId", eventId, "memberIds", promoted)));
+        logger.info("Promoted {} members from waitlist of event {}", promoted.size(), eventId);
+    }
+}
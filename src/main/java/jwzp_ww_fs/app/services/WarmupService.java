@@ -0,0 +1,226 @@
+package jwzp_ww_fs.app.services;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Year;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jwzp_ww_fs.app.exceptions.schedule.ScheduleException;
+import jwzp_ww_fs.app.models.Club;
+import jwzp_ww_fs.app.models.Coach;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.EventInstanceData;
+import jwzp_ww_fs.app.models.OpeningHours;
+import jwzp_ww_fs.app.models.Schedule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Warm-up of a new replica before it receives traffic. Synthetic requests run the validation, repository and
+// serialization paths of events and schedules until the JIT has compiled them and Hibernate has cached the plans
+// of their queries. Every iteration works on its own club, coach and schedule in a transaction that is rolled back,
+// so nothing is committed and listeners of committed changes never see it. The replica reports ready when done,
+// see WarmupConfiguration, and latencies of its first requests are recorded separately.
+@Service
+public class WarmupService {
+    private static final LocalTime OPENS = LocalTime.of(6, 0);
+    private static final LocalTime CLOSES = LocalTime.of(22, 0);
+
+    ClubsService clubsService;
+    CoachesService coachesService;
+    ScheduleService scheduleService;
+    EventsInstancesService eventsService;
+    ObjectMapper mapper;
+
+    Logger logger = LoggerFactory.getLogger(WarmupService.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry registry;
+    private final Timer firstRequests;
+    private final boolean enabled;
+    private final int iterations;
+    private final long maxDurationNanos;
+    private final long observedWindowNanos;
+
+    private volatile boolean warm;
+    private volatile int completedIterations;
+    // nanoTime of the moment the replica reported ready, 0 before
+    private volatile long warmAt;
+    private final AtomicBoolean firstRequestsReported = new AtomicBoolean();
+
+    @Autowired
+    public WarmupService(
+            ClubsService clubsService,
+            CoachesService coachesService,
+            ScheduleService scheduleService,
+            EventsInstancesService eventsService,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper mapper,
+            MeterRegistry registry,
+            @Value("${gym.warmup.enabled:true}") boolean enabled,
+            @Value("${gym.warmup.iterations:500}") int iterations,
+            @Value("${gym.warmup.max-duration:PT60S}") Duration maxDuration,
+            @Value("${gym.warmup.observed-window:PT1M}") Duration observedWindow
+    ) {
+        this.clubsService = clubsService;
+        this.coachesService = coachesService;
+        this.scheduleService = scheduleService;
+        this.eventsService = eventsService;
+        this.mapper = mapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.registry = registry;
+        this.enabled = enabled;
+        this.iterations = Math.max(0, iterations);
+        this.maxDurationNanos = maxDuration.toNanos();
+        this.observedWindowNanos = observedWindow.toNanos();
+
+        // a single long window, so that the percentiles still describe the first minute after it has passed
+        this.firstRequests = Timer.builder("gym.warmup.first-requests")
+                .description("requests of events and schedules within the observed window after warm-up")
+                .publishPercentiles(0.5, 0.99)
+                .distributionStatisticExpiry(Duration.ofHours(1))
+                .distributionStatisticBufferLength(1)
+                .register(registry);
+    }
+
+    // on its own thread, so that the liveness probe is answered while the replica warms up
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled) {
+            markWarm();
+            return;
+        }
+        var thread = new Thread(this::warmUp, "warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void warmUp() {
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        int done = 0;
+        try {
+            // the opening hours of all clubs and the coaches, as the first listings would load them
+            mapper.writeValueAsBytes(clubsService.getAllClubs());
+            mapper.writeValueAsBytes(coachesService.getAllCoaches());
+
+            while (done < iterations && System.nanoTime() - start < maxDurationNanos) {
+                iteration(today, done);
+                done++;
+            }
+            completedIterations = done;
+        } catch (RuntimeException | JsonProcessingException ex) {
+            // a replica that cannot warm up is still better than none, it serves cold
+            completedIterations = done;
+            logger.warn("Warm-up stopped after {} iterations", done, ex);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("gym.warmup.duration")
+                .description("time the replica spent warming up before reporting ready")
+                .register(registry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        logger.info("Warmed up in {} ms, {} iterations", TimeUnit.NANOSECONDS.toMillis(elapsed), done);
+        markWarm();
+    }
+
+    void iteration(LocalDate today, int iteration) {
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            try {
+                exercise(today, iteration);
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+    }
+
+    private void exercise(LocalDate today, int iteration) throws JsonProcessingException {
+        Club club = clubsService.addClub(new Club("Warm-up " + iteration, "Warm-up", openAllWeek()));
+        Coach coach = coachesService.addCoach(new Coach("Warm", "Up", Year.of(1990)));
+
+        LocalDate date = today.plusWeeks(1);
+        Schedule schedule = scheduleService.addSchedule(new Schedule("Warm-up", date.getDayOfWeek(), LocalTime.of(10, 0),
+                Duration.ofHours(1), 10, club.id(), coach.id()));
+        mapper.writeValueAsBytes(scheduleService.updateSchedule(schedule.id(), new Schedule("Warm-up",
+                date.getDayOfWeek(), LocalTime.of(10, 0), Duration.ofHours(1), 12, club.id(), coach.id())));
+
+        // the occurrence the schedule materialized, or materializes now with lazy materialization
+        EventInstance event = eventsService.updateOccurrence(schedule.id(), date,
+                new EventInstanceData(12, date, LocalTime.of(11, 0)));
+        mapper.writeValueAsBytes(event);
+        mapper.writeValueAsBytes(eventsService.signUpForEvent(event.id(), today));
+
+        mapper.writeValueAsBytes(eventsService.getAvailableEvents(today, date, Optional.of(club.id()), Optional.empty(),
+                1, Optional.empty(), 20));
+        mapper.writeValueAsBytes(eventsService.getEventsByParams(PageRequest.of(0, 20), Optional.of(date),
+                Optional.of(club.id())));
+        mapper.writeValueAsBytes(scheduleService.getPage(PageRequest.of(0, 20), Optional.of(club.id()), Optional.empty()));
+
+        // last, a rejection marks the transaction rollback-only
+        try {
+            scheduleService.addSchedule(new Schedule("Warm-up", date.getDayOfWeek(), LocalTime.of(10, 0),
+                    Duration.ofDays(2), 10, club.id(), coach.id()));
+        } catch (ScheduleException ex) {
+            mapper.writeValueAsBytes(ex.getErrorInfo());
+        }
+    }
+
+    private static Map<DayOfWeek, OpeningHours> openAllWeek() {
+        var whenOpen = new EnumMap<DayOfWeek, OpeningHours>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values())
+            whenOpen.put(day, new OpeningHours(OPENS, CLOSES));
+        return whenOpen;
+    }
+
+    private void markWarm() {
+        warmAt = System.nanoTime();
+        warm = true;
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    // requests completed after the observed window are not recorded, the first of them reports the window
+    public void recordRequest(long latencyNanos) {
+        if (!warm) return;
+        if (System.nanoTime() - warmAt < observedWindowNanos) {
+            firstRequests.record(latencyNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        if (firstRequestsReported.compareAndSet(false, true)) {
+            double p99 = 0;
+            for (ValueAtPercentile percentile : firstRequests.takeSnapshot().percentileValues())
+                if (percentile.percentile() == 0.99) p99 = percentile.value(TimeUnit.MILLISECONDS);
+            logger.info("First requests after warm-up: {}, p99 {} ms", firstRequests.count(), p99);
+        }
+    }
+
+    // iterations of the last warm-up that ran to their end
+    public int completedIterations() {
+        return completedIterations;
+    }
+
+    public long firstRequests() {
+        return firstRequests.count();
+    }
+}
@@ -0,0 +1,34 @@
+package jwzp_ww_fs.app.util;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class DataSourcePoolConfiguration {
+    private static final String POOL_SIZE_PROPERTY = "spring.datasource.hikari.maximum-pool-size";
+
+    // static, so that the post processor does not pull this configuration in early
+    @Bean
+    public static BeanPostProcessor hikariPoolSizePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource && !environment.containsProperty(POOL_SIZE_PROPERTY)) {
+                    dataSource.setMaximumPoolSize(poolSizeForCores(Runtime.getRuntime().availableProcessors()));
+                    LoggerFactory.getLogger(DataSourcePoolConfiguration.class)
+                            .info("Derived maximum pool size {} from core count", dataSource.getMaximumPoolSize());
+                }
+                return bean;
+            }
+        };
+    }
+
+    // ((core_count * 2) + effective_spindle_count), with a single spindle for a remote database
+    public static int poolSizeForCores(int cores) {
+        return cores * 2 + 1;
+    }
+}
@@ -0,0 +1,67 @@
+package jwzp_ww_fs.app.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Lookups by id memoized for the current transaction, so that the services one request passes through read
+// each club, coach or schedule once, misses included. Entities of a transaction belong to its persistence
+// context, so the memo is bound the same way: suspended with its transaction, dropped when it completes.
+// Outside of transactions every lookup goes to the finder.
+public final class EntityLoader {
+    private record Key(Class<?> type, Object id) {}
+
+    private static final class Scope implements TransactionSynchronization {
+        private final Map<Key, Optional<?>> loaded = new HashMap<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(EntityLoader.class);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(EntityLoader.class, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(EntityLoader.class);
+        }
+    }
+
+    private EntityLoader() {}
+
+    public static <T, ID> T load(Class<T> type, ID id, Function<ID, Optional<T>> finder) {
+        var scope = scope();
+        if (scope == null) return finder.apply(id).orElse(null);
+
+        var key = new Key(type, id);
+        var found = scope.loaded.get(key);
+        if (found == null) {
+            found = finder.apply(id);
+            scope.loaded.put(key, found);
+        }
+        return type.cast(found.orElse(null));
+    }
+
+    // after deletes, the persistence context no longer returns the entity either
+    public static void evict(Class<?> type, Object id) {
+        var scope = (Scope) TransactionSynchronizationManager.getResource(EntityLoader.class);
+        if (scope != null) scope.loaded.remove(new Key(type, id));
+    }
+
+    private static Scope scope() {
+        var scope = (Scope) TransactionSynchronizationManager.getResource(EntityLoader.class);
+        if (scope != null || !TransactionSynchronizationManager.isSynchronizationActive()) return scope;
+
+        scope = new Scope();
+        TransactionSynchronizationManager.bindResource(EntityLoader.class, scope);
+        TransactionSynchronizationManager.registerSynchronization(scope);
+        return scope;
+    }
+}
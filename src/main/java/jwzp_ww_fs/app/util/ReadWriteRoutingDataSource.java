@@ -0,0 +1,44 @@
+package jwzp_ww_fs.app.util;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import jwzp_ww_fs.app.services.ReplicaRoutingService;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Routes connections of read-only transactions to the replica and everything else to the primary. It must be
+// wrapped in a LazyConnectionDataSourceProxy: the transaction is marked read-only after its connection is requested,
+// the proxy defers the request to the first statement.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Route { PRIMARY, REPLICA }
+
+    // requests that mutate, or read right after the client did, read from the primary as well
+    private static final ThreadLocal<Boolean> pinnedToPrimary = new ThreadLocal<>();
+
+    private final ReplicaRoutingService routingService;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaRoutingService routingService) {
+        this.routingService = routingService;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    public static void pinToPrimary() {
+        pinnedToPrimary.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        pinnedToPrimary.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean replica = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && pinnedToPrimary.get() == null
+                && routingService.replicaUsable();
+        return replica ? Route.REPLICA : Route.PRIMARY;
+    }
+}
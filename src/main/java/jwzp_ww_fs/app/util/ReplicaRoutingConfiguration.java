@@ -0,0 +1,108 @@
+package jwzp_ww_fs.app.util;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jwzp_ww_fs.app.services.ClientKeyService;
+import jwzp_ww_fs.app.services.ReplicaRoutingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Read-only transactions on a read replica, e.g. --gym.datasource.replica.enabled=true
+// --gym.datasource.replica.url=jdbc:postgresql://replica/gym. Both pools take the spring.datasource.hikari
+// settings; Flyway, jobs and every read-write transaction use the primary. See ReplicaRoutingService for
+// when the replica is skipped. With open-in-view a request keeps the connection of its first transaction, so the
+// replica is meant for spring.jpa.open-in-view=false, as on heroku.
+@Configuration
+@ConditionalOnProperty(name = "gym.datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfiguration {
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        var primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource replicaDataSource(
+            @Value("${gym.datasource.replica.url}") String url,
+            @Value("${gym.datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${gym.datasource.replica.password:${spring.datasource.password:}}") String password
+    ) {
+        var replica = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url).username(username).password(password).build();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica,
+            ReplicaRoutingService routingService
+    ) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica, routingService));
+    }
+
+    // mutations read from the primary, and so does their client for a while after them
+    @Configuration
+    static class ReadYourWritesConfiguration implements WebMvcConfigurer {
+        private final ReplicaRoutingService routingService;
+        private final ClientKeyService clientKeyService;
+
+        @Autowired
+        ReadYourWritesConfiguration(ReplicaRoutingService routingService, ClientKeyService clientKeyService) {
+            this.routingService = routingService;
+            this.clientKeyService = clientKeyService;
+        }
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            registry.addInterceptor(new AsyncHandlerInterceptor() {
+                @Override
+                public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                    if (isMutation(request) || routingService.readsFromPrimary(clientKeyService.clientKey(request)))
+                        ReadWriteRoutingDataSource.pinToPrimary();
+                    return true;
+                }
+
+                // the request continues on another thread, this one goes back to the pool
+                @Override
+                public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                    ReadWriteRoutingDataSource.unpin();
+                }
+
+                @Override
+                public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+                    ReadWriteRoutingDataSource.unpin();
+                    if (isMutation(request) && response.getStatus() < 400)
+                        routingService.wrote(clientKeyService.clientKey(request));
+                }
+            }).addPathPatterns("/api/**");
+        }
+
+        private static boolean isMutation(HttpServletRequest request) {
+            var method = request.getMethod();
+            return !(HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method));
+        }
+    }
+}
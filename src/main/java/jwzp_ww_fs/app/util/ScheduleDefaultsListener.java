@@ -0,0 +1,40 @@
+package jwzp_ww_fs.app.util;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PrePersist;
+
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.services.ScheduleDefaultsCache;
+import jwzp_ww_fs.app.services.ShardingService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Resolves the title and duration occurrences take from their schedules as they are loaded, and stores them with
+// occurrences written to shards without the schedules. Created by Hibernate through the bean factory; the services
+// are looked up on use, they depend on the DataSource the EntityManagerFactory is still being built from, and are
+// missing in slices of the context without services.
+@Component
+public class ScheduleDefaultsListener {
+    private final ObjectProvider<ScheduleDefaultsCache> defaults;
+    private final ObjectProvider<ShardingService> sharding;
+
+    @Autowired
+    public ScheduleDefaultsListener(ObjectProvider<ScheduleDefaultsCache> defaults, ObjectProvider<ShardingService> sharding) {
+        this.defaults = defaults;
+        this.sharding = sharding;
+    }
+
+    @PrePersist
+    public void store(EventInstance event) {
+        var shards = sharding.getIfAvailable();
+        if (shards != null && !shards.isHome()) event.storeDefaults();
+    }
+
+    @PostLoad
+    public void resolve(EventInstance event) {
+        if (!event.needsDefaults()) return;
+        var cache = defaults.getIfAvailable();
+        if (cache != null) cache.resolve(event);
+    }
+}
@@ -0,0 +1,36 @@
+package jwzp_ww_fs.app.util;
+
+import java.time.LocalDate;
+
+import jwzp_ww_fs.app.services.SyntheticNetworkSeeder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Seeds a synthetic network on startup, e.g. --gym.seed.enabled=true --gym.seed.clubs=5000
+@Configuration
+@ConditionalOnProperty(name = "gym.seed.enabled", havingValue = "true")
+public class SeedConfiguration {
+    @Bean
+    public ApplicationRunner seedRunner(
+            SyntheticNetworkSeeder seeder,
+            ConfigurableApplicationContext context,
+            @Value("${gym.seed.clubs:1000}") int clubs,
+            @Value("${gym.seed.coaches-per-club:10}") int coachesPerClub,
+            @Value("${gym.seed.schedules-per-club:40}") int schedulesPerClub,
+            @Value("${gym.seed.past-days:28}") int pastDays,
+            @Value("${gym.seed.future-days:30}") int futureDays,
+            @Value("${gym.seed.random-seed:42}") long seed,
+            @Value("${gym.seed.exit:true}") boolean exit
+    ) {
+        return args -> {
+            seeder.seed(new SyntheticNetworkSeeder.Plan(clubs, coachesPerClub, schedulesPerClub, pastDays, futureDays, seed),
+                    LocalDate.now());
+            if (exit) System.exit(SpringApplication.exit(context));
+        };
+    }
+}
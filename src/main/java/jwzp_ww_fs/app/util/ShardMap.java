@@ -0,0 +1,82 @@
+package jwzp_ww_fs.app.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import jwzp_ww_fs.app.models.ClubRange;
+
+// Club ID ranges of the shards, e.g. gym.shards.ranges=home:1-999,east:1000-. The first shard is the home shard,
+// the database of spring.datasource: besides the events of its own clubs it keeps clubs, coaches, schedules, jobs
+// and the change stream. Clubs outside every range belong to the home shard as well.
+public final class ShardMap {
+    public static final String HOME = "home";
+    // event IDs of the n-th shard start at n times the offset, see ShardingConfiguration
+    public static final long EVENT_ID_OFFSET = 1L << 40;
+
+    private record Entry(String shard, ClubRange range) {}
+
+    private final List<String> shards;
+    private final List<Entry> entries;
+
+    private ShardMap(List<String> shards, List<Entry> entries) {
+        this.shards = List.copyOf(shards);
+        this.entries = List.copyOf(entries);
+    }
+
+    public static ShardMap single() {
+        return new ShardMap(List.of(HOME), List.of());
+    }
+
+    // comma separated name:from-to, the last ID may be left out for an open range
+    public static ShardMap parse(String ranges) {
+        var shards = new LinkedHashSet<String>();
+        var entries = new ArrayList<Entry>();
+        for (String part : ranges.split(",")) {
+            String[] named = part.trim().split(":");
+            String[] bounds = named.length == 2 ? named[1].split("-", -1) : new String[0];
+            if (bounds.length != 2 || named[0].isBlank())
+                throw new IllegalArgumentException("Shard range '" + part.trim() + "' is not name:from-to");
+
+            int from = Integer.parseInt(bounds[0].trim());
+            int to = bounds[1].isBlank() ? Integer.MAX_VALUE : Integer.parseInt(bounds[1].trim());
+            var range = new ClubRange(from, to);
+            if (to < from)
+                throw new IllegalArgumentException("Shard range " + range + " is empty");
+            for (var entry : entries) {
+                if (entry.range().contains(from) || range.contains(entry.range().fromId()))
+                    throw new IllegalArgumentException("Shard ranges " + entry.range() + " and " + range + " overlap");
+            }
+
+            shards.add(named[0].trim());
+            entries.add(new Entry(named[0].trim(), range));
+        }
+        return new ShardMap(new ArrayList<>(shards), entries);
+    }
+
+    public String home() {
+        return shards.get(0);
+    }
+
+    // home shard first
+    public List<String> shards() {
+        return shards;
+    }
+
+    public boolean isSingle() {
+        return shards.size() == 1;
+    }
+
+    public String shardOf(int clubId) {
+        for (var entry : entries) {
+            if (entry.range().contains(clubId)) return entry.shard();
+        }
+        return home();
+    }
+
+    // IDs below the offset, and those of shards no longer configured, are the home shard's
+    public String shardOfEvent(long eventId) {
+        long index = eventId / EVENT_ID_OFFSET;
+        return index > 0 && index < shards.size() ? shards.get((int) index) : home();
+    }
+}
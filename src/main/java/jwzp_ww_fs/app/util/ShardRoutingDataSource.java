@@ -0,0 +1,58 @@
+package jwzp_ww_fs.app.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+// Routes connections to the shard the thread is bound to, the home shard when it is not bound. Like the replica
+// routing it is wrapped in a LazyConnectionDataSourceProxy, and a transaction keeps the shard of its first
+// statement: a thread is bound before its transaction starts, see ShardingService for work on other shards.
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    private static final ThreadLocal<String> bound = new ThreadLocal<>();
+
+    private final ShardMap shardMap;
+    private final Map<String, DataSource> shards;
+
+    public ShardRoutingDataSource(ShardMap shardMap, Map<String, DataSource> shards) {
+        this.shardMap = shardMap;
+        this.shards = Map.copyOf(shards);
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(shardMap.home()));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    // null when the thread is not bound
+    public static String bound() {
+        return bound.get();
+    }
+
+    // returns the previous binding, for restoring it
+    public static String bind(String shard) {
+        String previous = bound.get();
+        if (shard == null) bound.remove();
+        else bound.set(shard);
+        return previous;
+    }
+
+    public static void unbind() {
+        bound.remove();
+    }
+
+    public ShardMap shardMap() {
+        return shardMap;
+    }
+
+    // pool of the shard itself, past the routing
+    public DataSource shard(String name) {
+        return shards.get(name);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return bound.get();
+    }
+}
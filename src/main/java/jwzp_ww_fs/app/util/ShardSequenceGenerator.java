@@ -0,0 +1,80 @@
+package jwzp_ww_fs.app.util;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+// Pooled sequence IDs, as the pooled optimizer hands them out, but with a block per shard: the shards share the
+// session factory, and one shared block would hand IDs of one shard's sequence to inserts on every shard. Each
+// block is filled from the sequence of the shard the thread is bound to, read over the session's connection,
+// so that an event's ID tells its shard, see ShardMap.shardOfEvent.
+public class ShardSequenceGenerator implements IdentifierGenerator, Configurable {
+    public static final String SEQUENCE = "sequence";
+    public static final String ALLOCATION_SIZE = "allocation_size";
+
+    private static class Block {
+        long next = 1;
+        long last = 0;
+    }
+
+    private String sequence;
+    private int allocationSize;
+
+    // by bound shard, unbound threads write to the home shard
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        sequence = params.getProperty(SEQUENCE);
+        if (sequence == null)
+            throw new MappingException("ShardSequenceGenerator needs the " + SEQUENCE + " parameter");
+        allocationSize = Integer.parseInt(params.getProperty(ALLOCATION_SIZE, "50"));
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        String shard = ShardRoutingDataSource.bound();
+        Block block = blocks.computeIfAbsent(shard == null ? "" : shard, key -> new Block());
+        synchronized (block) {
+            if (block.next > block.last) {
+                // a value of the sequence stands for (value - allocationSize, value], as in the V2 migration
+                long value = nextValue(session);
+                block.next = value - allocationSize + 1;
+                block.last = value;
+            }
+            return block.next++;
+        }
+    }
+
+    private long nextValue(SharedSessionContractImplementor session) {
+        String sql = session.getJdbcServices().getDialect().getSequenceNextValString(sequence);
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(sql);
+        try {
+            ResultSet result = jdbc.getResultSetReturn().extract(statement);
+            try {
+                result.next();
+                return result.getLong(1);
+            } finally {
+                jdbc.getLogicalConnection().getResourceRegistry().release(result, statement);
+            }
+        } catch (SQLException ex) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(ex, "Could not read sequence " + sequence, sql);
+        } finally {
+            jdbc.getLogicalConnection().getResourceRegistry().release(statement);
+            jdbc.afterStatementExecution();
+        }
+    }
+}
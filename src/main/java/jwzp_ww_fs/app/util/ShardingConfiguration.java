@@ -0,0 +1,186 @@
+package jwzp_ww_fs.app.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.services.ScheduleService;
+import jwzp_ww_fs.app.services.ShardingService;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Events of clubs in several databases, e.g. --gym.shards.enabled=true --gym.shards.ranges=home:1-999,east:1000-
+// --gym.shards.east.url=jdbc:postgresql://east/gym. The home shard is spring.datasource, the others take its
+// credentials unless gym.shards.<name>.username/password are set, and every pool the spring.datasource.hikari
+// settings. Every shard gets the full schema from the migrations and a range of event IDs of its own, so that IDs
+// stay unique across shards. As with the replica, a request must not keep the connection of its first
+// transaction, so sharding requires spring.jpa.open-in-view=false, and the two do not combine.
+@Configuration
+@ConditionalOnProperty(name = "gym.shards.enabled", havingValue = "true")
+public class ShardingConfiguration {
+    Logger logger = LoggerFactory.getLogger(ShardingConfiguration.class);
+
+    public ShardingConfiguration(
+            @Value("${spring.jpa.open-in-view:true}") boolean openInView,
+            @Value("${gym.datasource.replica.enabled:false}") boolean replicaEnabled
+    ) {
+        if (openInView)
+            throw new IllegalStateException("gym.shards.enabled requires spring.jpa.open-in-view=false");
+        if (replicaEnabled)
+            throw new IllegalStateException("gym.shards.enabled and gym.datasource.replica.enabled do not combine");
+    }
+
+    @Bean
+    public ShardMap shardMap(@Value("${gym.shards.ranges}") String ranges) {
+        return ShardMap.parse(ranges);
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource homeDataSource(DataSourceProperties properties) {
+        var home = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        home.setPoolName("shard-home");
+        return home;
+    }
+
+    // the home shard is migrated by Flyway of the application, the others here, before anything reads them
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            ShardMap shardMap,
+            @Qualifier("homeDataSource") HikariDataSource home,
+            Environment environment,
+            @Value("${spring.flyway.locations:classpath:db/migration}") String[] locations
+    ) {
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        shards.put(shardMap.home(), home);
+        for (int i = 1; i < shardMap.shards().size(); i++) {
+            String name = shardMap.shards().get(i);
+            var shard = shardDataSource(name, environment, home);
+            // migrations that only apply to the home shard, which holds clubs, coaches and schedules, check the placeholder
+            Flyway.configure().dataSource(shard).locations(locations).placeholders(Map.of("shard", name)).load().migrate();
+            reserveEventIds(shard, i * ShardMap.EVENT_ID_OFFSET);
+            shards.put(name, shard);
+            logger.info("Shard {} at {}", name, shard.getJdbcUrl());
+        }
+        return new ShardRoutingDataSource(shardMap, shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    private static HikariDataSource shardDataSource(String name, Environment environment, HikariDataSource home) {
+        String prefix = "gym.shards." + name + ".";
+        var shard = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(environment.getRequiredProperty(prefix + "url"))
+                .username(environment.getProperty(prefix + "username", home.getUsername()))
+                .password(environment.getProperty(prefix + "password", home.getPassword()))
+                .build();
+        // the size derived for the home pool, unless one is configured
+        shard.setMaximumPoolSize(home.getMaximumPoolSize());
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(shard));
+        shard.setPoolName("shard-" + name);
+        return shard;
+    }
+
+    // every shard hands out IDs from its own sequence, see ShardSequenceGenerator, which starts at the range of the
+    // shard. Restarted only while the shard holds no IDs of its range yet.
+    private static void reserveEventIds(DataSource shard, long firstId) {
+        var jdbc = new JdbcTemplate(shard);
+        Long maxId = jdbc.queryForObject("SELECT MAX(id) FROM event_instance", Long.class);
+        if (maxId != null && maxId >= firstId) return;
+        // pooled optimizer hands out (value - 50, value], as in the V2 migration
+        String postgres = jdbc.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        jdbc.execute("PostgreSQL".equals(postgres)
+                ? "SELECT setval('event_instance_seq', " + (firstId + 50) + ", false)"
+                : "ALTER SEQUENCE event_instance_seq RESTART WITH " + (firstId + 50));
+    }
+
+    // binds requests for one event, club or schedule occurrence to its shard, the others gather every shard
+    @Configuration
+    static class ShardBindingConfiguration implements WebMvcConfigurer {
+        private final ShardingService sharding;
+        private final ScheduleService scheduleService;
+
+        @Autowired
+        ShardBindingConfiguration(ShardingService sharding, ScheduleService scheduleService) {
+            this.sharding = sharding;
+            this.scheduleService = scheduleService;
+        }
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            registry.addInterceptor(new AsyncHandlerInterceptor() {
+                @Override
+                public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                    String shard = shardOf(request);
+                    if (shard != null) ShardRoutingDataSource.bind(shard);
+                    return true;
+                }
+
+                // the request continues on another thread, this one goes back to the pool
+                @Override
+                public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                    ShardRoutingDataSource.unbind();
+                }
+
+                @Override
+                public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+                    ShardRoutingDataSource.unbind();
+                }
+            }).addPathPatterns("/api/v1/events/**", "/api/events/**");
+        }
+
+        @SuppressWarnings("unchecked")
+        private String shardOf(HttpServletRequest request) {
+            var variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+            try {
+                if (variables != null) {
+                    String eventId = variables.getOrDefault("eventId", variables.get("id"));
+                    if (eventId != null)
+                        return sharding.shardOfEvent(Long.parseLong(eventId));
+
+                    String scheduleId = variables.get("scheduleId");
+                    if (scheduleId != null) {
+                        Schedule schedule = scheduleService.getSchedule(Integer.parseInt(scheduleId));
+                        return schedule == null ? null : sharding.shardOfClub(schedule.clubId());
+                    }
+                }
+
+                String clubId = request.getParameter("clubId");
+                return clubId == null ? null : sharding.shardOfClub(Integer.parseInt(clubId));
+            } catch (NumberFormatException ex) {
+                // rejected by the handler
+                return null;
+            }
+        }
+    }
+}
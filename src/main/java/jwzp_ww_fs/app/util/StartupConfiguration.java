@@ -0,0 +1,42 @@
+package jwzp_ww_fs.app.util;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfiguration {
+    private static final String TOOLING_PACKAGE = "org.springdoc.";
+
+    // API docs are built on their first request instead of on every boot of a replica. Lazy handlers are still
+    // mapped, the mapping only needs their type.
+    @Bean
+    @ConditionalOnProperty(name = "gym.startup.lazy-tooling", havingValue = "true")
+    public static BeanFactoryPostProcessor lazyToolingPostProcessor() {
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                var definition = beanFactory.getBeanDefinition(name);
+                // beans of @Bean methods have no class of their own, they belong to their configuration
+                String type = definition.getBeanClassName();
+                if (type == null && definition.getFactoryBeanName() != null)
+                    type = beanFactory.getBeanDefinition(definition.getFactoryBeanName()).getBeanClassName();
+                if (type != null && type.startsWith(TOOLING_PACKAGE)) definition.setLazyInit(true);
+            }
+        };
+    }
+
+    // training runs of the class data sharing archive and the startup benchmark stop once the application is ready
+    @Bean
+    @ConditionalOnProperty(name = "gym.startup.exit-when-ready", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitWhenReady() {
+        return event -> {
+            LoggerFactory.getLogger(StartupConfiguration.class).info("Ready, exiting");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package jwzp_ww_fs.app.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jwzp_ww_fs.app.services.ClientKeyService;
+import jwzp_ww_fs.app.services.LoadSheddingService;
+import jwzp_ww_fs.app.services.RateLimitService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnProperty(name = "gym.limits.enabled", havingValue = "true", matchIfMissing = true)
+public class ThrottlingConfiguration implements WebMvcConfigurer {
+    private final ThrottlingInterceptor interceptor;
+
+    @Autowired
+    public ThrottlingConfiguration(RateLimitService rateLimitService, ClientKeyService clientKeyService,
+                                   LoadSheddingService loadSheddingService, ObjectMapper mapper) {
+        this.interceptor = new ThrottlingInterceptor(rateLimitService, clientKeyService, loadSheddingService, mapper);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(interceptor).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,99 @@
+package jwzp_ww_fs.app.util;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jwzp_ww_fs.app.models.ExceptionInfo;
+import jwzp_ww_fs.app.services.ClientKeyService;
+import jwzp_ww_fs.app.services.LoadSheddingService;
+import jwzp_ww_fs.app.services.RateLimitService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+// Rate limits and sheds mutations before they reach a controller. Reads are not limited, they are cheap
+// and the SSE streams among them hold their connection for minutes. Clients are told apart by the
+// ClientKeyService.
+public class ThrottlingInterceptor implements AsyncHandlerInterceptor {
+    private static final String STARTED_AT = ThrottlingInterceptor.class.getName() + ".startedAt";
+
+    private final RateLimitService rateLimitService;
+    private final ClientKeyService clientKeyService;
+    private final LoadSheddingService loadSheddingService;
+    private final ObjectMapper mapper;
+
+    Logger logger = LoggerFactory.getLogger(ThrottlingInterceptor.class);
+
+    public ThrottlingInterceptor(RateLimitService rateLimitService, ClientKeyService clientKeyService,
+                                 LoadSheddingService loadSheddingService, ObjectMapper mapper) {
+        this.rateLimitService = rateLimitService;
+        this.clientKeyService = clientKeyService;
+        this.loadSheddingService = loadSheddingService;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        // asynchronous handlers are dispatched a second time, they were admitted by the first dispatch
+        if (request.getAttribute(STARTED_AT) != null || isRead(request)) return true;
+
+        String endpoint = request.getMethod() + " " + endpointPattern(request);
+        String client = clientKeyService.clientKey(request);
+        var wait = rateLimitService.tryAcquire(client, endpoint, isBulk(request));
+        if (!wait.isZero()) {
+            logger.info("Throttled {} from client {}", endpoint, client);
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, Math.max(1, (wait.toMillis() + 999) / 1000),
+                    new ExceptionInfo("901", "Too many requests, retry later."));
+            return false;
+        }
+
+        if (!loadSheddingService.tryEnter()) {
+            logger.warn("Shed {} at concurrency limit {}", endpoint, loadSheddingService.limit());
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1,
+                    new ExceptionInfo("902", "Service is overloaded, retry later."));
+            return false;
+        }
+        request.setAttribute(STARTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.isAsyncStarted()) return;
+
+        var startedAt = (Long) request.getAttribute(STARTED_AT);
+        if (startedAt == null) return;
+        request.removeAttribute(STARTED_AT);
+        loadSheddingService.exit(System.nanoTime() - startedAt);
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        var method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    // the mapped pattern, so that all events share one endpoint instead of one per id
+    private static String endpointPattern(HttpServletRequest request) {
+        var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? request.getRequestURI() : pattern.toString();
+    }
+
+    // deletes of whole collections, the only deletes not ending with an id
+    static boolean isBulk(HttpServletRequest request) {
+        return HttpMethod.DELETE.matches(request.getMethod()) && !endpointPattern(request).endsWith("}");
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, ExceptionInfo info) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        mapper.writeValue(response.getOutputStream(), info);
+    }
+}
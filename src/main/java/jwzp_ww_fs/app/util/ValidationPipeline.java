@@ -0,0 +1,63 @@
+package jwzp_ww_fs.app.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import jwzp_ww_fs.app.exceptions.GymException;
+
+// Rules checked against one shared context, cheapest first. All rules of the same cost run, so that the result
+// lists every violation found at that cost, but once a cost tier has violations the more expensive tiers are
+// skipped: a request rejected by an in-memory rule never reaches the database. Contexts load what the rules
+// need lazily and keep it, so rules reading the same club or coach share one lookup.
+public class ValidationPipeline<C> {
+    public enum Cost {
+        // fields of the request and already loaded entities
+        MEMORY,
+        // lookups of single rows by id
+        LOOKUP,
+        // queries of many rows and checks over them
+        SCAN
+    }
+
+    private record Rule<C>(Cost cost, Predicate<C> valid, Supplier<? extends GymException> violation) {}
+
+    private final List<Rule<C>> rules;
+
+    private ValidationPipeline(List<Rule<C>> rules) {
+        // the sort is stable, rules of the same cost keep the order they were added in
+        this.rules = rules.stream().sorted(Comparator.comparing(Rule::cost)).toList();
+    }
+
+    public static <C> Builder<C> builder() {
+        return new Builder<>();
+    }
+
+    public ValidationResult validate(C context) {
+        List<GymException> violations = new ArrayList<>(0);
+        Cost failedAt = null;
+        for (var rule : rules) {
+            if (failedAt != null && rule.cost() != failedAt) break;
+            if (!rule.valid().test(context)) {
+                violations.add(rule.violation().get());
+                failedAt = rule.cost();
+            }
+        }
+        return new ValidationResult(violations);
+    }
+
+    public static class Builder<C> {
+        private final List<Rule<C>> rules = new ArrayList<>();
+
+        public Builder<C> rule(Cost cost, Predicate<C> valid, Supplier<? extends GymException> violation) {
+            rules.add(new Rule<>(cost, valid, violation));
+            return this;
+        }
+
+        public ValidationPipeline<C> build() {
+            return new ValidationPipeline<>(rules);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package jwzp_ww_fs.app.util;
+
+import java.util.List;
+
+import jwzp_ww_fs.app.exceptions.GymException;
+
+public record ValidationResult(List<GymException> violations) {
+    public boolean isValid() {
+        return violations.isEmpty();
+    }
+
+    // the first violation of the cheapest failing rules, in the order the rules were added
+    public void throwIfInvalid() {
+        if (!violations.isEmpty()) throw violations.get(0);
+    }
+}
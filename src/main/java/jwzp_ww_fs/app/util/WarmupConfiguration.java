@@ -0,0 +1,55 @@
+package jwzp_ww_fs.app.util;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import jwzp_ww_fs.app.services.WarmupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// The warmup health indicator is part of the readiness group (management.endpoint.health.group.readiness),
+// so /actuator/health/readiness answers 503 until the warm-up is done. Requests of events and schedules
+// are timed for the first minute after it.
+@Configuration
+public class WarmupConfiguration implements WebMvcConfigurer {
+    private static final String STARTED_AT = WarmupConfiguration.class.getName() + ".startedAt";
+
+    private final WarmupService warmupService;
+
+    @Autowired
+    public WarmupConfiguration(WarmupService warmupService) {
+        this.warmupService = warmupService;
+    }
+
+    @Bean
+    public HealthIndicator warmupHealthIndicator() {
+        return () -> warmupService.isWarm() ? Health.up().build() : Health.outOfService().build();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncHandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                // asynchronous handlers are dispatched a second time, the first dispatch started the clock
+                if (request.getAttribute(STARTED_AT) == null) request.setAttribute(STARTED_AT, System.nanoTime());
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+                if (request.isAsyncStarted()) return;
+                var startedAt = (Long) request.getAttribute(STARTED_AT);
+                if (startedAt != null) warmupService.recordRequest(System.nanoTime() - startedAt);
+            }
+        }).addPathPatterns("/api/v1/events/**", "/api/v1/schedule/**")
+                // the seat streams stay open for minutes
+                .excludePathPatterns("/api/v1/events/*/seats/stream", "/api/v1/events/seats/stream");
+    }
+}
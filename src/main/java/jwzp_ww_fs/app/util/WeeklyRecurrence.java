@@ -0,0 +1,34 @@
+package jwzp_ww_fs.app.util;
+
+import jwzp_ww_fs.app.models.Schedule;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+// schedules bucketed by day of week once, so that expanding a date range costs O(days + occurrences)
+public class WeeklyRecurrence {
+    private final Map<DayOfWeek, List<Schedule>> schedulesByDay = new EnumMap<>(DayOfWeek.class);
+
+    public WeeklyRecurrence(List<Schedule> schedules) {
+        for (DayOfWeek day : DayOfWeek.values())
+            schedulesByDay.put(day, new ArrayList<>());
+        for (Schedule schedule : schedules)
+            schedulesByDay.get(schedule.day()).add(schedule);
+    }
+
+    public List<Schedule> on(DayOfWeek day) {
+        return schedulesByDay.get(day);
+    }
+
+    public void forEachOccurrence(LocalDate from, LocalDate to, BiConsumer<Schedule, LocalDate> consumer) {
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            for (Schedule schedule : schedulesByDay.get(date.getDayOfWeek()))
+                consumer.accept(schedule, date);
+        }
+    }
+}
@@ -0,0 +1,2 @@
+-- ids order the waitlist, so every insert takes the next one instead of nodes taking blocks of 50
+ALTER SEQUENCE event_waitlist_seq INCREMENT BY 1;
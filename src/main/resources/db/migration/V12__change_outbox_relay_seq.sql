@@ -0,0 +1,14 @@
+-- identity values are taken before commit, so rows become visible out of their order; the relay numbers them
+-- again as they become visible, one sequencer at a time, and consumers follow that number
+ALTER TABLE change_outbox ADD COLUMN relay_seq BIGINT;
+UPDATE change_outbox SET relay_seq = seq;
+CREATE UNIQUE INDEX ux_change_outbox_relay_seq ON change_outbox (relay_seq);
+
+CREATE TABLE change_sequencer
+(
+    id       INTEGER NOT NULL,
+    last_seq BIGINT  NOT NULL,
+    CONSTRAINT pk_change_sequencer PRIMARY KEY (id)
+);
+
+INSERT INTO change_sequencer (id, last_seq) SELECT 1, COALESCE(MAX(seq), 0) FROM change_outbox;
@@ -0,0 +1,13 @@
+-- occurrences of other shards than the home one to bring in line with a committed schedule change, see HorizonService
+CREATE TABLE shard_tasks
+(
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    shard       VARCHAR(255) NOT NULL,
+    schedule_id INTEGER      NOT NULL,
+    operation   VARCHAR(16)  NOT NULL,
+    from_date   DATE         NOT NULL,
+    created_at  TIMESTAMP    NOT NULL,
+    CONSTRAINT pk_shard_tasks PRIMARY KEY (id)
+);
+
+CREATE INDEX ix_shard_tasks_shard ON shard_tasks (shard, id);
@@ -0,0 +1,2 @@
+-- generation keeps a horizon per club now, the ones of the club ranges of its jobs are not read any more
+DELETE FROM generation_horizon WHERE name LIKE 'generate-events-%';
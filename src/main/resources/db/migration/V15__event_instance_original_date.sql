@@ -0,0 +1,11 @@
+-- occurrences of a schedule are told apart by the date the schedule gave them, which stays when they are moved
+ALTER TABLE event_instance
+    ADD COLUMN original_date DATE;
+
+UPDATE event_instance SET original_date = date WHERE schedule_id IS NOT NULL;
+
+ALTER TABLE event_instance
+    DROP CONSTRAINT uc_event_instance_schedule_date;
+
+ALTER TABLE event_instance
+    ADD CONSTRAINT uc_event_instance_schedule_original_date UNIQUE (schedule_id, original_date);
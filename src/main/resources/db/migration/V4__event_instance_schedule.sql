@@ -0,0 +1,5 @@
+ALTER TABLE event_instance
+    ADD COLUMN schedule_id INTEGER;
+
+ALTER TABLE event_instance
+    ADD CONSTRAINT uc_event_instance_schedule_date UNIQUE (schedule_id, date);
@@ -0,0 +1,24 @@
+CREATE TABLE job_locks
+(
+    name         VARCHAR(255) NOT NULL,
+    locked_until TIMESTAMP    NOT NULL,
+    locked_at    TIMESTAMP    NOT NULL,
+    locked_by    VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_job_locks PRIMARY KEY (name)
+);
+
+CREATE TABLE job_runs
+(
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    job_name    VARCHAR(255),
+    node        VARCHAR(255),
+    started_at  TIMESTAMP,
+    finished_at TIMESTAMP,
+    duration_ms BIGINT,
+    row_count   BIGINT,
+    status      VARCHAR(255),
+    message     VARCHAR(1024),
+    CONSTRAINT pk_job_runs PRIMARY KEY (id)
+);
+
+CREATE INDEX ix_job_runs_job_name ON job_runs (job_name, started_at);
@@ -0,0 +1,8 @@
+CREATE TABLE generation_horizon
+(
+    name      VARCHAR(255) NOT NULL,
+    last_date DATE,
+    CONSTRAINT pk_generation_horizon PRIMARY KEY (name)
+);
+
+CREATE INDEX ix_event_instance_schedule ON event_instance (schedule_id, date);
@@ -0,0 +1,12 @@
+CREATE TABLE change_outbox
+(
+    seq        BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    entity     VARCHAR(32)  NOT NULL,
+    entity_id  VARCHAR(64),
+    operation  VARCHAR(16)  NOT NULL,
+    payload    VARCHAR(4000),
+    created_at TIMESTAMP    NOT NULL,
+    CONSTRAINT pk_change_outbox PRIMARY KEY (seq)
+);
+
+CREATE INDEX ix_change_outbox_created_at ON change_outbox (created_at);
@@ -0,0 +1,12 @@
+-- primary key leads with the event, so that sign-ups of one event land next to each other
+CREATE TABLE event_participants
+(
+    event_id        BIGINT    NOT NULL,
+    member_id       BIGINT    NOT NULL,
+    idempotency_key VARCHAR(64),
+    signed_up_at    TIMESTAMP NOT NULL,
+    CONSTRAINT pk_event_participants PRIMARY KEY (event_id, member_id),
+    CONSTRAINT fk_event_participants_event FOREIGN KEY (event_id) REFERENCES event_instance (id) ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX ux_event_participants_idempotency_key ON event_participants (event_id, idempotency_key);
@@ -0,0 +1,15 @@
+-- ids come from a pooled sequence and order the waitlist of every event
+CREATE SEQUENCE event_waitlist_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE event_waitlist
+(
+    id        BIGINT    NOT NULL,
+    event_id  BIGINT    NOT NULL,
+    member_id BIGINT    NOT NULL,
+    joined_at TIMESTAMP NOT NULL,
+    CONSTRAINT pk_event_waitlist PRIMARY KEY (id),
+    CONSTRAINT fk_event_waitlist_event FOREIGN KEY (event_id) REFERENCES event_instance (id) ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX ux_event_waitlist_member ON event_waitlist (event_id, member_id);
+CREATE INDEX ix_event_waitlist_event ON event_waitlist (event_id, id);
@@ -0,0 +1,144 @@
+package jwzp_ww_fs.app.budgets;
+
+import jwzp_ww_fs.app.services.ClubsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Clubs, coaches and schedules a request loads by ID, counted in the statements it sends to H2. Every one is
+// loaded at most once per transaction however many validations ask for it; the cache across transactions is
+// off, so that it does not hide lookups.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lookups;DB_CLOSE_DELAY=-1",
+        "gym.cache.enabled=false",
+        "gym.limits.enabled=false",
+        "gym.warmup.enabled=false"
+})
+@AutoConfigureMockMvc
+@Import(StatementBudgetConfiguration.class)
+public class LookupBudgetTest {
+    private static final List<String> TABLES = List.of("event_waitlist", "event_participants", "event_instance",
+            "change_outbox", "schedules", "when_open", "opening_hours", "fill_level", "event_hours", "clubs", "coaches");
+    private static final LocalDate TUESDAY = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.TUESDAY));
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    JdbcTemplate jdbc;
+    @Autowired
+    StatementRecorder recorder;
+    @Autowired
+    ClubsService clubsService;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void seed() {
+        jdbc.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        TABLES.forEach(table -> jdbc.execute("TRUNCATE TABLE " + table));
+        jdbc.execute("SET REFERENTIAL_INTEGRITY TRUE");
+
+        for (int club = 1; club <= 2; club++) {
+            jdbc.update("INSERT INTO clubs (id, name, address, number_of_events) VALUES (?, ?, ?, 0)", club, "Club " + club, "Street");
+            for (DayOfWeek day : DayOfWeek.values()) {
+                int hoursId = club * 10 + day.ordinal();
+                jdbc.update("INSERT INTO opening_hours (id, _from, _to) VALUES (?, ?, ?)", hoursId, LocalTime.of(6, 0), LocalTime.of(22, 0));
+                jdbc.update("INSERT INTO when_open (club_id, opening_hours_id, when_open_key) VALUES (?, ?, ?)", club, hoursId, day.ordinal());
+            }
+        }
+        jdbc.update("INSERT INTO coaches (id, first_name, last_name, year_of_birth, number_of_events) VALUES (1, 'A', 'B', 1990, 0)");
+        jdbc.update("INSERT INTO schedules (id, title, day, time, duration, capacity, club_id, coach_id) VALUES (1, 'Yoga', ?, ?, ?, 10, 1, 1)",
+                DayOfWeek.FRIDAY.name(), LocalTime.of(17, 30), Duration.ofHours(1).toNanos());
+        jdbc.update("INSERT INTO event_instance (id, title, date, time, duration, capacity, participants, club_id, coach_id) " +
+                "VALUES (1, 'Pilates', ?, ?, ?, 10, 0, 1, 1)", TUESDAY, LocalTime.of(14, 30), Duration.ofHours(1).toNanos());
+    }
+
+    // selects of a row of the table by its ID, as Hibernate issues them
+    private static long lookups(List<StatementRecorder.Statement> statements, String table) {
+        var byId = Pattern.compile("(?s)select .* from " + table + " (\\w+) .*where \\1\\.id=\\?.*");
+        return statements.stream().filter(statement -> byId.matcher(statement.sql().toLowerCase()).matches()).count();
+    }
+
+    private static String schedule(DayOfWeek day) {
+        return "{\"title\": \"Yoga\", \"day\": \"" + day + "\", \"time\": \"17:30\", \"duration\": \"PT1H\", "
+                + "\"capacity\": 10, \"clubId\": 1, \"coachId\": 1}";
+    }
+
+    @Test
+    public void addScheduleTest() throws Exception {
+        var statements = recorder.record("POST /schedule", () ->
+                mvc.perform(post("/api/v1/schedule").contentType(MediaType.APPLICATION_JSON).content(schedule(DayOfWeek.SUNDAY)))
+                        .andExpect(status().isOk()));
+
+        assertThat(lookups(statements, "clubs")).isEqualTo(1);
+        assertThat(lookups(statements, "coaches")).isEqualTo(1);
+    }
+
+    @Test
+    public void updateScheduleTest() throws Exception {
+        var statements = recorder.record("PATCH /schedule", () ->
+                mvc.perform(patch("/api/v1/schedule/1").contentType(MediaType.APPLICATION_JSON).content(schedule(DayOfWeek.SUNDAY)))
+                        .andExpect(status().isOk()));
+
+        assertThat(lookups(statements, "schedules")).isEqualTo(1);
+        assertThat(lookups(statements, "clubs")).isLessThanOrEqualTo(1);
+        assertThat(lookups(statements, "coaches")).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    public void updateEventTest() throws Exception {
+        var statements = recorder.record("PATCH /events", () ->
+                mvc.perform(patch("/api/v1/events/1").contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"capacity\": 10, \"date\": \"" + TUESDAY + "\", \"time\": \"15:00\"}"))
+                        .andExpect(status().isOk()));
+
+        assertThat(lookups(statements, "clubs")).isEqualTo(1);
+    }
+
+    @Test
+    public void repeatedLookupsTest() throws Exception {
+        var transaction = new TransactionTemplate(transactionManager);
+
+        var statements = recorder.record("repeated lookups", () -> transaction.executeWithoutResult(status -> {
+            clubsService.getClub(1);
+            clubsService.getClub(1);
+            clubsService.getClub(2);
+            clubsService.getClub(2);
+        }));
+
+        assertThat(lookups(statements, "clubs")).isEqualTo(2);
+    }
+
+    @Test
+    public void lookupsOfNextTransactionTest() throws Exception {
+        var transaction = new TransactionTemplate(transactionManager);
+
+        var statements = recorder.record("lookups of two transactions", () -> {
+            transaction.executeWithoutResult(status -> clubsService.getClub(1));
+            transaction.executeWithoutResult(status -> clubsService.getClub(1));
+        });
+
+        assertThat(lookups(statements, "clubs")).isEqualTo(2);
+    }
+}
@@ -0,0 +1,31 @@
+package jwzp_ww_fs.app.budgets;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+@TestConfiguration
+public class StatementBudgetConfiguration {
+    static final StatementRecorder RECORDER = new StatementRecorder();
+
+    @Bean
+    public StatementRecorder statementRecorder() {
+        return RECORDER;
+    }
+
+    // static, so that the post processor does not pull this configuration in early
+    @Bean
+    public static BeanPostProcessor statementRecordingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource)
+                    return ProxyDataSourceBuilder.create(dataSource).name(beanName).listener(RECORDER).build();
+                return bean;
+            }
+        };
+    }
+}
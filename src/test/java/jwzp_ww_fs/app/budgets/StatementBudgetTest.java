@@ -0,0 +1,148 @@
+package jwzp_ww_fs.app.budgets;
+
+import jwzp_ww_fs.app.models.ClubRange;
+import jwzp_ww_fs.app.services.EventsGenerationService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Statements the endpoints and jobs may issue against a real H2 database. A budget that fails means a change
+// made the operation issue statements per row again, lazy loads or unbatched inserts and deletes.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:budgets;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=8",
+        "gym.limits.enabled=false",
+        "gym.warmup.enabled=false",
+        "gym.bulk.chunk-size=500"
+})
+@AutoConfigureMockMvc
+@Import(StatementBudgetConfiguration.class)
+public class StatementBudgetTest {
+    private static final List<String> TABLES = List.of("event_waitlist", "event_participants", "event_instance",
+            "change_outbox", "schedules", "when_open", "opening_hours", "fill_level", "event_hours", "clubs", "coaches");
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementBudgetTest.class);
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    JdbcTemplate jdbc;
+    @Autowired
+    StatementRecorder recorder;
+    @Autowired
+    EventsGenerationService generationService;
+
+    @BeforeEach
+    public void clearTables() {
+        jdbc.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        TABLES.forEach(table -> jdbc.execute("TRUNCATE TABLE " + table));
+        jdbc.execute("SET REFERENTIAL_INTEGRITY TRUE");
+    }
+
+    @AfterAll
+    public static void reportSlowest() {
+        var report = new StringBuilder("Slowest statements:");
+        for (var statement : StatementBudgetConfiguration.RECORDER.slowest(10))
+            report.append(String.format("%n%6d ms  x%-4d %-24s %s", statement.elapsedMillis(), statement.batchSize(),
+                    statement.operation(), statement.sql()));
+        logger.info(report.toString());
+    }
+
+    private void seedClubs(int count) {
+        var clubs = new ArrayList<Object[]>();
+        var hours = new ArrayList<Object[]>();
+        var whenOpen = new ArrayList<Object[]>();
+        int hoursId = 0;
+        for (int club = 1; club <= count; club++) {
+            clubs.add(new Object[]{club, "Club " + club, "Street " + club, 0});
+            for (DayOfWeek day : DayOfWeek.values()) {
+                hours.add(new Object[]{++hoursId, LocalTime.of(6, 0), LocalTime.of(22, 0)});
+                whenOpen.add(new Object[]{club, hoursId, day.ordinal()});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO clubs (id, name, address, number_of_events) VALUES (?, ?, ?, ?)", clubs);
+        jdbc.batchUpdate("INSERT INTO opening_hours (id, _from, _to) VALUES (?, ?, ?)", hours);
+        jdbc.batchUpdate("INSERT INTO when_open (club_id, opening_hours_id, when_open_key) VALUES (?, ?, ?)", whenOpen);
+    }
+
+    private void seedSchedules(int clubs) {
+        jdbc.update("INSERT INTO coaches (id, first_name, last_name, year_of_birth, number_of_events) VALUES (1, 'A', 'B', 1990, 0)");
+        var schedules = new ArrayList<Object[]>();
+        int scheduleId = 0;
+        for (int club = 1; club <= clubs; club++) {
+            for (DayOfWeek day : DayOfWeek.values())
+                schedules.add(new Object[]{++scheduleId, "Yoga", day.name(), LocalTime.of(10, 0),
+                        Duration.ofHours(1).toNanos(), 10, club, 1});
+        }
+        jdbc.batchUpdate("INSERT INTO schedules (id, title, day, time, duration, capacity, club_id, coach_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", schedules);
+    }
+
+    private void seedEvents(int count) {
+        var events = new ArrayList<Object[]>();
+        for (int event = 1; event <= count; event++)
+            events.add(new Object[]{event, "Yoga", LocalDate.now().plusDays(event % 30), LocalTime.of(10, 0),
+                    Duration.ofHours(1).toNanos(), 10, 0, 1, 1});
+        jdbc.batchUpdate("INSERT INTO event_instance (id, title, date, time, duration, capacity, participants, club_id, coach_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", events);
+    }
+
+    @Test
+    public void listClubsTest() throws Exception {
+        seedClubs(1000);
+
+        var statements = recorder.record("GET /clubs", () ->
+                mvc.perform(get("/api/v1/clubs")).andExpect(status().isOk()));
+
+        // the clubs with their opening hours
+        assertThat(statements).hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void generateThirtyDaysTest() throws Exception {
+        seedClubs(10);
+        seedSchedules(10);
+        LocalDate today = LocalDate.now();
+        var rows = new AtomicLong();
+
+        var statements = recorder.record("generate 30 days", () ->
+                rows.set(generationService.generateEvents(new ClubRange(1, 10), today, today.plusDays(30)).rows()));
+
+        assertThat(rows.get()).isEqualTo(10 * 31);
+        // the schedules, then per club its existing occurrences, sequence values and one insert per 50 rows
+        assertThat(statements).hasSizeLessThanOrEqualTo(1 + 10 * 4);
+    }
+
+    @Test
+    public void removeAllEventsTest() throws Exception {
+        seedEvents(1200);
+
+        var statements = recorder.record("DELETE /events", () ->
+                mvc.perform(delete("/api/v1/events")).andExpect(status().isOk()));
+
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM event_instance", Long.class)).isZero();
+        // per chunk of 500 its ids, the delete and the change record, then the empty last chunk
+        assertThat(statements).hasSizeLessThanOrEqualTo(3 * 3 + 1);
+    }
+}
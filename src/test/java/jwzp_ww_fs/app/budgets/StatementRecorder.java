@@ -0,0 +1,62 @@
+package jwzp_ww_fs.app.budgets;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// Statements executed through the proxied data source while an operation is recorded. A JDBC batch counts as
+// one statement. Scheduled jobs keep running during the tests, their threads are never recorded.
+public class StatementRecorder implements QueryExecutionListener {
+    private static final String SCHEDULER_THREAD_PREFIX = "scheduling-";
+
+    public record Statement(String operation, String sql, long elapsedMillis, int batchSize) {}
+
+    @FunctionalInterface
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    private final List<Statement> statements = Collections.synchronizedList(new ArrayList<>());
+    private volatile String recording;
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String operation = recording;
+        if (operation == null || Thread.currentThread().getName().startsWith(SCHEDULER_THREAD_PREFIX)) return;
+
+        String sql = queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery();
+        statements.add(new Statement(operation, sql, execInfo.getElapsedTime(),
+                execInfo.isBatch() ? execInfo.getBatchSize() : 1));
+    }
+
+    // statements of the operation, including those its worker threads execute before it returns
+    public List<Statement> record(String operation, Operation action) throws Exception {
+        recording = operation;
+        try {
+            action.run();
+        } finally {
+            recording = null;
+        }
+        synchronized (statements) {
+            return statements.stream().filter(s -> s.operation().equals(operation)).toList();
+        }
+    }
+
+    public List<Statement> slowest(int count) {
+        synchronized (statements) {
+            return statements.stream()
+                    .sorted(Comparator.comparingLong(Statement::elapsedMillis).reversed())
+                    .limit(count)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package jwzp_ww_fs.app.caching;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A bulk delete announces every chunk as one change of a range of ids, which must drop the cached entities in it.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulkcache;DB_CLOSE_DELAY=-1",
+        "gym.bulk.chunk-size=2",
+        "gym.limits.enabled=false",
+        "gym.warmup.enabled=false"
+})
+@AutoConfigureMockMvc
+public class BulkDeleteCacheTest {
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    DataSource dataSource;
+
+    private String coach(int id) throws Exception {
+        return mvc.perform(get("/api/v1/coaches/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Test
+    public void deletedCoachesAreNotServedFromCacheTest() throws Exception {
+        for (String name : List.of("Anna", "Bob", "Carl")) {
+            mvc.perform(post("/api/v1/coaches")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"firstName\": \"" + name + "\", \"lastName\": \"L\", \"yearOfBirth\": 1990}"))
+                    .andExpect(status().isOk());
+        }
+        var ids = new JdbcTemplate(dataSource).queryForList("SELECT id FROM coaches ORDER BY id", Integer.class);
+        for (int id : ids)
+            assertThat(coach(id)).contains("firstName");
+
+        mvc.perform(delete("/api/v1/coaches")).andExpect(status().isOk());
+
+        for (int id : ids)
+            assertThat(coach(id)).isEmpty();
+    }
+}
@@ -0,0 +1,73 @@
+package jwzp_ww_fs.app.maintenance;
+
+import jwzp_ww_fs.app.models.Club;
+import jwzp_ww_fs.app.models.Coach;
+import jwzp_ww_fs.app.models.OpeningHours;
+import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.services.BulkMaintenanceService;
+import jwzp_ww_fs.app.services.ClubsService;
+import jwzp_ww_fs.app.services.CoachesService;
+import jwzp_ww_fs.app.services.ScheduleService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Year;
+import java.util.EnumMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Removing every schedule deletes their unbooked future occurrences and pins the others, against the foreign key
+// that clears schedule_id of the occurrences a removed schedule leaves.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulkschedules;DB_CLOSE_DELAY=-1",
+        "gym.bulk.chunk-size=2",
+        "gym.limits.enabled=false",
+        "gym.warmup.enabled=false"
+})
+public class BulkDeleteSchedulesTest {
+    @Autowired
+    ClubsService clubsService;
+    @Autowired
+    CoachesService coachesService;
+    @Autowired
+    ScheduleService scheduleService;
+    @Autowired
+    BulkMaintenanceService bulkService;
+    @Autowired
+    DataSource dataSource;
+
+    private long count(JdbcTemplate jdbc, String sql) {
+        return jdbc.queryForObject(sql, Long.class);
+    }
+
+    @Test
+    public void removedSchedulesLeaveNoOccurrencesWithoutTitleTest() {
+        var whenOpen = new EnumMap<DayOfWeek, OpeningHours>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values())
+            whenOpen.put(day, new OpeningHours(LocalTime.of(6, 0), LocalTime.of(22, 0)));
+        Club club = clubsService.addClub(new Club("Club", "A", whenOpen));
+        Coach coach = coachesService.addCoach(new Coach("Some", "Coach", Year.of(1990)));
+        for (DayOfWeek day : DayOfWeek.values())
+            scheduleService.addSchedule(new Schedule("Class", day, LocalTime.of(10, 0), Duration.ofHours(1), 10, club.id(), coach.id()));
+
+        var jdbc = new JdbcTemplate(dataSource);
+        assertThat(count(jdbc, "SELECT count(*) FROM event_instance")).isPositive();
+        jdbc.update("UPDATE event_instance SET participants = 1 WHERE date = ?", LocalDate.now().plusDays(1));
+
+        bulkService.removeAllSchedules();
+
+        assertThat(count(jdbc, "SELECT count(*) FROM schedules")).isZero();
+        assertThat(count(jdbc, "SELECT count(*) FROM event_instance WHERE title IS NULL OR duration IS NULL")).isZero();
+        // only the booked occurrence stays, pinned to what its schedule was
+        assertThat(count(jdbc, "SELECT count(*) FROM event_instance WHERE date >= CURRENT_DATE")).isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT title FROM event_instance WHERE date >= CURRENT_DATE", String.class))
+                .isEqualTo("Class");
+    }
+}
@@ -0,0 +1,105 @@
+package jwzp_ww_fs.app.routing;
+
+import jwzp_ww_fs.app.services.ReplicaRoutingService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two H2 databases that do not replicate, each with a club of its own, show where a request read from.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "spring.jpa.open-in-view=false",
+        "gym.datasource.replica.enabled=true",
+        "gym.datasource.replica.url=" + ReplicaRoutingTest.REPLICA_URL,
+        "gym.datasource.replica.lag-query=SELECT 0",
+        "gym.limits.enabled=false",
+        "gym.warmup.enabled=false"
+})
+@AutoConfigureMockMvc
+public class ReplicaRoutingTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+    private static final List<String> TABLES = List.of("when_open", "opening_hours", "fill_level", "event_hours", "clubs");
+    // the replica pool is read-only, the replica is written past it
+    private static final DataSource replicaDataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "password");
+
+    // before the context starts, the search index already reads from the replica when the application is ready
+    static {
+        Flyway.configure().dataSource(replicaDataSource).load().migrate();
+    }
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    ReplicaRoutingService routingService;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primaryDataSource;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    public void seedDatabases() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        for (var database : List.of(primary, replica)) {
+            database.execute("SET REFERENTIAL_INTEGRITY FALSE");
+            TABLES.forEach(table -> database.execute("TRUNCATE TABLE " + table));
+            database.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+        // above the IDs generated for the added clubs
+        primary.update("INSERT INTO clubs (id, name, address, number_of_events) VALUES (1000, 'Primary club', 'A', 0)");
+        replica.update("INSERT INTO clubs (id, name, address, number_of_events) VALUES (1000, 'Replica club', 'A', 0)");
+
+        routingService.checkLag();
+    }
+
+    private String clubs(String client) throws Exception {
+        return mvc.perform(get("/api/v1/clubs").header("X-Client-Id", client))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Test
+    public void readsGoToReplicaTest() throws Exception {
+        assertThat(clubs("reception")).contains("Replica club").doesNotContain("Primary club");
+    }
+
+    @Test
+    public void clientReadsItsWritesTest() throws Exception {
+        mvc.perform(post("/api/v1/clubs").header("X-Client-Id", "kiosk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"New club\", \"address\": \"B\", \"whenOpen\": {}}"))
+                .andExpect(status().isOk());
+
+        assertThat(clubs("kiosk")).contains("Primary club", "New club");
+        assertThat(clubs("reception")).contains("Replica club").doesNotContain("New club");
+    }
+
+    @Test
+    public void writesGoToPrimaryTest() throws Exception {
+        mvc.perform(post("/api/v1/clubs").header("X-Client-Id", "app")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"New club\", \"address\": \"B\", \"whenOpen\": {}}"))
+                .andExpect(status().isOk());
+
+        assertThat(primary.queryForObject("SELECT count(*) FROM clubs", Long.class)).isEqualTo(2);
+        assertThat(replica.queryForObject("SELECT count(*) FROM clubs", Long.class)).isEqualTo(1);
+    }
+}
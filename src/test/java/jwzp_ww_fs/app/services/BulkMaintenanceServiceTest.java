@@ -0,0 +1,128 @@
+package jwzp_ww_fs.app.services;
+
+import jwzp_ww_fs.app.exceptions.club.EventAssociatedWithClubException;
+import jwzp_ww_fs.app.exceptions.coach.EventAssociatedWithCoachException;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.repositories.ClubsRepository;
+import jwzp_ww_fs.app.repositories.CoachRepository;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import jwzp_ww_fs.app.repositories.ScheduleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkMaintenanceServiceTest {
+    @Mock
+    EventsInstancesRepository eventsRepository;
+    @Mock
+    ScheduleRepository scheduleRepository;
+    @Mock
+    ClubsRepository clubsRepository;
+    @Mock
+    CoachRepository coachRepository;
+    @Mock
+    ApplicationEventPublisher publisher;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private BulkMaintenanceService service;
+
+    @BeforeEach
+    public void initializeMocks() {
+        var sharding = ShardingService.unsharded();
+        var horizonService = new HorizonService(eventsRepository, null, scheduleRepository, null, sharding, null, false);
+        service = new BulkMaintenanceService(eventsRepository, scheduleRepository, clubsRepository, coachRepository, sharding,
+                horizonService, publisher, transactionManager, 2);
+    }
+
+    @Test
+    public void removeAllEventsInChunksTest() {
+        when(eventsRepository.findIdsAfter(eq(0L), Mockito.any())).thenReturn(List.of(1L, 2L));
+        when(eventsRepository.findIdsAfter(eq(2L), Mockito.any())).thenReturn(List.of(5L));
+        when(eventsRepository.findIdsAfter(eq(5L), Mockito.any())).thenReturn(List.of());
+
+        var summary = service.removeAllEvents();
+
+        assertThat(summary.deleted()).isEqualTo(3);
+        assertThat(summary.chunks()).isEqualTo(2);
+        verify(eventsRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(eventsRepository).deleteAllByIdInBatch(List.of(5L));
+        verify(eventsRepository, never()).findAll();
+        // one change per chunk
+        verify(publisher, times(2)).publishEvent(Mockito.any(EntityChange.class));
+        verify(transactionManager, times(3)).commit(Mockito.any());
+    }
+
+    @Test
+    public void removeAllSchedulesRecountsOnceTest() {
+        when(scheduleRepository.findIdsAfter(eq(0), Mockito.any())).thenReturn(List.of(1, 2));
+        when(scheduleRepository.findIdsAfter(eq(2), Mockito.any())).thenReturn(List.of(3, 4));
+        when(scheduleRepository.findIdsAfter(eq(4), Mockito.any())).thenReturn(List.of());
+        when(clubsRepository.findFillLevelIdsOfClubsWithoutSchedules()).thenReturn(List.of(10, 11));
+
+        var summary = service.removeAllSchedules();
+
+        assertThat(summary.deleted()).isEqualTo(4);
+        verify(eventsRepository).pinOccurrencesOfSchedules(eq(List.of(1, 2)), Mockito.any());
+        verify(eventsRepository).pinOccurrencesOfSchedules(eq(List.of(3, 4)), Mockito.any());
+        verify(eventsRepository).deleteUnbookedOccurrencesOfSchedules(eq(List.of(1, 2)), Mockito.any());
+        verify(eventsRepository).deleteUnbookedOccurrencesOfSchedules(eq(List.of(3, 4)), Mockito.any());
+        // occurrences go while they still reference their schedules
+        var order = inOrder(eventsRepository, scheduleRepository);
+        order.verify(eventsRepository).pinOccurrencesOfSchedules(eq(List.of(1, 2)), Mockito.any());
+        order.verify(eventsRepository).deleteUnbookedOccurrencesOfSchedules(eq(List.of(1, 2)), Mockito.any());
+        order.verify(scheduleRepository).deleteAllByIdInBatch(List.of(1, 2));
+        verify(clubsRepository, times(1)).recountEvents();
+        verify(coachRepository, times(1)).recountEvents();
+        verify(clubsRepository).deleteFillLevels(List.of(10, 11));
+        verify(clubsRepository).deleteEventHours(List.of(10, 11));
+    }
+
+    @Test
+    public void removeAllClubsDeletesOwnedRowsTest() {
+        when(clubsRepository.findEmptyIdsAfter(eq(0), Mockito.any())).thenReturn(List.of(1));
+        when(clubsRepository.findEmptyIdsAfter(eq(1), Mockito.any())).thenReturn(List.of());
+        when(clubsRepository.findOpeningHoursIds(List.of(1))).thenReturn(List.of(7));
+        when(clubsRepository.findFillLevelIds(List.of(1))).thenReturn(List.of());
+
+        var summary = service.removeAllClubs();
+
+        assertThat(summary.deleted()).isEqualTo(1);
+        verify(clubsRepository).deleteOpeningHoursOfClubs(List.of(1));
+        verify(clubsRepository).deleteAllByIdInBatch(List.of(1));
+        verify(clubsRepository).deleteOpeningHours(List.of(7));
+        verify(clubsRepository, never()).deleteEventHours(Mockito.any());
+    }
+
+    @Test
+    public void removeAllClubsWithSchedulesTest() {
+        when(clubsRepository.existsByNumberOfEventsGreaterThan(0)).thenReturn(true);
+
+        Throwable thrown = catchThrowable(service::removeAllClubs);
+
+        assertThat(thrown).isExactlyInstanceOf(EventAssociatedWithClubException.class);
+        verify(clubsRepository, never()).deleteAllByIdInBatch(Mockito.any());
+    }
+
+    @Test
+    public void removeAllCoachesWithSchedulesTest() {
+        when(coachRepository.existsByNumberOfEventsGreaterThan(0)).thenReturn(true);
+
+        Throwable thrown = catchThrowable(service::removeAllCoaches);
+
+        assertThat(thrown).isExactlyInstanceOf(EventAssociatedWithCoachException.class);
+        verify(coachRepository, never()).deleteAllByIdInBatch(Mockito.any());
+    }
+}
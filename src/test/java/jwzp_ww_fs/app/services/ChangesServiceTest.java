@@ -0,0 +1,100 @@
+package jwzp_ww_fs.app.services;
+
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.models.ChangesRelayed;
+import jwzp_ww_fs.app.repositories.ChangeRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ChangesServiceTest {
+    private static final Instant NOW = Instant.parse("2022-01-03T12:00:00Z");
+
+    @Mock
+    ChangeRecordRepository repository;
+    @Mock
+    JobsService jobsService;
+    @Mock
+    ApplicationEventPublisher publisher;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void initializeMocks() {
+        lenient().when(repository.findMaxSeq()).thenReturn(10L);
+    }
+
+    private static ChangeRecord change(long seq, Instant createdAt) {
+        return new ChangeRecord(seq, "club", "1", ChangeRecord.Operation.UPDATED, null, createdAt);
+    }
+
+    private ChangesService service() {
+        return new ChangesService(repository, jobsService, publisher, transactionManager, Duration.ofDays(7));
+    }
+
+    @Test
+    public void committedChangesAreNumberedInOrderTest() {
+        // committed after 12 was numbered, whichever identities they took
+        var late = new ChangeRecord("club", "1", ChangeRecord.Operation.UPDATED, null, NOW);
+        var later = new ChangeRecord("club", "2", ChangeRecord.Operation.UPDATED, null, NOW);
+        when(repository.lockSequencer()).thenReturn(12L);
+        when(repository.findUnsequenced(Mockito.any())).thenReturn(List.of(late, later));
+
+        assertThat(service().sequence()).isEqualTo(2);
+
+        assertThat(late.seq()).isEqualTo(13L);
+        assertThat(later.seq()).isEqualTo(14L);
+        verify(repository).advanceSequencer(14);
+    }
+
+    @Test
+    public void nothingToNumberTest() {
+        when(repository.lockSequencer()).thenReturn(12L);
+        when(repository.findUnsequenced(Mockito.any())).thenReturn(List.of());
+
+        assertThat(service().sequence()).isZero();
+        verify(repository, never()).advanceSequencer(Mockito.anyLong());
+    }
+
+    @Test
+    public void getChangesIsBoundedByWatermarkTest() {
+        ChangesService service = service();
+
+        assertThat(service.getChanges(10, 100)).isEmpty();
+        service.getChanges(5, 100);
+
+        verify(repository).findChangesBetween(eq(5L), eq(10L), Mockito.any());
+        verify(repository, times(1)).findChangesBetween(Mockito.anyLong(), Mockito.anyLong(), Mockito.any());
+    }
+
+    @Test
+    public void relayCompletesPendingPollTest() {
+        ChangesService service = service();
+        var result = service.poll(10, 100, Duration.ofSeconds(30));
+        assertThat(result.hasResult()).isFalse();
+
+        lenient().when(repository.findChangesBetween(eq(10L), eq(Long.MAX_VALUE), Mockito.any()))
+                .thenReturn(List.of(change(11, Instant.now()), change(12, Instant.now())));
+        service.relay();
+
+        assertThat(service.watermark()).isEqualTo(12);
+        assertThat(result.hasResult()).isTrue();
+        assertThat((List<?>) result.getResult()).hasSize(2);
+        // consumers within the node get the same batch
+        verify(publisher).publishEvent(Mockito.<ChangesRelayed>argThat(relayed -> relayed.changes().size() == 2));
+    }
+}
@@ -0,0 +1,63 @@
+package jwzp_ww_fs.app.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientKeyServiceTest {
+    private static final long MINUTE = Duration.ofMinutes(1).toNanos();
+
+    private ClientKeyService service() {
+        return new ClientKeyService(2, Duration.ofMinutes(10));
+    }
+
+    @Test
+    public void clientsBehindAddressAreToldApartTest() {
+        var service = service();
+
+        assertThat(service.clientKey("10.0.0.1", "kiosk", 0)).isEqualTo("10.0.0.1 kiosk");
+        assertThat(service.clientKey("10.0.0.1", "reception", 0)).isEqualTo("10.0.0.1 reception");
+        assertThat(service.clientKey("10.0.0.1", null, 0)).isEqualTo("10.0.0.1");
+        // the same id from another address is another client
+        assertThat(service.clientKey("10.0.0.2", "kiosk", 0)).isEqualTo("10.0.0.2 kiosk");
+    }
+
+    @Test
+    public void rotatingIdsShareAddressTest() {
+        var service = service();
+        service.clientKey("10.0.0.1", "kiosk", 0);
+        service.clientKey("10.0.0.1", "reception", 0);
+
+        for (int i = 0; i < 100; i++)
+            assertThat(service.clientKey("10.0.0.1", "client-" + i, 0)).isEqualTo("10.0.0.1");
+        assertThat(service.clientKey("10.0.0.1", "kiosk", 0)).isEqualTo("10.0.0.1 kiosk");
+    }
+
+    @Test
+    public void unseenIdsAreForgottenTest() {
+        var service = service();
+        service.clientKey("10.0.0.1", "kiosk", 0);
+        service.clientKey("10.0.0.1", "reception", 9 * MINUTE);
+
+        service.sweep(11 * MINUTE);
+
+        assertThat(service.clientKey("10.0.0.1", "app", 11 * MINUTE)).isEqualTo("10.0.0.1 app");
+        assertThat(service.clientKey("10.0.0.1", "kiosk", 11 * MINUTE)).isEqualTo("10.0.0.1");
+
+        service.sweep(30 * MINUTE);
+        assertThat(service.addresses()).isZero();
+    }
+
+    @Test
+    public void addressIsTakenFromRequestTest() {
+        var request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.7");
+        request.addHeader(ClientKeyService.CLIENT_HEADER, "x".repeat(1000));
+
+        assertThat(service().clientKey(request))
+                .isEqualTo("203.0.113.7 " + "x".repeat(ClientKeyService.MAX_CLIENT_LENGTH));
+    }
+}
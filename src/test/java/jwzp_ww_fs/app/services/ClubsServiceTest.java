@@ -15,6 +15,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.DayOfWeek;
 import java.time.LocalTime;
@@ -32,6 +33,8 @@ import static org.mockito.Mockito.*;
 public class ClubsServiceTest {
     @Mock
     private ClubsRepository repository;
+    @Mock
+    private ApplicationEventPublisher publisher;
 
     @BeforeEach
     public void initializeMocks() {
@@ -67,7 +70,7 @@ public class ClubsServiceTest {
     @ParameterizedTest(name="exceptions POST {0}")
     @MethodSource("incorrectAddClubsProvider")
     public void addClubTestException(Club clubToAdd, Class<?> expectedException) {
-        ClubsService service = new ClubsService(repository);
+        ClubsService service = new ClubsService(repository, EntityCache.disabled(), publisher);
 
         Throwable uut = catchThrowable(() -> service.addClub(clubToAdd));
 
@@ -89,7 +92,7 @@ public class ClubsServiceTest {
     @ParameterizedTest(name="no exceptions POST {0}")
     @MethodSource("addClubsProvider")
     public void addClubTest(Club clubToAdd) {
-        ClubsService uut = new ClubsService(repository);
+        ClubsService uut = new ClubsService(repository, EntityCache.disabled(), publisher);
 
         assertDoesNotThrow(() -> uut.addClub(clubToAdd));
     }
@@ -110,7 +113,7 @@ public class ClubsServiceTest {
     @ParameterizedTest(name="exception PATCH {1}")
     @MethodSource("incorrectUpdateClubsProvider")
     public void updateClubTestException(int prevClubId, Club updatedClub, Class<?> expectedException) {
-        ClubsService service = new ClubsService(repository);
+        ClubsService service = new ClubsService(repository, EntityCache.disabled(), publisher);
 
         Throwable uut = catchThrowable(() -> service.patchClub(prevClubId, updatedClub));
 
@@ -131,7 +134,7 @@ public class ClubsServiceTest {
     @ParameterizedTest(name="no exceptions PATCH {1}")
     @MethodSource("updateClubsProvider")
     public void updateClubsTest(int prevClubId, Club updatedClub) {
-        ClubsService service = new ClubsService(repository);
+        ClubsService service = new ClubsService(repository, EntityCache.disabled(), publisher);
 
         assertDoesNotThrow(() -> service.patchClub(prevClubId, updatedClub));
     }
@@ -152,7 +155,7 @@ public class ClubsServiceTest {
     @ParameterizedTest(name="exceptions DELETE {0}")
     @MethodSource("incorrectDeleteClubsProvider")
     public void deleteClubsTestException(int clubIdToDelete, Class<?> expectedException) {
-        ClubsService service = new ClubsService(repository);
+        ClubsService service = new ClubsService(repository, EntityCache.disabled(), publisher);
 
         Throwable uut = catchThrowable(() -> service.removeClub(clubIdToDelete));
 
@@ -171,7 +174,7 @@ public class ClubsServiceTest {
     @ParameterizedTest(name="no exceptions DELETE {0}")
     @MethodSource("deleteClubsProvider")
     public void deleteClubsTestNoException(int clubIdToDelete) {
-        ClubsService service = new ClubsService(repository);
+        ClubsService service = new ClubsService(repository, EntityCache.disabled(), publisher);
 
         Throwable uut = catchThrowable(() -> service.removeClub(clubIdToDelete));
 
@@ -189,7 +192,7 @@ public class ClubsServiceTest {
     @ParameterizedTest(name="GET club {0}")
     @MethodSource("getClubProvider")
     public void getClubTest(int clubId) {
-        ClubsService service = new ClubsService(repository);
+        ClubsService service = new ClubsService(repository, EntityCache.disabled(), publisher);
 
         Throwable uut = catchThrowable(() -> service.getClub(clubId));
 
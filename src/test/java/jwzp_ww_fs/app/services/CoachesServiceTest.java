@@ -16,6 +16,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.DayOfWeek;
 import java.time.LocalTime;
@@ -35,6 +36,8 @@ import static org.mockito.Mockito.*;
 public class CoachesServiceTest {
     @Mock
     private CoachRepository repository;
+    @Mock
+    private ApplicationEventPublisher publisher;
 
     @BeforeEach
     public void initializeMocks() {
@@ -72,7 +75,7 @@ public class CoachesServiceTest {
     @ParameterizedTest(name="exceptions POST {0}")
     @MethodSource("incorrectAddCoachesProvider")
     public void addCoachTestException(Coach coachToAdd, Class<?> expectedException) {
-        CoachesService service = new CoachesService(repository);
+        CoachesService service = new CoachesService(repository, EntityCache.disabled(), publisher);
 
         Throwable uut = catchThrowable(() -> service.addCoach(coachToAdd));
 
@@ -91,7 +94,7 @@ public class CoachesServiceTest {
     @ParameterizedTest(name="no exceptions POST {0}")
     @MethodSource("addCoachesProvider")
     public void addCoachTest(Coach coachToAdd) {
-        CoachesService uut = new CoachesService(repository);
+        CoachesService uut = new CoachesService(repository, EntityCache.disabled(), publisher);
 
         assertDoesNotThrow(() -> uut.addCoach(coachToAdd));
     }
@@ -108,7 +111,7 @@ public class CoachesServiceTest {
     @ParameterizedTest(name="exception PATCH {1}")
     @MethodSource("incorrectUpdateCoachesProvider")
     public void updateCoachTestException(int prevCoachId, Coach updatedCoach, Class<?> expectedException) {
-        CoachesService service = new CoachesService(repository);
+        CoachesService service = new CoachesService(repository, EntityCache.disabled(), publisher);
 
         Throwable uut = catchThrowable(() -> service.patchCoach(prevCoachId, updatedCoach));
 
@@ -127,7 +130,7 @@ public class CoachesServiceTest {
     @ParameterizedTest(name="no exceptions PATCH {1}")
     @MethodSource("updateCoachesProvider")
     public void updateCoachesTest(int prevCoachId, Coach updatedCoach) {
-        CoachesService service = new CoachesService(repository);
+        CoachesService service = new CoachesService(repository, EntityCache.disabled(), publisher);
 
         assertDoesNotThrow(() -> service.patchCoach(prevCoachId, updatedCoach));
     }
@@ -145,7 +148,7 @@ public class CoachesServiceTest {
     @ParameterizedTest(name="exceptions DELETE {0}")
     @MethodSource("incorrectDeleteCoachesProvider")
     public void deleteCoachesTestException(int coachIdToDelete, Class<?> expectedException) {
-        CoachesService service = new CoachesService(repository);
+        CoachesService service = new CoachesService(repository, EntityCache.disabled(), publisher);
 
         Throwable uut = catchThrowable(() -> service.removeCoach(coachIdToDelete));
 
@@ -164,7 +167,7 @@ public class CoachesServiceTest {
     @ParameterizedTest(name="no exceptions DELETE {0}")
     @MethodSource("deleteCoachesProvider")
     public void deleteCoachesTestNoException(int coachIdToDelete) {
-        CoachesService service = new CoachesService(repository);
+        CoachesService service = new CoachesService(repository, EntityCache.disabled(), publisher);
 
         Throwable uut = catchThrowable(() -> service.removeCoach(coachIdToDelete));
 
@@ -182,7 +185,7 @@ public class CoachesServiceTest {
     @ParameterizedTest(name="GET coach {0}")
     @MethodSource("getCoachProvider")
     public void getCoachTest(int coachId) {
-        CoachesService service = new CoachesService(repository);
+        CoachesService service = new CoachesService(repository, EntityCache.disabled(), publisher);
 
         Throwable uut = catchThrowable(() -> service.getCoach(coachId));
 
@@ -0,0 +1,157 @@
+package jwzp_ww_fs.app.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jwzp_ww_fs.app.models.Coach;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.models.Invalidation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntityCacheTest {
+    private final LoopbackInvalidationBus bus = new LoopbackInvalidationBus();
+    private final AtomicInteger finds = new AtomicInteger();
+    private final Function<Integer, Optional<Coach>> finder = id -> {
+        finds.incrementAndGet();
+        return Optional.of(new Coach("C" + id, "L", Year.of(1990)));
+    };
+
+    private EntityCache cache(InvalidationBus bus) {
+        return new EntityCache(bus, new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(10));
+    }
+
+    private Optional<Coach> load(EntityCache cache, int id) {
+        return cache.load(EntityChange.COACH, Coach.class, id, finder);
+    }
+
+    private static Invalidation coach(int id) {
+        return new Invalidation(EntityChange.COACH, String.valueOf(id));
+    }
+
+    @AfterEach
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void lookupsAreCachedUntilInvalidatedTest() {
+        var cache = cache(bus);
+
+        var first = load(cache, 1).get();
+        assertThat(load(cache, 1).get()).isSameAs(first);
+        assertThat(finds).hasValue(1);
+
+        bus.publish(coach(1));
+
+        assertThat(load(cache, 1).get()).isNotSameAs(first);
+        assertThat(finds).hasValue(2);
+    }
+
+    @Test
+    public void invalidationsOfTransactionAreSentOnCommitTest() {
+        var cache = cache(bus);
+        load(cache, 1);
+        load(cache, 2);
+
+        TransactionSynchronizationManager.initSynchronization();
+        bus.publish(coach(1));
+        bus.publish(coach(2));
+        assertThat(cache.size()).isEqualTo(2);
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void rolledBackTransactionInvalidatesNothingTest() {
+        var cache = cache(bus);
+        load(cache, 1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        bus.publish(coach(1));
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void lookupOverlappingInvalidationIsNotStoredTest() {
+        var cache = cache(bus);
+
+        // the entity changes on another node while it is read here
+        cache.load(EntityChange.COACH, Coach.class, 1, id -> {
+            bus.publish(coach(1));
+            return finder.apply(id);
+        });
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void nothingIsCachedWhileBusIsDisconnectedTest() {
+        var disconnected = new LoopbackInvalidationBus() {
+            @Override
+            public boolean isConnected() {
+                return false;
+            }
+        };
+        var cache = cache(disconnected);
+
+        load(cache, 1);
+        load(cache, 1);
+
+        assertThat(finds).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void missedInvalidationsDropEverythingTest() {
+        var cache = cache(bus);
+        load(cache, 1);
+        load(cache, 2);
+
+        cache.invalidateAll();
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void bulkDeleteInvalidatesRangeTest() {
+        var cache = cache(bus);
+        for (int id = 1; id <= 5; id++) load(cache, id);
+        cache.load(EntityChange.CLUB, Coach.class, 3, finder);
+
+        bus.publish(new Invalidation(EntityChange.COACH, "2-4"));
+
+        // coaches 1 and 5 and the club stay
+        assertThat(cache.size()).isEqualTo(3);
+        load(cache, 3);
+        assertThat(finds).hasValue(7);
+    }
+
+    @Test
+    public void expiredEntriesAreLoadedAgainTest() {
+        var cache = new EntityCache(bus, new SimpleMeterRegistry(), true, 100, Duration.ZERO);
+
+        load(cache, 1);
+        load(cache, 1);
+        assertThat(finds).hasValue(2);
+
+        cache.sweep();
+        assertThat(cache.size()).isZero();
+    }
+}
@@ -0,0 +1,148 @@
+package jwzp_ww_fs.app.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jwzp_ww_fs.app.dto.EventAvailabilityView;
+import jwzp_ww_fs.app.dto.EventInstanceView;
+import jwzp_ww_fs.app.exceptions.event.InvalidDateRangeException;
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.models.ChangesRelayed;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.*;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class EventSearchServiceTest {
+    // a monday
+    private static final LocalDate TODAY = LocalDate.of(2022, Month.JANUARY, 3);
+
+    @Mock
+    EventsInstancesRepository repository;
+
+    private EventSearchService service;
+
+    private static EventInstanceView event(long id, String title, int daysAhead, int hour, int participants, int clubId, int coachId) {
+        return new EventInstanceView(id, title, TODAY.plusDays(daysAhead), LocalTime.of(hour, 0), Duration.ofHours(1),
+                10, participants, clubId, coachId, null);
+    }
+
+    @BeforeEach
+    public void initializeMocks() {
+        lenient().when(repository.findUpcomingViews(Mockito.any(), eq(0L), Mockito.any())).thenReturn(List.of(
+                event(1, "Morning Yoga", 0, 8, 0, 1, 1),
+                event(2, "Evening yoga", 1, 19, 3, 1, 2),
+                event(3, "Evening Pilates", 1, 19, 10, 2, 2),
+                event(4, "Yoga for beginners", 2, 20, 9, 2, 1),
+                event(5, "Crossfit", 9, 18, 0, 1, 3)
+        ));
+        service = new EventSearchService(repository, ShardingService.unsharded(), ScheduleDefaultsCache.disabled(), new SimpleMeterRegistry());
+        service.rebuild(TODAY);
+    }
+
+    private List<Long> search(Optional<String> text, Optional<Integer> clubId, Optional<Integer> coachId,
+                              Optional<LocalTime> startsAfter, Set<DayOfWeek> days, int minSeats) {
+        var out = service.search(text, clubId, coachId, TODAY, TODAY.plusWeeks(1), startsAfter, Optional.empty(),
+                days, minSeats, 50);
+        return out.stream().map(EventAvailabilityView::id).toList();
+    }
+
+    @ParameterizedTest(name="search {index}")
+    @MethodSource("searchProvider")
+    public void searchTest(Optional<String> text, Optional<Integer> clubId, Optional<Integer> coachId,
+                           Optional<LocalTime> startsAfter, Set<DayOfWeek> days, int minSeats, List<Long> expected) {
+        assertThat(search(text, clubId, coachId, startsAfter, days, minSeats)).containsExactlyElementsOf(expected);
+    }
+
+    private static Stream<Arguments> searchProvider() {
+        var anyDay = EnumSet.noneOf(DayOfWeek.class);
+        return Stream.of(
+                Arguments.of(Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), anyDay, 0, List.of(1L, 2L, 3L, 4L)),
+                Arguments.of(Optional.of("YOGA"), Optional.empty(), Optional.empty(), Optional.empty(), anyDay, 0, List.of(1L, 2L, 4L)),
+                Arguments.of(Optional.of("evening yoga"), Optional.empty(), Optional.empty(), Optional.empty(), anyDay, 0, List.of(2L)),
+                Arguments.of(Optional.of("yoga"), Optional.empty(), Optional.empty(), Optional.of(LocalTime.of(18, 0)), anyDay, 1, List.of(2L, 4L)),
+                Arguments.of(Optional.of("yoga"), Optional.of(2), Optional.empty(), Optional.empty(), anyDay, 2, List.of()),
+                Arguments.of(Optional.empty(), Optional.empty(), Optional.of(2), Optional.empty(), EnumSet.of(DayOfWeek.TUESDAY), 0, List.of(2L, 3L)),
+                Arguments.of(Optional.of("zumba"), Optional.empty(), Optional.empty(), Optional.empty(), anyDay, 0, List.of())
+        );
+    }
+
+    private static ChangeRecord change(String entityId, ChangeRecord.Operation operation) {
+        return new ChangeRecord(1, EntityChange.EVENT, entityId, operation, null, Instant.now());
+    }
+
+    @Test
+    public void changesAreAppliedTest() {
+        // events are read as they are when the changes are relayed
+        when(repository.findViewsByIdIn(List.of(6L, 4L))).thenReturn(List.of(
+                event(6, "Yoga", 3, 7, 0, 1, 1),
+                event(4, "Yoga for beginners", 2, 20, 10, 2, 1)));
+
+        service.onChangesRelayed(new ChangesRelayed(List.of(
+                change("6", ChangeRecord.Operation.CREATED),
+                change("1", ChangeRecord.Operation.DELETED),
+                change("4", ChangeRecord.Operation.UPDATED))));
+
+        var anyDay = EnumSet.noneOf(DayOfWeek.class);
+        assertThat(search(Optional.of("yoga"), Optional.empty(), Optional.empty(), Optional.empty(), anyDay, 1))
+                .containsExactly(2L, 6L);
+    }
+
+    @Test
+    public void eventsDeletedSinceAreRemovedTest() {
+        when(repository.findViewsByIdIn(List.of(5L))).thenReturn(List.of());
+
+        service.onChangesRelayed(new ChangesRelayed(List.of(change("5", ChangeRecord.Operation.UPDATED))));
+
+        assertThat(service.indexed()).isEqualTo(4);
+    }
+
+    @Test
+    public void bulkDeleteRemovesRangeTest() {
+        service.onChangesRelayed(new ChangesRelayed(List.of(change("2-4", ChangeRecord.Operation.DELETED))));
+
+        assertThat(service.indexed()).isEqualTo(2);
+    }
+
+    @Test
+    public void pastEventsAreNotSearchedTest() {
+        service.rebuild(TODAY.plusDays(1));
+
+        assertThat(service.indexed()).isEqualTo(4);
+    }
+
+    @Test
+    public void startWindowWrapsPastMidnightTest() {
+        var out = service.search(Optional.empty(), Optional.empty(), Optional.empty(), TODAY, TODAY.plusWeeks(1),
+                Optional.of(LocalTime.of(20, 0)), Optional.of(LocalTime.of(8, 0)), Set.of(), 0, 50);
+
+        assertThat(out).extracting(EventAvailabilityView::id).containsExactly(1L, 4L);
+    }
+
+    @Test
+    public void invalidRangeTest() {
+        Throwable thrown = catchThrowable(() -> service.search(Optional.empty(), Optional.empty(), Optional.empty(),
+                TODAY, TODAY.minusDays(1), Optional.empty(), Optional.empty(), Set.of(), 0, 50));
+
+        assertThat(thrown).isExactlyInstanceOf(InvalidDateRangeException.class);
+    }
+}
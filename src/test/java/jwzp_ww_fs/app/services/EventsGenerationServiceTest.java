@@ -0,0 +1,149 @@
+package jwzp_ww_fs.app.services;
+
+import jwzp_ww_fs.app.dto.OccurrenceKey;
+import jwzp_ww_fs.app.models.ClubRange;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.repositories.ClubsRepository;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import jwzp_ww_fs.app.repositories.ScheduleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class EventsGenerationServiceTest {
+    // 2022-01-03 is a monday
+    private static final LocalDate TODAY = LocalDate.of(2022, Month.JANUARY, 3);
+
+    @Mock
+    EventsInstancesRepository repository;
+    @Mock
+    ScheduleRepository scheduleRepository;
+    @Mock
+    ClubsRepository clubsRepository;
+    @Mock
+    JobsService jobsService;
+    @Mock
+    HorizonService horizonService;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private final List<EventInstance> saved = Collections.synchronizedList(new ArrayList<>());
+    private EventsGenerationService service;
+
+    @BeforeEach
+    public void initializeMocks() {
+        lenient().when(scheduleRepository.findScheduleByClubIdBetween(1, 2)).thenReturn(List.of(
+                new Schedule("S1", DayOfWeek.MONDAY, LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1),
+                new Schedule("S2", DayOfWeek.TUESDAY, LocalTime.of(10, 0), Duration.ofHours(1), 10, 2, 1)
+        ));
+        lenient().when(repository.findOccurrenceKeys(Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(List.of());
+        lenient().when(repository.saveAll(Mockito.anyIterable())).thenAnswer(i -> {
+            Iterable<EventInstance> events = i.getArgument(0);
+            events.forEach(saved::add);
+            return events;
+        });
+
+        service = new EventsGenerationService(repository, scheduleRepository, clubsRepository, jobsService, horizonService, ShardingService.unsharded(), transactionManager, 4, 2, false);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        service.shutdown();
+    }
+
+    @ParameterizedTest(name="club ranges {0}-{1} in {2} shards")
+    @MethodSource("clubRangesProvider")
+    public void clubRangesTest(Integer minId, Integer maxId, int shards, List<ClubRange> expectedRanges) {
+        lenient().when(clubsRepository.findMinId()).thenReturn(minId);
+        lenient().when(clubsRepository.findMaxId()).thenReturn(maxId);
+
+        assertThat(service.clubRanges(shards)).containsExactlyElementsOf(expectedRanges);
+    }
+
+    private static Stream<Arguments> clubRangesProvider() {
+        return Stream.of(
+                Arguments.of(null, null, 4, List.of()),
+                Arguments.of(1, 1, 4, List.of(new ClubRange(1, 1))),
+                Arguments.of(1, 8, 4, List.of(new ClubRange(1, 2), new ClubRange(3, 4), new ClubRange(5, 6), new ClubRange(7, 8))),
+                Arguments.of(1, 10, 3, List.of(new ClubRange(1, 4), new ClubRange(5, 8), new ClubRange(9, 10)))
+        );
+    }
+
+    @Test
+    public void generateEventsTest() {
+        var generated = service.generateEvents(new ClubRange(1, 2), TODAY, TODAY.plusDays(13));
+
+        // two mondays and two tuesdays within two weeks
+        assertThat(generated.rows()).isEqualTo(4);
+        assertThat(generated.failedClubs()).isEqualTo(0);
+        assertThat(saved).hasSize(4);
+    }
+
+    @Test
+    public void generateEventsSkipsExistingTest() {
+        lenient().when(repository.findOccurrenceKeys(Mockito.any(), Mockito.any(), eq(1), eq(1)))
+                .thenReturn(List.of(new OccurrenceKey(0, TODAY)));
+
+        var generated = service.generateEvents(new ClubRange(1, 2), TODAY, TODAY.plusDays(13));
+
+        assertThat(generated.rows()).isEqualTo(3);
+    }
+
+    @Test
+    public void generateEventsIsolatesFailedClubTest() {
+        lenient().when(repository.findOccurrenceKeys(Mockito.any(), Mockito.any(), eq(1), eq(1)))
+                .thenThrow(new IllegalStateException("club 1 is broken"));
+
+        var generated = service.generateEvents(new ClubRange(1, 2), TODAY, TODAY.plusDays(13));
+
+        assertThat(generated.rows()).isEqualTo(2);
+        assertThat(generated.failedClubs()).isEqualTo(1);
+        assertThat(saved).allMatch(e -> e.clubId() == 2);
+    }
+
+    @Test
+    public void extendHorizonAdvancesEveryClubTest() {
+        LocalDate to = TODAY.plusDays(EventsGenerationService.GENERATED_DAYS);
+        // club 1 generated until yesterday, club 2 is up to date
+        lenient().when(horizonService.nextDates(Mockito.anyCollection(), eq(TODAY))).thenReturn(Map.of(1, TODAY, 2, to.plusDays(1)));
+        lenient().when(repository.findOccurrenceKeys(Mockito.any(), Mockito.any(), eq(1), eq(1)))
+                .thenThrow(new IllegalStateException("club 1 is broken"))
+                .thenReturn(List.of());
+
+        assertThat(service.extendHorizon(new ClubRange(1, 2), TODAY))
+                .isEqualTo(new JobsService.Outcome(0, "Generation failed for 1 of 2 clubs"));
+
+        assertThat(saved).isEmpty();
+        // the failed club keeps its horizon, so that the next run retries it
+        verify(horizonService, never()).advance(Mockito.anyString(), Mockito.any());
+
+        // five mondays within the horizon
+        assertThat(service.extendHorizon(new ClubRange(1, 2), TODAY)).isEqualTo(new JobsService.Outcome(5, null));
+
+        verify(horizonService).advance(HorizonService.clubHorizon(1), to);
+        verify(horizonService, never()).advance(eq(HorizonService.clubHorizon(2)), Mockito.any());
+    }
+}
@@ -19,6 +19,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.*;
 import java.util.List;
@@ -44,6 +45,8 @@ public class EventsServiceTest {
     private ClubsService clubsService;
     @Mock
     private ScheduleService scheduleService;
+    @Mock
+    private ApplicationEventPublisher publisher;
 
     @BeforeEach
     public void initializeMocks() {
@@ -58,6 +61,7 @@ public class EventsServiceTest {
         var e8 = new EventInstance("E8", LocalDate.of(2022, Month.JANUARY, 5), LocalTime.of(1, 0), Duration.ofHours(22), 10, 1, 2);
 
         lenient().when(repository.findAll()).thenReturn(List.of(e0,e1,e2,e3,e4,e5,e6,e7,e8));
+        lenient().when(repository.save(Mockito.any())).thenAnswer(i -> i.getArguments()[0]);
 
         lenient().when(repository.findEventByClubId(1)).thenReturn(List.of(e0,e1,e2,e3,e4,e6,e7,e8));
         lenient().when(repository.findEventByClubId(2)).thenReturn(List.of(e5));
@@ -85,7 +89,7 @@ public class EventsServiceTest {
     public void addEventTestException(EventInstance eventToAdd, boolean inOpeningHours, Class<?> expectedException) {
         lenient().when(clubsService.isEventInstanceInClubOpeningHours(Mockito.any())).thenReturn(inOpeningHours);
 
-        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService);
+        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService, ShardingService.unsharded(), ScheduleDefaultsCache.disabled(), publisher);
         Throwable uut = catchThrowable(() -> serviceToTest.addEvent(eventToAdd));
 
         if (expectedException == null)
@@ -105,7 +109,7 @@ public class EventsServiceTest {
     public void addEventTestNoException(EventInstance eventToAdd) {
         lenient().when(clubsService.isEventInstanceInClubOpeningHours(Mockito.any())).thenReturn(true);
 
-        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService);
+        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService, ShardingService.unsharded(), ScheduleDefaultsCache.disabled(), publisher);
 
         assertDoesNotThrow(() -> serviceToTest.addEvent(eventToAdd));
     }
@@ -123,7 +127,7 @@ public class EventsServiceTest {
     public void updateEventTestException(int eventId, EventInstanceData updatedEventData, boolean inOpeningHours, Class<?> expectedException) {
         lenient().when(clubsService.isEventInstanceInClubOpeningHours(Mockito.any())).thenReturn(inOpeningHours);
 
-        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService);
+        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService, ShardingService.unsharded(), ScheduleDefaultsCache.disabled(), publisher);
         Throwable thrown = catchThrowable(() -> serviceToTest.updateEventInstance(eventId, updatedEventData));
 
         assertThat(thrown).isExactlyInstanceOf(expectedException);
@@ -140,7 +144,7 @@ public class EventsServiceTest {
     public void updateEventTestNoException(long eventId, EventInstanceData eventToAdd, boolean inOpeningHours) {
         lenient().when(clubsService.isEventInstanceInClubOpeningHours(Mockito.any())).thenReturn(inOpeningHours);
 
-        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService);
+        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService, ShardingService.unsharded(), ScheduleDefaultsCache.disabled(), publisher);
 
         EventInstance oldEvent = assertDoesNotThrow(() -> serviceToTest.updateEventInstance(eventId, eventToAdd));
         assertThat(oldEvent).isEqualTo(repository.getById(eventId));
@@ -155,7 +159,7 @@ public class EventsServiceTest {
     //DELETE
     @Test
     public void deleteEventTestNoException() {
-        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService);
+        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService, ShardingService.unsharded(), ScheduleDefaultsCache.disabled(), publisher);
 
         EventInstance deletedEvent = assertDoesNotThrow(() -> serviceToTest.removeEvent(1));
 
@@ -164,27 +168,19 @@ public class EventsServiceTest {
 
     @Test
     public void deleteEventTestException() {
-        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService);
+        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService, ShardingService.unsharded(), ScheduleDefaultsCache.disabled(), publisher);
 
         Throwable thrown = catchThrowable(() -> serviceToTest.removeEvent(2));
 
         assertThat(thrown).isExactlyInstanceOf(NonExistingEventException.class);
     }
 
-    @Test
-    public void deleteAllEventsTest() {
-        EventsInstancesService serviceToTest = new EventsInstancesService(repository, clubsService, coachesService, scheduleService);
-
-        List<EventInstance> oldEvent = assertDoesNotThrow(serviceToTest::removeAllEvents);
-        assertThat(oldEvent).containsExactlyInAnyOrderElementsOf(repository.findAll());
-    }
-
     //GET
 
     @ParameterizedTest(name="GET event {0}")
     @MethodSource("getEventProvider")
     public void getEventTest(int eventId) {
-        EventsInstancesService service = new EventsInstancesService(repository, clubsService, coachesService, scheduleService);
+        EventsInstancesService service = new EventsInstancesService(repository, clubsService, coachesService, scheduleService, ShardingService.unsharded(), ScheduleDefaultsCache.disabled(), publisher);
 
         Throwable uut = Assertions.catchThrowable(() -> service.getEventInstanceWithId(eventId));
 
@@ -0,0 +1,146 @@
+package jwzp_ww_fs.app.services;
+
+import jwzp_ww_fs.app.models.GenerationHorizon;
+import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.models.ScheduleChange;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import jwzp_ww_fs.app.repositories.GenerationHorizonRepository;
+import jwzp_ww_fs.app.repositories.ScheduleRepository;
+import jwzp_ww_fs.app.repositories.ShardTaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.*;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class HorizonServiceTest {
+    private static final LocalDate TODAY = LocalDate.of(2022, Month.JANUARY, 3);
+
+    @Mock
+    EventsInstancesRepository repository;
+    @Mock
+    GenerationHorizonRepository horizonRepository;
+    @Mock
+    ScheduleRepository scheduleRepository;
+    @Mock
+    ShardTaskRepository taskRepository;
+
+    @BeforeEach
+    public void initializeMocks() {
+        lenient().when(repository.findOccurrenceKeysOfSchedule(Mockito.anyInt(), Mockito.any(), Mockito.any())).thenReturn(List.of());
+        lenient().when(horizonRepository.findById("empty")).thenReturn(Optional.empty());
+        lenient().when(horizonRepository.findById("behind")).thenReturn(Optional.of(new GenerationHorizon("behind", TODAY.minusDays(3))));
+        lenient().when(horizonRepository.findById("ahead")).thenReturn(Optional.of(new GenerationHorizon("ahead", TODAY.plusDays(29))));
+    }
+
+    @ParameterizedTest(name="next date of {0}")
+    @MethodSource("nextDateProvider")
+    public void nextDateTest(String jobName, LocalDate expectedDate) {
+        HorizonService service = new HorizonService(repository, horizonRepository, scheduleRepository, taskRepository, ShardingService.unsharded(), null, false);
+
+        assertThat(service.nextDate(jobName, TODAY)).isEqualTo(expectedDate);
+    }
+
+    private static Stream<Arguments> nextDateProvider() {
+        return Stream.of(
+                Arguments.of("empty", TODAY),
+                Arguments.of("behind", TODAY),
+                Arguments.of("ahead", TODAY.plusDays(30))
+        );
+    }
+
+    @Test
+    public void nextDatesTest() {
+        when(horizonRepository.findAllById(List.of("club-1", "club-2", "club-3"))).thenReturn(List.of(
+                new GenerationHorizon("club-2", TODAY.minusDays(3)),
+                new GenerationHorizon("club-3", TODAY.plusDays(29))
+        ));
+        HorizonService service = new HorizonService(repository, horizonRepository, scheduleRepository, taskRepository, ShardingService.unsharded(), null, false);
+
+        assertThat(service.nextDates(List.of(1, 2, 3), TODAY))
+                .containsOnly(entry(1, TODAY), entry(2, TODAY), entry(3, TODAY.plusDays(30)));
+    }
+
+    @Test
+    public void sameDayChangeUpdatesOccurrencesTest() {
+        var before = new Schedule("S1", DayOfWeek.MONDAY, LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1);
+        var after = new Schedule("S1", DayOfWeek.MONDAY, LocalTime.of(12, 0), Duration.ofHours(1), 20, 1, 1);
+        HorizonService service = new HorizonService(repository, horizonRepository, scheduleRepository, taskRepository, ShardingService.unsharded(), null, false);
+
+        service.onScheduleChange(new ScheduleChange(1, before, after));
+
+        verify(repository).updateUnbookedOccurrences(eq(1), Mockito.any(), eq(LocalTime.of(12, 0)), eq(20), eq(1), eq(1),
+                Mockito.isNull(), Mockito.isNull());
+        verify(repository, never()).pinOccurrences(Mockito.anyInt(), Mockito.any(), Mockito.any(), Mockito.any());
+        verify(repository, never()).deleteUnbookedOccurrences(Mockito.anyInt(), Mockito.any());
+        verify(repository, never()).saveAll(Mockito.anyIterable());
+    }
+
+    @Test
+    public void renamePinsKeptOccurrencesTest() {
+        var before = new Schedule("S1", DayOfWeek.MONDAY, LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1);
+        var after = new Schedule("S2", DayOfWeek.MONDAY, LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1);
+        HorizonService service = new HorizonService(repository, horizonRepository, scheduleRepository, taskRepository, ShardingService.unsharded(), null, false);
+
+        service.onScheduleChange(new ScheduleChange(1, before, after));
+
+        var pinned = inOrder(repository);
+        pinned.verify(repository).pinOccurrences(eq(1), Mockito.any(), eq("S1"), eq(Duration.ofHours(1)));
+        pinned.verify(repository).updateUnbookedOccurrences(eq(1), Mockito.any(), eq(LocalTime.of(10, 0)), eq(10), eq(1), eq(1),
+                Mockito.isNull(), Mockito.isNull());
+    }
+
+    @Test
+    public void dayChangeReplacesOccurrencesTest() {
+        var before = new Schedule("S1", DayOfWeek.MONDAY, LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1);
+        var after = new Schedule("S1", DayOfWeek.TUESDAY, LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1);
+        HorizonService service = new HorizonService(repository, horizonRepository, scheduleRepository, taskRepository, ShardingService.unsharded(), null, false);
+
+        service.onScheduleChange(new ScheduleChange(1, before, after));
+
+        verify(repository).deleteUnbookedOccurrences(eq(1), Mockito.any());
+        verify(repository).saveAll(Mockito.argThat(events -> {
+            int count = 0;
+            for (var ignored : events) count++;
+            // every tuesday within the 31 day horizon
+            return count >= 4 && count <= 5;
+        }));
+    }
+
+    @Test
+    public void removalDeletesOccurrencesTest() {
+        var before = new Schedule("S1", DayOfWeek.MONDAY, LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1);
+        HorizonService service = new HorizonService(repository, horizonRepository, scheduleRepository, taskRepository, ShardingService.unsharded(), null, false);
+
+        service.onScheduleChange(new ScheduleChange(1, before, null));
+
+        verify(repository).pinOccurrences(eq(1), Mockito.any(), eq("S1"), eq(Duration.ofHours(1)));
+        verify(repository).deleteUnbookedOccurrences(eq(1), Mockito.any());
+        verify(repository, never()).saveAll(Mockito.anyIterable());
+    }
+
+    @Test
+    public void lazyAdditionDoesNotInsertTest() {
+        var after = new Schedule("S1", DayOfWeek.MONDAY, LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1);
+        HorizonService service = new HorizonService(repository, horizonRepository, scheduleRepository, taskRepository, ShardingService.unsharded(), null, true);
+
+        service.onScheduleChange(new ScheduleChange(1, null, after));
+
+        verify(repository, never()).saveAll(Mockito.anyIterable());
+    }
+}
@@ -0,0 +1,78 @@
+package jwzp_ww_fs.app.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadSheddingServiceTest {
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    private LoadSheddingService service() {
+        return new LoadSheddingService(new SimpleMeterRegistry(), 4, 2, 8, Duration.ofMillis(500), Duration.ofMillis(100));
+    }
+
+    @Test
+    public void requestsAboveLimitAreShedTest() {
+        var service = service();
+
+        for (int i = 0; i < 4; i++)
+            assertThat(service.tryEnter()).isTrue();
+        assertThat(service.tryEnter()).isFalse();
+
+        service.exit(FAST);
+        assertThat(service.inflight()).isEqualTo(3);
+        assertThat(service.tryEnter()).isTrue();
+    }
+
+    @Test
+    public void slowRequestsLowerLimitTest() {
+        var service = service();
+
+        for (int i = 0; i < 10; i++) {
+            service.tryEnter();
+            service.exit(SLOW);
+        }
+
+        assertThat(service.limit()).isEqualTo(2);
+    }
+
+    @Test
+    public void poolWaitLowersLimitTest() {
+        var service = service();
+        service.poolWait(Duration.ofMillis(300));
+
+        service.tryEnter();
+        service.exit(FAST);
+
+        assertThat(service.limit()).isEqualTo(3);
+    }
+
+    @Test
+    public void busyFastRequestsRaiseLimitTest() {
+        var service = service();
+
+        for (int round = 0; round < 40; round++) {
+            while (service.tryEnter()) ;
+            for (int i = service.inflight(); i > 0; i--)
+                service.exit(FAST);
+        }
+
+        assertThat(service.limit()).isEqualTo(8);
+    }
+
+    @Test
+    public void idleRequestsKeepLimitTest() {
+        var service = service();
+
+        for (int i = 0; i < 40; i++) {
+            service.tryEnter();
+            service.exit(FAST);
+        }
+
+        assertThat(service.limit()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,136 @@
+package jwzp_ww_fs.app.services;
+
+import jwzp_ww_fs.app.exceptions.event.ConcludedEventException;
+import jwzp_ww_fs.app.exceptions.event.FilledEventException;
+import jwzp_ww_fs.app.exceptions.event.NonExistingEventException;
+import jwzp_ww_fs.app.exceptions.event.ReusedIdempotencyKeyException;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.EventParticipant;
+import jwzp_ww_fs.app.repositories.EventParticipantsRepository;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.*;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ParticipantsServiceTest {
+    private static final LocalDate TODAY = LocalDate.of(2022, Month.JANUARY, 3);
+    private static final Instant SIGNED_UP_AT = Instant.parse("2022-01-02T10:00:00Z");
+
+    @Mock
+    EventParticipantsRepository repository;
+    @Mock
+    EventsInstancesRepository eventsRepository;
+    @Mock
+    EventsInstancesService eventsService;
+    @Mock
+    ApplicationEventPublisher publisher;
+
+    private ParticipantsService service;
+
+    @BeforeEach
+    public void initializeMocks() {
+        var upcoming = new EventInstance("E1", TODAY.plusDays(1), LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1);
+        var concluded = new EventInstance("E2", TODAY.minusDays(1), LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1);
+
+        lenient().when(eventsRepository.findById(1L)).thenReturn(Optional.of(upcoming));
+        lenient().when(eventsRepository.findById(2L)).thenReturn(Optional.of(concluded));
+        lenient().when(eventsRepository.findById(3L)).thenReturn(Optional.of(upcoming));
+        lenient().when(eventsRepository.findById(4L)).thenReturn(Optional.empty());
+        lenient().when(eventsRepository.incrementParticipantsIfFree(1L)).thenReturn(1);
+        lenient().when(eventsRepository.incrementParticipantsIfFree(3L)).thenReturn(0);
+
+        lenient().when(repository.findById(Mockito.any())).thenReturn(Optional.empty());
+        lenient().when(repository.findById(new EventParticipant.Key(1, 7)))
+                .thenReturn(Optional.of(new EventParticipant(1, 7, null, SIGNED_UP_AT)));
+        lenient().when(repository.findEventParticipantByEventIdAndIdempotencyKey(1L, "retried"))
+                .thenReturn(Optional.of(new EventParticipant(1, 8, "retried", SIGNED_UP_AT)));
+        lenient().when(repository.deleteParticipant(1L, 7L)).thenReturn(1);
+
+        service = new ParticipantsService(repository, eventsRepository, eventsService, publisher);
+    }
+
+    @Test
+    public void signUpTest() {
+        var participant = assertDoesNotThrow(() -> service.signUp(1, 5, Optional.of("first"), TODAY));
+
+        assertThat(participant.memberId()).isEqualTo(5);
+        verify(eventsRepository).incrementParticipantsIfFree(1L);
+        verify(repository).insert(eq(1L), eq(5L), eq("first"), Mockito.any());
+    }
+
+    @ParameterizedTest(name="repeated sign-up of member {0} with key {1}")
+    @MethodSource("repeatedSignUpsProvider")
+    public void repeatedSignUpIsNotCountedTest(long memberId, Optional<String> idempotencyKey) {
+        var participant = assertDoesNotThrow(() -> service.signUp(1, memberId, idempotencyKey, TODAY));
+
+        assertThat(participant.signedUpAt()).isEqualTo(SIGNED_UP_AT);
+        verify(eventsRepository, never()).incrementParticipantsIfFree(Mockito.anyLong());
+        verify(repository, never()).insert(Mockito.anyLong(), Mockito.anyLong(), Mockito.any(), Mockito.any());
+    }
+
+    private static Stream<Arguments> repeatedSignUpsProvider() {
+        return Stream.of(
+                Arguments.of(7L, Optional.empty()),
+                Arguments.of(7L, Optional.of("other")),
+                Arguments.of(8L, Optional.of("retried"))
+        );
+    }
+
+    @Test
+    public void keyOfAnotherMemberIsRejectedTest() {
+        Throwable thrown = catchThrowable(() -> service.signUp(1, 9, Optional.of("retried"), TODAY));
+
+        assertThat(thrown).isExactlyInstanceOf(ReusedIdempotencyKeyException.class);
+        verify(eventsRepository, never()).incrementParticipantsIfFree(Mockito.anyLong());
+    }
+
+    @ParameterizedTest(name="exceptions sign-up for event {0}")
+    @MethodSource("incorrectSignUpsProvider")
+    public void signUpTestException(long eventId, Class<?> expectedException) {
+        Throwable thrown = catchThrowable(() -> service.signUp(eventId, 5, Optional.empty(), TODAY));
+
+        assertThat(thrown).isExactlyInstanceOf(expectedException);
+        verify(repository, never()).insert(Mockito.anyLong(), Mockito.anyLong(), Mockito.any(), Mockito.any());
+    }
+
+    private static Stream<Arguments> incorrectSignUpsProvider() {
+        return Stream.of(
+                Arguments.of(2L, ConcludedEventException.class),
+                Arguments.of(3L, FilledEventException.class),
+                Arguments.of(4L, NonExistingEventException.class)
+        );
+    }
+
+    @Test
+    public void cancelTest() {
+        var cancelled = service.cancel(1, 7);
+
+        assertThat(cancelled).isPresent();
+        verify(eventsRepository).decrementParticipantsForEvent(1L);
+    }
+
+    @Test
+    public void cancelMissingTest() {
+        var cancelled = service.cancel(1, 5);
+
+        assertThat(cancelled).isEmpty();
+        verify(eventsRepository, never()).decrementParticipantsForEvent(Mockito.anyLong());
+    }
+}
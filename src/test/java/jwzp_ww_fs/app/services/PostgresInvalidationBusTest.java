@@ -0,0 +1,48 @@
+package jwzp_ww_fs.app.services;
+
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.models.Invalidation;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGNotification;
+import org.postgresql.core.Notification;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PostgresInvalidationBusTest {
+    private static PGNotification[] notifications(List<String> payloads) {
+        return payloads.stream().map(payload -> new Notification(PostgresInvalidationBus.CHANNEL, 1, payload))
+                .toArray(PGNotification[]::new);
+    }
+
+    @Test
+    public void batchIsSentInOneNotificationTest() {
+        var batch = List.of(new Invalidation(EntityChange.CLUB, "1"), new Invalidation(EntityChange.SCHEDULE, "7-12"));
+
+        var payloads = PostgresInvalidationBus.encode(batch);
+
+        assertThat(payloads).containsExactly("club:1,schedule:7-12");
+        assertThat(PostgresInvalidationBus.decode(notifications(payloads))).isEqualTo(batch);
+    }
+
+    @Test
+    public void largeBatchIsSplitTest() {
+        var batch = IntStream.range(0, 1000)
+                .mapToObj(id -> new Invalidation(EntityChange.COACH, String.valueOf(100_000 + id))).toList();
+
+        var payloads = PostgresInvalidationBus.encode(batch);
+
+        assertThat(payloads).hasSizeGreaterThan(1)
+                .allSatisfy(payload -> assertThat(payload).hasSizeLessThanOrEqualTo(PostgresInvalidationBus.MAX_PAYLOAD_LENGTH));
+        assertThat(PostgresInvalidationBus.decode(notifications(payloads))).isEqualTo(batch);
+    }
+
+    @Test
+    public void otherChannelsAreIgnoredTest() {
+        var notification = new Notification("other", 1, "club:1");
+
+        assertThat(PostgresInvalidationBus.decode(new PGNotification[]{ notification })).isEmpty();
+    }
+}
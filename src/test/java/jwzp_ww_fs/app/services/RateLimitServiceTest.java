@@ -0,0 +1,77 @@
+package jwzp_ww_fs.app.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitServiceTest {
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+    private static final String ENDPOINT = "POST /api/v1/events/{id}";
+
+    private RateLimitService service(int maxBuckets) {
+        // 5 per second with a burst of 10, bulk operations twice per minute
+        return new RateLimitService(new SimpleMeterRegistry(), 5, 10, 2, maxBuckets);
+    }
+
+    @Test
+    public void burstIsAllowedTest() {
+        var service = service(100);
+
+        for (int i = 0; i < 10; i++)
+            assertThat(service.tryAcquire("kiosk", ENDPOINT, false, 0)).isZero();
+        assertThat(service.tryAcquire("kiosk", ENDPOINT, false, 0)).isEqualTo(SECOND / 5);
+    }
+
+    @Test
+    public void tokensAreRefilledTest() {
+        var service = service(100);
+        for (int i = 0; i < 10; i++)
+            service.tryAcquire("kiosk", ENDPOINT, false, 0);
+
+        // a second refills 5 tokens
+        for (int i = 0; i < 5; i++)
+            assertThat(service.tryAcquire("kiosk", ENDPOINT, false, SECOND)).isZero();
+        assertThat(service.tryAcquire("kiosk", ENDPOINT, false, SECOND)).isPositive();
+    }
+
+    @ParameterizedTest(name="bucket of {0} is independent")
+    @ValueSource(strings = {"other", "kiosk2"})
+    public void bucketsArePerClientTest(String client) {
+        var service = service(100);
+        for (int i = 0; i < 11; i++)
+            service.tryAcquire("kiosk", ENDPOINT, false, 0);
+
+        assertThat(service.tryAcquire(client, ENDPOINT, false, 0)).isZero();
+        assertThat(service.tryAcquire("kiosk", "DELETE /api/v1/clubs/{id}", false, 0)).isZero();
+    }
+
+    @Test
+    public void bulkOperationsAreLimitedTest() {
+        var service = service(100);
+
+        assertThat(service.tryAcquire("admin", "DELETE /api/v1/clubs", true, 0)).isZero();
+        assertThat(service.tryAcquire("admin", "DELETE /api/v1/clubs", true, SECOND)).isEqualTo(29 * SECOND);
+    }
+
+    @Test
+    public void mapIsBoundedTest() {
+        var service = service(2);
+        service.tryAcquire("a", ENDPOINT, false, 0);
+        service.tryAcquire("b", ENDPOINT, false, 0);
+
+        // a and b are still draining, so new clients share the overflow bucket
+        for (int i = 0; i < 10; i++)
+            assertThat(service.tryAcquire("client" + i, ENDPOINT, false, 0)).isZero();
+        assertThat(service.tryAcquire("client10", ENDPOINT, false, 0)).isPositive();
+        assertThat(service.buckets()).isEqualTo(2);
+
+        // full again, swept to make room
+        assertThat(service.tryAcquire("c", ENDPOINT, false, SECOND)).isZero();
+        assertThat(service.buckets()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,125 @@
+package jwzp_ww_fs.app.services;
+
+import jwzp_ww_fs.app.dto.ScheduleOccurrence;
+import jwzp_ww_fs.app.exceptions.schedule.ExcessiveDateRangeException;
+import jwzp_ww_fs.app.exceptions.schedule.InvalidDateRangeException;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import jwzp_ww_fs.app.repositories.ScheduleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.*;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class RecurrenceServiceTest {
+    @Mock
+    ScheduleRepository scheduleRepository;
+    @Mock
+    EventsInstancesRepository eventsRepository;
+
+    @BeforeEach
+    public void initializeMocks() {
+        var exampleSchedules = List.of(
+                new Schedule("S1", DayOfWeek.MONDAY, LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1),
+                new Schedule("S2", DayOfWeek.MONDAY, LocalTime.of(18, 0), Duration.ofHours(1), 10, 1, 2),
+                new Schedule("S3", DayOfWeek.WEDNESDAY, LocalTime.of(12, 0), Duration.ofHours(2), 5, 2, 1)
+        );
+
+        lenient().when(scheduleRepository.findAll()).thenReturn(exampleSchedules);
+        lenient().when(scheduleRepository.findScheduleByClubId(2)).thenReturn(List.of(exampleSchedules.get(2)));
+        lenient().when(eventsRepository.findOccurrences(Mockito.any(), Mockito.any())).thenReturn(List.of());
+        lenient().when(eventsRepository.findOccurrencesOfClub(Mockito.any(), Mockito.any(), Mockito.anyInt())).thenReturn(List.of());
+    }
+
+    @ParameterizedTest(name="expand {0} - {1}")
+    @MethodSource("rangesProvider")
+    public void expandTest(LocalDate from, LocalDate to, Optional<Integer> clubId, int expectedOccurrences) {
+        RecurrenceService service = new RecurrenceService(scheduleRepository, eventsRepository, ShardingService.unsharded());
+
+        List<ScheduleOccurrence> occurrences = assertDoesNotThrow(() -> service.expand(from, to, clubId));
+
+        assertThat(occurrences).hasSize(expectedOccurrences);
+        assertThat(occurrences).allMatch(o -> !o.date().isBefore(from) && !o.date().isAfter(to));
+        assertThat(occurrences).allMatch(o -> o.eventId() == null && o.participants() == 0);
+    }
+
+    private static Stream<Arguments> rangesProvider() {
+        return Stream.of(
+                // 2022-01-03 is a monday
+                Arguments.of(LocalDate.of(2022, Month.JANUARY, 3), LocalDate.of(2022, Month.JANUARY, 3), Optional.empty(), 2),
+                Arguments.of(LocalDate.of(2022, Month.JANUARY, 4), LocalDate.of(2022, Month.JANUARY, 4), Optional.empty(), 0),
+                Arguments.of(LocalDate.of(2022, Month.JANUARY, 3), LocalDate.of(2022, Month.JANUARY, 16), Optional.empty(), 6),
+                Arguments.of(LocalDate.of(2022, Month.JANUARY, 3), LocalDate.of(2022, Month.JANUARY, 16), Optional.of(2), 2)
+        );
+    }
+
+    @Test
+    public void expandMaterializedOccurrenceTest() {
+        var schedule = new Schedule("S3", DayOfWeek.WEDNESDAY, LocalTime.of(12, 0), Duration.ofHours(2), 5, 2, 1);
+        var materialized = new EventInstance(schedule, LocalDate.of(2022, Month.JANUARY, 5));
+        lenient().when(eventsRepository.findOccurrencesOfClub(Mockito.any(), Mockito.any(), eq(2))).thenReturn(List.of(materialized));
+
+        RecurrenceService service = new RecurrenceService(scheduleRepository, eventsRepository, ShardingService.unsharded());
+        List<ScheduleOccurrence> occurrences = assertDoesNotThrow(() ->
+                service.expand(LocalDate.of(2022, Month.JANUARY, 5), LocalDate.of(2022, Month.JANUARY, 5), Optional.of(2)));
+
+        assertThat(occurrences).hasSize(1);
+        assertThat(occurrences.get(0).eventId()).isNotNull();
+    }
+
+    @Test
+    public void movedOccurrenceIsNotExpandedAgainTest() {
+        var schedule = new Schedule("S3", DayOfWeek.WEDNESDAY, LocalTime.of(12, 0), Duration.ofHours(2), 5, 2, 1);
+        var moved = new EventInstance(schedule, LocalDate.of(2022, Month.JANUARY, 5));
+        // as moved to friday by the update of the event
+        ReflectionTestUtils.setField(moved, "date", LocalDate.of(2022, Month.JANUARY, 7));
+        lenient().when(eventsRepository.findOccurrencesOfClub(Mockito.any(), Mockito.any(), eq(2))).thenReturn(List.of(moved));
+
+        RecurrenceService service = new RecurrenceService(scheduleRepository, eventsRepository, ShardingService.unsharded());
+        List<ScheduleOccurrence> occurrences = assertDoesNotThrow(() ->
+                service.expand(LocalDate.of(2022, Month.JANUARY, 3), LocalDate.of(2022, Month.JANUARY, 9), Optional.of(2)));
+
+        assertThat(occurrences).hasSize(1);
+        assertThat(occurrences.get(0).eventId()).isNotNull();
+        assertThat(occurrences.get(0).date()).isEqualTo(LocalDate.of(2022, Month.JANUARY, 7));
+        verify(eventsRepository, never()).findOccurrences(Mockito.any(), Mockito.any());
+    }
+
+    @ParameterizedTest(name="exceptions expand {0} - {1}")
+    @MethodSource("incorrectRangesProvider")
+    public void expandTestException(LocalDate from, LocalDate to, Class<?> expectedException) {
+        RecurrenceService service = new RecurrenceService(scheduleRepository, eventsRepository, ShardingService.unsharded());
+
+        Throwable thrown = catchThrowable(() -> service.expand(from, to, Optional.empty()));
+
+        assertThat(thrown).isExactlyInstanceOf(expectedException);
+    }
+
+    private static Stream<Arguments> incorrectRangesProvider() {
+        return Stream.of(
+                Arguments.of(LocalDate.of(2022, Month.JANUARY, 4), LocalDate.of(2022, Month.JANUARY, 3), InvalidDateRangeException.class),
+                Arguments.of(LocalDate.of(2022, Month.JANUARY, 1), LocalDate.of(2023, Month.FEBRUARY, 1), ExcessiveDateRangeException.class)
+        );
+    }
+}
@@ -0,0 +1,94 @@
+package jwzp_ww_fs.app.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaRoutingServiceTest {
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final DataSource replica = Mockito.mock(DataSource.class);
+
+    private ReplicaRoutingService service(int maxClients) {
+        // replica used up to 5 s behind, clients stick to the primary for 10 s after a mutation
+        return new ReplicaRoutingService(replica, new SimpleMeterRegistry(), "SELECT 0", Duration.ofSeconds(5),
+                Duration.ofSeconds(10), maxClients);
+    }
+
+    @Test
+    public void replicaIsNotUsedBeforeFirstMeasurementTest() {
+        var service = service(100);
+
+        assertThat(service.replicaUsable()).isFalse();
+        service.lagMeasured(Duration.ofMillis(200));
+        assertThat(service.replicaUsable()).isTrue();
+    }
+
+    @Test
+    public void laggingReplicaIsNotUsedTest() {
+        var service = service(100);
+        service.lagMeasured(Duration.ofSeconds(1));
+
+        service.lagMeasured(Duration.ofSeconds(30));
+        assertThat(service.replicaUsable()).isFalse();
+
+        service.lagMeasured(Duration.ofSeconds(5));
+        assertThat(service.replicaUsable()).isTrue();
+    }
+
+    @Test
+    public void unreachableReplicaIsNotUsedTest() throws SQLException {
+        Mockito.when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+        var service = service(100);
+        service.lagMeasured(Duration.ZERO);
+
+        service.checkLag();
+
+        assertThat(service.replicaUsable()).isFalse();
+    }
+
+    @Test
+    public void clientReadsOwnWritesFromPrimaryTest() {
+        var service = service(100);
+        service.lagMeasured(Duration.ZERO);
+
+        service.wrote("kiosk", 0);
+
+        assertThat(service.readsFromPrimary("kiosk", 9 * SECOND)).isTrue();
+        assertThat(service.readsFromPrimary("kiosk", 10 * SECOND)).isFalse();
+        assertThat(service.readsFromPrimary("reception", 0)).isFalse();
+    }
+
+    @Test
+    public void stickinessCoversReplicaLagTest() {
+        var service = service(100);
+        service.lagMeasured(Duration.ofSeconds(4));
+        service.wrote("kiosk", 0);
+
+        service.lagMeasured(Duration.ofSeconds(30));
+
+        // the replica is not used at this lag, once it is again the client still waits out the lag
+        assertThat(service.readsFromPrimary("kiosk", 20 * SECOND)).isTrue();
+    }
+
+    @Test
+    public void expiredClientsAreSweptTest() {
+        var service = service(2);
+        service.lagMeasured(Duration.ZERO);
+        service.wrote("kiosk", 0);
+        service.wrote("reception", 5 * SECOND);
+
+        // at the bound, the expired client makes room
+        service.wrote("app", 12 * SECOND);
+
+        assertThat(service.stickyClients()).isEqualTo(2);
+        assertThat(service.readsFromPrimary("app", 12 * SECOND)).isTrue();
+        assertThat(service.readsFromPrimary("kiosk", 12 * SECOND)).isFalse();
+    }
+}
@@ -0,0 +1,118 @@
+package jwzp_ww_fs.app.services;
+
+import jwzp_ww_fs.app.dto.EventInstanceView;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.Invalidation;
+import jwzp_ww_fs.app.models.Schedule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import javax.sql.DataSource;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScheduleDefaultsCacheTest {
+    private static final DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:defaults;DB_CLOSE_DELAY=-1", "sa", "");
+    private static final LocalDate DATE = LocalDate.of(2022, 1, 3);
+
+    private final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+    private final LoopbackInvalidationBus bus = new LoopbackInvalidationBus();
+    private ScheduleDefaultsCache cache;
+
+    @BeforeEach
+    public void createSchedules() {
+        jdbc.execute("DROP TABLE IF EXISTS schedules");
+        jdbc.execute("CREATE TABLE schedules (id INTEGER PRIMARY KEY, title VARCHAR(255), duration BIGINT)");
+        jdbc.update("INSERT INTO schedules (id, title, duration) VALUES (1, 'Yoga', ?)", Duration.ofHours(1).toNanos());
+        cache = new ScheduleDefaultsCache(bus, ShardingService.unsharded(), dataSource, true, false, 100, Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // releases the connection and the lookups bound to the transaction
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    private static EventInstanceView occurrence(String title, Duration duration) {
+        return new EventInstanceView(7, title, DATE, LocalTime.of(10, 0), duration, 10, 0, 1, 1, 1);
+    }
+
+    private void rename(String title) {
+        jdbc.update("UPDATE schedules SET title = ? WHERE id = 1", title);
+    }
+
+    @Test
+    public void occurrencesTakeWhatTheyDoNotOverrideTest() {
+        assertThat(cache.resolve(occurrence(null, null)))
+                .extracting(EventInstanceView::title, EventInstanceView::duration)
+                .containsExactly("Yoga", Duration.ofHours(1));
+        assertThat(cache.resolve(occurrence("Pilates", null)))
+                .extracting(EventInstanceView::title, EventInstanceView::duration)
+                .containsExactly("Pilates", Duration.ofHours(1));
+
+        // generated occurrences store neither, but know them from their schedule
+        var generated = new EventInstance(new Schedule("Yoga", DayOfWeek.MONDAY, LocalTime.of(10, 0),
+                Duration.ofHours(1), 10, 1, 1), DATE);
+        assertThat(generated.title()).isEqualTo("Yoga");
+        assertThat(generated.needsDefaults()).isFalse();
+    }
+
+    @Test
+    public void defaultsAreCachedUntilScheduleChangesTest() {
+        assertThat(cache.of(1).title()).isEqualTo("Yoga");
+        rename("Pilates");
+        assertThat(cache.of(1).title()).isEqualTo("Yoga");
+
+        bus.publish(new Invalidation(EntityChange.SCHEDULE, "1"));
+
+        assertThat(cache.of(1).title()).isEqualTo("Pilates");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void transactionChangingScheduleReadsItsOwnTest() {
+        cache.of(1);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        rename("Pilates");
+        bus.publish(new Invalidation(EntityChange.SCHEDULE, "1"));
+
+        assertThat(cache.of(1).title()).isEqualTo("Pilates");
+        // the entry from before the change stays until the transaction commits
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void bulkDeleteDropsRangeTest() {
+        cache.of(1);
+        jdbc.update("DELETE FROM schedules WHERE id = 1");
+
+        bus.publish(new Invalidation(EntityChange.SCHEDULE, "1-500"));
+
+        assertThat(cache.of(1)).isNull();
+    }
+
+    @Test
+    public void removedScheduleResolvesNothingTest() {
+        jdbc.update("DELETE FROM schedules WHERE id = 1");
+
+        assertThat(cache.of(1)).isNull();
+        assertThat(cache.resolve(occurrence("Yoga", null)).duration()).isNull();
+    }
+}
@@ -3,10 +3,13 @@ package jwzp_ww_fs.app.services;
 import jwzp_ww_fs.app.exceptions.club.EventAssociatedWithClubException;
 import jwzp_ww_fs.app.exceptions.club.ProtrudingEventException;
 import jwzp_ww_fs.app.exceptions.schedule.AlreadyAssignedCoachException;
+import jwzp_ww_fs.app.exceptions.schedule.ExcessivelyLongScheduleException;
+import jwzp_ww_fs.app.exceptions.schedule.NonExistingClubException;
 import jwzp_ww_fs.app.exceptions.schedule.ProtrudingScheduleException;
 import jwzp_ww_fs.app.models.*;
 import jwzp_ww_fs.app.repositories.ScheduleRepository;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -14,6 +17,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.DayOfWeek;
 import java.time.Duration;
@@ -29,6 +33,9 @@ import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,6 +46,8 @@ public class ScheduleServiceTest {
     ClubsService clubsService;
     @Mock
     CoachesService coachesService;
+    @Mock
+    ApplicationEventPublisher publisher;
 
     @BeforeEach
     public void initializeMocks() {
@@ -81,7 +90,7 @@ public class ScheduleServiceTest {
     @ParameterizedTest(name="exceptions POST {0}")
     @MethodSource("incorrectAddSchedulesProvider")
     public void addScheduleTestException(Schedule scheduleToAdd, Class<?> expectedException) {
-        ScheduleService service = new ScheduleService(repository, clubsService, coachesService);
+        ScheduleService service = new ScheduleService(repository, EntityCache.disabled(), clubsService, coachesService, publisher);
 
         Throwable uut = catchThrowable(() -> service.addSchedule(scheduleToAdd));
 
@@ -106,7 +115,7 @@ public class ScheduleServiceTest {
     public void addScheduleTest(Schedule scheduleToAdd) {
         when(clubsService.isScheduleInClubOpeningHours(Mockito.any())).thenReturn(true);
 
-        ScheduleService uut = new ScheduleService(repository, clubsService, coachesService);
+        ScheduleService uut = new ScheduleService(repository, EntityCache.disabled(), clubsService, coachesService, publisher);
 
         assertDoesNotThrow(() -> uut.addSchedule(scheduleToAdd));
     }
@@ -119,12 +128,36 @@ public class ScheduleServiceTest {
         );
     }
 
+    @Test
+    public void cheapRulesRejectBeforeLookupsTest() {
+        ScheduleService service = new ScheduleService(repository, EntityCache.disabled(), clubsService, coachesService, publisher);
+        var schedule = new Schedule("S3", DayOfWeek.SUNDAY, LocalTime.of(17, 30), Duration.ofHours(25), 10, 2, 2);
+
+        Throwable uut = catchThrowable(() -> service.addSchedule(schedule));
+
+        assertThat(uut).isExactlyInstanceOf(ExcessivelyLongScheduleException.class);
+        assertThat(uut.getStackTrace()).isEmpty();
+        verifyNoInteractions(clubsService, coachesService);
+    }
+
+    @Test
+    public void failedLookupsSkipScansTest() {
+        ScheduleService service = new ScheduleService(repository, EntityCache.disabled(), clubsService, coachesService, publisher);
+        var schedule = new Schedule("S3", DayOfWeek.SUNDAY, LocalTime.of(17, 30), Duration.ofHours(1), 10, 2, 1);
+
+        Throwable uut = catchThrowable(() -> service.addSchedule(schedule));
+
+        assertThat(uut).isExactlyInstanceOf(NonExistingClubException.class);
+        verify(clubsService, never()).isScheduleInClubOpeningHours(Mockito.any());
+        verify(repository, never()).findScheduleByCoachId(Mockito.anyInt());
+    }
+
     //PATCH
 
     @ParameterizedTest(name="exception PATCH {1}")
     @MethodSource("incorrectUpdateSchedulesProvider")
     public void updateScheduleTestException(int prevScheduleId, Schedule updatedSchedule, Class<?> expectedException) {
-        ScheduleService service = new ScheduleService(repository, clubsService, coachesService);
+        ScheduleService service = new ScheduleService(repository, EntityCache.disabled(), clubsService, coachesService, publisher);
 
         Throwable uut = catchThrowable(() -> service.updateSchedule(prevScheduleId, updatedSchedule));
 
@@ -149,7 +182,7 @@ public class ScheduleServiceTest {
     public void updateSchedulesTest(int prevScheduleId, Schedule updatedSchedule) {
         when(clubsService.isScheduleInClubOpeningHours(Mockito.any())).thenReturn(true);
 
-        ScheduleService service = new ScheduleService(repository, clubsService, coachesService);
+        ScheduleService service = new ScheduleService(repository, EntityCache.disabled(), clubsService, coachesService, publisher);
 
         assertDoesNotThrow(() -> service.updateSchedule(prevScheduleId, updatedSchedule));
     }
@@ -168,7 +201,7 @@ public class ScheduleServiceTest {
     @ParameterizedTest(name="exceptions DELETE {0}")
     @MethodSource("incorrectDeleteSchedulesProvider")
     public void deleteSchedulesTestException(int scheduleIdToDelete, Class<?> expectedException) {
-        ScheduleService service = new ScheduleService(repository, clubsService, coachesService);
+        ScheduleService service = new ScheduleService(repository, EntityCache.disabled(), clubsService, coachesService, publisher);
 
         Throwable uut = catchThrowable(() -> service.removeSchedule(scheduleIdToDelete));
 
@@ -187,7 +220,7 @@ public class ScheduleServiceTest {
     @ParameterizedTest(name="no exceptions DELETE {0}")
     @MethodSource("deleteSchedulesProvider")
     public void deleteSchedulesTestNoException(int scheduleIdToDelete) {
-        ScheduleService service = new ScheduleService(repository, clubsService, coachesService);
+        ScheduleService service = new ScheduleService(repository, EntityCache.disabled(), clubsService, coachesService, publisher);
 
         Throwable uut = catchThrowable(() -> service.removeSchedule(scheduleIdToDelete));
 
@@ -205,7 +238,7 @@ public class ScheduleServiceTest {
     @ParameterizedTest(name="GET schedule {0}")
     @MethodSource("getSchedulesProvider")
     public void getScheduleTest(int scheduleId) {
-        ScheduleService service = new ScheduleService(repository, clubsService, coachesService);
+        ScheduleService service = new ScheduleService(repository, EntityCache.disabled(), clubsService, coachesService, publisher);
 
         Throwable uut = catchThrowable(() -> service.getSchedule(scheduleId));
 
@@ -0,0 +1,73 @@
+package jwzp_ww_fs.app.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jwzp_ww_fs.app.models.ChangeRecord;
+import jwzp_ww_fs.app.models.ChangesRelayed;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.SeatsChange;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Month;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SeatFeedServiceTest {
+    @Test
+    public void changeWithoutSubscribersIsDroppedTest() {
+        SeatFeedService service = new SeatFeedService(new ObjectMapper(), new SimpleMeterRegistry());
+
+        service.onSeatsChange(new SeatsChange(1, 1, 5, 10));
+
+        assertThat(service.pendingChanges()).isEqualTo(0);
+    }
+
+    @Test
+    public void burstIsCoalescedTest() {
+        SeatFeedService service = new SeatFeedService(new ObjectMapper(), new SimpleMeterRegistry());
+        service.subscribeClub(1);
+
+        service.onSeatsChange(new SeatsChange(1, 1, 5, 10));
+        service.onSeatsChange(new SeatsChange(1, 1, 6, 10));
+        service.onSeatsChange(new SeatsChange(1, 1, 7, 10));
+        service.onSeatsChange(new SeatsChange(2, 1, 1, 10));
+
+        assertThat(service.pendingChanges()).isEqualTo(2);
+        service.flush();
+        assertThat(service.pendingChanges()).isEqualTo(0);
+    }
+
+    @Test
+    public void seatsAreReadFromRelayedChangesTest() {
+        SeatFeedService service = new SeatFeedService(new ObjectMapper(), new SimpleMeterRegistry());
+        service.subscribeClub(1);
+
+        service.onChangesRelayed(new ChangesRelayed(List.of(
+                new ChangeRecord(11, EntityChange.EVENT, "1", ChangeRecord.Operation.UPDATED,
+                        "{\"capacity\": 10, \"participants\": 6, \"clubId\": 1}", Instant.now()),
+                new ChangeRecord(12, EntityChange.EVENT, "2", ChangeRecord.Operation.UPDATED,
+                        "{\"capacity\": 10, \"participants\": 6, \"clubId\": 2}", Instant.now()),
+                new ChangeRecord(13, EntityChange.PARTICIPANT, "1/5", ChangeRecord.Operation.CREATED, null, Instant.now()))));
+
+        // only the event of the subscribed club
+        assertThat(service.pendingChanges()).isEqualTo(1);
+    }
+
+    @Test
+    public void subscribersAreCountedTest() {
+        SeatFeedService service = new SeatFeedService(new ObjectMapper(), new SimpleMeterRegistry());
+        var event = new EventInstance("E1", LocalDate.of(2022, Month.JANUARY, 4), LocalTime.of(10, 0), Duration.ofHours(1), 10, 1, 1);
+
+        service.subscribeEvent(event);
+        service.subscribeClub(1);
+        service.subscribeClub(1);
+
+        assertThat(service.subscribers()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,121 @@
+package jwzp_ww_fs.app.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jwzp_ww_fs.app.exceptions.event.ConcludedEventException;
+import jwzp_ww_fs.app.exceptions.event.FilledEventException;
+import jwzp_ww_fs.app.exceptions.event.NonExistingEventException;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SignUpQueueServiceTest {
+    private static final LocalDate TODAY = LocalDate.of(2022, Month.JANUARY, 3);
+
+    @Mock
+    EventsInstancesService eventsService;
+    @Mock
+    EventsInstancesRepository repository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private final AtomicInteger participants = new AtomicInteger();
+
+    @BeforeEach
+    public void initializeMocks() {
+        // two free seats, the mock reflects admitted sign-ups as lower capacity
+        lenient().when(repository.findEventForUpdate(1L)).thenAnswer(i -> Optional.of(new EventInstance("E1",
+                TODAY.plusDays(1), LocalTime.of(10, 0), Duration.ofHours(1), 2 - participants.get(), 1, 1)));
+        lenient().when(repository.findEventForUpdate(2L)).thenReturn(Optional.empty());
+        lenient().when(repository.addParticipantsForEvent(eq(1L), Mockito.anyInt())).thenAnswer(i -> {
+            participants.addAndGet(i.getArgument(1));
+            return 1;
+        });
+    }
+
+    private SignUpQueueService service(boolean enabled) {
+        return new SignUpQueueService(eventsService, repository, ShardingService.unsharded(), transactionManager, new SimpleMeterRegistry(), enabled, 100, 2);
+    }
+
+    private static List<SignUpQueueService.PendingSignUp> requests(int count, LocalDate today) {
+        List<SignUpQueueService.PendingSignUp> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            requests.add(new SignUpQueueService.PendingSignUp(today, new CompletableFuture<>()));
+        return requests;
+    }
+
+    @Test
+    public void admitFillsFreeSeatsInOrderTest() {
+        var service = service(true);
+
+        var admission = service.admit(1L, requests(5, TODAY));
+
+        assertThat(admission.outcomes().subList(0, 2)).containsOnlyNulls();
+        assertThat(admission.outcomes().subList(2, 5)).allMatch(ex -> ex instanceof FilledEventException);
+        verify(repository, times(1)).addParticipantsForEvent(1L, 2);
+        // admitted callers see their own sign-ups
+        assertThat(admission.event().participants()).isEqualTo(2);
+        service.shutdown();
+    }
+
+    @Test
+    public void admitRejectsConcludedAndMissingEventsTest() {
+        var service = service(true);
+
+        var concluded = service.admit(1L, requests(2, TODAY.plusDays(2)));
+        var missing = service.admit(2L, requests(2, TODAY));
+
+        assertThat(concluded.outcomes()).allMatch(ex -> ex instanceof ConcludedEventException);
+        assertThat(missing.outcomes()).allMatch(ex -> ex instanceof NonExistingEventException);
+        verify(repository, never()).addParticipantsForEvent(Mockito.anyLong(), Mockito.anyInt());
+        service.shutdown();
+    }
+
+    @Test
+    public void queuedSignUpsCompleteTest() throws Exception {
+        var service = service(true);
+
+        List<CompletableFuture<EventInstance>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            results.add(service.signUp(1L, TODAY));
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).exceptionally(ex -> null).get(5, TimeUnit.SECONDS);
+
+        assertThat(results.stream().filter(r -> !r.isCompletedExceptionally())).hasSize(2);
+        Throwable rejected = catchThrowable(() -> results.get(4).get());
+        assertThat(rejected).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(FilledEventException.class);
+        assertThat(participants.get()).isEqualTo(2);
+        assertThat(service.queued()).isEqualTo(0);
+        service.shutdown();
+    }
+
+    @Test
+    public void disabledSignsUpDirectlyTest() throws Exception {
+        var service = service(false);
+
+        service.signUp(1L, TODAY);
+
+        verify(eventsService).signUpForEvent(1L, TODAY);
+        verify(repository, never()).findEventForUpdate(Mockito.anyLong());
+        service.shutdown();
+    }
+}
@@ -0,0 +1,122 @@
+package jwzp_ww_fs.app.services;
+
+import jwzp_ww_fs.app.dto.WaitlistStatus;
+import jwzp_ww_fs.app.exceptions.event.FilledEventException;
+import jwzp_ww_fs.app.models.EntityChange;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.WaitlistEntry;
+import jwzp_ww_fs.app.repositories.EventsInstancesRepository;
+import jwzp_ww_fs.app.repositories.WaitlistRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.*;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WaitlistServiceTest {
+    private static final LocalDate TODAY = LocalDate.of(2022, Month.JANUARY, 3);
+    private static final Instant JOINED_AT = Instant.parse("2022-01-02T10:00:00Z");
+
+    @Mock
+    WaitlistRepository repository;
+    @Mock
+    EventsInstancesRepository eventsRepository;
+    @Mock
+    EventsInstancesService eventsService;
+    @Mock
+    ParticipantsService participantsService;
+    @Mock
+    ApplicationEventPublisher publisher;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private WaitlistService service;
+
+    @BeforeEach
+    public void initializeMocks() {
+        // two free seats
+        var event = new EventInstance("E1", TODAY.plusDays(1), LocalTime.of(10, 0), Duration.ofHours(1), 2, 1, 1);
+        lenient().when(eventsRepository.findById(1L)).thenReturn(Optional.of(event));
+        lenient().when(repository.findHead(eq(1L), Mockito.any())).thenReturn(List.of(
+                new WaitlistEntry(1, 5, JOINED_AT), new WaitlistEntry(1, 6, JOINED_AT)));
+        lenient().when(participantsService.admitFromWaitlist(eq(1L), Mockito.anyLong())).thenReturn(true);
+
+        service = new WaitlistService(repository, eventsRepository, eventsService, participantsService, publisher, transactionManager);
+    }
+
+    @Test
+    public void promoteTest() {
+        service.promote(1, TODAY);
+
+        verify(participantsService).admitFromWaitlist(1L, 5L);
+        verify(participantsService).admitFromWaitlist(1L, 6L);
+        verify(repository).deleteAllByIdInBatch(Mockito.argThat(ids -> ids.spliterator().getExactSizeIfKnown() == 2));
+        verify(eventsService).publishUpdate(Mockito.any(), Mockito.any(), Mockito.any(), eq(2));
+        // one notification for the whole promotion
+        verify(publisher, times(1)).publishEvent(Mockito.argThat(e -> e instanceof EntityChange change
+                && change.entity().equals(EntityChange.WAITLIST)));
+    }
+
+    @Test
+    public void promoteSkipsSignedUpMembersTest() {
+        lenient().when(participantsService.isParticipant(1L, 5L)).thenReturn(true);
+
+        service.promote(1, TODAY);
+
+        verify(participantsService, never()).admitFromWaitlist(1L, 5L);
+        verify(participantsService).admitFromWaitlist(1L, 6L);
+    }
+
+    @Test
+    public void promoteStopsWhenFullTest() {
+        lenient().when(participantsService.admitFromWaitlist(1L, 5L)).thenReturn(false);
+
+        service.promote(1, TODAY);
+
+        verify(participantsService, never()).admitFromWaitlist(1L, 6L);
+        verify(publisher, never()).publishEvent(Mockito.any(Object.class));
+    }
+
+    @Test
+    public void joinWithFreeSeatSignsUpTest() {
+        var status = assertDoesNotThrow(() -> service.join(1, 5, TODAY));
+
+        assertThat(status.status()).isEqualTo(WaitlistStatus.Status.SIGNED_UP);
+        verify(repository, never()).save(Mockito.any());
+    }
+
+    @Test
+    public void joinFullEventWaitsTest() throws Exception {
+        when(participantsService.signUp(1L, 5L, Optional.empty(), TODAY)).thenThrow(new FilledEventException());
+        lenient().when(repository.findHead(eq(1L), Mockito.any())).thenReturn(List.of());
+        lenient().when(repository.findWaitlistEntryByEventIdAndMemberId(1L, 5L))
+                .thenReturn(Optional.empty(), Optional.of(new WaitlistEntry(1, 5, JOINED_AT)));
+        lenient().when(repository.countAhead(eq(1L), Mockito.anyLong())).thenReturn(3L);
+
+        var status = service.join(1, 5, TODAY);
+
+        verify(repository).save(Mockito.any());
+        assertThat(status.status()).isEqualTo(WaitlistStatus.Status.WAITING);
+        assertThat(status.position()).isEqualTo(4);
+    }
+
+    @Test
+    public void statusOfParticipantTest() {
+        lenient().when(participantsService.isParticipant(1L, 7L)).thenReturn(true);
+
+        assertThat(service.status(1, 7)).contains(WaitlistStatus.signedUp(1, 7));
+        assertThat(service.status(1, 8)).isEmpty();
+    }
+}
@@ -0,0 +1,140 @@
+package jwzp_ww_fs.app.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jwzp_ww_fs.app.exceptions.schedule.ExcessivelyLongScheduleException;
+import jwzp_ww_fs.app.models.Club;
+import jwzp_ww_fs.app.models.Coach;
+import jwzp_ww_fs.app.models.EventInstance;
+import jwzp_ww_fs.app.models.Schedule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Month;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class WarmupServiceTest {
+    private static final LocalDate TODAY = LocalDate.of(2022, Month.JANUARY, 3);
+
+    @Mock
+    ClubsService clubsService;
+    @Mock
+    CoachesService coachesService;
+    @Mock
+    ScheduleService scheduleService;
+    @Mock
+    EventsInstancesService eventsService;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @Mock
+    ObjectMapper mapper;
+
+    @BeforeEach
+    public void initializeMocks() {
+        lenient().when(transactionManager.getTransaction(Mockito.any())).thenAnswer(i -> new SimpleTransactionStatus());
+        lenient().when(clubsService.addClub(Mockito.any())).thenAnswer(i -> i.getArgument(0));
+        lenient().when(coachesService.addCoach(Mockito.any())).thenAnswer(i -> i.getArgument(0));
+        lenient().when(eventsService.updateOccurrence(Mockito.anyInt(), Mockito.any(), Mockito.any()))
+                .thenAnswer(i -> new EventInstance("Warm-up", i.getArgument(1), LocalTime.of(11, 0), Duration.ofHours(1), 12, 1, 1));
+        lenient().when(scheduleService.addSchedule(Mockito.any())).thenAnswer(i -> {
+            Schedule schedule = i.getArgument(0);
+            if (schedule.duration().compareTo(Duration.ofDays(1)) > 0) throw new ExcessivelyLongScheduleException();
+            return schedule;
+        });
+    }
+
+    private WarmupService service(boolean enabled, int iterations, Duration observedWindow) {
+        return new WarmupService(clubsService, coachesService, scheduleService, eventsService, transactionManager, mapper,
+                new SimpleMeterRegistry(), enabled, iterations, Duration.ofMinutes(1), observedWindow);
+    }
+
+    @Test
+    public void iterationsAreRolledBackTest() {
+        var service = service(true, 3, Duration.ofMinutes(1));
+
+        service.warmUp();
+
+        var statuses = ArgumentCaptor.forClass(TransactionStatus.class);
+        verify(transactionManager, times(3)).commit(statuses.capture());
+        assertThat(statuses.getAllValues()).allMatch(TransactionStatus::isRollbackOnly);
+        // the valid schedule and the rejected one
+        verify(scheduleService, times(6)).addSchedule(Mockito.any(Schedule.class));
+        assertThat(service.isWarm()).isTrue();
+        assertThat(service.completedIterations()).isEqualTo(3);
+    }
+
+    @Test
+    public void notReadyBeforeWarmUpTest() {
+        var service = service(true, 3, Duration.ofMinutes(1));
+
+        service.recordRequest(Duration.ofMillis(5).toNanos());
+
+        assertThat(service.isWarm()).isFalse();
+        assertThat(service.firstRequests()).isZero();
+    }
+
+    @Test
+    public void failedWarmUpStillReportsReadyTest() {
+        lenient().when(clubsService.addClub(Mockito.any(Club.class))).thenThrow(new IllegalStateException("no database"));
+        var service = service(true, 3, Duration.ofMinutes(1));
+
+        service.warmUp();
+
+        verify(coachesService, times(0)).addCoach(Mockito.any(Coach.class));
+        assertThat(service.isWarm()).isTrue();
+    }
+
+    @Test
+    public void disabledWarmUpIsReadyAtOnceTest() {
+        var service = service(false, 3, Duration.ofMinutes(1));
+
+        service.onReady();
+
+        assertThat(service.isWarm()).isTrue();
+        verify(transactionManager, times(0)).getTransaction(Mockito.any());
+    }
+
+    @Test
+    public void onlyRequestsOfObservedWindowAreRecordedTest() {
+        var observed = service(false, 0, Duration.ofMinutes(1));
+        var passed = service(false, 0, Duration.ZERO);
+        observed.onReady();
+        passed.onReady();
+
+        observed.recordRequest(Duration.ofMillis(5).toNanos());
+        observed.recordRequest(Duration.ofMillis(50).toNanos());
+        passed.recordRequest(Duration.ofMillis(5).toNanos());
+
+        assertThat(observed.firstRequests()).isEqualTo(2);
+        assertThat(passed.firstRequests()).isZero();
+    }
+
+    @Test
+    public void eventsAreExercisedOnTheScheduledDayTest() {
+        var service = service(true, 1, Duration.ofMinutes(1));
+
+        service.iteration(TODAY, 0);
+
+        var dates = ArgumentCaptor.forClass(LocalDate.class);
+        verify(eventsService).updateOccurrence(Mockito.anyInt(), dates.capture(), Mockito.any());
+        assertThat(dates.getValue()).isEqualTo(TODAY.plusWeeks(1));
+        assertThat(dates.getValue().getDayOfWeek()).isEqualTo(TODAY.getDayOfWeek());
+        verify(eventsService, times(0)).addEvent(Mockito.any());
+    }
+}
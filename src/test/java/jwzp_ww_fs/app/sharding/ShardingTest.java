@@ -0,0 +1,241 @@
+package jwzp_ww_fs.app.sharding;
+
+import jwzp_ww_fs.app.models.Club;
+import jwzp_ww_fs.app.models.ClubRange;
+import jwzp_ww_fs.app.models.Coach;
+import jwzp_ww_fs.app.models.OpeningHours;
+import jwzp_ww_fs.app.models.Schedule;
+import jwzp_ww_fs.app.services.ClubsService;
+import jwzp_ww_fs.app.services.CoachesService;
+import jwzp_ww_fs.app.services.EventsGenerationService;
+import jwzp_ww_fs.app.services.HorizonService;
+import jwzp_ww_fs.app.services.ScheduleService;
+import jwzp_ww_fs.app.services.ShardingService;
+import jwzp_ww_fs.app.util.ShardMap;
+import jwzp_ww_fs.app.util.ShardRoutingDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Year;
+import java.time.temporal.TemporalAdjusters;
+import java.util.EnumMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two H2 databases as shards, clubs up to 999 on the home one and the others on the east one, with a coach
+// running classes in a club of each.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:home;DB_CLOSE_DELAY=-1",
+        "spring.jpa.open-in-view=false",
+        "gym.shards.enabled=true",
+        "gym.shards.ranges=home:1-999,east:1000-",
+        "gym.shards.east.url=jdbc:h2:mem:east;DB_CLOSE_DELAY=-1",
+        // forwarded by the tests themselves
+        "gym.shards.forward-interval-ms=3600000",
+        "gym.limits.enabled=false",
+        "gym.warmup.enabled=false"
+})
+@AutoConfigureMockMvc
+public class ShardingTest {
+    private static final List<String> EVENT_TABLES = List.of("event_participants", "event_waitlist", "event_instance", "change_outbox");
+    private static final List<String> HOME_TABLES = List.of("schedules", "when_open", "opening_hours", "fill_level", "event_hours", "clubs", "coaches", "generation_horizon", "shard_tasks");
+    private static final LocalDate MONDAY = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+
+    @Autowired
+    MockMvc mvc;
+    @Autowired
+    ShardRoutingDataSource shards;
+    @Autowired
+    ShardingService sharding;
+    @Autowired
+    ClubsService clubsService;
+    @Autowired
+    CoachesService coachesService;
+    @Autowired
+    ScheduleService scheduleService;
+    @Autowired
+    EventsGenerationService generationService;
+    @Autowired
+    HorizonService horizonService;
+
+    private JdbcTemplate home;
+    private JdbcTemplate east;
+    private Club homeClub;
+    private Club eastClub;
+
+    @BeforeEach
+    public void seedShards() {
+        home = new JdbcTemplate(shards.shard("home"));
+        east = new JdbcTemplate(shards.shard("east"));
+        for (var database : List.of(home, east)) {
+            database.execute("SET REFERENTIAL_INTEGRITY FALSE");
+            EVENT_TABLES.forEach(table -> database.execute("TRUNCATE TABLE " + table));
+            HOME_TABLES.forEach(table -> database.execute("TRUNCATE TABLE " + table));
+            database.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+
+        home.execute("ALTER TABLE clubs ALTER COLUMN id RESTART WITH 1");
+        homeClub = clubsService.addClub(new Club("Home club", "A", openAllWeek()));
+        home.execute("ALTER TABLE clubs ALTER COLUMN id RESTART WITH 1000");
+        eastClub = clubsService.addClub(new Club("East club", "B", openAllWeek()));
+
+        Coach coach = coachesService.addCoach(new Coach("Shared", "Coach", Year.of(1990)));
+        scheduleService.addSchedule(new Schedule("Home class", DayOfWeek.MONDAY, LocalTime.of(10, 0), Duration.ofHours(1),
+                10, homeClub.id(), coach.id()));
+        scheduleService.addSchedule(new Schedule("East class", DayOfWeek.TUESDAY, LocalTime.of(10, 0), Duration.ofHours(1),
+                10, eastClub.id(), coach.id()));
+    }
+
+    private static EnumMap<DayOfWeek, OpeningHours> openAllWeek() {
+        var whenOpen = new EnumMap<DayOfWeek, OpeningHours>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values())
+            whenOpen.put(day, new OpeningHours(LocalTime.of(6, 0), LocalTime.of(22, 0)));
+        return whenOpen;
+    }
+
+    private long count(JdbcTemplate database, String sql, Object... args) {
+        return database.queryForObject(sql, Long.class, args);
+    }
+
+    private long eventOn(JdbcTemplate database, LocalDate date) {
+        return database.queryForObject("SELECT id FROM event_instance WHERE date = ?", Long.class, date);
+    }
+
+    @Test
+    public void occurrencesAreWrittenToShardOfClubTest() {
+        assertThat(count(home, "SELECT count(*) FROM event_instance WHERE club_id = ?", homeClub.id())).isPositive();
+        assertThat(count(east, "SELECT count(*) FROM event_instance WHERE club_id = ?", eastClub.id())).isPositive();
+        assertThat(count(home, "SELECT count(*) FROM event_instance WHERE club_id <> ?", homeClub.id())).isZero();
+        assertThat(count(east, "SELECT count(*) FROM event_instance WHERE club_id <> ?", eastClub.id())).isZero();
+        // IDs of the east shard come from a range of its own
+        assertThat(eventOn(east, TUESDAY)).isGreaterThan(1L << 40);
+    }
+
+    @Test
+    public void occurrencesOnOtherShardsStoreTitleTest() {
+        // the home shard takes them from the schedule, the east one has no schedules to take them from
+        assertThat(count(home, "SELECT count(*) FROM event_instance WHERE title IS NOT NULL")).isZero();
+        assertThat(count(east, "SELECT count(*) FROM event_instance WHERE title IS NULL OR duration IS NULL")).isZero();
+    }
+
+    @Test
+    public void pendingShardTasksAreAppliedAgainTest() {
+        int scheduleId = home.queryForObject("SELECT id FROM schedules WHERE club_id = ?", Integer.class, eastClub.id());
+        assertThat(count(home, "SELECT count(*) FROM shard_tasks")).isZero();
+        // as if the east shard had been down when the schedule was added
+        east.execute("DELETE FROM event_instance");
+        home.update("INSERT INTO shard_tasks (shard, schedule_id, operation, from_date, created_at) "
+                + "VALUES ('east', ?, 'INSERT', ?, CURRENT_TIMESTAMP)", scheduleId, LocalDate.now());
+
+        horizonService.applyTasks();
+
+        assertThat(count(east, "SELECT count(*) FROM event_instance WHERE schedule_id = ?", scheduleId)).isPositive();
+        assertThat(count(home, "SELECT count(*) FROM shard_tasks")).isZero();
+    }
+
+    @Test
+    public void generationSplitsWritesByShardTest() {
+        for (var database : List.of(home, east))
+            database.execute("DELETE FROM event_instance");
+
+        var result = generationService.generateEvents(new ClubRange(homeClub.id(), eastClub.id()), MONDAY, MONDAY.plusDays(6));
+
+        assertThat(result.rows()).isEqualTo(2);
+        assertThat(result.failedClubs()).isZero();
+        assertThat(count(home, "SELECT count(*) FROM event_instance WHERE club_id = ?", homeClub.id())).isEqualTo(1);
+        assertThat(count(east, "SELECT count(*) FROM event_instance WHERE club_id = ?", eastClub.id())).isEqualTo(1);
+    }
+
+    @Test
+    public void eventIdsStayInRangeOfShardTest() {
+        for (var database : List.of(home, east))
+            database.execute("DELETE FROM event_instance");
+
+        // a week at a time, so that inserts of the two shards take turns
+        for (int week = 0; week < 8; week++)
+            generationService.generateEvents(new ClubRange(homeClub.id(), eastClub.id()), MONDAY.plusWeeks(week), MONDAY.plusWeeks(week).plusDays(6));
+
+        assertThat(home.queryForList("SELECT id FROM event_instance", Long.class))
+                .hasSize(8).allMatch(id -> id < ShardMap.EVENT_ID_OFFSET);
+        assertThat(east.queryForList("SELECT id FROM event_instance", Long.class))
+                .hasSize(8).allMatch(id -> id >= ShardMap.EVENT_ID_OFFSET && id < 2 * ShardMap.EVENT_ID_OFFSET);
+        for (long id : east.queryForList("SELECT id FROM event_instance", Long.class))
+            assertThat(sharding.shardOfEvent(id)).isEqualTo("east");
+    }
+
+    @Test
+    public void eventRequestsAreBoundToShardOfEventTest() throws Exception {
+        long eventId = eventOn(east, TUESDAY);
+
+        mvc.perform(post("/api/v1/events/" + eventId + "/participants/42")).andExpect(status().isOk());
+
+        assertThat(count(east, "SELECT count(*) FROM event_participants WHERE event_id = ?", eventId)).isEqualTo(1);
+        assertThat(count(east, "SELECT participants FROM event_instance WHERE id = ?", eventId)).isEqualTo(1);
+        assertThat(mvc.perform(get("/api/v1/events/" + eventId)).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).contains("East class");
+    }
+
+    @Test
+    public void listsGatherEveryShardTest() throws Exception {
+        assertThat(mvc.perform(get("/api/v1/events")).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).contains("Home class", "East class");
+        assertThat(mvc.perform(get("/api/v1/events").param("clubId", String.valueOf(eastClub.id()))).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).contains("East class").doesNotContain("Home class");
+        assertThat(mvc.perform(get("/api/v1/events/available").param("from", MONDAY.toString()).param("to", TUESDAY.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).contains("Home class", "East class");
+    }
+
+    @Test
+    public void pagesAreSortedByTitleOfScheduleTest() throws Exception {
+        home.update("UPDATE schedules SET title = 'A home class' WHERE club_id = ?", homeClub.id());
+
+        String page = mvc.perform(get("/api/v1/events").param("sort", "title").param("size", "100"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        assertThat(page.lastIndexOf("A home class")).isLessThan(page.indexOf("East class"));
+        assertThat(page).doesNotContain("\"title\":null");
+    }
+
+    @Test
+    public void coachConflictsAreCheckedAcrossShardsTest() throws Exception {
+        long eventId = eventOn(home, MONDAY);
+
+        // the coach runs the east class at 10:00 on Tuesday
+        mvc.perform(patch("/api/v1/events/" + eventId).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"capacity\": 10, \"date\": \"" + TUESDAY + "\", \"time\": \"10:30\"}"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(patch("/api/v1/events/" + eventId).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"capacity\": 10, \"date\": \"" + TUESDAY + "\", \"time\": \"14:00\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void changesOfShardsReachHomeOutboxTest() throws Exception {
+        long eventId = eventOn(east, TUESDAY);
+        mvc.perform(post("/api/v1/events/" + eventId + "/participants/42")).andExpect(status().isOk());
+        assertThat(count(east, "SELECT count(*) FROM change_outbox")).isPositive();
+
+        sharding.forwardChanges();
+
+        assertThat(count(east, "SELECT count(*) FROM change_outbox")).isZero();
+        assertThat(count(home, "SELECT count(*) FROM change_outbox WHERE entity = 'event' AND entity_id = ?",
+                String.valueOf(eventId))).isPositive();
+    }
+}
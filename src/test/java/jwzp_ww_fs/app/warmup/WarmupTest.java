@@ -0,0 +1,39 @@
+package jwzp_ww_fs.app.warmup;
+
+import jwzp_ww_fs.app.services.WarmupService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Warm-up against the real services and an H2 database: every iteration must run to its end, and leave nothing.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:warmup;DB_CLOSE_DELAY=-1",
+        "gym.limits.enabled=false",
+        "gym.warmup.enabled=true",
+        "gym.warmup.iterations=3"
+})
+public class WarmupTest {
+    @Autowired
+    WarmupService warmupService;
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    public void iterationsRunToTheirEndTest() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+        while (!warmupService.isWarm() && System.nanoTime() < deadline)
+            Thread.sleep(50);
+
+        assertThat(warmupService.isWarm()).isTrue();
+        assertThat(warmupService.completedIterations()).isEqualTo(3);
+        var jdbc = new JdbcTemplate(dataSource);
+        for (String table : new String[] { "clubs", "coaches", "schedules", "event_instance" })
+            assertThat(jdbc.queryForObject("SELECT count(*) FROM " + table, Long.class)).isZero();
+    }
+}
@@ -0,0 +1,46 @@
+#!/bin/sh
+
+# Compares the default and the fast-start mode: milliseconds from launch to the first answered request
+# and resident memory after it. Both modes boot against an in-memory database.
+#Expected parameters:
+# $1 - path to the application jar, e.g. build/libs/app-0.0.1.jar
+# $2 - number of runs per mode, 5 by default
+# $3 - port, 8081 by default
+
+JAR=$(realpath "$1")
+RUNS=${2:-5}
+PORT=${3:-8081}
+WORK=$(mktemp -d)
+COMMON="-Dserver.port=$PORT -Dspring.datasource.url=jdbc:h2:mem:benchmark -Dgym.limits.enabled=false"
+
+echo "Exploding $JAR and recording the class data sharing archive."
+(cd "$WORK" && jar -xf "$JAR")
+CLASSPATH="$WORK/BOOT-INF/classes:$WORK/BOOT-INF/lib/*"
+java -XX:ArchiveClassesAtExit="$WORK/app.jsa" $COMMON -Dspring.profiles.active=fast-start \
+ -Dgym.startup.exit-when-ready=true -cp "$CLASSPATH" jwzp_ww_fs.app.AppApplication > "$WORK/training.log" 2>&1
+
+# $1 - mode name, the rest - java command
+measure() {
+    MODE=$1
+    shift
+    for RUN in $(seq 1 "$RUNS"); do
+        START=$(date +%s%N)
+        "$@" > "$WORK/$MODE-$RUN.log" 2>&1 &
+        PID=$!
+        until curl -sf -o /dev/null "http://localhost:$PORT/api/v1/clubs"; do
+            if ! kill -0 $PID 2>/dev/null; then echo "$MODE run $RUN failed, see $WORK/$MODE-$RUN.log"; exit 1; fi
+            sleep 0.05
+        done
+        END=$(date +%s%N)
+        RSS=$(awk '/VmRSS/ { print $2 }' /proc/$PID/status)
+        kill $PID
+        wait $PID 2>/dev/null
+        echo "$MODE run $RUN: $(( (END - START) / 1000000 )) ms to first request, $(( RSS / 1024 )) MiB RSS"
+    done
+}
+
+measure default java $COMMON -jar "$JAR"
+measure fast-start java -XX:SharedArchiveFile="$WORK/app.jsa" $COMMON \
+ -Dspring.profiles.active=fast-start -cp "$CLASSPATH" jwzp_ww_fs.app.AppApplication
+
+rm -rf "$WORK"